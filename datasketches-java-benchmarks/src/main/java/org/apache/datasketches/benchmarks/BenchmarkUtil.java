@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableDirectHandle;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * Input streams shared by the benchmarks. All streams are generated from a fixed seed so that
+ * every run of a benchmark sees exactly the same input.
+ */
+final class BenchmarkUtil {
+  static final long SEED = 1234567L;
+
+  private BenchmarkUtil() {}
+
+  /**
+   * Allocates off-heap memory and records its handle so that it can be released at tear down.
+   * @param bytes the capacity in bytes
+   * @param handles the list that owns the new handle
+   * @return the allocated memory
+   */
+  static WritableMemory allocateDirect(final long bytes, final List<WritableDirectHandle> handles) {
+    final WritableDirectHandle handle = WritableMemory.allocateDirect(bytes);
+    handles.add(handle);
+    return handle.get();
+  }
+
+  /**
+   * Copies the given bytes into off-heap memory.
+   * @param bytes the bytes to copy
+   * @param handles the list that owns the new handle
+   * @return read-only off-heap memory holding a copy of the bytes
+   */
+  static Memory copyToDirect(final byte[] bytes, final List<WritableDirectHandle> handles) {
+    final WritableMemory wmem = allocateDirect(bytes.length, handles);
+    wmem.putByteArray(0, bytes, 0, bytes.length);
+    return wmem;
+  }
+
+  /**
+   * Releases all off-heap memory recorded in the given list.
+   * @param handles the handles to close
+   */
+  static void closeAll(final List<WritableDirectHandle> handles) {
+    for (final WritableDirectHandle handle : handles) { handle.close(); }
+    handles.clear();
+  }
+
+  /**
+   * Returns <i>n</i> distinct keys, so that the true cardinality of the stream equals <i>n</i>.
+   * @param n the number of keys
+   * @param offset the first key; streams with overlapping ranges have a known intersection
+   * @return an array of distinct keys
+   */
+  static long[] distinctKeys(final int n, final long offset) {
+    final long[] keys = new long[n];
+    for (int i = 0; i < n; i++) { keys[i] = offset + i; }
+    return keys;
+  }
+
+  /**
+   * Returns <i>n</i> uniformly distributed doubles.
+   * @param n the number of values
+   * @return an array of values
+   */
+  static double[] uniformDoubles(final int n) {
+    final Random rand = new Random(SEED);
+    final double[] values = new double[n];
+    for (int i = 0; i < n; i++) { values[i] = rand.nextDouble(); }
+    return values;
+  }
+
+  /**
+   * Returns <i>n</i> items drawn from a power-law distribution over <i>range</i> distinct items,
+   * which is the kind of stream the frequent items sketches are designed for.
+   * @param n the number of items
+   * @param range the number of distinct items
+   * @return an array of items
+   */
+  static long[] skewedKeys(final int n, final int range) {
+    final Random rand = new Random(SEED);
+    final long[] keys = new long[n];
+    for (int i = 0; i < n; i++) {
+      keys[i] = (long) Math.floor(Math.pow(range, rand.nextDouble())); //1 .. range
+    }
+    return keys;
+  }
+}
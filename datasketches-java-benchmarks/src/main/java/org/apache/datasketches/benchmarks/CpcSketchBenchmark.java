@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.datasketches.cpc.CpcSketch;
+import org.apache.datasketches.cpc.CpcUnion;
+import org.apache.datasketches.cpc.CpcWrapper;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableDirectHandle;
+
+/**
+ * Benchmarks for the CPC sketch: update, union, serialization and estimation. The two union
+ * inputs overlap by half of <i>numItems</i>.
+ *
+ * <p>CPC sketches are updated on the heap only. The <i>direct</i> parameter selects whether the
+ * serialized image is estimated and read from off-heap memory with a {@link CpcWrapper} or
+ * heapified first.</p>
+ *
+ * <p>The update benchmark feeds a full stream of <i>numItems</i> keys into a reset sketch, so
+ * its score is the time per stream, not per update.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CpcSketchBenchmark {
+
+  @Param({"11", "16"})
+  int lgK;
+
+  @Param({"1000", "1000000"})
+  int numItems;
+
+  @Param({"false", "true"})
+  boolean direct;
+
+  private final List<WritableDirectHandle> handles = new ArrayList<>();
+  private long[] keys;
+  private CpcSketch updateSketch;
+  private CpcSketch sketchA;
+  private CpcSketch sketchB;
+  private Memory serializedMem;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    keys = BenchmarkUtil.distinctKeys(numItems, 0);
+    updateSketch = newSketch(keys);
+    sketchA = newSketch(keys);
+    sketchB = newSketch(BenchmarkUtil.distinctKeys(numItems, numItems / 2));
+    final byte[] bytes = sketchA.toByteArray();
+    serializedMem = direct ? BenchmarkUtil.copyToDirect(bytes, handles) : Memory.wrap(bytes);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    BenchmarkUtil.closeAll(handles);
+  }
+
+  private CpcSketch newSketch(final long[] keys) {
+    final CpcSketch sketch = new CpcSketch(lgK);
+    for (int i = 0; i < keys.length; i++) { sketch.update(keys[i]); }
+    return sketch;
+  }
+
+  @Benchmark
+  public CpcSketch update() {
+    updateSketch.reset();
+    final long[] keys = this.keys;
+    for (int i = 0; i < keys.length; i++) { updateSketch.update(keys[i]); }
+    return updateSketch;
+  }
+
+  @Benchmark
+  public double getEstimate() {
+    return direct ? new CpcWrapper(serializedMem).getEstimate() : sketchA.getEstimate();
+  }
+
+  @Benchmark
+  public CpcSketch union() {
+    final CpcUnion union = new CpcUnion(lgK);
+    union.update(sketchA);
+    union.update(sketchB);
+    return union.getResult();
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return sketchA.toByteArray();
+  }
+
+  @Benchmark
+  public CpcSketch deserialize() {
+    return CpcSketch.heapify(serializedMem);
+  }
+}
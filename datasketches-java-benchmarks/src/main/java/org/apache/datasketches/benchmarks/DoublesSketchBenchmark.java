@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableDirectHandle;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.quantiles.DoublesSketch;
+import org.apache.datasketches.quantiles.DoublesSketchBuilder;
+import org.apache.datasketches.quantiles.DoublesUnion;
+import org.apache.datasketches.quantiles.DoublesUnionBuilder;
+import org.apache.datasketches.quantiles.UpdateDoublesSketch;
+
+/**
+ * Benchmarks for the quantiles DoublesSketch: update, union, quantile queries and serialization.
+ *
+ * <p>The update benchmark feeds a full stream of <i>numItems</i> values into a reset sketch, so
+ * its score is the time per stream, not per update.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DoublesSketchBenchmark {
+  private static final double[] FRACTIONS = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99};
+
+  @Param({"128", "1024"})
+  int k;
+
+  @Param({"1000", "1000000"})
+  int numItems;
+
+  @Param({"false", "true"})
+  boolean direct;
+
+  private final List<WritableDirectHandle> handles = new ArrayList<>();
+  private double[] values;
+  private UpdateDoublesSketch updateSketch;
+  private UpdateDoublesSketch sketchA;
+  private UpdateDoublesSketch sketchB;
+  private Memory compactMem;
+  private DoublesUnionBuilder unionBuilder;
+  private WritableMemory unionMem;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    values = BenchmarkUtil.uniformDoubles(numItems);
+    final DoublesSketchBuilder bldr = DoublesSketch.builder().setK(k);
+    final int bytes = DoublesSketch.getUpdatableStorageBytes(k, numItems);
+    updateSketch = direct ? bldr.build(BenchmarkUtil.allocateDirect(bytes, handles)) : bldr.build();
+    sketchA = direct ? bldr.build(BenchmarkUtil.allocateDirect(bytes, handles)) : bldr.build();
+    sketchB = bldr.build();
+    for (int i = 0; i < numItems; i++) {
+      updateSketch.update(values[i]);
+      sketchA.update(values[i]);
+      sketchB.update(values[numItems - 1 - i]);
+    }
+    final byte[] compactBytes = sketchA.toByteArray(true);
+    compactMem = direct
+        ? BenchmarkUtil.copyToDirect(compactBytes, handles)
+        : Memory.wrap(compactBytes);
+
+    unionBuilder = DoublesUnion.builder().setMaxK(k);
+    if (direct) {
+      unionMem = BenchmarkUtil.allocateDirect(
+          DoublesSketch.getUpdatableStorageBytes(k, 2L * numItems), handles);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    BenchmarkUtil.closeAll(handles);
+  }
+
+  @Benchmark
+  public UpdateDoublesSketch update() {
+    updateSketch.reset();
+    final double[] values = this.values;
+    for (int i = 0; i < values.length; i++) { updateSketch.update(values[i]); }
+    return updateSketch;
+  }
+
+  @Benchmark
+  public DoublesSketch union() {
+    final DoublesUnion union = direct ? unionBuilder.build(unionMem) : unionBuilder.build();
+    union.update(sketchA);
+    union.update(sketchB);
+    return union.getResult();
+  }
+
+  @Benchmark
+  public double[] getQuantiles() {
+    return sketchA.getQuantiles(FRACTIONS);
+  }
+
+  @Benchmark
+  public double getRank() {
+    return sketchA.getRank(0.5);
+  }
+
+  @Benchmark
+  public byte[] serializeCompact() {
+    return sketchA.toByteArray(true);
+  }
+
+  @Benchmark
+  public byte[] serializeUpdatable() {
+    return sketchA.toByteArray(false);
+  }
+
+  @Benchmark
+  public DoublesSketch deserializeCompact() {
+    return direct ? DoublesSketch.wrap(compactMem) : DoublesSketch.heapify(compactMem);
+  }
+}
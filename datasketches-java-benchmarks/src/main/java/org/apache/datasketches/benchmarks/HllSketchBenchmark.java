@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.datasketches.hll.HllSketch;
+import org.apache.datasketches.hll.TgtHllType;
+import org.apache.datasketches.hll.Union;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableDirectHandle;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * Benchmarks for the HLL sketch in each {@link TgtHllType}: update, union, serialization and
+ * estimation. The two union inputs overlap by half of <i>numItems</i>.
+ *
+ * <p>The update benchmarks feed a full stream of <i>numItems</i> keys into a reset sketch, so
+ * their score is the time per stream, not per update. Small streams stay in the LIST and SET
+ * modes; large streams exercise the HLL array.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HllSketchBenchmark {
+
+  @Param({"12", "21"})
+  int lgK;
+
+  @Param({"HLL_4", "HLL_6", "HLL_8"})
+  TgtHllType tgtHllType;
+
+  @Param({"1000", "1000000"})
+  int numItems;
+
+  @Param({"false", "true"})
+  boolean direct;
+
+  private final List<WritableDirectHandle> handles = new ArrayList<>();
+  private long[] keys;
+  private HllSketch updateSketch;
+  private HllSketch sketchA;
+  private HllSketch sketchB;
+  private byte[] compactBytes;
+  private Memory compactMem;
+  private byte[] updatableBytes;
+  private WritableMemory unionMem;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    keys = BenchmarkUtil.distinctKeys(numItems, 0);
+    final long[] bKeys = BenchmarkUtil.distinctKeys(numItems, numItems / 2);
+    updateSketch = newSketch();
+    updateSketch.updateAll(keys, 0, keys.length);
+    updatableBytes = updateSketch.toUpdatableByteArray();
+
+    sketchA = newSketch();
+    sketchA.updateAll(keys, 0, keys.length);
+    sketchB = newSketch();
+    sketchB.updateAll(bKeys, 0, bKeys.length);
+    compactBytes = sketchA.toCompactByteArray();
+    compactMem = direct
+        ? BenchmarkUtil.copyToDirect(compactBytes, handles)
+        : Memory.wrap(compactBytes);
+    if (direct) {
+      unionMem = BenchmarkUtil.allocateDirect(Union.getMaxSerializationBytes(lgK), handles);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    BenchmarkUtil.closeAll(handles);
+  }
+
+  private HllSketch newSketch() {
+    if (direct) {
+      final int bytes = HllSketch.getMaxUpdatableSerializationBytes(lgK, tgtHllType);
+      return new HllSketch(lgK, tgtHllType, BenchmarkUtil.allocateDirect(bytes, handles));
+    }
+    return new HllSketch(lgK, tgtHllType);
+  }
+
+  @Benchmark
+  public HllSketch update() {
+    updateSketch.reset();
+    final long[] keys = this.keys;
+    for (int i = 0; i < keys.length; i++) { updateSketch.update(keys[i]); }
+    return updateSketch;
+  }
+
+  @Benchmark
+  public HllSketch updateAll() {
+    updateSketch.reset();
+    updateSketch.updateAll(keys, 0, keys.length);
+    return updateSketch;
+  }
+
+  @Benchmark
+  public double getEstimate() {
+    return updateSketch.getEstimate();
+  }
+
+  @Benchmark
+  public HllSketch union() {
+    final Union union = direct ? new Union(lgK, unionMem) : new Union(lgK);
+    union.update(sketchA);
+    union.update(sketchB);
+    return union.getResult(tgtHllType);
+  }
+
+  @Benchmark
+  public byte[] serializeCompact() {
+    return sketchA.toCompactByteArray();
+  }
+
+  @Benchmark
+  public byte[] serializeUpdatable() {
+    return updateSketch.toUpdatableByteArray();
+  }
+
+  @Benchmark
+  public HllSketch deserializeCompact() {
+    return direct ? HllSketch.wrap(compactMem) : HllSketch.heapify(compactMem);
+  }
+
+  @Benchmark
+  public HllSketch deserializeUpdatable() {
+    return HllSketch.heapify(Memory.wrap(updatableBytes));
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.datasketches.kll.KllFloatsSketch;
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * Benchmarks for the KLL floats sketch: update, merge, quantile queries and serialization.
+ * KLL sketches live on the heap only, so there is no direct variant.
+ *
+ * <p>The update benchmark feeds a full stream of <i>numItems</i> values into a new sketch, so
+ * its score is the time per stream, not per update.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KllFloatsSketchBenchmark {
+  private static final double[] FRACTIONS = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99};
+
+  @Param({"200", "1600"})
+  int k;
+
+  @Param({"1000", "1000000"})
+  int numItems;
+
+  private float[] values;
+  private KllFloatsSketch sketchA;
+  private KllFloatsSketch sketchB;
+  private byte[] serializedBytes;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    final double[] doubles = BenchmarkUtil.uniformDoubles(numItems);
+    values = new float[numItems];
+    for (int i = 0; i < numItems; i++) { values[i] = (float) doubles[i]; }
+    sketchA = newSketch();
+    sketchB = newSketch();
+    serializedBytes = sketchA.toByteArray();
+  }
+
+  private KllFloatsSketch newSketch() {
+    final KllFloatsSketch sketch = new KllFloatsSketch(k);
+    final float[] values = this.values;
+    for (int i = 0; i < values.length; i++) { sketch.update(values[i]); }
+    return sketch;
+  }
+
+  @Benchmark
+  public KllFloatsSketch update() {
+    return newSketch();
+  }
+
+  @Benchmark
+  public KllFloatsSketch merge() {
+    final KllFloatsSketch union = new KllFloatsSketch(k);
+    union.merge(sketchA);
+    union.merge(sketchB);
+    return union;
+  }
+
+  @Benchmark
+  public float[] getQuantiles() {
+    return sketchA.getQuantiles(FRACTIONS);
+  }
+
+  @Benchmark
+  public double getRank() {
+    return sketchA.getRank(0.5f);
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return sketchA.toByteArray();
+  }
+
+  @Benchmark
+  public KllFloatsSketch deserialize() {
+    return KllFloatsSketch.heapify(Memory.wrap(serializedBytes));
+  }
+}
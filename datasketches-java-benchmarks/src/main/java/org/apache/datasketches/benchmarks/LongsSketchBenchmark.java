@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.datasketches.frequencies.ErrorType;
+import org.apache.datasketches.frequencies.LongsSketch;
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * Benchmarks for the frequent items LongsSketch: update, merge, frequent item queries and
+ * serialization. The input streams follow a power law so that the sketch has heavy hitters to
+ * find. LongsSketch lives on the heap only, so there is no direct variant.
+ *
+ * <p>The update benchmark feeds a full stream of <i>numItems</i> items into a reset sketch, so
+ * its score is the time per stream, not per update.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongsSketchBenchmark {
+
+  @Param({"1024", "32768"})
+  int maxMapSize;
+
+  @Param({"1000", "1000000"})
+  int numItems;
+
+  private long[] items;
+  private LongsSketch updateSketch;
+  private LongsSketch sketchA;
+  private LongsSketch sketchB;
+  private byte[] serializedBytes;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    items = BenchmarkUtil.skewedKeys(numItems, numItems);
+    updateSketch = newSketch(0);
+    sketchA = newSketch(0);
+    sketchB = newSketch(numItems / 2);
+    serializedBytes = sketchA.toByteArray();
+  }
+
+  private LongsSketch newSketch(final long offset) {
+    final LongsSketch sketch = new LongsSketch(maxMapSize);
+    final long[] items = this.items;
+    for (int i = 0; i < items.length; i++) { sketch.update(items[i] + offset); }
+    return sketch;
+  }
+
+  @Benchmark
+  public LongsSketch update() {
+    updateSketch.reset();
+    final long[] items = this.items;
+    for (int i = 0; i < items.length; i++) { updateSketch.update(items[i]); }
+    return updateSketch;
+  }
+
+  @Benchmark
+  public LongsSketch merge() {
+    final LongsSketch union = new LongsSketch(maxMapSize);
+    union.merge(sketchA);
+    union.merge(sketchB);
+    return union;
+  }
+
+  @Benchmark
+  public LongsSketch.Row[] getFrequentItems() {
+    return sketchA.getFrequentItems(ErrorType.NO_FALSE_POSITIVES);
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return sketchA.toByteArray();
+  }
+
+  @Benchmark
+  public LongsSketch deserialize() {
+    return LongsSketch.getInstance(Memory.wrap(serializedBytes));
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableDirectHandle;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.theta.AnotB;
+import org.apache.datasketches.theta.CompactSketch;
+import org.apache.datasketches.theta.Intersection;
+import org.apache.datasketches.theta.SetOperation;
+import org.apache.datasketches.theta.SetOperationBuilder;
+import org.apache.datasketches.theta.Sketch;
+import org.apache.datasketches.theta.Sketches;
+import org.apache.datasketches.theta.Union;
+import org.apache.datasketches.theta.UpdateSketch;
+import org.apache.datasketches.theta.UpdateSketchBuilder;
+
+/**
+ * Benchmarks for the Theta sketch: update, union, intersection, A-not-B, serialization and
+ * estimation. The two set-operation inputs overlap by half of <i>numItems</i>.
+ *
+ * <p>The update benchmark feeds a full stream of <i>numItems</i> keys into a reset sketch, so
+ * its score is the time per stream, not per update.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThetaSketchBenchmark {
+
+  @Param({"4096", "65536"})
+  int nomEntries;
+
+  @Param({"1000", "1000000"})
+  int numItems;
+
+  @Param({"false", "true"})
+  boolean direct;
+
+  private final List<WritableDirectHandle> handles = new ArrayList<>();
+  private long[] keys;
+  private UpdateSketch updateSketch;
+  private CompactSketch sketchA;
+  private CompactSketch sketchB;
+  private byte[] compactBytes;
+  private Memory compactMem;
+  private byte[] updatableBytes;
+  private SetOperationBuilder setOpBuilder;
+  private WritableMemory unionMem;
+  private WritableMemory intersectionMem;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    keys = BenchmarkUtil.distinctKeys(numItems, 0);
+    final long[] bKeys = BenchmarkUtil.distinctKeys(numItems, numItems / 2);
+    final UpdateSketchBuilder bldr = UpdateSketch.builder().setNominalEntries(nomEntries);
+    final int bytes = Sketch.getMaxUpdateSketchBytes(nomEntries);
+    updateSketch = direct ? bldr.build(BenchmarkUtil.allocateDirect(bytes, handles)) : bldr.build();
+    updateSketch.updateAll(keys, 0, keys.length);
+    updatableBytes = updateSketch.toByteArray();
+
+    final UpdateSketch a = bldr.build();
+    a.updateAll(keys, 0, keys.length);
+    final UpdateSketch b = bldr.build();
+    b.updateAll(bKeys, 0, bKeys.length);
+    sketchA = a.compact(true, null);
+    sketchB = b.compact(true, null);
+    compactBytes = sketchA.toByteArray();
+    compactMem = direct
+        ? BenchmarkUtil.copyToDirect(compactBytes, handles)
+        : Memory.wrap(compactBytes);
+
+    setOpBuilder = SetOperation.builder().setNominalEntries(nomEntries);
+    if (direct) {
+      unionMem = BenchmarkUtil.allocateDirect(SetOperation.getMaxUnionBytes(nomEntries), handles);
+      intersectionMem = BenchmarkUtil.allocateDirect(
+          SetOperation.getMaxIntersectionBytes(nomEntries), handles);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    BenchmarkUtil.closeAll(handles);
+  }
+
+  @Benchmark
+  public UpdateSketch update() {
+    updateSketch.reset();
+    final long[] keys = this.keys;
+    for (int i = 0; i < keys.length; i++) { updateSketch.update(keys[i]); }
+    return updateSketch;
+  }
+
+  @Benchmark
+  public UpdateSketch updateAll() {
+    updateSketch.reset();
+    updateSketch.updateAll(keys, 0, keys.length);
+    return updateSketch;
+  }
+
+  @Benchmark
+  public double getEstimate() {
+    return updateSketch.getEstimate();
+  }
+
+  @Benchmark
+  public CompactSketch union() {
+    final Union union = direct ? setOpBuilder.buildUnion(unionMem) : setOpBuilder.buildUnion();
+    union.update(sketchA);
+    union.update(sketchB);
+    return union.getResult();
+  }
+
+  @Benchmark
+  public CompactSketch intersection() {
+    final Intersection inter = direct
+        ? setOpBuilder.buildIntersection(intersectionMem)
+        : setOpBuilder.buildIntersection();
+    inter.intersect(sketchA);
+    inter.intersect(sketchB);
+    return inter.getResult(true, null);
+  }
+
+  @Benchmark
+  public CompactSketch aNotB() {
+    final AnotB aNotB = setOpBuilder.buildANotB();
+    return aNotB.aNotB(sketchA, sketchB);
+  }
+
+  @Benchmark
+  public byte[] serializeCompact() {
+    return sketchA.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] serializeUpdatable() {
+    return updateSketch.toByteArray();
+  }
+
+  @Benchmark
+  public Sketch deserializeCompact() {
+    return direct ? Sketches.wrapSketch(compactMem) : Sketches.heapifySketch(compactMem);
+  }
+
+  @Benchmark
+  public Sketch deserializeUpdatable() {
+    return Sketches.heapifyUpdateSketch(Memory.wrap(updatableBytes));
+  }
+}
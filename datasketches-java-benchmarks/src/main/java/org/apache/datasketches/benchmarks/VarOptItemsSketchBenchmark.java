@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.datasketches.ArrayOfLongsSerDe;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.sampling.VarOptItemsSketch;
+import org.apache.datasketches.sampling.VarOptItemsUnion;
+
+/**
+ * Benchmarks for the VarOpt sampling sketch: update, union and serialization. Items carry
+ * uniformly distributed weights. VarOpt sketches live on the heap only, so there is no direct
+ * variant.
+ *
+ * <p>The update benchmark feeds a full stream of <i>numItems</i> weighted items into a reset
+ * sketch, so its score is the time per stream, not per update.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VarOptItemsSketchBenchmark {
+  private static final ArrayOfLongsSerDe SERDE = new ArrayOfLongsSerDe();
+
+  @Param({"64", "4096"})
+  int k;
+
+  @Param({"1000", "1000000"})
+  int numItems;
+
+  private Long[] items;
+  private double[] weights;
+  private VarOptItemsSketch<Long> updateSketch;
+  private VarOptItemsSketch<Long> sketchA;
+  private VarOptItemsSketch<Long> sketchB;
+  private byte[] serializedBytes;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    items = new Long[numItems];
+    for (int i = 0; i < numItems; i++) { items[i] = (long) i; }
+    weights = BenchmarkUtil.uniformDoubles(numItems);
+    for (int i = 0; i < numItems; i++) { weights[i] += Double.MIN_NORMAL; } //weights must be > 0
+    updateSketch = VarOptItemsSketch.newInstance(k);
+    sketchA = newSketch(0, numItems / 2);
+    sketchB = newSketch(numItems / 2, numItems);
+    serializedBytes = sketchA.toByteArray(SERDE);
+  }
+
+  private VarOptItemsSketch<Long> newSketch(final int from, final int to) {
+    final VarOptItemsSketch<Long> sketch = VarOptItemsSketch.newInstance(k);
+    for (int i = from; i < to; i++) { sketch.update(items[i], weights[i]); }
+    return sketch;
+  }
+
+  @Benchmark
+  public VarOptItemsSketch<Long> update() {
+    updateSketch.reset();
+    final Long[] items = this.items;
+    final double[] weights = this.weights;
+    for (int i = 0; i < items.length; i++) { updateSketch.update(items[i], weights[i]); }
+    return updateSketch;
+  }
+
+  @Benchmark
+  public VarOptItemsSketch<Long> union() {
+    final VarOptItemsUnion<Long> union = VarOptItemsUnion.newInstance(k);
+    union.update(sketchA);
+    union.update(sketchB);
+    return union.getResult();
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return sketchA.toByteArray(SERDE);
+  }
+
+  @Benchmark
+  public VarOptItemsSketch<Long> deserialize() {
+    return VarOptItemsSketch.heapify(Memory.wrap(serializedBytes), SERDE);
+  }
+}
@@ -0,0 +1,27 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * JMH benchmarks for the update, merge, serialize and query paths of every sketch family.
+ *
+ * <p>Each benchmark class covers one family. Where the family supports it, a <i>direct</i>
+ * parameter selects between an on-heap sketch and one backed by off-heap {@code WritableMemory}.
+ * See the README of this module for how to build and run the benchmarks.</p>
+ */
+package org.apache.datasketches.benchmarks;
@@ -21,7 +21,6 @@ package org.apache.datasketches.cpc;
 
 import static java.lang.Math.log;
 import static java.lang.Math.sqrt;
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
 import static org.apache.datasketches.Util.checkSeedHashes;
 import static org.apache.datasketches.Util.computeSeedHash;
@@ -35,7 +34,9 @@ import static org.apache.datasketches.hash.MurmurHash3.hash;
 import java.util.Arrays;
 
 import org.apache.datasketches.Family;
+import org.apache.datasketches.hash.MurmurHash3v2;
 import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.UnsafeUtil;
 import org.apache.datasketches.memory.WritableMemory;
 
 /**
@@ -86,6 +87,8 @@ public final class CpcSketch {
   double kxp;                  //used with HIP
   double hipEstAccum;          //used with HIP
 
+  private final long[] hashOut = new long[2]; //reused by the primitive update methods
+
   /**
    * Constructor with default log_base2 of k
    */
@@ -307,8 +310,7 @@ public final class CpcSketch {
    * @param datum The given long datum.
    */
   public void update(final long datum) {
-    final long[] data = { datum };
-    final long[] arr = hash(data, seed);
+    final long[] arr = MurmurHash3v2.hash(datum, seed, hashOut);
     hashUpdate(arr[0], arr[1]);
   }
 
@@ -322,15 +324,13 @@ public final class CpcSketch {
    * @param datum The given double datum.
    */
   public void update(final double datum) {
-    final double d = (datum == 0.0) ? 0.0 : datum; // canonicalize -0.0, 0.0
-    final long[] data = { Double.doubleToLongBits(d) };// canonicalize all NaN forms
-    final long[] arr = hash(data, seed);
+    final long[] arr = MurmurHash3v2.hash(datum, seed, hashOut); //canonicalizes -0.0 and NaN forms
     hashUpdate(arr[0], arr[1]);
   }
 
   /**
    * Present the given String as a potential unique item.
-   * The string is converted to a byte array using UTF8 encoding.
+   * The string is hashed as its UTF8 encoding.
    * If the string is null or empty no update attempt is made and the method returns.
    *
    * <p>Note: About 2X faster performance can be obtained by first converting the String to a
@@ -343,9 +343,21 @@ public final class CpcSketch {
    * @param datum The given String.
    */
   public void update(final String datum) {
-    if ((datum == null) || datum.isEmpty()) { return; }
-    final byte[] data = datum.getBytes(UTF_8);
-    final long[] arr = hash(data, seed);
+    update((CharSequence) datum);
+  }
+
+  /**
+   * Present the given CharSequence as a potential unique item.
+   * The characters are hashed as their UTF8 encoding, so this produces exactly the same result as
+   * {@link #update(String)} with <i>datum.toString()</i>, but the encoding is streamed into the
+   * hash function without creating a String or a byte array.
+   * If the CharSequence is null or empty no update attempt is made and the method returns.
+   *
+   * @param datum The given CharSequence.
+   */
+  public void update(final CharSequence datum) {
+    if ((datum == null) || (datum.length() == 0)) { return; }
+    final long[] arr = MurmurHash3v2.hash(datum, seed, hashOut);
     hashUpdate(arr[0], arr[1]);
   }
 
@@ -361,6 +373,24 @@ public final class CpcSketch {
     hashUpdate(arr[0], arr[1]);
   }
 
+  /**
+   * Present the given region of Memory as a potential unique item.
+   * This produces exactly the same result as calling {@link #update(byte[])} with the bytes of the
+   * region, without copying them. For example, the region can be a UTF8 encoded string in a
+   * network buffer, which then gives the same result as {@link #update(String)} with the string.
+   * If the Memory is null or the length is zero no update attempt is made and the method returns.
+   *
+   * @param mem The given Memory.
+   * @param offsetBytes the offset in bytes of the region
+   * @param lengthBytes the length in bytes of the region
+   */
+  public void update(final Memory mem, final long offsetBytes, final long lengthBytes) {
+    if ((mem == null) || (lengthBytes == 0)) { return; }
+    UnsafeUtil.checkBounds(offsetBytes, lengthBytes, mem.getCapacity());
+    final long[] arr = MurmurHash3v2.hash(mem, offsetBytes, lengthBytes, seed, hashOut);
+    hashUpdate(arr[0], arr[1]);
+  }
+
   /**
    * Present the given char array as a potential unique item.
    * If the char array is null or empty no update attempt is made and the method returns.
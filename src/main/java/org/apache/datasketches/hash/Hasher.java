@@ -0,0 +1,367 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.hash;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.Util;
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * Defines the 64-bit hash functions that can be chosen for hashing the input data of the
+ * Theta sketch family. The Theta sketches only use 64 bits of hash per item, so any hash function
+ * with good avalanche properties can be used, as long as all sketches that are merged together
+ * were built with the same hash function and seed.
+ *
+ * <p>The chosen hash function is recorded in the seed hash of the sketch preamble, because
+ * each Hasher computes the 16-bit seed hash with its own algorithm. This means that set
+ * operations will refuse to merge sketches built with different hash functions exactly as they
+ * refuse to merge sketches built with different seeds. When an image is heapified or wrapped the
+ * Hasher is recovered from the seed hash and the given seed.</p>
+ */
+public enum Hasher {
+
+  /**
+   * The first 64 bits of the 128-bit {@link MurmurHash3}. This is the default and produces exactly
+   * the same sketches as earlier versions of this library.
+   */
+  MURMUR3(1, "MurmurHash3") {
+    @Override
+    public long hash64(final long datum, final long seed) {
+      return MurmurHash3v2.hash64(datum, seed);
+    }
+
+    @Override
+    public long hash64(final byte[] data, final long seed) {
+      return MurmurHash3.hash(data, seed)[0];
+    }
+
+    @Override
+    public long hash64(final char[] data, final long seed) {
+      return MurmurHash3.hash(data, seed)[0];
+    }
+
+    @Override
+    public long hash64(final int[] data, final long seed) {
+      return MurmurHash3.hash(data, seed)[0];
+    }
+
+    @Override
+    public long hash64(final long[] data, final long seed) {
+      return MurmurHash3.hash(data, seed)[0];
+    }
+
+    @Override
+    public long hash64(final CharSequence data, final long seed) {
+      return MurmurHash3v2.hash64(data, seed);
+    }
+
+    @Override
+    public long hash64(final Memory mem, final long offsetBytes, final long lengthBytes,
+        final long seed) {
+      return MurmurHash3v2.hash64(mem, offsetBytes, lengthBytes, seed);
+    }
+
+    @Override
+    public long[] hash64(final long[] in, final int offset, final int length, final long seed,
+        final long[] hashOut) {
+      return MurmurHash3v2.hash64(in, offset, length, seed, hashOut);
+    }
+
+    @Override
+    public long[] hash64(final double[] in, final int offset, final int length, final long seed,
+        final long[] hashOut) {
+      return MurmurHash3v2.hash64(in, offset, length, seed, hashOut);
+    }
+
+    @Override
+    public long[] hash64(final Memory mem, final long offsetBytes, final int keyBytes,
+        final int numKeys, final long seed, final long[] hashOut) {
+      return MurmurHash3v2.hash64(mem, offsetBytes, keyBytes, numKeys, seed, hashOut);
+    }
+
+    @Override
+    short seedHash(final long seed) {
+      return Util.computeSeedHash(seed);
+    }
+  },
+
+  /**
+   * The 64-bit {@link XxHash}, which is faster than MurmurHash3 on short keys.
+   */
+  XXHASH64(2, "XxHash64") {
+    @Override
+    public long hash64(final long datum, final long seed) {
+      return XxHash.hash(datum, seed);
+    }
+
+    @Override
+    public long hash64(final byte[] data, final long seed) {
+      return XxHash.hash(Memory.wrap(data), 0, data.length, seed);
+    }
+
+    @Override
+    public long hash64(final char[] data, final long seed) {
+      return XxHash.hash(Memory.wrap(data), 0, ((long) data.length) << 1, seed);
+    }
+
+    @Override
+    public long hash64(final int[] data, final long seed) {
+      return XxHash.hash(Memory.wrap(data), 0, ((long) data.length) << 2, seed);
+    }
+
+    @Override
+    public long hash64(final long[] data, final long seed) {
+      return XxHash.hash(Memory.wrap(data), 0, ((long) data.length) << 3, seed);
+    }
+
+    @Override
+    public long hash64(final CharSequence data, final long seed) {
+      final byte[] bytes = data.toString().getBytes(UTF_8); //XxHash has no streaming form
+      return XxHash.hash(Memory.wrap(bytes), 0, bytes.length, seed);
+    }
+
+    @Override
+    public long hash64(final Memory mem, final long offsetBytes, final long lengthBytes,
+        final long seed) {
+      return XxHash.hash(mem, offsetBytes, lengthBytes, seed);
+    }
+
+    @Override
+    public long[] hash64(final long[] in, final int offset, final int length, final long seed,
+        final long[] hashOut) {
+      for (int i = 0; i < length; i++) {
+        hashOut[i] = XxHash.hash(in[offset + i], seed);
+      }
+      return hashOut;
+    }
+
+    @Override
+    public long[] hash64(final double[] in, final int offset, final int length, final long seed,
+        final long[] hashOut) {
+      for (int i = 0; i < length; i++) {
+        final double d = in[offset + i];
+        hashOut[i] = XxHash.hash(Double.doubleToLongBits((d == 0.0) ? 0.0 : d), seed);
+      }
+      return hashOut;
+    }
+
+    @Override
+    public long[] hash64(final Memory mem, final long offsetBytes, final int keyBytes,
+        final int numKeys, final long seed, final long[] hashOut) {
+      for (int i = 0; i < numKeys; i++) {
+        hashOut[i] = XxHash.hash(mem, offsetBytes + ((long) i * keyBytes), keyBytes, seed);
+      }
+      return hashOut;
+    }
+
+    @Override
+    short seedHash(final long seed) {
+      return (short) (XxHash.hash(seed, 0L) & 0xFFFFL);
+    }
+  };
+
+  private final int id_;
+  private final String name_;
+
+  private Hasher(final int id, final String name) {
+    id_ = id;
+    name_ = name;
+  }
+
+  /**
+   * Returns the ID of this Hasher
+   * @return the ID of this Hasher
+   */
+  public int getID() {
+    return id_;
+  }
+
+  /**
+   * Returns the name of this Hasher
+   * @return the name of this Hasher
+   */
+  public String getHasherName() {
+    return name_;
+  }
+
+  /**
+   * Returns a 64-bit hash of the given long.
+   * @param datum the given long
+   * @param seed A long valued seed.
+   * @return the hash
+   */
+  public abstract long hash64(long datum, long seed);
+
+  /**
+   * Returns a 64-bit hash of the given double (or float).
+   * Plus and minus zero are normalized to plus zero and all NaN forms are normalized to a single
+   * NaN representation before hashing the result of Double.doubleToLongBits(datum).
+   * @param datum the given double
+   * @param seed A long valued seed.
+   * @return the hash
+   */
+  public long hash64(final double datum, final long seed) {
+    final double d = (datum == 0.0) ? 0.0 : datum; // canonicalize -0.0, 0.0
+    return hash64(Double.doubleToLongBits(d), seed); // canonicalize all NaN forms
+  }
+
+  /**
+   * Returns a 64-bit hash of the given byte array.
+   * @param data the given byte array. Must be non-null and non-empty.
+   * @param seed A long valued seed.
+   * @return the hash
+   */
+  public abstract long hash64(byte[] data, long seed);
+
+  /**
+   * Returns a 64-bit hash of the given char array.
+   * @param data the given char array. Must be non-null and non-empty.
+   * @param seed A long valued seed.
+   * @return the hash
+   */
+  public abstract long hash64(char[] data, long seed);
+
+  /**
+   * Returns a 64-bit hash of the given int array.
+   * @param data the given int array. Must be non-null and non-empty.
+   * @param seed A long valued seed.
+   * @return the hash
+   */
+  public abstract long hash64(int[] data, long seed);
+
+  /**
+   * Returns a 64-bit hash of the given long array.
+   * @param data the given long array. Must be non-null and non-empty.
+   * @param seed A long valued seed.
+   * @return the hash
+   */
+  public abstract long hash64(long[] data, long seed);
+
+  /**
+   * Returns a 64-bit hash of the UTF-8 encoding of the given CharSequence. This is the same as
+   * the hash of the byte array <i>data.toString().getBytes(UTF_8)</i>.
+   * The MURMUR3 Hasher streams the encoding into the hash function without any allocation.
+   * @param data the given CharSequence. Must be non-null and non-empty.
+   * @param seed A long valued seed.
+   * @return the hash
+   */
+  public abstract long hash64(CharSequence data, long seed);
+
+  /**
+   * Returns a 64-bit hash of the given region of Memory.
+   * @param mem the given Memory
+   * @param offsetBytes the starting point within Memory.
+   * @param lengthBytes the total number of bytes to be hashed.
+   * @param seed A long valued seed.
+   * @return the hash
+   */
+  public abstract long hash64(Memory mem, long offsetBytes, long lengthBytes, long seed);
+
+  /**
+   * Hashes each long of the given range of the input array as a separate key and writes the
+   * 64-bit hash of each into the output array starting at index zero.
+   * @param in the input long array
+   * @param offset the index of the first key
+   * @param length the number of keys to hash
+   * @param seed A long valued seed.
+   * @param hashOut the output array, which must have a length of at least <i>length</i>.
+   * @return hashOut
+   */
+  public abstract long[] hash64(long[] in, int offset, int length, long seed, long[] hashOut);
+
+  /**
+   * Hashes each double of the given range of the input array as a separate key and writes the
+   * 64-bit hash of each into the output array starting at index zero.
+   * The doubles are normalized as in {@link #hash64(double, long)}.
+   * @param in the input double array
+   * @param offset the index of the first key
+   * @param length the number of keys to hash
+   * @param seed A long valued seed.
+   * @param hashOut the output array, which must have a length of at least <i>length</i>.
+   * @return hashOut
+   */
+  public abstract long[] hash64(double[] in, int offset, int length, long seed, long[] hashOut);
+
+  /**
+   * Hashes each of the given fixed-length keys in Memory as a separate key and writes the
+   * 64-bit hash of each into the output array starting at index zero.
+   * @param mem The input Memory holding the keys end-to-end.
+   * @param offsetBytes the offset in bytes of the first key
+   * @param keyBytes the length in bytes of each key. It must be greater than zero.
+   * @param numKeys the number of keys to hash
+   * @param seed A long valued seed.
+   * @param hashOut the output array, which must have a length of at least <i>numKeys</i>.
+   * @return hashOut
+   */
+  public abstract long[] hash64(Memory mem, long offsetBytes, int keyBytes, int numKeys, long seed,
+      long[] hashOut);
+
+  /**
+   * Computes and checks the 16-bit seed hash of the given seed for this Hasher.
+   * The seed hash of the default MURMUR3 Hasher is the same as
+   * {@link org.apache.datasketches.Util#computeSeedHash(long)}.
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>.
+   * @return the seed hash.
+   * @throws SketchesArgumentException if the seed hash is zero or, for a Hasher other than
+   * MURMUR3, if it cannot be distinguished from the seed hash of MURMUR3 with the same seed.
+   */
+  public short computeSeedHash(final long seed) {
+    final short seedHash = seedHash(seed);
+    if (seedHash == 0) {
+      throw new SketchesArgumentException(
+          "The given seed: " + seed + " produced a seedHash of zero. "
+              + "You must choose a different seed.");
+    }
+    for (final Hasher other : values()) { //earlier Hashers take precedence in seedHashToHasher
+      if ((other.ordinal() < ordinal()) && (other.seedHash(seed) == seedHash)) {
+        throw new SketchesArgumentException(
+            "The given seed: " + seed + " produces the same seedHash for " + name_ + " and "
+                + other.name_ + ". You must choose a different seed.");
+      }
+    }
+    return seedHash;
+  }
+
+  /**
+   * Returns the Hasher that produces the given seed hash from the given seed.
+   * @param seedHash the seed hash recorded in a sketch image
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>.
+   * @return the Hasher that produces the given seed hash from the given seed.
+   * @throws SketchesArgumentException if no Hasher produces the given seed hash.
+   */
+  public static Hasher seedHashToHasher(final short seedHash, final long seed) {
+    for (final Hasher hasher : values()) {
+      if (hasher.seedHash(seed) == seedHash) { return hasher; }
+    }
+    throw new SketchesArgumentException(
+        "Incompatible Seed Hashes. " + Integer.toHexString(seedHash & 0XFFFF)
+            + " was not produced by any Hasher from the seed: " + seed);
+  }
+
+  abstract short seedHash(long seed);
+
+  @Override
+  public String toString() {
+    return name_;
+  }
+
+}
@@ -19,7 +19,6 @@
 
 package org.apache.datasketches.hash;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.datasketches.memory.UnsafeUtil.unsafe;
 
 import org.apache.datasketches.memory.Memory;
@@ -141,19 +140,270 @@ public final class MurmurHash3v2 {
     return finalMix128(h1, h2, 8, hashOut);
   }
 
+  /**
+   * Returns the first 64 bits of the 128-bit hash of the input, without allocating any
+   * intermediate arrays. This produces exactly the same result as
+   * <i>hash(in, seed, hashOut)[0]</i>.
+   * Note the entropy of the resulting hash cannot be more than 64 bits.
+   * @param in a long
+   * @param seed A long valued seed.
+   * @return the first 64 bits of the hash
+   */
+  public static long hash64(final long in, final long seed) {
+    final long h1 = seed ^ mixK1(in);
+    final long h2 = seed;
+    return finalMix128Lo(h1, h2, 8);
+  }
+
+  /**
+   * Returns the first 64 bits of the 128-bit hash of the input, without allocating any
+   * intermediate arrays. This produces exactly the same result as
+   * <i>hash(in, seed, hashOut)[0]</i>.
+   * Note the entropy of the resulting hash cannot be more than 64 bits.
+   * @param in a double
+   * @param seed A long valued seed.
+   * @return the first 64 bits of the hash
+   */
+  public static long hash64(final double in, final long seed) {
+    final double d = (in == 0.0) ? 0.0 : in;    // canonicalize -0.0, 0.0
+    final long k1 = Double.doubleToLongBits(d); // canonicalize all NaN forms
+    final long h1 = seed ^ mixK1(k1);
+    final long h2 = seed;
+    return finalMix128Lo(h1, h2, 8);
+  }
+
   /**
    * Returns a 128-bit hash of the input.
+   * This produces exactly the same result as hashing <i>in.getBytes(UTF_8)</i>, but the UTF-8
+   * encoding is streamed directly into the hash function without creating a byte array.
    * @param in a String
    * @param seed A long valued seed.
    * @param hashOut A long array of size 2
    * @return the hash
    */
   public static long[] hash(final String in, final long seed, final long[] hashOut) {
+    return hash((CharSequence) in, seed, hashOut);
+  }
+
+  /**
+   * Returns a 128-bit hash of the UTF-8 encoding of the input.
+   * This produces exactly the same result as hashing <i>in.toString().getBytes(UTF_8)</i>,
+   * including the replacement of unpaired surrogates with '?', but the UTF-8 encoding is streamed
+   * directly into the hash function without creating a String or byte array.
+   * @param in a CharSequence
+   * @param seed A long valued seed.
+   * @param hashOut A long array of size 2
+   * @return the hash
+   */
+  public static long[] hash(final CharSequence in, final long seed, final long[] hashOut) {
     if ((in == null) || (in.length() == 0)) {
       return emptyOrNull(seed, hashOut);
     }
-    final byte[] byteArr = in.getBytes(UTF_8);
-    return hash(Memory.wrap(byteArr), 0L, byteArr.length, seed, hashOut);
+    utf8Hash(in, seed, hashOut);
+    return hashOut;
+  }
+
+  /**
+   * Returns the first 64 bits of the 128-bit hash of the UTF-8 encoding of the input, without
+   * allocating any intermediate arrays. This produces exactly the same result as
+   * <i>hash(in, seed, hashOut)[0]</i>.
+   * @param in a CharSequence
+   * @param seed A long valued seed.
+   * @return the first 64 bits of the hash
+   */
+  public static long hash64(final CharSequence in, final long seed) {
+    if ((in == null) || (in.length() == 0)) {
+      return finalMix128Lo(seed, seed, 0);
+    }
+    return utf8Hash(in, seed, null);
+  }
+
+  //Batch inputs
+
+  /**
+   * Hashes each long of the given range of the input array as a separate key and writes the
+   * first 64 bits of each 128-bit hash into the output array starting at index zero.
+   * Each output value is exactly the same as <i>hash64(in[offset + i], seed)</i>.
+   *
+   * <p>The loop has no branches or calls that the JIT cannot inline and the keys are independent
+   * of each other, which allows the hashing of several keys to be pipelined.</p>
+   *
+   * @param in the input long array
+   * @param offset the index of the first key
+   * @param length the number of keys to hash
+   * @param seed A long valued seed.
+   * @param hashOut the output array, which must have a length of at least <i>length</i>.
+   * @return hashOut
+   */
+  public static long[] hash64(final long[] in, final int offset, final int length, final long seed,
+      final long[] hashOut) {
+    final long s8 = seed ^ 8L;
+    for (int i = 0; i < length; i++) {
+      long h1 = (seed ^ mixK1(in[offset + i])) ^ 8L;
+      h1 += s8;
+      final long h2 = s8 + h1;
+      hashOut[i] = finalMix64(h1) + finalMix64(h2);
+    }
+    return hashOut;
+  }
+
+  /**
+   * Hashes each double of the given range of the input array as a separate key and writes the
+   * first 64 bits of each 128-bit hash into the output array starting at index zero.
+   * Each output value is exactly the same as <i>hash64(in[offset + i], seed)</i>, including the
+   * canonicalization of plus and minus zero and of the NaN forms.
+   *
+   * @param in the input double array
+   * @param offset the index of the first key
+   * @param length the number of keys to hash
+   * @param seed A long valued seed.
+   * @param hashOut the output array, which must have a length of at least <i>length</i>.
+   * @return hashOut
+   */
+  public static long[] hash64(final double[] in, final int offset, final int length,
+      final long seed, final long[] hashOut) {
+    final long s8 = seed ^ 8L;
+    for (int i = 0; i < length; i++) {
+      final double d = in[offset + i];
+      final long k1 = Double.doubleToLongBits((d == 0.0) ? 0.0 : d);
+      long h1 = (seed ^ mixK1(k1)) ^ 8L;
+      h1 += s8;
+      final long h2 = s8 + h1;
+      hashOut[i] = finalMix64(h1) + finalMix64(h2);
+    }
+    return hashOut;
+  }
+
+  /**
+   * Hashes each long of the given range of the input array as a separate key and writes the
+   * full 128-bit hash of key <i>i</i> into <i>hashOut[2i]</i> and <i>hashOut[2i + 1]</i>.
+   * Each pair is exactly the same as <i>hash(in[offset + i], seed, hashOut)</i>.
+   *
+   * @param in the input long array
+   * @param offset the index of the first key
+   * @param length the number of keys to hash
+   * @param seed A long valued seed.
+   * @param hashOut the output array, which must have a length of at least <i>2 * length</i>.
+   * @return hashOut
+   */
+  public static long[] hash128(final long[] in, final int offset, final int length,
+      final long seed, final long[] hashOut) {
+    final long s8 = seed ^ 8L;
+    for (int i = 0; i < length; i++) {
+      long h1 = (seed ^ mixK1(in[offset + i])) ^ 8L;
+      h1 += s8;
+      long h2 = s8 + h1;
+      h1 = finalMix64(h1);
+      h2 = finalMix64(h2);
+      h1 += h2;
+      hashOut[i << 1] = h1;
+      hashOut[(i << 1) + 1] = h2 + h1;
+    }
+    return hashOut;
+  }
+
+  /**
+   * Hashes each double of the given range of the input array as a separate key and writes the
+   * full 128-bit hash of key <i>i</i> into <i>hashOut[2i]</i> and <i>hashOut[2i + 1]</i>.
+   * Each pair is exactly the same as <i>hash(in[offset + i], seed, hashOut)</i>, including the
+   * canonicalization of plus and minus zero and of the NaN forms.
+   *
+   * @param in the input double array
+   * @param offset the index of the first key
+   * @param length the number of keys to hash
+   * @param seed A long valued seed.
+   * @param hashOut the output array, which must have a length of at least <i>2 * length</i>.
+   * @return hashOut
+   */
+  public static long[] hash128(final double[] in, final int offset, final int length,
+      final long seed, final long[] hashOut) {
+    final long s8 = seed ^ 8L;
+    for (int i = 0; i < length; i++) {
+      final double d = in[offset + i];
+      final long k1 = Double.doubleToLongBits((d == 0.0) ? 0.0 : d);
+      long h1 = (seed ^ mixK1(k1)) ^ 8L;
+      h1 += s8;
+      long h2 = s8 + h1;
+      h1 = finalMix64(h1);
+      h2 = finalMix64(h2);
+      h1 += h2;
+      hashOut[i << 1] = h1;
+      hashOut[(i << 1) + 1] = h2 + h1;
+    }
+    return hashOut;
+  }
+
+  /**
+   * Hashes each of the given fixed-length keys in Memory as a separate key and writes the
+   * first 64 bits of each 128-bit hash into the output array starting at index zero.
+   * Each output value is exactly the same as
+   * <i>hash(mem, offsetBytes + i * keyBytes, keyBytes, seed, out)[0]</i>.
+   * Keys of exactly 8 bytes take a fast path with no tail processing.
+   *
+   * @param mem The input Memory holding the keys end-to-end.
+   * @param offsetBytes the offset in bytes of the first key
+   * @param keyBytes the length in bytes of each key. It must be greater than zero.
+   * @param numKeys the number of keys to hash
+   * @param seed A long valued seed.
+   * @param hashOut the output array, which must have a length of at least <i>numKeys</i>.
+   * @return hashOut
+   */
+  public static long[] hash64(final Memory mem, final long offsetBytes, final int keyBytes,
+      final int numKeys, final long seed, final long[] hashOut) {
+    if (keyBytes == 8) {
+      final long s8 = seed ^ 8L;
+      for (int i = 0; i < numKeys; i++) {
+        long h1 = (seed ^ mixK1(mem.getLong(offsetBytes + ((long) i << 3)))) ^ 8L;
+        h1 += s8;
+        final long h2 = s8 + h1;
+        hashOut[i] = finalMix64(h1) + finalMix64(h2);
+      }
+    } else {
+      final long[] out = new long[2];
+      for (int i = 0; i < numKeys; i++) {
+        hashOut[i] = hash(mem, offsetBytes + ((long) i * keyBytes), keyBytes, seed, out)[0];
+      }
+    }
+    return hashOut;
+  }
+
+  /**
+   * Hashes each of the given fixed-length keys in Memory as a separate key and writes the
+   * full 128-bit hash of key <i>i</i> into <i>hashOut[2i]</i> and <i>hashOut[2i + 1]</i>.
+   * Each pair is exactly the same as <i>hash(mem, offsetBytes + i * keyBytes, keyBytes, seed, out)</i>.
+   * Keys of exactly 8 bytes take a fast path with no tail processing.
+   *
+   * @param mem The input Memory holding the keys end-to-end.
+   * @param offsetBytes the offset in bytes of the first key
+   * @param keyBytes the length in bytes of each key. It must be greater than zero.
+   * @param numKeys the number of keys to hash
+   * @param seed A long valued seed.
+   * @param hashOut the output array, which must have a length of at least <i>2 * numKeys</i>.
+   * @return hashOut
+   */
+  public static long[] hash128(final Memory mem, final long offsetBytes, final int keyBytes,
+      final int numKeys, final long seed, final long[] hashOut) {
+    if (keyBytes == 8) {
+      final long s8 = seed ^ 8L;
+      for (int i = 0; i < numKeys; i++) {
+        long h1 = (seed ^ mixK1(mem.getLong(offsetBytes + ((long) i << 3)))) ^ 8L;
+        h1 += s8;
+        long h2 = s8 + h1;
+        h1 = finalMix64(h1);
+        h2 = finalMix64(h2);
+        h1 += h2;
+        hashOut[i << 1] = h1;
+        hashOut[(i << 1) + 1] = h2 + h1;
+      }
+    } else {
+      final long[] out = new long[2];
+      for (int i = 0; i < numKeys; i++) {
+        hash(mem, offsetBytes + ((long) i * keyBytes), keyBytes, seed, out);
+        hashOut[i << 1] = out[0];
+        hashOut[(i << 1) + 1] = out[1];
+      }
+    }
+    return hashOut;
   }
 
   //The main API call
@@ -173,6 +423,38 @@ public final class MurmurHash3v2 {
     if ((mem == null) || (mem.getCapacity() == 0L)) {
       return emptyOrNull(seed, hashOut);
     }
+    memHash(mem, offsetBytes, lengthBytes, seed, hashOut);
+    return hashOut;
+  }
+
+  /**
+   * Returns the first 64 bits of the 128-bit hash of the given region of Memory, without
+   * allocating any intermediate arrays. This produces exactly the same result as
+   * <i>hash(mem, offsetBytes, lengthBytes, seed, hashOut)[0]</i>.
+   *
+   * @param mem The input Memory. Must be non-null and non-empty.
+   * @param offsetBytes the starting point within Memory.
+   * @param lengthBytes the total number of bytes to be hashed.
+   * @param seed A long valued seed.
+   * @return the first 64 bits of the hash
+   */
+  public static long hash64(final Memory mem, final long offsetBytes, final long lengthBytes,
+      final long seed) {
+    if ((mem == null) || (mem.getCapacity() == 0L)) {
+      return finalMix128Lo(seed, seed, 0);
+    }
+    return memHash(mem, offsetBytes, lengthBytes, seed, null);
+  }
+
+  //--Helper methods----------------------------------------------------
+
+  /**
+   * Hashes the given region of Memory.
+   * @param hashOut if not null, receives the 128-bit hash
+   * @return the first 64 bits of the hash
+   */
+  private static long memHash(final Memory mem, final long offsetBytes, final long lengthBytes,
+      final long seed, final long[] hashOut) {
     final Object uObj = ((WritableMemory) mem).getArray(); //may be null
     long cumOff = mem.getCumulativeOffset() + offsetBytes;
 
@@ -281,10 +563,82 @@ public final class MurmurHash3v2 {
       h1 ^= mixK1(k1);
       h2 ^= mixK2(k2);
     }
-    return finalMix128(h1, h2, lengthBytes, hashOut);
+    return finalMix(h1, h2, lengthBytes, hashOut);
   }
 
-  //--Helper methods----------------------------------------------------
+  /**
+   * Hashes the UTF-8 encoding of the given non-empty CharSequence. Each encoded byte is packed
+   * directly into the current 128-bit block, so no intermediate byte array is needed.
+   * Unpaired surrogates are encoded as '?', which matches String.getBytes(UTF_8).
+   * @param hashOut if not null, receives the 128-bit hash
+   * @return the first 64 bits of the hash
+   */
+  private static long utf8Hash(final CharSequence in, final long seed, final long[] hashOut) {
+    final int len = in.length();
+    long h1 = seed;
+    long h2 = seed;
+    long k1 = 0;
+    long k2 = 0;
+    int pos = 0; //byte position within the current 16-byte block
+    long lengthBytes = 0;
+
+    for (int i = 0; i < len; i++) {
+      final char c = in.charAt(i);
+      int enc; //up to 4 encoded bytes, first byte in the low order bits
+      int numBytes;
+      if (c < 0x80) {
+        enc = c;
+        numBytes = 1;
+      } else if (c < 0x800) {
+        enc = (0xC0 | (c >>> 6)) | ((0x80 | (c & 0x3F)) << 8);
+        numBytes = 2;
+      } else if (!Character.isSurrogate(c)) {
+        enc = (0xE0 | (c >>> 12)) | ((0x80 | ((c >>> 6) & 0x3F)) << 8)
+            | ((0x80 | (c & 0x3F)) << 16);
+        numBytes = 3;
+      } else if (Character.isHighSurrogate(c) && ((i + 1) < len)
+          && Character.isLowSurrogate(in.charAt(i + 1))) {
+        final int cp = Character.toCodePoint(c, in.charAt(++i));
+        enc = (0xF0 | (cp >>> 18)) | ((0x80 | ((cp >>> 12) & 0x3F)) << 8)
+            | ((0x80 | ((cp >>> 6) & 0x3F)) << 16) | ((0x80 | (cp & 0x3F)) << 24);
+        numBytes = 4;
+      } else {
+        enc = '?'; //unpaired surrogate
+        numBytes = 1;
+      }
+      lengthBytes += numBytes;
+
+      while (numBytes-- > 0) {
+        final long b = enc & 0xFFL;
+        enc >>>= 8;
+        if (pos < 8) {
+          k1 |= b << (pos << 3);
+        } else {
+          k2 |= b << ((pos - 8) << 3);
+        }
+        if (++pos == 16) {
+          h1 ^= mixK1(k1);
+          h1 = Long.rotateLeft(h1, 27);
+          h1 += h2;
+          h1 = (h1 * 5) + 0x52dce729L;
+
+          h2 ^= mixK2(k2);
+          h2 = Long.rotateLeft(h2, 31);
+          h2 += h1;
+          h2 = (h2 * 5) + 0x38495ab5L;
+          k1 = 0;
+          k2 = 0;
+          pos = 0;
+        }
+      }
+    }
+
+    if (pos > 0) { //the tail: 1 to 15 bytes
+      h1 ^= mixK1(k1);
+      h2 ^= mixK2(k2);
+    }
+    return finalMix(h1, h2, lengthBytes, hashOut);
+  }
 
   /**
    * Self mix of k1
@@ -354,6 +708,36 @@ public final class MurmurHash3v2 {
     return hashOut;
   }
 
+  /**
+   * Finalization that only returns the first 64 bits of the 128-bit hash.
+   * @param h1 intermediate hash
+   * @param h2 intermediate hash
+   * @param lengthBytes the length in bytes
+   * @return the first 64 bits of the hash
+   */
+  private static long finalMix128Lo(long h1, long h2, final long lengthBytes) {
+    h1 ^= lengthBytes;
+    h2 ^= lengthBytes;
+
+    h1 += h2;
+    h2 += h1;
+
+    h1 = finalMix64(h1);
+    h2 = finalMix64(h2);
+
+    return h1 + h2;
+  }
+
+  /**
+   * Finalization into hashOut if it is not null.
+   * @return the first 64 bits of the hash
+   */
+  private static long finalMix(final long h1, final long h2, final long lengthBytes,
+      final long[] hashOut) {
+    if (hashOut == null) { return finalMix128Lo(h1, h2, lengthBytes); }
+    return finalMix128(h1, h2, lengthBytes, hashOut)[0];
+  }
+
   private static long[] emptyOrNull(final long seed, final long[] hashOut) {
     return finalMix128(seed, seed, 0, hashOut);
   }
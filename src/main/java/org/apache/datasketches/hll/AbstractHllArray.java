@@ -33,6 +33,12 @@ import org.apache.datasketches.SketchesStateException;
 abstract class AbstractHllArray extends HllSketchImpl {
   AuxHashMap auxHashMap = null; //used for both heap and direct HLL4
   final int auxStart; //used for direct HLL4
+  //the last composite estimate and the state it was computed from, see getCompositeEstimate()
+  private double cachedKxQ0 = Double.NaN;
+  private double cachedKxQ1 = Double.NaN;
+  private int cachedCurMin;
+  private int cachedNumAtCurMin;
+  private double cachedCompositeEstimate;
 
   AbstractHllArray(final int lgConfigK, final TgtHllType tgtHllType, final CurMode curMode) {
     super(lgConfigK, tgtHllType, curMode);
@@ -55,6 +61,19 @@ abstract class AbstractHllArray extends HllSketchImpl {
     return Conversions.convertToHll8(this);
   }
 
+  /**
+   * Updates this array with the coupons in the given range, which must all be valid (non-EMPTY).
+   * This is overridden by the heap arrays with loops specialized to their slot width.
+   * @param coupons the given coupons
+   * @param fromIndex the index of the first coupon, inclusive
+   * @param toIndex the index of the last coupon, exclusive
+   */
+  void couponUpdateAll(final int[] coupons, final int fromIndex, final int toIndex) {
+    for (int i = fromIndex; i < toIndex; i++) {
+      couponUpdate(coupons[i]);
+    }
+  }
+
   abstract void decNumAtCurMin();
 
   AuxHashMap getAuxHashMap() {
@@ -75,12 +94,31 @@ abstract class AbstractHllArray extends HllSketchImpl {
   /**
    * This is the (non-HIP) estimator.
    * It is called "composite" because multiple estimators are pasted together.
+   *
+   * <p>The estimate depends only on the running kxq0 and kxq1 sums, curMin and numAtCurMin, so it
+   * is cached together with them and is only recomputed when one of them has changed. Because the
+   * cache is checked against the current state, and not against a dirty flag set by this
+   * instance, it also remains correct when the state is changed through another instance that
+   * wraps the same Memory.</p>
    * @return the composite estimate
    */
   //In C: again-two-registers.c hhb_get_composite_estimate L1489
   @Override
   double getCompositeEstimate() {
-    return HllEstimators.hllCompositeEstimate(this);
+    final double kxq0 = getKxQ0();
+    final double kxq1 = getKxQ1();
+    final int curMin = getCurMin();
+    final int numAtCurMin = getNumAtCurMin();
+    if ((kxq0 != cachedKxQ0) || (kxq1 != cachedKxQ1) || (curMin != cachedCurMin)
+        || (numAtCurMin != cachedNumAtCurMin)) {
+      cachedCompositeEstimate =
+          HllEstimators.hllCompositeEstimate(lgConfigK, kxq0, kxq1, curMin, numAtCurMin);
+      cachedKxQ0 = kxq0;
+      cachedKxQ1 = kxq1;
+      cachedCurMin = curMin;
+      cachedNumAtCurMin = numAtCurMin;
+    }
+    return cachedCompositeEstimate;
   }
 
   abstract int getCurMin();
@@ -19,13 +19,14 @@
 
 package org.apache.datasketches.hll;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
 import static org.apache.datasketches.hash.MurmurHash3.hash;
 import static org.apache.datasketches.hll.HllUtil.KEY_BITS_26;
 import static org.apache.datasketches.hll.HllUtil.KEY_MASK_26;
 
+import org.apache.datasketches.hash.MurmurHash3v2;
 import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.UnsafeUtil;
 
 /**
  * Although this class is package-private, it provides a single place to define and document
@@ -34,9 +35,19 @@ import org.apache.datasketches.memory.Memory;
  * @author Kevin Lang
  */
 abstract class BaseHllSketch {
+  private final long[] hashOut = new long[2]; //reused by the primitive update methods
 
   abstract void couponUpdate(int coupon);
 
+  /**
+   * Returns the array that receives the hash of a primitive update. Sketches that may be updated
+   * by several threads at once override this to return an array of the calling thread.
+   * @return the array that receives the hash of a primitive update
+   */
+  long[] hashOut() {
+    return hashOut;
+  }
+
   /**
    * Gets the size in bytes of the current sketch when serialized using
    * <i>toCompactByteArray()</i>.
@@ -288,8 +299,7 @@ abstract class BaseHllSketch {
    * @param datum The given long datum.
    */
   public void update(final long datum) {
-    final long[] data = { datum };
-    couponUpdate(coupon(hash(data, DEFAULT_UPDATE_SEED)));
+    couponUpdate(coupon(MurmurHash3v2.hash(datum, DEFAULT_UPDATE_SEED, hashOut())));
   }
 
   /**
@@ -302,14 +312,13 @@ abstract class BaseHllSketch {
    * @param datum The given double datum.
    */
   public void update(final double datum) {
-    final double d = (datum == 0.0) ? 0.0 : datum; // canonicalize -0.0, 0.0
-    final long[] data = { Double.doubleToLongBits(d) };// canonicalize all NaN forms
-    couponUpdate(coupon(hash(data, DEFAULT_UPDATE_SEED)));
+    //canonicalizes -0.0 and NaN forms
+    couponUpdate(coupon(MurmurHash3v2.hash(datum, DEFAULT_UPDATE_SEED, hashOut())));
   }
 
   /**
    * Present the given String as a potential unique item.
-   * The string is converted to a byte array using UTF8 encoding.
+   * The string is hashed as its UTF8 encoding.
    * If the string is null or empty no update attempt is made and the method returns.
    *
    * <p>Note: About 2X faster performance can be obtained by first converting the String to a
@@ -322,9 +331,21 @@ abstract class BaseHllSketch {
    * @param datum The given String.
    */
   public void update(final String datum) {
-    if ((datum == null) || datum.isEmpty()) { return; }
-    final byte[] data = datum.getBytes(UTF_8);
-    couponUpdate(coupon(hash(data, DEFAULT_UPDATE_SEED)));
+    update((CharSequence) datum);
+  }
+
+  /**
+   * Present the given CharSequence as a potential unique item.
+   * The characters are hashed as their UTF8 encoding, so this produces exactly the same result as
+   * {@link #update(String)} with <i>datum.toString()</i>, but the encoding is streamed into the
+   * hash function without creating a String or a byte array.
+   * If the CharSequence is null or empty no update attempt is made and the method returns.
+   *
+   * @param datum The given CharSequence.
+   */
+  public void update(final CharSequence datum) {
+    if ((datum == null) || (datum.length() == 0)) { return; }
+    couponUpdate(coupon(MurmurHash3v2.hash(datum, DEFAULT_UPDATE_SEED, hashOut())));
   }
 
   /**
@@ -338,6 +359,24 @@ abstract class BaseHllSketch {
     couponUpdate(coupon(hash(data, DEFAULT_UPDATE_SEED)));
   }
 
+  /**
+   * Present the given region of Memory as a potential unique item.
+   * This produces exactly the same result as calling {@link #update(byte[])} with the bytes of the
+   * region, without copying them. For example, the region can be a UTF8 encoded string in a
+   * network buffer, which then gives the same result as {@link #update(String)} with the string.
+   * If the Memory is null or the length is zero no update attempt is made and the method returns.
+   *
+   * @param mem The given Memory.
+   * @param offsetBytes the offset in bytes of the region
+   * @param lengthBytes the length in bytes of the region
+   */
+  public void update(final Memory mem, final long offsetBytes, final long lengthBytes) {
+    if ((mem == null) || (lengthBytes == 0)) { return; }
+    UnsafeUtil.checkBounds(offsetBytes, lengthBytes, mem.getCapacity());
+    couponUpdate(coupon(
+        MurmurHash3v2.hash(mem, offsetBytes, lengthBytes, DEFAULT_UPDATE_SEED, hashOut())));
+  }
+
   /**
    * Present the given char array as a potential unique item.
    * If the char array is null or empty no update attempt is made and the method returns.
@@ -375,8 +414,12 @@ abstract class BaseHllSketch {
   }
 
   private static final int coupon(final long[] hash) {
-    final int addr26 = (int) ((hash[0] & KEY_MASK_26));
-    final int lz = Long.numberOfLeadingZeros(hash[1]);
+    return coupon(hash[0], hash[1]);
+  }
+
+  static final int coupon(final long hash0, final long hash1) {
+    final int addr26 = (int) ((hash0 & KEY_MASK_26));
+    final int lz = Long.numberOfLeadingZeros(hash1);
     final int value = ((lz > 62 ? 62 : lz) + 1);
     return (value << KEY_BITS_26) | addr26;
   }
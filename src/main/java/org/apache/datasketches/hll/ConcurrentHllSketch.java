@@ -0,0 +1,434 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.hll;
+
+import static org.apache.datasketches.Util.invPow2;
+import static org.apache.datasketches.hll.HllUtil.EMPTY;
+import static org.apache.datasketches.hll.HllUtil.KEY_BITS_26;
+import static org.apache.datasketches.hll.HllUtil.VAL_MASK_6;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * An HLL sketch that may be updated by any number of threads at once, so that one sketch can be
+ * shared by all the threads that feed it.
+ *
+ * <p>The sketch starts in a warm-up phase, where the coupons are kept in a power of 2 number of
+ * stripes, each a sketch in the LIST or SET mode that is guarded by its own lock. A coupon always
+ * selects the same stripe, so the stripes hold disjoint sets of coupons and writers contend only
+ * on the stripe selected by their coupon. While warming up, the estimates are those of the union
+ * of the stripes, so they have the accuracy of the coupon modes of a sequential sketch. The union
+ * is kept, and only merged again after a stripe has changed.</p>
+ *
+ * <p>When any stripe would move to the HLL mode, the sketch moves all stripes into <i>K</i> HLL_8
+ * registers and the stripes are no longer used. An update of a register is then a monotone max on
+ * one byte, which is done lock-free with a compare-and-set of the long that contains it. The
+ * registers may be on the java heap or in a WritableMemory given by the user.</p>
+ *
+ * <p>As the order of the updates is not defined, the HIP estimator cannot be used and the
+ * estimates in the HLL mode are the composite estimates, as for the result of a {@link Union}.
+ * The estimates and bounds are computed from the registers at the time of the call, and are
+ * exactly those of a union of sequential HLL_8 sketches that were given the same items.
+ * Updates that are concurrent with a read may or may not be reflected in it.</p>
+ *
+ * <p>The {@link #reset()} method must not be called concurrently with updates.</p>
+ */
+public final class ConcurrentHllSketch extends BaseHllSketch {
+
+  /**
+   * The number of stripes used during warm-up.
+   */
+  static final int NUM_STRIPES = 16;
+
+  //Multiplier that spreads all bits of a coupon into the high bits used to select a stripe.
+  private static final int STRIPE_MIX = 0x9E3779B9;
+
+  //Receives the hash of a primitive update. The array is used only until its coupon is computed,
+  // so one array per thread serves all sketches.
+  private static final ThreadLocal<long[]> HASH_OUT = ThreadLocal.withInitial(() -> new long[2]);
+
+  private final int lgConfigK_;
+  private final int configKmask_;
+  private final WritableMemory wmem_; //the K HLL_8 registers, one byte per slot
+  private final boolean userMem_;
+  private final Stripe[] stripes_;
+  private volatile boolean hllMode_;
+  private volatile boolean empty_;
+  private volatile WarmUpResult warmUpResult_; //the last union of the stripes, or null
+
+  /**
+   * Constructs a new concurrent sketch on the java heap.
+   * @param lgConfigK The Log2 of K for the target HLL sketch. This value must be
+   * between 4 and 21 inclusively.
+   */
+  public ConcurrentHllSketch(final int lgConfigK) {
+    this(lgConfigK, null);
+  }
+
+  /**
+   * Constructs a new concurrent sketch with its HLL_8 registers in the given WritableMemory, which
+   * must have a capacity of at least <i>K</i> bytes and must start on an 8 byte boundary, as the
+   * registers are updated with a compare-and-set of the long that contains them. The
+   * first <i>K</i> bytes hold the register of each slot, and are cleared here. The warm-up
+   * stripes remain on the java heap. This is not a sketch image: use
+   * {@link #toUpdatableByteArray()} or {@link #getResult(TgtHllType)} to serialize the sketch.
+   * @param lgConfigK The Log2 of K for the target HLL sketch. This value must be
+   * between 4 and 21 inclusively.
+   * @param dstMem the destination memory for the registers, or null for the java heap.
+   */
+  public ConcurrentHllSketch(final int lgConfigK, final WritableMemory dstMem) {
+    lgConfigK_ = HllUtil.checkLgK(lgConfigK);
+    final int configK = 1 << lgConfigK;
+    configKmask_ = configK - 1;
+    if (dstMem == null) {
+      wmem_ = WritableMemory.allocate(configK);
+      userMem_ = false;
+    } else {
+      HllUtil.checkMemSize(configK, dstMem.getCapacity());
+      if ((dstMem.getCumulativeOffset(0) & 7L) != 0) {
+        throw new SketchesArgumentException(
+            "The given memory must start on an 8 byte boundary: " + dstMem.getCumulativeOffset(0));
+      }
+      wmem_ = dstMem;
+      userMem_ = true;
+    }
+    stripes_ = new Stripe[NUM_STRIPES];
+    reset();
+  }
+
+  @Override
+  public int getCompactSerializationBytes() {
+    return getResult(TgtHllType.HLL_8).getCompactSerializationBytes();
+  }
+
+  @Override
+  public double getCompositeEstimate() {
+    if (!hllMode_) {
+      final HllSketch result = warmUpResult();
+      if (result != null) { return result.getCompositeEstimate(); }
+    }
+    return new Registers().compositeEstimate();
+  }
+
+  @Override
+  CurMode getCurMode() {
+    return hllMode_ ? CurMode.HLL : getResult(TgtHllType.HLL_8).getCurMode();
+  }
+
+  @Override
+  public double getEstimate() {
+    if (!hllMode_) {
+      final HllSketch result = warmUpResult();
+      if (result != null) { return result.getEstimate(); }
+    }
+    return new Registers().compositeEstimate();
+  }
+
+  @Override
+  public int getLgConfigK() {
+    return lgConfigK_;
+  }
+
+  @Override
+  public double getLowerBound(final int numStdDev) {
+    HllUtil.checkNumStdDev(numStdDev);
+    if (!hllMode_) {
+      final HllSketch result = warmUpResult();
+      if (result != null) { return result.getLowerBound(numStdDev); }
+    }
+    final Registers reg = new Registers();
+    return HllEstimators.hllLowerBound(lgConfigK_, reg.curMin, reg.numAtCurMin, true,
+        reg.compositeEstimate(), numStdDev);
+  }
+
+  /**
+   * Returns a copy of the current state of this sketch as an HllSketch on the java heap.
+   * @param tgtHllType the TgtHllType of the result
+   * @return a copy of the current state of this sketch
+   */
+  public HllSketch getResult(final TgtHllType tgtHllType) {
+    if (!hllMode_) {
+      final HllSketch result = warmUpResult();
+      if (result != null) { return result.copyAs(tgtHllType); }
+    }
+    final Hll8Array hll8Array = new Hll8Array(lgConfigK_);
+    wmem_.getByteArray(0, hll8Array.hllByteArr, 0, 1 << lgConfigK_);
+    hll8Array.putOutOfOrder(true);
+    hll8Array.putRebuildCurMinNumKxQFlag(true);
+    final HllSketch result = new HllSketch(hll8Array);
+    Union.checkRebuildCurMinNumKxQ(result);
+    return (tgtHllType == TgtHllType.HLL_8) ? result : result.copyAs(tgtHllType);
+  }
+
+  /**
+   * Returns HLL_8, the type of the registers of this sketch.
+   */
+  @Override
+  public TgtHllType getTgtHllType() {
+    return TgtHllType.HLL_8;
+  }
+
+  @Override
+  public int getUpdatableSerializationBytes() {
+    return getResult(TgtHllType.HLL_8).getUpdatableSerializationBytes();
+  }
+
+  @Override
+  public double getUpperBound(final int numStdDev) {
+    HllUtil.checkNumStdDev(numStdDev);
+    if (!hllMode_) {
+      final HllSketch result = warmUpResult();
+      if (result != null) { return result.getUpperBound(numStdDev); }
+    }
+    return HllEstimators.hllUpperBound(lgConfigK_, true, new Registers().compositeEstimate(),
+        numStdDev);
+  }
+
+  @Override
+  public boolean isCompact() {
+    return false;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return empty_;
+  }
+
+  @Override
+  public boolean isMemory() {
+    return userMem_;
+  }
+
+  @Override
+  public boolean isOffHeap() {
+    return userMem_ && wmem_.isDirect();
+  }
+
+  @Override
+  boolean isOutOfOrder() {
+    return hllMode_ || getResult(TgtHllType.HLL_8).isOutOfOrder();
+  }
+
+  @Override
+  public boolean isSameResource(final Memory mem) {
+    return userMem_ && wmem_.isSameResource(mem);
+  }
+
+  /**
+   * Resets to empty. This must not be called concurrently with updates.
+   */
+  @Override
+  public synchronized void reset() {
+    for (int i = 0; i < NUM_STRIPES; i++) {
+      stripes_[i] = new Stripe(new HllSketch(lgConfigK_, TgtHllType.HLL_8));
+    }
+    wmem_.clear(0, 1 << lgConfigK_);
+    warmUpResult_ = null;
+    hllMode_ = false;
+    empty_ = true;
+  }
+
+  @Override
+  public byte[] toCompactByteArray() {
+    return getResult(TgtHllType.HLL_8).toCompactByteArray();
+  }
+
+  @Override
+  public byte[] toUpdatableByteArray() {
+    return getResult(TgtHllType.HLL_8).toUpdatableByteArray();
+  }
+
+  @Override
+  public String toString(final boolean summary, final boolean detail, final boolean auxDetail,
+      final boolean all) {
+    return getResult(TgtHllType.HLL_8).toString(summary, detail, auxDetail, all);
+  }
+
+  @Override
+  void couponUpdate(final int coupon) {
+    if (coupon == EMPTY) { return; }
+    if (empty_) { empty_ = false; }
+    if (!hllMode_) {
+      final Stripe stripe = stripes_[((coupon * STRIPE_MIX) >>> 28) & (NUM_STRIPES - 1)];
+      final boolean added;
+      boolean full = false;
+      synchronized (stripe) {
+        added = !stripe.moved;
+        if (added) {
+          full = stripe.add(coupon);
+        }
+      }
+      if (added) {
+        if (full) { moveToHllMode(); }
+        return;
+      }
+    }
+    registerUpdate(coupon);
+  }
+
+  @Override
+  long[] hashOut() {
+    return HASH_OUT.get();
+  }
+
+  //Moves the coupons of all stripes into the registers. Each stripe is moved under its lock, so
+  // a coupon is either moved with its stripe or, once the stripe is moved, goes to the registers.
+  private synchronized void moveToHllMode() {
+    if (hllMode_) { return; }
+    hllMode_ = true;
+    for (int i = 0; i < NUM_STRIPES; i++) {
+      final Stripe stripe = stripes_[i];
+      synchronized (stripe) {
+        final PairIterator itr = stripe.sketch.iterator();
+        while (itr.nextValid()) {
+          registerUpdate(itr.getPair());
+        }
+        stripe.moved = true;
+      }
+    }
+  }
+
+  //The union of the stripes, or null if the stripes have been moved to the registers. The last
+  // union is returned as long as no stripe has changed since, so it must not be modified.
+  HllSketch warmUpResult() {
+    final WarmUpResult cached = warmUpResult_;
+    if ((cached != null) && cached.isCurrent()) { return cached.sketch; }
+    final long[] versions = new long[NUM_STRIPES];
+    final Union union = new Union(lgConfigK_);
+    for (int i = 0; i < NUM_STRIPES; i++) {
+      final Stripe stripe = stripes_[i];
+      synchronized (stripe) {
+        if (stripe.moved) { return null; }
+        versions[i] = stripe.version;
+        union.update(stripe.sketch);
+      }
+    }
+    final HllSketch result = union.getResult(TgtHllType.HLL_8);
+    warmUpResult_ = new WarmUpResult(result, versions);
+    return result;
+  }
+
+  private void registerUpdate(final int coupon) {
+    final int slotNo = coupon & configKmask_;
+    final long newValue = coupon >>> KEY_BITS_26;
+    final long offset = slotNo & ~7;
+    final int shift = (slotNo & 7) << 3;
+    while (true) {
+      final long word = wmem_.getLong(offset);
+      if (((word >>> shift) & VAL_MASK_6) >= newValue) { return; }
+      final long newWord = (word & ~(0XFFL << shift)) | (newValue << shift);
+      if (wmem_.compareAndSwapLong(offset, word, newWord)) { return; }
+    }
+  }
+
+  private static final class Stripe {
+    final HllSketch sketch; //guarded by this stripe
+    boolean moved;          //guarded by this stripe
+    volatile long version;  //written under this stripe, counts the changes of the sketch
+
+    Stripe(final HllSketch sketch) {
+      this.sketch = sketch;
+    }
+
+    //Adds the coupon under the lock of this stripe, returns true if the sketch is in HLL mode.
+    // A stripe in HLL mode, which is about to be moved, counts every coupon as a change.
+    boolean add(final int coupon) {
+      final int count = getCouponCount();
+      sketch.couponUpdate(coupon);
+      if (sketch.getCurMode() == CurMode.HLL) {
+        version++;
+        return true;
+      }
+      if (getCouponCount() != count) { version++; }
+      return false;
+    }
+
+    private int getCouponCount() {
+      final HllSketchImpl impl = sketch.hllSketchImpl;
+      return (impl instanceof AbstractCoupons) ? ((AbstractCoupons) impl).getCouponCount() : -1;
+    }
+  }
+
+  /**
+   * A union of the stripes and the versions of the stripes it was merged from.
+   */
+  private final class WarmUpResult {
+    final HllSketch sketch;
+    final long[] versions;
+
+    WarmUpResult(final HllSketch sketch, final long[] versions) {
+      this.sketch = sketch;
+      this.versions = versions;
+    }
+
+    boolean isCurrent() {
+      for (int i = 0; i < NUM_STRIPES; i++) {
+        if (stripes_[i].version != versions[i]) { return false; }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * The registers that a union recomputes, see Union.checkRebuildCurMinNumKxQ(...), from a single
+   * scan of the current HLL_8 registers.
+   */
+  private final class Registers {
+    final double kxq0;
+    final double kxq1;
+    final int curMin;
+    final int numAtCurMin;
+
+    Registers() {
+      final int configK = 1 << lgConfigK_;
+      int min = 64;
+      int numAtMin = 0;
+      double q0 = configK;
+      double q1 = 0;
+      for (int slotNo = 0; slotNo < configK; slotNo += 8) {
+        final long word = wmem_.getLong(slotNo);
+        for (int shift = 0; shift < 64; shift += 8) {
+          final int v = (int) (word >>> shift) & VAL_MASK_6;
+          if (v > 0) {
+            if (v < 32) { q0 += invPow2(v) - 1.0; }
+            else        { q1 += invPow2(v) - 1.0; }
+          }
+          if (v > min) { continue; }
+          if (v < min) {
+            min = v;
+            numAtMin = 1;
+          } else {
+            numAtMin++;
+          }
+        }
+      }
+      kxq0 = q0;
+      kxq1 = q1;
+      curMin = min;
+      numAtCurMin = numAtMin;
+    }
+
+    double compositeEstimate() {
+      return HllEstimators.hllCompositeEstimate(lgConfigK_, kxq0, kxq1, curMin, numAtCurMin);
+    }
+  }
+}
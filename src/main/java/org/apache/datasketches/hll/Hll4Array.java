@@ -86,6 +86,15 @@ final class Hll4Array extends HllArray {
     return this;
   }
 
+  @Override
+  void couponUpdateAll(final int[] coupons, final int fromIndex, final int toIndex) {
+    final int configKmask = (1 << getLgConfigK()) - 1;
+    for (int i = fromIndex; i < toIndex; i++) {
+      final int coupon = coupons[i];
+      Hll4Update.internalHll4Update(this, coupon & configKmask, coupon >>> KEY_BITS_26);
+    }
+  }
+
   @Override
   int getNibble(final int slotNo) {
     int theByte = hllByteArr[slotNo >>> 1];
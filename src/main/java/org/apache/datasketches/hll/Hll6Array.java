@@ -73,6 +73,15 @@ class Hll6Array extends HllArray {
     return this;
   }
 
+  @Override
+  void couponUpdateAll(final int[] coupons, final int fromIndex, final int toIndex) {
+    final int configKmask = (1 << lgConfigK) - 1;
+    for (int i = fromIndex; i < toIndex; i++) {
+      final int coupon = coupons[i];
+      updateSlotWithKxQ(coupon & configKmask, coupon >>> KEY_BITS_26);
+    }
+  }
+
   @Override
   int getNibble(final int slotNo) {
     throw new SketchesStateException("Improper access.");
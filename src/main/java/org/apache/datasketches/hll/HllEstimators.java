@@ -19,6 +19,8 @@
 
 package org.apache.datasketches.hll;
 
+import static java.lang.Math.max;
+import static org.apache.datasketches.hll.HllUtil.COUPON_RSE;
 import static org.apache.datasketches.hll.HllUtil.HLL_HIP_RSE_FACTOR;
 import static org.apache.datasketches.hll.HllUtil.HLL_NON_HIP_RSE_FACTOR;
 import static org.apache.datasketches.hll.HllUtil.MIN_LOG_K;
@@ -46,20 +48,28 @@ class HllEstimators {
    */
 
   static final double hllLowerBound(final AbstractHllArray absHllArr, final int numStdDev) {
-    final int lgConfigK = absHllArr.lgConfigK;
-    final int configK = 1 << lgConfigK;
-    final double numNonZeros =
-        (absHllArr.getCurMin() == 0) ? configK - absHllArr.getNumAtCurMin() : configK;
-    final double estimate;
-    final double rseFactor;
     final boolean oooFlag = absHllArr.isOutOfOrder();
-    if (oooFlag) {
-      estimate = absHllArr.getCompositeEstimate();
-      rseFactor = HLL_NON_HIP_RSE_FACTOR;
-    } else {
-      estimate = absHllArr.getHipAccum();
-      rseFactor = HLL_HIP_RSE_FACTOR;
-    }
+    final double estimate =
+        oooFlag ? absHllArr.getCompositeEstimate() : absHllArr.getHipAccum();
+    return hllLowerBound(absHllArr.lgConfigK, absHllArr.getCurMin(), absHllArr.getNumAtCurMin(),
+        oooFlag, estimate, numStdDev);
+  }
+
+  /**
+   * The HLL lower bound computed from the given sketch registers.
+   * @param lgConfigK the configured lgK of the sketch
+   * @param curMin the current minimum value of the HLL window
+   * @param numAtCurMin the current number of slots with the value curMin
+   * @param oooFlag the out-of-order flag
+   * @param estimate the composite estimate if oooFlag is set, otherwise the HIP accumulator
+   * @param numStdDev the number of standard deviations
+   * @return the lower bound
+   */
+  static final double hllLowerBound(final int lgConfigK, final int curMin, final int numAtCurMin,
+      final boolean oooFlag, final double estimate, final int numStdDev) {
+    final int configK = 1 << lgConfigK;
+    final double numNonZeros = (curMin == 0) ? configK - numAtCurMin : configK;
+    final double rseFactor = oooFlag ? HLL_NON_HIP_RSE_FACTOR : HLL_HIP_RSE_FACTOR;
     final double relErr = (lgConfigK > 12)
         ? (numStdDev * rseFactor) / Math.sqrt(configK)
         : RelativeErrorTables.getRelErr(false, oooFlag, lgConfigK, numStdDev);
@@ -67,25 +77,58 @@ class HllEstimators {
   }
 
   static final double hllUpperBound(final AbstractHllArray absHllArr, final int numStdDev) {
-    final int lgConfigK = absHllArr.lgConfigK;
-    final int configK = 1 << lgConfigK;
-    final double estimate;
-    final double rseFactor;
     final boolean oooFlag = absHllArr.isOutOfOrder();
-    if (oooFlag) {
-      estimate = absHllArr.getCompositeEstimate();
-      rseFactor = HLL_NON_HIP_RSE_FACTOR;
-    } else {
-      estimate = absHllArr.getHipAccum();
-      rseFactor = HLL_HIP_RSE_FACTOR;
-    }
+    final double estimate =
+        oooFlag ? absHllArr.getCompositeEstimate() : absHllArr.getHipAccum();
+    return hllUpperBound(absHllArr.lgConfigK, oooFlag, estimate, numStdDev);
+  }
 
+  /**
+   * The HLL upper bound computed from the given sketch registers.
+   * @param lgConfigK the configured lgK of the sketch
+   * @param oooFlag the out-of-order flag
+   * @param estimate the composite estimate if oooFlag is set, otherwise the HIP accumulator
+   * @param numStdDev the number of standard deviations
+   * @return the upper bound
+   */
+  static final double hllUpperBound(final int lgConfigK, final boolean oooFlag,
+      final double estimate, final int numStdDev) {
+    final int configK = 1 << lgConfigK;
+    final double rseFactor = oooFlag ? HLL_NON_HIP_RSE_FACTOR : HLL_HIP_RSE_FACTOR;
     final double relErr = (lgConfigK > 12)
         ? ((-1.0) * (numStdDev * rseFactor)) / Math.sqrt(configK)
         : RelativeErrorTables.getRelErr(true, oooFlag, lgConfigK, numStdDev);
     return estimate / (1.0 + relErr);
   }
 
+  //COUPON LIST AND SET ESTIMATORS
+
+  /**
+   * The estimator for the Coupon List mode and Coupon Hash Set mode.
+   * See {@link AbstractCoupons#getEstimate()}.
+   * @param couponCount the number of coupons
+   * @return the estimate
+   */
+  static final double couponEstimate(final int couponCount) {
+    final double est = CubicInterpolation.usingXAndYTables(CouponMapping.xArr,
+        CouponMapping.yArr, couponCount);
+    return max(est, couponCount);
+  }
+
+  static final double couponLowerBound(final int couponCount, final int numStdDev) {
+    final double est = CubicInterpolation.usingXAndYTables(CouponMapping.xArr,
+        CouponMapping.yArr, couponCount);
+    final double tmp = est / (1.0 + (numStdDev * COUPON_RSE));
+    return max(tmp, couponCount);
+  }
+
+  static final double couponUpperBound(final int couponCount, final int numStdDev) {
+    final double est = CubicInterpolation.usingXAndYTables(CouponMapping.xArr,
+        CouponMapping.yArr, couponCount);
+    final double tmp = est / (1.0 - (numStdDev * COUPON_RSE));
+    return max(tmp, couponCount);
+  }
+
   //THE HLL COMPOSITE ESTIMATOR
 
   /**
@@ -96,8 +139,22 @@ class HllEstimators {
    */
   //In C: again-two-registers.c hhb_get_composite_estimate L1489
   static final double hllCompositeEstimate(final AbstractHllArray absHllArr) {
-    final int lgConfigK = absHllArr.getLgConfigK();
-    final double rawEst = getHllRawEstimate(lgConfigK, absHllArr.getKxQ0() + absHllArr.getKxQ1());
+    return hllCompositeEstimate(absHllArr.getLgConfigK(), absHllArr.getKxQ0(),
+        absHllArr.getKxQ1(), absHllArr.getCurMin(), absHllArr.getNumAtCurMin());
+  }
+
+  /**
+   * The composite estimate computed from the given sketch registers.
+   * @param lgConfigK the configured lgK of the sketch
+   * @param kxq0 the KxQ0 register
+   * @param kxq1 the KxQ1 register
+   * @param curMin the current minimum value of the HLL window
+   * @param numAtCurMin the current number of slots with the value curMin
+   * @return the composite estimate
+   */
+  static final double hllCompositeEstimate(final int lgConfigK, final double kxq0,
+      final double kxq1, final int curMin, final int numAtCurMin) {
+    final double rawEst = getHllRawEstimate(lgConfigK, kxq0 + kxq1);
 
     final double[] xArr = CompositeInterpolationXTable.xArrs[lgConfigK - MIN_LOG_K];
     final double yStride = CompositeInterpolationXTable.yStrides[lgConfigK - MIN_LOG_K];
@@ -123,8 +180,7 @@ class HllEstimators {
     //Alternate call
     //if ((adjEst > (3 << lgConfigK)) || ((curMin != 0) || (numAtCurMin == 0)) ) { return adjEst; }
 
-    final double linEst =
-        getHllBitMapEstimate(lgConfigK, absHllArr.getCurMin(), absHllArr.getNumAtCurMin());
+    final double linEst = getHllBitMapEstimate(lgConfigK, curMin, numAtCurMin);
 
     // Bias is created when the value of an estimator is compared with a threshold to decide whether
     // to use that estimator or a different one.
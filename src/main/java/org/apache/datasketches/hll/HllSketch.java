@@ -19,6 +19,7 @@
 
 package org.apache.datasketches.hll;
 
+import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
 import static org.apache.datasketches.hll.HllUtil.EMPTY;
 import static org.apache.datasketches.hll.HllUtil.KEY_BITS_26;
 import static org.apache.datasketches.hll.HllUtil.LG_AUX_ARR_INTS;
@@ -29,7 +30,9 @@ import static org.apache.datasketches.hll.PreambleUtil.extractLgK;
 import static org.apache.datasketches.hll.PreambleUtil.extractTgtHllType;
 
 import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.hash.MurmurHash3v2;
 import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.UnsafeUtil;
 import org.apache.datasketches.memory.WritableMemory;
 
 /**
@@ -77,6 +80,7 @@ public class HllSketch extends BaseHllSketch {
   public static final TgtHllType DEFAULT_HLL_TYPE = TgtHllType.HLL_4;
 
   private static final String LS = System.getProperty("line.separator");
+  private static final int UPDATE_ALL_CHUNK = 1024; //max coupons buffered by updateAll
   HllSketchImpl hllSketchImpl = null;
 
   /**
@@ -501,6 +505,81 @@ public class HllSketch extends BaseHllSketch {
     return PreambleUtil.toString(mem);
   }
 
+  /**
+   * Present each long of the given range of the array as a separate potential unique item.
+   * This produces exactly the same result as calling {@link #update(long)} for each value,
+   * but resolves the current mode and target HLL type once per chunk rather than once per item.
+   * This is not the same as {@link #update(long[])}, which treats the whole array as a single item.
+   *
+   * @param values the given array of long data
+   * @param offset the index of the first value to be presented to this sketch
+   * @param length the number of values to be presented to this sketch
+   */
+  public void updateAll(final long[] values, final int offset, final int length) {
+    if (values == null) { return; }
+    UnsafeUtil.checkBounds(offset, length, values.length);
+    final int chunk = Math.min(length, UPDATE_ALL_CHUNK);
+    final long[] hashes = new long[chunk << 1];
+    final int[] coupons = new int[chunk];
+    final int end = offset + length;
+    for (int i = offset; i < end; i += chunk) {
+      final int count = Math.min(end - i, chunk);
+      MurmurHash3v2.hash128(values, i, count, DEFAULT_UPDATE_SEED, hashes);
+      couponUpdateAll(coupons(hashes, count, coupons), count);
+    }
+  }
+
+  /**
+   * Present each double of the given range of the array as a separate potential unique item.
+   * This produces exactly the same result as calling {@link #update(double)} for each value,
+   * including the canonicalization of plus and minus zero and of the NaN forms.
+   *
+   * @param values the given array of double data
+   * @param offset the index of the first value to be presented to this sketch
+   * @param length the number of values to be presented to this sketch
+   */
+  public void updateAll(final double[] values, final int offset, final int length) {
+    if (values == null) { return; }
+    UnsafeUtil.checkBounds(offset, length, values.length);
+    final int chunk = Math.min(length, UPDATE_ALL_CHUNK);
+    final long[] hashes = new long[chunk << 1];
+    final int[] coupons = new int[chunk];
+    final int end = offset + length;
+    for (int i = offset; i < end; i += chunk) {
+      final int count = Math.min(end - i, chunk);
+      MurmurHash3v2.hash128(values, i, count, DEFAULT_UPDATE_SEED, hashes);
+      couponUpdateAll(coupons(hashes, count, coupons), count);
+    }
+  }
+
+  /**
+   * Present each of the given fixed-width records in Memory as a separate potential unique item.
+   * Each record is hashed as a byte array, so this produces exactly the same result as
+   * calling {@link #update(byte[])} with the bytes of each record.
+   *
+   * @param mem the given Memory holding the records end-to-end
+   * @param offsetBytes the offset in bytes of the first record
+   * @param recordBytes the width in bytes of each record. It must be greater than zero.
+   * @param numRecords the number of records to be presented to this sketch
+   */
+  public void updateAll(final Memory mem, final long offsetBytes, final int recordBytes,
+      final int numRecords) {
+    if (mem == null) { return; }
+    if (recordBytes <= 0) {
+      throw new SketchesArgumentException("recordBytes must be > 0: " + recordBytes);
+    }
+    UnsafeUtil.checkBounds(offsetBytes, (long) recordBytes * numRecords, mem.getCapacity());
+    final int chunk = Math.min(numRecords, UPDATE_ALL_CHUNK);
+    final long[] hashes = new long[chunk << 1];
+    final int[] coupons = new int[chunk];
+    for (int i = 0; i < numRecords; i += chunk) {
+      final int count = Math.min(numRecords - i, chunk);
+      final long off = offsetBytes + ((long) i * recordBytes);
+      MurmurHash3v2.hash128(mem, off, recordBytes, count, DEFAULT_UPDATE_SEED, hashes);
+      couponUpdateAll(coupons(hashes, count, coupons), count);
+    }
+  }
+
   //restricted methods
 
   /**
@@ -522,4 +601,25 @@ public class HllSketch extends BaseHllSketch {
     hllSketchImpl = hllSketchImpl.couponUpdate(coupon);
   }
 
+  //Converts count 128-bit hashes, stored as pairs, into coupons
+  private static int[] coupons(final long[] hashes, final int count, final int[] coupons) {
+    for (int i = 0; i < count; i++) {
+      coupons[i] = coupon(hashes[i << 1], hashes[(i << 1) + 1]);
+    }
+    return coupons;
+  }
+
+  //Coupons computed from hashes are never EMPTY.
+  private void couponUpdateAll(final int[] coupons, final int count) {
+    int i = 0;
+    //The LIST and SET modes can promote to a new implementation on any coupon
+    while ((i < count) && (hllSketchImpl.getCurMode() != CurMode.HLL)) {
+      hllSketchImpl = hllSketchImpl.couponUpdate(coupons[i++]);
+    }
+    //Once in HLL mode, the implementation never changes
+    if (i < count) {
+      ((AbstractHllArray) hllSketchImpl).couponUpdateAll(coupons, i, count);
+    }
+  }
+
 }
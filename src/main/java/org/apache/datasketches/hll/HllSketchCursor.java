@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.hll;
+
+import static org.apache.datasketches.Util.invPow2;
+import static org.apache.datasketches.hll.HllUtil.VAL_MASK_6;
+import static org.apache.datasketches.hll.PreambleUtil.HLL_BYTE_ARR_START;
+import static org.apache.datasketches.hll.PreambleUtil.extractCompactFlag;
+import static org.apache.datasketches.hll.PreambleUtil.extractCurMin;
+import static org.apache.datasketches.hll.PreambleUtil.extractEmptyFlag;
+import static org.apache.datasketches.hll.PreambleUtil.extractHashSetCount;
+import static org.apache.datasketches.hll.PreambleUtil.extractHipAccum;
+import static org.apache.datasketches.hll.PreambleUtil.extractKxQ0;
+import static org.apache.datasketches.hll.PreambleUtil.extractKxQ1;
+import static org.apache.datasketches.hll.PreambleUtil.extractLgK;
+import static org.apache.datasketches.hll.PreambleUtil.extractListCount;
+import static org.apache.datasketches.hll.PreambleUtil.extractNumAtCurMin;
+import static org.apache.datasketches.hll.PreambleUtil.extractOooFlag;
+import static org.apache.datasketches.hll.PreambleUtil.extractPreInts;
+import static org.apache.datasketches.hll.PreambleUtil.extractRebuildCurMinNumKxQFlag;
+import static org.apache.datasketches.hll.PreambleUtil.extractTgtHllType;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.SketchesStateException;
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * A reusable, read-only view of the estimate and bounds of a serialized HllSketch, which can be
+ * reset to a different sketch image without allocating any objects. It is meant for query paths
+ * that read many stored sketches one after the other, where a new sketch per image would be
+ * needed with {@link HllSketch#wrap(Memory)}.
+ *
+ * <p>A reset reads only the preamble of the image, which holds the registers that the
+ * estimators need. The only exception is an HLL_8 image of a union that has not been
+ * finalized, where these registers are recomputed from the slots, in place. The results are
+ * identical to those of the sketch returned by {@link HllSketch#wrap(Memory)}.</p>
+ *
+ * <p>A cursor is not thread safe.</p>
+ */
+public final class HllSketchCursor {
+  private Memory mem;
+  private int lgConfigK;
+  private TgtHllType tgtHllType;
+  private CurMode curMode;
+  private boolean empty;
+  private int couponCount;
+  private boolean oooFlag;
+  private double hipAccum;
+  private double kxq0;
+  private double kxq1;
+  private int curMin;
+  private int numAtCurMin;
+
+  /**
+   * Creates a cursor that must be reset to a sketch image before it is used.
+   */
+  public HllSketchCursor() { }
+
+  /**
+   * Resets this cursor to the given sketch image, which may be compact or updatable.
+   * @param srcMem the given sketch image, which must not change while this cursor is on it
+   * @return this cursor
+   */
+  public HllSketchCursor reset(final Memory srcMem) {
+    if (srcMem == null) {
+      throw new SketchesArgumentException("Memory must not be null.");
+    }
+    if (srcMem.getCapacity() < 8) {
+      throw new SketchesArgumentException(
+          "Memory capacity too small: " + srcMem.getCapacity() + " < 8");
+    }
+    final CurMode mode = HllUtil.checkPreamble(srcMem);
+    final long preBytes = extractPreInts(srcMem) << 2;
+    final boolean rebuild = (mode == CurMode.HLL)
+        && (extractTgtHllType(srcMem) == TgtHllType.HLL_8)
+        && extractRebuildCurMinNumKxQFlag(srcMem);
+    final long minBytes = rebuild ? HLL_BYTE_ARR_START + (1 << extractLgK(srcMem)) : preBytes;
+    if (srcMem.getCapacity() < minBytes) {
+      throw new SketchesArgumentException(
+          "Memory capacity too small: " + srcMem.getCapacity() + " < " + minBytes);
+    }
+    mem = srcMem;
+    lgConfigK = extractLgK(srcMem);
+    tgtHllType = extractTgtHllType(srcMem);
+    curMode = mode;
+    if (mode == CurMode.HLL) {
+      empty = extractEmptyFlag(srcMem);
+      couponCount = 0;
+      oooFlag = extractOooFlag(srcMem);
+      hipAccum = extractHipAccum(srcMem);
+      if (rebuild) {
+        rebuildCurMinNumKxQ();
+      } else {
+        kxq0 = extractKxQ0(srcMem);
+        kxq1 = extractKxQ1(srcMem);
+        curMin = extractCurMin(srcMem);
+        numAtCurMin = extractNumAtCurMin(srcMem);
+      }
+    } else {
+      couponCount = (mode == CurMode.LIST) ? extractListCount(srcMem)
+          : extractHashSetCount(srcMem);
+      empty = couponCount == 0;
+    }
+    return this;
+  }
+
+  /**
+   * Returns the composite estimate of the current sketch.
+   * See {@link HllSketch#getCompositeEstimate()}.
+   * @return the composite estimate of the current sketch
+   */
+  public double getCompositeEstimate() {
+    checkReset();
+    if (curMode != CurMode.HLL) { return HllEstimators.couponEstimate(couponCount); }
+    return HllEstimators.hllCompositeEstimate(lgConfigK, kxq0, kxq1, curMin, numAtCurMin);
+  }
+
+  /**
+   * Returns the cardinality estimate of the current sketch.
+   * See {@link HllSketch#getEstimate()}.
+   * @return the cardinality estimate of the current sketch
+   */
+  public double getEstimate() {
+    checkReset();
+    if (curMode != CurMode.HLL) { return HllEstimators.couponEstimate(couponCount); }
+    return oooFlag ? getCompositeEstimate() : hipAccum;
+  }
+
+  /**
+   * Returns the configured lgK of the current sketch.
+   * @return the configured lgK of the current sketch
+   */
+  public int getLgConfigK() {
+    checkReset();
+    return lgConfigK;
+  }
+
+  /**
+   * Returns the approximate lower error bound of the current sketch.
+   * See {@link HllSketch#getLowerBound(int)}.
+   * @param numStdDev the number of standard deviations, which must be 1, 2 or 3
+   * @return the approximate lower error bound of the current sketch
+   */
+  public double getLowerBound(final int numStdDev) {
+    checkReset();
+    HllUtil.checkNumStdDev(numStdDev);
+    if (curMode != CurMode.HLL) { return HllEstimators.couponLowerBound(couponCount, numStdDev); }
+    return HllEstimators.hllLowerBound(lgConfigK, curMin, numAtCurMin, oooFlag, getEstimate(),
+        numStdDev);
+  }
+
+  /**
+   * Returns the target type of the current sketch.
+   * @return the target type of the current sketch
+   */
+  public TgtHllType getTgtHllType() {
+    checkReset();
+    return tgtHllType;
+  }
+
+  /**
+   * Returns the approximate upper error bound of the current sketch.
+   * See {@link HllSketch#getUpperBound(int)}.
+   * @param numStdDev the number of standard deviations, which must be 1, 2 or 3
+   * @return the approximate upper error bound of the current sketch
+   */
+  public double getUpperBound(final int numStdDev) {
+    checkReset();
+    HllUtil.checkNumStdDev(numStdDev);
+    if (curMode != CurMode.HLL) { return HllEstimators.couponUpperBound(couponCount, numStdDev); }
+    return HllEstimators.hllUpperBound(lgConfigK, oooFlag, getEstimate(), numStdDev);
+  }
+
+  /**
+   * Returns true if the current sketch image is in compact form.
+   * @return true if the current sketch image is in compact form
+   */
+  public boolean isCompact() {
+    checkReset();
+    return extractCompactFlag(mem);
+  }
+
+  /**
+   * Returns true if the current sketch is empty.
+   * @return true if the current sketch is empty
+   */
+  public boolean isEmpty() {
+    checkReset();
+    return empty;
+  }
+
+  private void checkReset() {
+    if (mem == null) {
+      throw new SketchesStateException("This cursor has not been reset to a sketch image.");
+    }
+  }
+
+  /**
+   * Recomputes the registers that a union does not keep current, as
+   * Union.checkRebuildCurMinNumKxQ(...) does, but without writing them back.
+   */
+  private void rebuildCurMinNumKxQ() {
+    final int configK = 1 << lgConfigK;
+    int min = 64;
+    int numAtMin = 0;
+    double q0 = configK;
+    double q1 = 0;
+    for (int slotNo = 0; slotNo < configK; slotNo++) {
+      final int v = mem.getByte(HLL_BYTE_ARR_START + slotNo) & VAL_MASK_6;
+      if (v > 0) {
+        if (v < 32) { q0 += invPow2(v) - 1.0; }
+        else        { q1 += invPow2(v) - 1.0; }
+      }
+      if (v > min) { continue; }
+      if (v < min) {
+        min = v;
+        numAtMin = 1;
+      } else {
+        numAtMin++;
+      }
+    }
+    kxq0 = q0;
+    kxq1 = q1;
+    curMin = min;
+    numAtCurMin = numAtMin;
+  }
+}
@@ -21,10 +21,14 @@ package org.apache.datasketches.hll;
 
 import static org.apache.datasketches.Util.invPow2;
 import static org.apache.datasketches.hll.HllUtil.EMPTY;
+import static org.apache.datasketches.hll.HllUtil.VAL_MASK_6;
 import static org.apache.datasketches.hll.PreambleUtil.HLL_BYTE_ARR_START;
 import static org.apache.datasketches.hll.PreambleUtil.extractTgtHllType;
+import static org.apache.datasketches.hll.TgtHllType.HLL_6;
 import static org.apache.datasketches.hll.TgtHllType.HLL_8;
 
+import java.util.Arrays;
+
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableMemory;
@@ -52,6 +56,8 @@ import org.apache.datasketches.memory.WritableMemory;
  * @author Kevin Lang
  */
 public class Union extends BaseHllSketch {
+  private static final long LOW_BITS = 0x0101010101010101L;
+  private static final long HIGH_BITS = 0x8080808080808080L;
   final int lgMaxK;
   private final HllSketch gadget;
 
@@ -422,7 +428,7 @@ public class Union extends BaseHllSketch {
       { //Action: downsample gdt to srcLgK, forward HLL merge w/autofold, ooof=True
         final HllSketch gdtHll8Heap = downsample(gadget, srcLgK);
         //merge src(Hll4,6,8;heap/mem,Mode=HLL) -> gdt(Hll8,heap,hll)
-        mergeHlltoHLLmode(source, gdtHll8Heap, srcLgK, gadgetLgK, srcIsMem, false);
+        mergeHlltoHLLmode(source, gdtHll8Heap, srcLgK, srcLgK, srcIsMem, false);
         hllSketchImpl = gdtHll8Heap.putOutOfOrderFlag(true).hllSketchImpl;
         break;
       }
@@ -430,7 +436,7 @@ public class Union extends BaseHllSketch {
       { //Action: downsample gdt to srcLgK, forward HLL merge w/autofold, use gdt memory, ooof=True
         final HllSketch gdtHll8Heap = downsample(gadget, srcLgK);
         //merge src(Hll4,6,8;heap/mem;Mode=HLL) -> gdt(Hll8,heap,Mode=HLL)
-        mergeHlltoHLLmode(source, gdtHll8Heap, srcLgK, gadgetLgK, srcIsMem, false);
+        mergeHlltoHLLmode(source, gdtHll8Heap, srcLgK, srcLgK, srcIsMem, false);
         hllSketchImpl = useGadgetMemory(gadget, gdtHll8Heap, true).hllSketchImpl;
         break;
       }
@@ -479,135 +485,136 @@ public class Union extends BaseHllSketch {
 
   private static final void mergeHlltoHLLmode(final HllSketch src, final HllSketch tgt,
       final int srcLgK, final int tgtLgK, final boolean srcIsMem, final boolean tgtIsMem) {
-      final int sw = (tgtIsMem ? 1 : 0) | (srcIsMem ? 2 : 0)
-          | ((srcLgK > tgtLgK) ? 4 : 0) | ((src.getTgtHllType() != HLL_8) ? 8 : 0);
-      switch (sw) {
-        case 0: { //HLL_8, srcLgK=tgtLgK, src=heap, tgt=heap
-          final int srcK = 1 << srcLgK;
-          final byte[] srcArr = ((Hll8Array) src.hllSketchImpl).hllByteArr;
-          final byte[] tgtArr = ((Hll8Array) tgt.hllSketchImpl).hllByteArr;
-          for (int i = 0; i < srcK; i++) {
-            final byte srcV = srcArr[i];
-            final byte tgtV = tgtArr[i];
-            tgtArr[i] = (srcV > tgtV) ? srcV : tgtV;
-          }
-          break;
-        }
-        case 1: { //HLL_8, srcLgK=tgtLgK, src=heap, tgt=mem
-          final int srcK = 1 << srcLgK;
-          final byte[] srcArr = ((Hll8Array) src.hllSketchImpl).hllByteArr;
-          final WritableMemory tgtMem = tgt.getWritableMemory();
-          for (int i = 0; i < srcK; i++) {
-            final byte srcV = srcArr[i];
-            final byte tgtV = tgtMem.getByte(HLL_BYTE_ARR_START + i);
-            tgtMem.putByte(HLL_BYTE_ARR_START + i, (srcV > tgtV) ? srcV : tgtV);
-          }
-          break;
-        }
-        case 2: { //HLL_8, srcLgK=tgtLgK, src=mem,  tgt=heap
-          final int srcK = 1 << srcLgK;
-          final Memory srcMem = src.getMemory();
-          final byte[] tgtArr = ((Hll8Array) tgt.hllSketchImpl).hllByteArr;
-          for (int i = 0; i < srcK; i++) {
-            final byte srcV = srcMem.getByte(HLL_BYTE_ARR_START + i);
-            final byte tgtV = tgtArr[i];
-            tgtArr[i] = (srcV > tgtV) ? srcV : tgtV;
-          }
-          break;
-        }
-        case 3: { //HLL_8, srcLgK=tgtLgK, src=mem,  tgt=mem
-          final int srcK = 1 << srcLgK;
-          final Memory srcMem = src.getMemory();
-          final WritableMemory tgtMem = tgt.getWritableMemory();
-          for (int i = 0; i < srcK; i++) {
-            final byte srcV = srcMem.getByte(HLL_BYTE_ARR_START + i);
-            final byte tgtV = tgtMem.getByte(HLL_BYTE_ARR_START + i);
-            tgtMem.putByte(HLL_BYTE_ARR_START + i, (srcV > tgtV) ? srcV : tgtV);
-          }
-          break;
-        }
-        case 4: { //HLL_8, srcLgK>tgtLgK, src=heap, tgt=heap
-          final int srcK = 1 << srcLgK;
-          final int tgtKmask = (1 << tgtLgK) - 1;
-          final byte[] srcArr = ((Hll8Array) src.hllSketchImpl).hllByteArr;
-          final byte[] tgtArr = ((Hll8Array) tgt.hllSketchImpl).hllByteArr;
-          for (int i = 0; i < srcK; i++) {
-            final byte srcV = srcArr[i];
-            final int j = i & tgtKmask;
-            final byte tgtV = tgtArr[j];
-            tgtArr[j] = (srcV > tgtV) ? srcV : tgtV;
-          }
-          break;
+      final TgtHllType srcType = src.getTgtHllType();
+      if (srcType != HLL_6) { //HLL_4 or HLL_8, srcLgK>=tgtLgK, src=heap/mem, tgt=heap/mem
+        final WritableMemory tgtMem = tgtIsMem
+            ? tgt.getWritableMemory().writableRegion(HLL_BYTE_ARR_START, 1 << tgtLgK)
+            : WritableMemory.wrap(((Hll8Array) tgt.hllSketchImpl).hllByteArr);
+        if (srcType == HLL_8) {
+          final Memory srcMem = srcIsMem
+              ? src.getMemory().region(HLL_BYTE_ARR_START, 1 << srcLgK)
+              : Memory.wrap(((Hll8Array) src.hllSketchImpl).hllByteArr);
+          mergeHll8Words(srcMem, srcLgK, tgtMem, tgtLgK);
+        } else {
+          mergeHll4Words((AbstractHllArray) src.hllSketchImpl, srcLgK, tgtMem, tgtLgK);
         }
-        case 5: { //HLL_8, srcLgK>tgtLgK, src=heap, tgt=mem
-          final int srcK = 1 << srcLgK;
-          final int tgtKmask = (1 << tgtLgK) - 1;
-          final byte[] srcArr = ((Hll8Array) src.hllSketchImpl).hllByteArr;
-          final WritableMemory tgtMem = tgt.getWritableMemory();
-          for (int i = 0; i < srcK; i++) {
-            final byte srcV = srcArr[i];
-            final int j = i & tgtKmask;
-            final byte tgtV = tgtMem.getByte(HLL_BYTE_ARR_START + j);
-            tgtMem.putByte(HLL_BYTE_ARR_START + j, (srcV > tgtV) ? srcV : tgtV);
-          }
-          break;
-        }
-        case 6: { //HLL_8, srcLgK>tgtLgK, src=mem,  tgt=heap
-          final int srcK = 1 << srcLgK;
-          final int tgtKmask = (1 << tgtLgK) - 1;
-          final Memory srcMem = src.getMemory();
-          final byte[] tgtArr = ((Hll8Array) tgt.hllSketchImpl).hllByteArr;
-          for (int i = 0; i < srcK; i++) {
-            final byte srcV = srcMem.getByte(HLL_BYTE_ARR_START + i);
-            final int j = i & tgtKmask;
-            final byte tgtV = tgtArr[j];
-            tgtArr[j] = (srcV > tgtV) ? srcV : tgtV;
-          }
-          break;
-        }
-        case 7: { //HLL_8, srcLgK>tgtLgK, src=mem,  tgt=mem
-          final int srcK = 1 << srcLgK;
-          final int tgtKmask = (1 << tgtLgK) - 1;
-          final Memory srcMem = src.getMemory();
-          final WritableMemory tgtMem = tgt.getWritableMemory();
-          for (int i = 0; i < srcK; i++) {
-            final byte srcV = srcMem.getByte(HLL_BYTE_ARR_START + i);
-            final int j = i & tgtKmask;
-            final byte tgtV = tgtMem.getByte(HLL_BYTE_ARR_START + j);
-            tgtMem.putByte(HLL_BYTE_ARR_START + j, (srcV > tgtV) ? srcV : tgtV);
-          }
-          break;
-        }
-        case 8: case 9: case 10: case 11:
-        {
-          //!HLL_8, srcLgK=tgtLgK, src=heap/mem, tgt=heap/mem
-          final int srcK = 1 << srcLgK;
-          final AbstractHllArray srcAbsHllArr = (AbstractHllArray)(src.hllSketchImpl);
-          final AbstractHllArray tgtAbsHllArr = (AbstractHllArray)(tgt.hllSketchImpl);
-          for (int i = 0; i < srcK; i++) {
-            final int srcV = srcAbsHllArr.getSlotValue(i);
-            tgtAbsHllArr.updateSlotNoKxQ(i, srcV);
-          }
-          break;
+      }
+      else if (srcLgK == tgtLgK) { //HLL_6, srcLgK=tgtLgK, src=heap/mem, tgt=heap/mem
+        final int srcK = 1 << srcLgK;
+        final AbstractHllArray srcAbsHllArr = (AbstractHllArray)(src.hllSketchImpl);
+        final AbstractHllArray tgtAbsHllArr = (AbstractHllArray)(tgt.hllSketchImpl);
+        for (int i = 0; i < srcK; i++) {
+          final int srcV = srcAbsHllArr.getSlotValue(i);
+          tgtAbsHllArr.updateSlotNoKxQ(i, srcV);
         }
-        case 12: case 13: case 14: case 15:
-        {
-          //!HLL_8, srcLgK>tgtLgK, src=heap/mem, tgt=heap/mem
-          final int srcK = 1 << srcLgK;
-          final int tgtKmask = (1 << tgtLgK) - 1;
-          final AbstractHllArray srcAbsHllArr = (AbstractHllArray)(src.hllSketchImpl);
-          final AbstractHllArray tgtAbsHllArr = (AbstractHllArray)(tgt.hllSketchImpl);
-          for (int i = 0; i < srcK; i++) {
-            final int srcV = srcAbsHllArr.getSlotValue(i);
-            final int j = i & tgtKmask;
-            tgtAbsHllArr.updateSlotNoKxQ(j, srcV);
-          }
-          break;
+      }
+      else { //HLL_6, srcLgK>tgtLgK, src=heap/mem, tgt=heap/mem
+        final int srcK = 1 << srcLgK;
+        final int tgtKmask = (1 << tgtLgK) - 1;
+        final AbstractHllArray srcAbsHllArr = (AbstractHllArray)(src.hllSketchImpl);
+        final AbstractHllArray tgtAbsHllArr = (AbstractHllArray)(tgt.hllSketchImpl);
+        for (int i = 0; i < srcK; i++) {
+          final int srcV = srcAbsHllArr.getSlotValue(i);
+          final int j = i & tgtKmask;
+          tgtAbsHllArr.updateSlotNoKxQ(j, srcV);
         }
       }
       tgt.hllSketchImpl.putRebuildCurMinNumKxQFlag(true);
   }
 
+  /**
+   * Merges the given HLL_4 source into the given HLL_8 target registers. The nibbles are decoded
+   * sixteen per long, curMin is added to eight registers at once, and the registers are merged
+   * with a byte-wise max. Nibbles that hold the AUX_TOKEN are skipped in this pass, and the
+   * exceptions of the aux map are merged afterwards, in slot order. As with HLL_8, a larger
+   * source is folded onto the target.
+   *
+   * @param src the HLL_4 source array
+   * @param srcLgK the source lgConfigK, which must not be less than tgtLgK
+   * @param tgtMem the target registers, one byte per slot
+   * @param tgtLgK the target lgConfigK
+   */
+  static final void mergeHll4Words(final AbstractHllArray src, final int srcLgK,
+      final WritableMemory tgtMem, final int tgtLgK) {
+    final int srcK = 1 << srcLgK;
+    final Memory nibbles = src.isMemory()
+        ? src.getMemory().region(HLL_BYTE_ARR_START, srcK >>> 1)
+        : Memory.wrap(((Hll4Array) src).hllByteArr);
+    final long curMinW = src.getCurMin() * LOW_BITS;
+    final int tgtKmask = (1 << tgtLgK) - 1; //the 16 slots of a long never straddle a fold
+    for (int slot = 0; slot < srcK; slot += 16) {
+      final long w = nibbles.getLong(slot >>> 1);
+      final int j = slot & tgtKmask;
+      mergeNibbles(tgtMem, j, w & 0XFFFFFFFFL, curMinW);
+      mergeNibbles(tgtMem, j + 8, w >>> 32, curMinW);
+    }
+
+    //second pass: the exceptions, sorted by slot
+    final AuxHashMap auxHashMap = src.getAuxHashMap();
+    if (auxHashMap == null) { return; }
+    final int[] entries = new int[auxHashMap.getAuxCount()];
+    int n = 0;
+    final PairIterator itr = auxHashMap.getIterator();
+    while (itr.nextValid()) {
+      entries[n++] = (itr.getKey() << 6) | itr.getValue(); //values are less than 64
+    }
+    Arrays.sort(entries, 0, n);
+    for (int i = 0; i < n; i++) {
+      final int j = (entries[i] >>> 6) & tgtKmask;
+      final byte v = (byte) (entries[i] & VAL_MASK_6);
+      if (v > tgtMem.getByte(j)) { tgtMem.putByte(j, v); }
+    }
+  }
+
+  //Merges eight nibbles, given in the low 32 bits, into the eight target registers at offset.
+  private static void mergeNibbles(final WritableMemory tgtMem, final long offset,
+      final long nibbles, final long curMinW) {
+    //spread nibble i to byte i
+    long x = (nibbles | (nibbles << 16)) & 0X0000FFFF0000FFFFL;
+    x = (x | (x << 8)) & 0X00FF00FF00FF00FFL;
+    x = (x | (x << 4)) & 0X0F0F0F0F0F0F0F0FL;
+    //0xFF in every byte that holds the AUX_TOKEN (15), whose value is in the aux map
+    final long aux = (((x + LOW_BITS) & (LOW_BITS << 4)) >>> 4) * 0XFFL;
+    final long regs = (x + curMinW) & ~aux;
+    tgtMem.putLong(offset, byteWiseMax(regs, tgtMem.getLong(offset)));
+  }
+
+  /**
+   * Merges the given HLL_8 source registers into the given HLL_8 target registers, eight
+   * registers per long. If the source is larger, its blocks of target size are folded onto the
+   * target, which is the same as slot i of the source updating slot (i mod K) of the target.
+   *
+   * @param srcMem the source registers, one byte per slot
+   * @param srcLgK the source lgConfigK, which must not be less than tgtLgK
+   * @param tgtMem the target registers, one byte per slot
+   * @param tgtLgK the target lgConfigK
+   */
+  static final void mergeHll8Words(final Memory srcMem, final int srcLgK,
+      final WritableMemory tgtMem, final int tgtLgK) {
+    final int srcK = 1 << srcLgK;
+    final int tgtK = 1 << tgtLgK; //at least 16, a multiple of 8
+    for (int block = 0; block < srcK; block += tgtK) {
+      for (int i = 0; i < tgtK; i += 8) {
+        final long srcW = srcMem.getLong(block + i);
+        final long tgtW = tgtMem.getLong(i);
+        tgtMem.putLong(i, byteWiseMax(srcW, tgtW));
+      }
+    }
+  }
+
+  /**
+   * Returns the byte-wise maximum of the given longs. Every byte must be less than 128, which
+   * holds for HLL_8 registers, so that the subtraction of one byte never borrows from the next.
+   * @param a eight registers
+   * @param b eight registers
+   * @return the byte-wise maximum
+   */
+  static final long byteWiseMax(final long a, final long b) {
+    final long ge = ((a | HIGH_BITS) - b) & HIGH_BITS; //0x80 in every byte where a >= b
+    final long mask = (ge >>> 7) * 0xFFL;
+    return (a & mask) | (b & ~mask);
+  }
+
   //Used by union operator.  Always copies or downsamples to Heap HLL_8.
   //Caller must ultimately manage oooFlag, as caller has more context.
   /**
@@ -639,13 +646,20 @@ public class Union extends BaseHllSketch {
     final boolean rebuild = hllSketchImpl.isRebuildCurMinNumKxQFlag();
     if ( !rebuild || (curMode != CurMode.HLL) || (tgtHllType != HLL_8) ) { return; }
     final AbstractHllArray absHllArr = (AbstractHllArray)(hllSketchImpl);
+    final int k = 1 << absHllArr.getLgConfigK();
+    final byte[] hllByteArr;
+    if (absHllArr.isMemory()) {
+      hllByteArr = new byte[k];
+      absHllArr.getMemory().getByteArray(HLL_BYTE_ARR_START, hllByteArr, 0, k);
+    } else {
+      hllByteArr = ((Hll8Array) absHllArr).hllByteArr;
+    }
     int curMin = 64;
     int numAtCurMin = 0;
-    double kxq0 = 1 << absHllArr.getLgConfigK();
+    double kxq0 = k;
     double kxq1 = 0;
-    final PairIterator itr = absHllArr.iterator();
-    while (itr.nextAll()) {
-      final int v = itr.getValue();
+    for (int i = 0; i < k; i++) {
+      final int v = hllByteArr[i] & VAL_MASK_6;
       if (v > 0) {
         if (v < 32) { kxq0 += invPow2(v) - 1.0; }
         else        { kxq1 += invPow2(v) - 1.0; }
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.quantiles;
+
+import static org.apache.datasketches.quantiles.PreambleUtil.COMBINED_BUFFER;
+import static org.apache.datasketches.quantiles.PreambleUtil.MAX_DOUBLE;
+import static org.apache.datasketches.quantiles.PreambleUtil.MIN_DOUBLE;
+import static org.apache.datasketches.quantiles.PreambleUtil.N_LONG;
+import static org.apache.datasketches.quantiles.Util.computeBaseBufferItems;
+import static org.apache.datasketches.quantiles.Util.computeBitPattern;
+import static org.apache.datasketches.quantiles.Util.computeRetainedItems;
+
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * The read methods of the compact DoublesSketch images in Memory, which are found with
+ * {@link #getMemory()}.
+ */
+abstract class AbstractDirectCompactDoublesSketch extends CompactDoublesSketch {
+
+  AbstractDirectCompactDoublesSketch(final int k) {
+    super(k); //Checks k
+  }
+
+  @Override
+  public double getMaxValue() {
+    return isEmpty() ? Double.NaN : getMemory().getDouble(MAX_DOUBLE);
+  }
+
+  @Override
+  public double getMinValue() {
+    return isEmpty() ? Double.NaN : getMemory().getDouble(MIN_DOUBLE);
+  }
+
+  @Override
+  public long getN() {
+    final WritableMemory mem = getMemory();
+    return (mem.getCapacity() < COMBINED_BUFFER) ? 0 : mem.getLong(N_LONG);
+  }
+
+  @Override
+  public boolean isDirect() {
+    return true;
+  }
+
+  @Override
+  public boolean isSameResource(final Memory that) {
+    return getMemory().isSameResource(that);
+  }
+
+  //Restricted overrides
+  //Gets
+
+  @Override
+  int getBaseBufferCount() {
+    return computeBaseBufferItems(getK(), getN());
+  }
+
+  @Override
+  int getCombinedBufferItemCapacity() {
+    return ((int)getMemory().getCapacity() - COMBINED_BUFFER) / 8;
+  }
+
+  @Override
+  double[] getCombinedBuffer() {
+    final int k = getK();
+    if (isEmpty()) { return new double[k << 1]; } //2K
+    final long n = getN();
+    final int itemCap = computeRetainedItems(k, n);
+    final double[] combinedBuffer = new double[itemCap];
+    getMemory().getDoubleArray(COMBINED_BUFFER, combinedBuffer, 0, itemCap);
+    return combinedBuffer;
+  }
+
+  @Override
+  long getBitPattern() {
+    final int k = getK();
+    final long n = getN();
+    return computeBitPattern(k, n);
+  }
+}
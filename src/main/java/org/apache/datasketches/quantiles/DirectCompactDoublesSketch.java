@@ -22,9 +22,6 @@ package org.apache.datasketches.quantiles;
 import static org.apache.datasketches.quantiles.PreambleUtil.COMBINED_BUFFER;
 import static org.apache.datasketches.quantiles.PreambleUtil.COMPACT_FLAG_MASK;
 import static org.apache.datasketches.quantiles.PreambleUtil.EMPTY_FLAG_MASK;
-import static org.apache.datasketches.quantiles.PreambleUtil.MAX_DOUBLE;
-import static org.apache.datasketches.quantiles.PreambleUtil.MIN_DOUBLE;
-import static org.apache.datasketches.quantiles.PreambleUtil.N_LONG;
 import static org.apache.datasketches.quantiles.PreambleUtil.ORDERED_FLAG_MASK;
 import static org.apache.datasketches.quantiles.PreambleUtil.READ_ONLY_FLAG_MASK;
 import static org.apache.datasketches.quantiles.PreambleUtil.extractFamilyID;
@@ -43,7 +40,6 @@ import static org.apache.datasketches.quantiles.PreambleUtil.insertPreLongs;
 import static org.apache.datasketches.quantiles.PreambleUtil.insertSerVer;
 import static org.apache.datasketches.quantiles.Util.computeBaseBufferItems;
 import static org.apache.datasketches.quantiles.Util.computeBitPattern;
-import static org.apache.datasketches.quantiles.Util.computeRetainedItems;
 
 import java.util.Arrays;
 
@@ -59,7 +55,7 @@ import org.apache.datasketches.memory.WritableMemory;
  * @author Lee Rhodes
  * @author Jon Malkin
  */
-final class DirectCompactDoublesSketch extends CompactDoublesSketch {
+final class DirectCompactDoublesSketch extends AbstractDirectCompactDoublesSketch {
   private static final int MIN_DIRECT_DOUBLES_SER_VER = 3;
   private WritableMemory mem_;
 
@@ -135,6 +131,19 @@ final class DirectCompactDoublesSketch extends CompactDoublesSketch {
    * @return a sketch that wraps the given srcMem
    */
   static DirectCompactDoublesSketch wrapInstance(final Memory srcMem) {
+    final int k = checkWrap(srcMem);
+    final DirectCompactDoublesSketch dds = new DirectCompactDoublesSketch(k);
+    dds.mem_ = (WritableMemory) srcMem;
+    return dds;
+  }
+
+  /**
+   * Checks that the given Memory is a valid compact image of a DoublesSketch that can be wrapped.
+   *
+   * @param srcMem the given compact Memory image of a DoublesSketch
+   * @return the value of k of the image
+   */
+  static int checkWrap(final Memory srcMem) {
     final long memCap = srcMem.getCapacity();
 
     final int preLongs = extractPreLongs(srcMem);
@@ -154,67 +163,10 @@ final class DirectCompactDoublesSketch extends CompactDoublesSketch {
     Util.checkK(k);
     checkDirectMemCapacity(k, n, memCap);
     DirectUpdateDoublesSketchR.checkEmptyAndN(empty, n);
-
-    final DirectCompactDoublesSketch dds = new DirectCompactDoublesSketch(k);
-    dds.mem_ = (WritableMemory) srcMem;
-    return dds;
-  }
-
-  @Override
-  public double getMaxValue() {
-    return isEmpty() ? Double.NaN : mem_.getDouble(MAX_DOUBLE);
-  }
-
-  @Override
-  public double getMinValue() {
-    return isEmpty() ? Double.NaN : mem_.getDouble(MIN_DOUBLE);
-  }
-
-  @Override
-  public long getN() {
-    return (mem_.getCapacity() < COMBINED_BUFFER) ? 0 : mem_.getLong(N_LONG);
-  }
-
-  @Override
-  public boolean isDirect() {
-    return true;
-  }
-
-  @Override
-  public boolean isSameResource(final Memory that) {
-    return mem_.isSameResource(that);
+    return k;
   }
 
   //Restricted overrides
-  //Gets
-
-  @Override
-  int getBaseBufferCount() {
-    return computeBaseBufferItems(getK(), getN());
-  }
-
-  @Override
-  int getCombinedBufferItemCapacity() {
-    return ((int)mem_.getCapacity() - COMBINED_BUFFER) / 8;
-  }
-
-  @Override
-  double[] getCombinedBuffer() {
-    final int k = getK();
-    if (isEmpty()) { return new double[k << 1]; } //2K
-    final long n = getN();
-    final int itemCap = computeRetainedItems(k, n);
-    final double[] combinedBuffer = new double[itemCap];
-    mem_.getDoubleArray(COMBINED_BUFFER, combinedBuffer, 0, itemCap);
-    return combinedBuffer;
-  }
-
-  @Override
-  long getBitPattern() {
-    final int k = getK();
-    final long n = getN();
-    return computeBitPattern(k, n);
-  }
 
   @Override
   WritableMemory getMemory() {
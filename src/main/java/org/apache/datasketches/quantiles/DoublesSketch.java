@@ -237,7 +237,7 @@ public abstract class DoublesSketch {
    * exists with a confidence of at least 99%. Returns NaN if the sketch is empty.
    */
   public double getQuantileUpperBound(final double fraction) {
-    return getQuantile(min(1.0, fraction + Util.getNormalizedRankError(k_, false)));
+    return getQuantile(min(1.0, fraction + Util.getNormalizedRankError(getK(), false)));
   }
 
   /**
@@ -248,7 +248,7 @@ public abstract class DoublesSketch {
    * exists with a confidence of at least 99%. Returns NaN if the sketch is empty.
    */
   public double getQuantileLowerBound(final double fraction) {
-    return getQuantile(max(0, fraction - Util.getNormalizedRankError(k_, false)));
+    return getQuantile(max(0, fraction - Util.getNormalizedRankError(getK(), false)));
   }
 
   /**
@@ -462,7 +462,7 @@ public abstract class DoublesSketch {
    * Otherwise, it is the "single-sided" normalized rank error for all the other queries.
    */
   public double getNormalizedRankError(final boolean pmf) {
-    return Util.getNormalizedRankError(k_, pmf);
+    return Util.getNormalizedRankError(getK(), pmf);
   }
 
   /**
@@ -523,7 +523,7 @@ public abstract class DoublesSketch {
    * @return true if this sketch is in estimation mode.
    */
   public boolean isEstimationMode() {
-    return getN() >= (2L * k_);
+    return getN() >= (2L * getK());
   }
 
   /**
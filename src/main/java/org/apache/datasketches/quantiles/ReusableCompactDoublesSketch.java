@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.quantiles;
+
+import static org.apache.datasketches.quantiles.PreambleUtil.extractK;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * A read-only, off-heap compact DoublesSketch that can be reset to wrap a different compact
+ * sketch image without allocating any objects. It is meant for query paths that read many
+ * stored sketches one after the other, where a new wrapper per sketch would be needed with
+ * {@link DoublesSketch#wrap(Memory)}.
+ *
+ * <p>The wrapped image must be a compact and ordered image of a DoublesSketch, such as the
+ * result of {@link DoublesSketch#toByteArray(boolean) toByteArray(true)}, and may have any k.
+ * Before the first reset this sketch is empty.</p>
+ *
+ * <p>This sketch is not thread safe. A reference to it that is kept by the caller sees the
+ * image of the latest reset.</p>
+ */
+public final class ReusableCompactDoublesSketch extends AbstractDirectCompactDoublesSketch {
+  private static final byte[] EMPTY_IMAGE = DoublesSketch.builder().build().toByteArray(true);
+  private WritableMemory mem_;
+
+  /**
+   * Creates an empty sketch.
+   */
+  public ReusableCompactDoublesSketch() {
+    super(PreambleUtil.DEFAULT_K); //k_ is not used, k is read from the wrapped image
+    mem_ = WritableMemory.wrap(EMPTY_IMAGE.clone());
+  }
+
+  /**
+   * Resets this sketch to wrap the given compact sketch image. Only the preamble is checked.
+   * @param srcMem the given compact sketch image, which must not change while it is wrapped
+   * @return this sketch
+   */
+  public ReusableCompactDoublesSketch reset(final Memory srcMem) {
+    if (srcMem == null) {
+      throw new SketchesArgumentException("Memory must not be null.");
+    }
+    DirectCompactDoublesSketch.checkWrap(srcMem);
+    mem_ = (WritableMemory) srcMem;
+    return this;
+  }
+
+  @Override
+  public int getK() {
+    return extractK(mem_);
+  }
+
+  @Override
+  WritableMemory getMemory() {
+    return mem_;
+  }
+}
@@ -184,6 +184,9 @@ public abstract class AnotB extends SetOperation {
    * there is no following possible viable arguments for the second argument so we thrown an
    * exception.</p>
    *
+   * <p>If both sketches are ordered compact sketches, on the Java heap or in Memory, the result
+   * is computed by a sorted merge of their hash arrays, which needs no hash table.</p>
+   *
    * @param skA The incoming sketch for the first argument. It must not be null.
    * @param skB The incoming sketch for the second argument. It must not be null.
    * @param dstOrdered
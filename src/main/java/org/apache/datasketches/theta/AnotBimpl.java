@@ -23,12 +23,12 @@ import static org.apache.datasketches.HashOperations.convertToHashTable;
 import static org.apache.datasketches.HashOperations.hashSearch;
 import static org.apache.datasketches.Util.REBUILD_THRESHOLD;
 import static org.apache.datasketches.Util.checkSeedHashes;
-import static org.apache.datasketches.Util.computeSeedHash;
 import static org.apache.datasketches.Util.simpleLog2OfLong;
 
 import java.util.Arrays;
 
 import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableMemory;
 
@@ -43,14 +43,16 @@ final class AnotBimpl extends AnotB {
   private long thetaLong_;
   private long[] hashArr_ = new long[0]; //compact array w curCount_ entries
   private int curCount_;
+  private boolean ordered_; //true if hashArr_ is in ascending order
 
   /**
    * Construct a new AnotB SetOperation on the java heap.  Called by SetOperation.Builder.
    *
    * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
+   * @param hasher the Hasher of the sketches to be operated on
    */
-  AnotBimpl(final long seed) {
-    this(computeSeedHash(seed));
+  AnotBimpl(final long seed, final Hasher hasher) {
+    this(hasher.computeSeedHash(seed));
   }
 
   /**
@@ -64,11 +66,12 @@ final class AnotBimpl extends AnotB {
   }
 
   @Override
-  public void setA(final Sketch skA) {
-    if (skA == null) {
+  public void setA(final Sketch sketchA) {
+    if (sketchA == null) {
       reset();
       throw new SketchesArgumentException("The input argument <i>A</i> must not be null");
     }
+    final Sketch skA = sketchA.snapshot();
     if (skA.isEmpty()) {
       reset();
       return;
@@ -78,21 +81,30 @@ final class AnotBimpl extends AnotB {
 
     //process A
     hashArr_ = getHashArrA(skA);
+    ordered_ = skA.isOrdered(); //compacting does not change the order of an ordered sketch
     empty_ = false;
     thetaLong_ = skA.getThetaLong();
     curCount_ = hashArr_.length;
   }
 
   @Override
-  public void notB(final Sketch skB) {
-    if (empty_ || (skB == null) || skB.isEmpty()) { return; }
+  public void notB(final Sketch sketchB) {
+    if (empty_ || (sketchB == null)) { return; }
+    final Sketch skB = sketchB.snapshot();
+    if (skB.isEmpty()) { return; }
     //local and skB is not empty
     checkSeedHashes(seedHash_, skB.getSeedHash());
 
     thetaLong_ = Math.min(thetaLong_,  skB.getThetaLong());
 
     //process B
-    hashArr_ = getResultHashArr(thetaLong_, curCount_, hashArr_, skB);
+    if (ordered_ && skB.isOrdered()) { //sorted merge, no hash table required
+      hashArr_ = OrderedHashArray.aNotB(
+          new OrderedHashArray(hashArr_, curCount_), new OrderedHashArray(skB), thetaLong_);
+    } else {
+      hashArr_ = getResultHashArr(thetaLong_, curCount_, hashArr_, skB);
+      ordered_ = false;
+    }
     curCount_ = hashArr_.length;
     empty_ = (curCount_ == 0) && (thetaLong_ == Long.MAX_VALUE);
   }
@@ -105,18 +117,20 @@ final class AnotBimpl extends AnotB {
   @Override
   public CompactSketch getResult(final boolean dstOrdered, final WritableMemory dstMem,
       final boolean reset) {
-    final CompactSketch result = CompactOperations.componentsToCompact(
-      thetaLong_, curCount_, seedHash_, empty_, true, false, dstOrdered, dstMem, hashArr_.clone());
+    final CompactSketch result = CompactOperations.componentsToCompact(thetaLong_, curCount_,
+        seedHash_, empty_, true, ordered_, dstOrdered, dstMem, hashArr_.clone());
     if (reset) { reset(); }
     return result;
   }
 
   @Override
-  public CompactSketch aNotB(final Sketch skA, final Sketch skB, final boolean dstOrdered,
+  public CompactSketch aNotB(final Sketch sketchA, final Sketch sketchB, final boolean dstOrdered,
       final WritableMemory dstMem) {
-    if ((skA == null) || (skB == null)) {
+    if ((sketchA == null) || (sketchB == null)) {
       throw new SketchesArgumentException("Neither argument may be null");
     }
+    final Sketch skA = sketchA.snapshot();
+    final Sketch skB = sketchB.snapshot();
     //Both skA & skB are not null
 
     if (skA.isEmpty()) { return skA.compact(dstOrdered, dstMem); }
@@ -126,6 +140,16 @@ final class AnotBimpl extends AnotB {
     checkSeedHashes(skB.getSeedHash(), seedHash_);
     //Both skA & skB are not empty
 
+    if (skA.isOrdered() && skB.isOrdered()) { //sorted merge, no hash table required
+      final long minThetaLong = Math.min(skA.getThetaLong(), skB.getThetaLong());
+      final long[] hashArrOut = OrderedHashArray.aNotB(
+          new OrderedHashArray(skA), new OrderedHashArray(skB), minThetaLong);
+      final int countOut = hashArrOut.length;
+      final boolean empty = ((countOut == 0) && (minThetaLong == Long.MAX_VALUE));
+      return CompactOperations.componentsToCompact(
+          minThetaLong, countOut, seedHash_, empty, true, true, dstOrdered, dstMem, hashArrOut);
+    }
+
     //process A
     final long[] hashArrA = getHashArrA(skA);
     final int countA = hashArrA.length;
@@ -200,6 +224,7 @@ final class AnotBimpl extends AnotB {
     empty_ = true;
     hashArr_ = new long[0];
     curCount_ = 0;
+    ordered_ = false;
   }
 
   @Override
@@ -44,6 +44,8 @@ import static org.apache.datasketches.theta.PreambleUtil.insertSerVer;
 import static org.apache.datasketches.theta.PreambleUtil.insertThetaLong;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.apache.datasketches.Family;
 import org.apache.datasketches.SketchesArgumentException;
@@ -68,18 +70,34 @@ final class CompactOperations {
       final boolean dstOrdered,
       final WritableMemory dstMem,
       final long[] hashArr) //may not be compacted, ordered or unordered, may be null
+  {
+    return componentsToCompact(thetaLong, curCount, seedHash, srcEmpty, srcCompact, srcOrdered,
+        dstOrdered, dstMem, hashArr, null);
+  }
+
+  static CompactSketch componentsToCompact( //No error checking
+      final long thetaLong,
+      final int curCount,
+      final short seedHash,
+      final boolean srcEmpty,
+      final boolean srcCompact,
+      final boolean srcOrdered,
+      final boolean dstOrdered,
+      final WritableMemory dstMem,
+      final long[] hashArr, //may not be compacted, ordered or unordered, may be null
+      final ForkJoinPool pool) //sorts large arrays in parallel, may be null
   {
     final boolean direct = dstMem != null;
     final boolean empty = srcEmpty || ((curCount == 0) && (thetaLong == Long.MAX_VALUE));
     final boolean single = (curCount == 1) && (thetaLong == Long.MAX_VALUE);
     final long[] hashArrOut;
     if (!srcCompact) {
-      hashArrOut = CompactOperations.compactCache(hashArr, curCount, thetaLong, dstOrdered);
+      hashArrOut = CompactOperations.compactCache(hashArr, curCount, thetaLong, dstOrdered, pool);
     } else {
       hashArrOut = hashArr;
     }
     if (!srcOrdered && dstOrdered && !empty && !single) {
-      Arrays.sort(hashArrOut);
+      sortHashes(hashArrOut, pool);
     }
     //Note: for empty or single we always output the ordered form.
     final boolean dstOrderedOut = (empty || single) ? true : dstOrdered;
@@ -282,6 +300,11 @@ final class CompactOperations {
    */
   static final long[] compactCache(final long[] srcCache, final int curCount,
       final long thetaLong, final boolean dstOrdered) {
+    return compactCache(srcCache, curCount, thetaLong, dstOrdered, null);
+  }
+
+  static final long[] compactCache(final long[] srcCache, final int curCount,
+      final long thetaLong, final boolean dstOrdered, final ForkJoinPool pool) {
     if (curCount == 0) {
       return new long[0];
     }
@@ -298,11 +321,26 @@ final class CompactOperations {
           "Possible Corruption: curCount parameter is incorrect.");
     }
     if (dstOrdered && (curCount > 1)) {
-      Arrays.sort(cacheOut);
+      sortHashes(cacheOut, pool);
     }
     return cacheOut;
   }
 
+  /**
+   * Sorts the given hash values. If a pool is given, arrays of at least
+   * Rebuilder.PARALLEL_MIN_SORT_LENGTH values are sorted in parallel on it.
+   * @param hashArr the hash values to sort
+   * @param pool the ForkJoinPool that sorts large arrays in parallel, or null
+   */
+  static final void sortHashes(final long[] hashArr, final ForkJoinPool pool) {
+    if ((pool != null) && (hashArr.length >= Rebuilder.PARALLEL_MIN_SORT_LENGTH)
+        && (pool.getParallelism() > 1)) {
+      pool.invoke(ForkJoinTask.adapt(() -> Arrays.parallelSort(hashArr))); //forks into the pool
+    } else {
+      Arrays.sort(hashArr);
+    }
+  }
+
   /*
    * The truth table for empty, curCount and theta when compacting is as follows:
    * <pre>
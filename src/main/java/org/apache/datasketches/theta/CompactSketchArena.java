@@ -0,0 +1,426 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
+import static org.apache.datasketches.theta.PreambleUtil.EMPTY_FLAG_MASK;
+import static org.apache.datasketches.theta.PreambleUtil.FAMILY_BYTE;
+import static org.apache.datasketches.theta.PreambleUtil.FLAGS_BYTE;
+import static org.apache.datasketches.theta.PreambleUtil.PREAMBLE_LONGS_BYTE;
+import static org.apache.datasketches.theta.PreambleUtil.RETAINED_ENTRIES_INT;
+import static org.apache.datasketches.theta.PreambleUtil.SEED_HASH_SHORT;
+import static org.apache.datasketches.theta.PreambleUtil.SER_VER_BYTE;
+import static org.apache.datasketches.theta.PreambleUtil.THETA_LONG;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import org.apache.datasketches.Family;
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.Util;
+import org.apache.datasketches.hash.Hasher;
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * An index over many serialized compact Theta Sketches that are stored end to end in a single
+ * Memory, such as a large memory-mapped file.
+ *
+ * <p>The preambles are parsed only once, when the index is built. The sketches are then read
+ * with a {@link Cursor}, which is a reusable flyweight that can be moved to any sketch of the
+ * arena without allocating any objects. A cursor gives the estimate, theta, bounds and retained
+ * hashes of its current sketch, read in place.</p>
+ *
+ * <p>The arena is immutable and may be shared by many threads, but each thread must use its own
+ * cursors. The {@link #forEach(Consumer, ForkJoinPool)} method scans the arena in parallel.</p>
+ *
+ * <p>The first sketch starts at offset zero and each following sketch starts where the previous
+ * one ends. The sketches may be ordered or unordered, and must be Serialization Version 3
+ * compact sketches. The index ends at the end of the Memory or at the first preamble long that is
+ * zero, so an arena file may be allocated larger than the sketches it holds.</p>
+ */
+public final class CompactSketchArena {
+  private final Memory mem_;
+  private final long[] offsets_; //numSketches + 1 entries, the last is the end of the data
+  private final int numSketches_;
+
+  private CompactSketchArena(final Memory mem, final long[] offsets, final int numSketches) {
+    mem_ = mem;
+    offsets_ = offsets;
+    numSketches_ = numSketches;
+  }
+
+  /**
+   * Builds the index of the compact sketches in the given Memory, which must have been created
+   * with the default update seed.
+   * @param mem the given Memory, which must not change while this arena is in use
+   * @return a new arena
+   */
+  public static CompactSketchArena wrap(final Memory mem) {
+    return wrap(mem, DEFAULT_UPDATE_SEED);
+  }
+
+  /**
+   * Builds the index of the compact sketches in the given Memory. The sketches may have been
+   * created with any {@link Hasher} and the given seed.
+   * @param mem the given Memory, which must not change while this arena is in use
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>.
+   * @return a new arena
+   */
+  public static CompactSketchArena wrap(final Memory mem, final long seed) {
+    if (mem == null) {
+      throw new SketchesArgumentException("Memory must not be null.");
+    }
+    short seedHash = 0; //the last seed hash that was checked
+    final long capacity = mem.getCapacity();
+    long[] offsets = new long[1024];
+    int numSketches = 0;
+    long offset = 0;
+    while (((offset + 8) <= capacity) && (mem.getLong(offset) != 0)) {
+      if (numSketches == (offsets.length - 1)) {
+        offsets = Arrays.copyOf(offsets, offsets.length << 1);
+      }
+      offsets[numSketches++] = offset;
+      final long bytes = checkSketch(mem, offset, capacity);
+      if (bytes > 8) { seedHash = checkSeedHash(mem, offset, seed, seedHash); } //not empty
+      offset += bytes;
+    }
+    offsets[numSketches] = offset;
+    return new CompactSketchArena(mem, Arrays.copyOf(offsets, numSketches + 1), numSketches);
+  }
+
+  /**
+   * Returns the number of sketches in this arena.
+   * @return the number of sketches in this arena
+   */
+  public int getNumSketches() {
+    return numSketches_;
+  }
+
+  /**
+   * Returns the number of bytes used by the sketches of this arena.
+   * @return the number of bytes used by the sketches of this arena
+   */
+  public long getDataBytes() {
+    return offsets_[numSketches_];
+  }
+
+  /**
+   * Returns the offset in bytes of the sketch with the given index.
+   * @param index the index of a sketch
+   * @return the offset in bytes of the sketch with the given index
+   */
+  public long getOffset(final int index) {
+    checkIndex(index);
+    return offsets_[index];
+  }
+
+  /**
+   * Returns the size in bytes of the sketch with the given index.
+   * @param index the index of a sketch
+   * @return the size in bytes of the sketch with the given index
+   */
+  public int getSizeBytes(final int index) {
+    checkIndex(index);
+    return (int) (offsets_[index + 1] - offsets_[index]);
+  }
+
+  /**
+   * Returns the sketch with the given index as a CompactSketch, which wraps a region of the
+   * arena. Unlike a cursor, this allocates a new object for every call.
+   * @param index the index of a sketch
+   * @return the sketch with the given index
+   */
+  public CompactSketch getSketch(final int index) {
+    checkIndex(index);
+    return new DirectCompactSketch(mem_.region(offsets_[index], getSizeBytes(index)));
+  }
+
+  /**
+   * Returns a new cursor, which is not positioned on any sketch until it is moved.
+   * @return a new cursor
+   */
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  /**
+   * Performs the given action once for every sketch of this arena, in index order. The action is
+   * given the same cursor every time, moved to the next sketch.
+   * @param action the action to perform
+   */
+  public void forEach(final Consumer<? super Cursor> action) {
+    final Cursor cursor = new Cursor();
+    for (int i = 0; i < numSketches_; i++) {
+      action.accept(cursor.moveTo(i));
+    }
+  }
+
+  /**
+   * Performs the given action once for every sketch of this arena, in parallel on the given
+   * ForkJoinPool. The arena is split into ranges of sketches and each range is scanned by its own
+   * cursor, so the action must be safe to call from several threads at once, and must not keep
+   * the cursor beyond the call.
+   * @param action the action to perform
+   * @param pool the ForkJoinPool that runs the scan
+   */
+  public void forEach(final Consumer<? super Cursor> action, final ForkJoinPool pool) {
+    if (pool == null) {
+      throw new SketchesArgumentException("ForkJoinPool must not be null.");
+    }
+    final int leafSize = ForkJoinUtil.leafSize(numSketches_, pool);
+    pool.invoke(new ScanTask(action, 0, numSketches_, leafSize));
+  }
+
+  /**
+   * Returns the estimates of all sketches of this arena, computed in parallel on the given
+   * ForkJoinPool.
+   * @param pool the ForkJoinPool that runs the scan
+   * @return the estimates of all sketches, in index order
+   */
+  public double[] getEstimates(final ForkJoinPool pool) {
+    final double[] estimates = new double[numSketches_];
+    forEach(cursor -> estimates[cursor.getIndex()] = cursor.getEstimate(), pool);
+    return estimates;
+  }
+
+  private void checkIndex(final int index) {
+    if ((index < 0) || (index >= numSketches_)) {
+      throw new SketchesArgumentException(
+          "Index: " + index + " is out of range, number of sketches: " + numSketches_);
+    }
+  }
+
+  /**
+   * Checks the preamble of the sketch at the given offset, but not its seed hash, and returns
+   * its size in bytes. A sketch of more than 8 bytes is not empty.
+   */
+  static long checkSketch(final Memory mem, final long offset, final long capacity) {
+    final int preLongs = mem.getByte(offset + PREAMBLE_LONGS_BYTE) & 0X3F;
+    final int serVer = mem.getByte(offset + SER_VER_BYTE) & 0XFF;
+    final int familyID = mem.getByte(offset + FAMILY_BYTE) & 0XFF;
+    final int flags = mem.getByte(offset + FLAGS_BYTE) & 0XFF;
+    if ((serVer != 3) || (familyID != Family.COMPACT.getID()) || (preLongs < 1)
+        || (preLongs > 3)) {
+      throw new SketchesArgumentException("Not a SerVer 3 compact sketch at offset " + offset
+          + ": SerVer: " + serVer + ", Family: " + Family.idToFamily(familyID)
+          + ", PreLongs: " + preLongs);
+    }
+    final long bytes;
+    if (preLongs == 1) {
+      final boolean single = SingleItemSketch.otherCheckForSingleItem(preLongs, serVer, familyID,
+          flags);
+      bytes = single ? 16 : 8;
+    } else {
+      if ((offset + 16) > capacity) {
+        throw new SketchesArgumentException("Truncated sketch at offset " + offset);
+      }
+      bytes = (preLongs + (long) mem.getInt(offset + RETAINED_ENTRIES_INT)) << 3;
+    }
+    if ((bytes < 8) || ((offset + bytes) > capacity)) {
+      throw new SketchesArgumentException("Truncated sketch at offset " + offset);
+    }
+    return bytes;
+  }
+
+  /**
+   * Checks that the seed hash of the non-empty sketch at the given offset was produced from the
+   * given seed by any Hasher, as PreambleUtil.checkMemorySeedHash does. The check is skipped if
+   * the seed hash equals the given one that was checked before.
+   * @return the seed hash of the sketch
+   */
+  static short checkSeedHash(final Memory mem, final long offset, final long seed,
+      final short checkedSeedHash) {
+    final short memSeedHash = mem.getShort(offset + SEED_HASH_SHORT);
+    if ((memSeedHash != checkedSeedHash) || (checkedSeedHash == 0)) {
+      try {
+        Hasher.seedHashToHasher(memSeedHash, seed);
+      } catch (final SketchesArgumentException e) {
+        throw new SketchesArgumentException("At offset " + offset + ": " + e.getMessage());
+      }
+    }
+    return memSeedHash;
+  }
+
+  /**
+   * A reusable, read-only view of one sketch of the arena at a time. Moving a cursor parses only
+   * the preamble of its new sketch, and allocates nothing. A cursor is also an iterator over the
+   * retained hashes of its current sketch, which restarts every time the cursor is moved.
+   *
+   * <p>A cursor must not be shared between threads.</p>
+   */
+  public final class Cursor implements HashIterator {
+    private int index_ = -1;
+    private int curCount_;
+    private long thetaLong_;
+    private boolean empty_;
+    private long hashOffset_;
+    private int pos_;
+    private long hash_;
+
+    Cursor() {}
+
+    /**
+     * Moves this cursor to the sketch with the given index.
+     * @param index the index of a sketch
+     * @return this cursor
+     */
+    public Cursor moveTo(final int index) {
+      checkIndex(index);
+      final long offset = offsets_[index];
+      final int preLongs = mem_.getByte(offset + PREAMBLE_LONGS_BYTE) & 0X3F;
+      final int sizeBytes = (int) (offsets_[index + 1] - offset);
+      if (preLongs == 1) {
+        curCount_ = (sizeBytes == 16) ? 1 : 0; //single item or empty
+        hashOffset_ = offset + 8;
+      } else {
+        curCount_ = mem_.getInt(offset + RETAINED_ENTRIES_INT);
+        hashOffset_ = offset + (preLongs << 3);
+      }
+      thetaLong_ = (preLongs > 2) ? mem_.getLong(offset + THETA_LONG) : Long.MAX_VALUE;
+      final boolean emptyFlag = (mem_.getByte(offset + FLAGS_BYTE) & EMPTY_FLAG_MASK) > 0;
+      empty_ = emptyFlag || ((curCount_ == 0) && (thetaLong_ == Long.MAX_VALUE));
+      index_ = index;
+      pos_ = -1;
+      hash_ = 0;
+      return this;
+    }
+
+    /**
+     * Returns the index of the current sketch, or -1 if this cursor has not been moved yet.
+     * @return the index of the current sketch
+     */
+    public int getIndex() {
+      return index_;
+    }
+
+    /**
+     * Returns true if the current sketch is empty.
+     * @return true if the current sketch is empty
+     */
+    public boolean isEmpty() {
+      return empty_;
+    }
+
+    /**
+     * Returns true if the current sketch is in estimation mode.
+     * @return true if the current sketch is in estimation mode
+     */
+    public boolean isEstimationMode() {
+      return (thetaLong_ < Long.MAX_VALUE) && !empty_;
+    }
+
+    /**
+     * Returns the number of retained entries of the current sketch.
+     * @return the number of retained entries of the current sketch
+     */
+    public int getRetainedEntries() {
+      return curCount_;
+    }
+
+    /**
+     * Returns theta as a long of the current sketch.
+     * @return theta as a long of the current sketch
+     */
+    public long getThetaLong() {
+      return thetaLong_;
+    }
+
+    /**
+     * Returns theta as a double of the current sketch.
+     * @return theta as a double of the current sketch
+     */
+    public double getTheta() {
+      return thetaLong_ / Util.LONG_MAX_VALUE_AS_DOUBLE;
+    }
+
+    /**
+     * Returns the estimate of the current sketch.
+     * @return the estimate of the current sketch
+     */
+    public double getEstimate() {
+      return Sketch.estimate(thetaLong_, curCount_);
+    }
+
+    /**
+     * Returns the lower bound of the current sketch, as {@link Sketch#getLowerBound(int)}.
+     * @param numStdDev
+     * <a href="{@docRoot}/resources/dictionary.html#numStdDev">
+     * See Number of Standard Deviations</a>
+     * @return the lower bound of the current sketch
+     */
+    public double getLowerBound(final int numStdDev) {
+      return isEstimationMode() ? Sketch.lowerBound(curCount_, thetaLong_, numStdDev, empty_)
+          : curCount_;
+    }
+
+    /**
+     * Returns the upper bound of the current sketch, as {@link Sketch#getUpperBound(int)}.
+     * @param numStdDev
+     * <a href="{@docRoot}/resources/dictionary.html#numStdDev">
+     * See Number of Standard Deviations</a>
+     * @return the upper bound of the current sketch
+     */
+    public double getUpperBound(final int numStdDev) {
+      return isEstimationMode() ? Sketch.upperBound(curCount_, thetaLong_, numStdDev, empty_)
+          : curCount_;
+    }
+
+    @Override
+    public boolean next() {
+      if ((pos_ + 1) >= curCount_) { return false; }
+      hash_ = mem_.getLong(hashOffset_ + ((long) ++pos_ << 3));
+      return true;
+    }
+
+    @Override
+    public long get() {
+      return hash_;
+    }
+  }
+
+  private final class ScanTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final transient Consumer<? super Cursor> action;
+    private final int lo;
+    private final int hi;
+    private final int leafSize;
+
+    ScanTask(final Consumer<? super Cursor> action, final int lo, final int hi,
+        final int leafSize) {
+      this.action = action;
+      this.lo = lo;
+      this.hi = hi;
+      this.leafSize = leafSize;
+    }
+
+    @Override
+    protected void compute() {
+      if ((hi - lo) <= leafSize) {
+        final Cursor cursor = new Cursor();
+        for (int i = lo; i < hi; i++) { action.accept(cursor.moveTo(i)); }
+        return;
+      }
+      final int mid = (lo + hi) >>> 1;
+      invokeAll(new ScanTask(action, lo, mid, leafSize), new ScanTask(action, mid, hi, leafSize));
+    }
+  }
+}
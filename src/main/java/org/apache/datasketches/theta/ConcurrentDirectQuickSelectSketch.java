@@ -21,11 +21,11 @@ package org.apache.datasketches.theta;
 
 import static org.apache.datasketches.theta.PreambleUtil.THETA_LONG;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.datasketches.ResizeFactor;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.WritableMemory;
 
 /**
@@ -41,8 +41,8 @@ import org.apache.datasketches.memory.WritableMemory;
 class ConcurrentDirectQuickSelectSketch extends DirectQuickSelectSketch
     implements ConcurrentSharedThetaSketch {
 
-  // The propagation thread
-  private ExecutorService executorService_;
+  // The background propagation service of this sketch
+  private final ConcurrentPropagationService propagationService_;
 
   // A flag to coordinate between several eager propagation threads
   private final AtomicBoolean sharedPropagationInProgress_;
@@ -66,12 +66,14 @@ class ConcurrentDirectQuickSelectSketch extends DirectQuickSelectSketch
    *
    * @param lgNomLongs <a href="{@docRoot}/resources/dictionary.html#lgNomLongs">See lgNomLongs</a>.
    * @param seed       <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>.
+   * @param hasher     the Hasher used to hash the input data.
    * @param maxConcurrencyError the max error value including error induced by concurrency.
+   * @param executor   the Executor that runs the background propagation tasks.
    * @param dstMem     the given Memory object destination. It cannot be null.
    */
-  ConcurrentDirectQuickSelectSketch(final int lgNomLongs, final long seed,
-      final double maxConcurrencyError, final WritableMemory dstMem) {
-    super(lgNomLongs, seed, 1.0F, //p
+  ConcurrentDirectQuickSelectSketch(final int lgNomLongs, final long seed, final Hasher hasher,
+      final double maxConcurrencyError, final Executor executor, final WritableMemory dstMem) {
+    super(lgNomLongs, seed, hasher, 1.0F, //p
       ResizeFactor.X1, //rf,
       null, dstMem, false); //unionGadget
 
@@ -81,12 +83,12 @@ class ConcurrentDirectQuickSelectSketch extends DirectQuickSelectSketch
         maxConcurrencyError);
     sharedPropagationInProgress_ = new AtomicBoolean(false);
     epoch_ = 0;
-    initBgPropagationService();
+    propagationService_ = new ConcurrentPropagationService(executor);
   }
 
   ConcurrentDirectQuickSelectSketch(final UpdateSketch sketch, final long seed,
-      final double maxConcurrencyError, final WritableMemory dstMem) {
-    super(sketch.getLgNomLongs(), seed, 1.0F, //p
+      final double maxConcurrencyError, final Executor executor, final WritableMemory dstMem) {
+    super(sketch.getLgNomLongs(), seed, sketch.getHasher(), 1.0F, //p
         ResizeFactor.X1, //rf,
         null, //mem Req Svr
         dstMem,
@@ -96,7 +98,7 @@ class ConcurrentDirectQuickSelectSketch extends DirectQuickSelectSketch
         maxConcurrencyError);
     sharedPropagationInProgress_ = new AtomicBoolean(false);
     epoch_ = 0;
-    initBgPropagationService();
+    propagationService_ = new ConcurrentPropagationService(executor);
     for (final long hashIn : sketch.getCache()) {
       propagate(hashIn);
     }
@@ -186,19 +188,7 @@ class ConcurrentDirectQuickSelectSketch extends DirectQuickSelectSketch
 
   @Override
   public void awaitBgPropagationTermination() {
-    try {
-      executorService_.shutdown();
-      while (!executorService_.awaitTermination(1, TimeUnit.MILLISECONDS)) {
-        Thread.sleep(1);
-      }
-    } catch (final InterruptedException e) {
-      e.printStackTrace();
-    }
-  }
-
-  @Override
-  public void initBgPropagationService() {
-    executorService_ = ConcurrentPropagationService.getExecutorService(Thread.currentThread().getId());
+    propagationService_.awaitQuiescence();
   }
 
   @Override
@@ -222,7 +212,7 @@ class ConcurrentDirectQuickSelectSketch extends DirectQuickSelectSketch
     // otherwise, be nonblocking, let background thread do the work
     final ConcurrentBackgroundThetaPropagation job = new ConcurrentBackgroundThetaPropagation(
         this, localPropagationInProgress, sketchIn, singleHash, epoch);
-    executorService_.execute(job);
+    propagationService_.execute(job);
     return true;
   }
 
@@ -256,13 +246,11 @@ class ConcurrentDirectQuickSelectSketch extends DirectQuickSelectSketch
   private void advanceEpoch() {
     awaitBgPropagationTermination();
     startEagerPropagation();
-    ConcurrentPropagationService.resetExecutorService(Thread.currentThread().getId());
     //noinspection NonAtomicOperationOnVolatileField
     // this increment of a volatile field is done within the scope of the propagation
     // synchronization and hence is done by a single thread.
     epoch_++;
     endPropagation(null, true);
-    initBgPropagationService();
   }
 
 }
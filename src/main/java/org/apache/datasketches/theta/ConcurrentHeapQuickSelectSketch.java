@@ -19,11 +19,11 @@
 
 package org.apache.datasketches.theta;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.datasketches.ResizeFactor;
+import org.apache.datasketches.hash.Hasher;
 
 /**
  * A concurrent shared sketch that is based on HeapQuickSelectSketch.
@@ -38,8 +38,8 @@ import org.apache.datasketches.ResizeFactor;
 class ConcurrentHeapQuickSelectSketch extends HeapQuickSelectSketch
     implements ConcurrentSharedThetaSketch {
 
-  // The propagation thread
-  private volatile ExecutorService executorService_;
+  // The background propagation service of this sketch
+  private final ConcurrentPropagationService propagationService_;
 
   //A flag to coordinate between several eager propagation threads
   private final AtomicBoolean sharedPropagationInProgress_;
@@ -63,12 +63,13 @@ class ConcurrentHeapQuickSelectSketch extends HeapQuickSelectSketch
    *
    * @param lgNomLongs <a href="{@docRoot}/resources/dictionary.html#lgNomLogs">See lgNomLongs</a>.
    * @param seed       <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
+   * @param hasher     the Hasher used to hash the input data
    * @param maxConcurrencyError the max error value including error induced by concurrency
-   *
+   * @param executor   the Executor that runs the background propagation tasks
    */
-  ConcurrentHeapQuickSelectSketch(final int lgNomLongs, final long seed,
-      final double maxConcurrencyError) {
-    super(lgNomLongs, seed, 1.0F, //p
+  ConcurrentHeapQuickSelectSketch(final int lgNomLongs, final long seed, final Hasher hasher,
+      final double maxConcurrencyError, final Executor executor) {
+    super(lgNomLongs, seed, hasher, 1.0F, //p
         ResizeFactor.X1, //rf,
         false); //unionGadget
 
@@ -78,12 +79,12 @@ class ConcurrentHeapQuickSelectSketch extends HeapQuickSelectSketch
         maxConcurrencyError);
     sharedPropagationInProgress_ = new AtomicBoolean(false);
     epoch_ = 0;
-    initBgPropagationService();
+    propagationService_ = new ConcurrentPropagationService(executor);
   }
 
   ConcurrentHeapQuickSelectSketch(final UpdateSketch sketch, final long seed,
-      final double maxConcurrencyError) {
-    super(sketch.getLgNomLongs(), seed, 1.0F, //p
+      final double maxConcurrencyError, final Executor executor) {
+    super(sketch.getLgNomLongs(), seed, sketch.getHasher(), 1.0F, //p
         ResizeFactor.X1, //rf,
         false); //unionGadget
 
@@ -91,7 +92,7 @@ class ConcurrentHeapQuickSelectSketch extends HeapQuickSelectSketch
         maxConcurrencyError);
     sharedPropagationInProgress_ = new AtomicBoolean(false);
     epoch_ = 0;
-    initBgPropagationService();
+    propagationService_ = new ConcurrentPropagationService(executor);
     for (final long hashIn : sketch.getCache()) {
       propagate(hashIn);
     }
@@ -181,19 +182,7 @@ class ConcurrentHeapQuickSelectSketch extends HeapQuickSelectSketch
 
   @Override
   public void awaitBgPropagationTermination() {
-    try {
-      executorService_.shutdown();
-      while (!executorService_.awaitTermination(1, TimeUnit.MILLISECONDS)) {
-        Thread.sleep(1);
-      }
-    } catch (final InterruptedException e) {
-      e.printStackTrace();
-    }
-  }
-
-  @Override
-  public void initBgPropagationService() {
-    executorService_ = ConcurrentPropagationService.getExecutorService(Thread.currentThread().getId());
+    propagationService_.awaitQuiescence();
   }
 
   @Override
@@ -217,7 +206,7 @@ class ConcurrentHeapQuickSelectSketch extends HeapQuickSelectSketch
     // otherwise, be nonblocking, let background thread do the work
     final ConcurrentBackgroundThetaPropagation job = new ConcurrentBackgroundThetaPropagation(
         this, localPropagationInProgress, sketchIn, singleHash, epoch);
-    executorService_.execute(job);
+    propagationService_.execute(job);
     return true;
   }
 
@@ -251,14 +240,12 @@ class ConcurrentHeapQuickSelectSketch extends HeapQuickSelectSketch
   private void advanceEpoch() {
     awaitBgPropagationTermination();
     startEagerPropagation();
-    ConcurrentPropagationService.resetExecutorService(Thread.currentThread().getId());
     //noinspection NonAtomicOperationOnVolatileField
     // this increment of a volatile field is done within the scope of the propagation
     // synchronization and hence is done by a single thread
     // Ignore a FindBugs warning
     epoch_++;
     endPropagation(null, true);
-    initBgPropagationService();
   }
 
 }
@@ -27,6 +27,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.datasketches.HashOperations;
 import org.apache.datasketches.ResizeFactor;
+import org.apache.datasketches.hash.Hasher;
 
 /**
  * This is a theta filtering, bounded size buffer that operates in the context of a single writing
@@ -67,11 +68,11 @@ final class ConcurrentHeapThetaBuffer extends HeapQuickSelectSketch {
   // It is the synchronization primitive to coordinate the work with the propagation thread.
   private final AtomicBoolean localPropagationInProgress;
 
-  ConcurrentHeapThetaBuffer(final int lgNomLongs, final long seed,
+  ConcurrentHeapThetaBuffer(final int lgNomLongs, final long seed, final Hasher hasher,
       final ConcurrentSharedThetaSketch shared, final boolean propagateOrderedCompact,
       final int maxNumLocalThreads) {
     super(computeLogBufferSize(lgNomLongs, shared.getExactLimit(), maxNumLocalThreads),
-      seed, 1.0F, //p
+      seed, hasher, 1.0F, //p
       ResizeFactor.X1, //rf
       false); //not a union gadget
 
@@ -0,0 +1,446 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.apache.datasketches.QuickSelect.selectExcludingZeros;
+import static org.apache.datasketches.theta.UpdateReturnState.InsertedCountIncremented;
+import static org.apache.datasketches.theta.UpdateReturnState.RejectedDuplicate;
+import static org.apache.datasketches.theta.UpdateReturnState.RejectedOverTheta;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.datasketches.Family;
+import org.apache.datasketches.HashOperations;
+import org.apache.datasketches.ResizeFactor;
+import org.apache.datasketches.hash.Hasher;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * A concurrent shared sketch on the Java heap whose hash table is updated without locks, so that
+ * any number of local buffers may propagate into it at the same time.
+ *
+ * <p>The hash table is an open-addressed array of <i>long</i> slots of twice the nominal entries,
+ * with the same probing scheme as the other Theta sketches. A hash is inserted by a
+ * compare-and-set of an empty slot, and a slot never changes once it is set.</p>
+ *
+ * <p>When the table reaches its rebuild threshold it is replaced by a new table that holds the
+ * <i>k</i> smallest hashes under a lower theta. Every thread that finds the table full helps the
+ * rebuild along: it freezes the remaining empty slots, after which the contents of the old table
+ * can no longer change, computes the new table from them and attempts to publish it with a
+ * compare-and-set. All helpers compute the same new table, the first one to publish wins, and no
+ * thread ever waits for another. As each table carries its own theta, theta is lowered
+ * monotonically by the compare-and-set that publishes a rebuilt table.</p>
+ */
+final class ConcurrentLockFreeQuickSelectSketch extends HeapUpdateSketch
+    implements ConcurrentSharedThetaSketch {
+
+  //Marks a slot of a table that is being rebuilt. Valid hashes are never negative.
+  private static final long FROZEN = -1L;
+
+  // The background propagation service of this sketch, which runs the tasks in parallel
+  private final ConcurrentPropagationService propagationService_;
+
+  // The current hash table, which also defines theta and the epoch
+  private final AtomicReference<Table> table_;
+
+  // Num of retained entries in which the sketch toggles from sync (exact) mode to async
+  //  propagation mode
+  private final long exactLimit_;
+
+  /**
+   * Construct a new sketch instance on the java heap.
+   *
+   * @param lgNomLongs <a href="{@docRoot}/resources/dictionary.html#lgNomLogs">See lgNomLongs</a>.
+   * @param seed       <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
+   * @param hasher     the Hasher used to hash the input data
+   * @param maxConcurrencyError the max error value including error induced by concurrency
+   * @param executor   the Executor that runs the background propagation tasks
+   */
+  ConcurrentLockFreeQuickSelectSketch(final int lgNomLongs, final long seed, final Hasher hasher,
+      final double maxConcurrencyError, final Executor executor) {
+    super(lgNomLongs, seed, 1.0F, //p
+        ResizeFactor.X1, hasher);
+    exactLimit_ = ConcurrentSharedThetaSketch.computeExactLimit(1L << getLgNomLongs(),
+        maxConcurrencyError);
+    propagationService_ = new ConcurrentPropagationService(executor, false);
+    table_ = new AtomicReference<>(new Table(lgNomLongs_, Long.MAX_VALUE, 0));
+  }
+
+  ConcurrentLockFreeQuickSelectSketch(final UpdateSketch sketch, final long seed,
+      final double maxConcurrencyError, final Executor executor) {
+    this(sketch.getLgNomLongs(), seed, sketch.getHasher(), maxConcurrencyError, executor);
+    table_.set(new Table(lgNomLongs_, sketch.getThetaLong(), 0));
+    for (final long hashIn : sketch.getCache()) {
+      if (hashIn > 0) { propagate(hashIn); }
+    }
+    table_.get().empty = sketch.isEmpty();
+  }
+
+  //Sketch
+
+  @Override
+  public CompactSketch compact(final boolean dstOrdered, final WritableMemory dstMem) {
+    return snapshot().compact(dstOrdered, dstMem);
+  }
+
+  @Override
+  public int getCompactBytes() {
+    return snapshot().getCompactBytes();
+  }
+
+  @Override
+  public double getEstimate() {
+    final Table table = table_.get();
+    return Sketch.estimate(table.thetaLong, table.count.get());
+  }
+
+  @Override
+  public Family getFamily() {
+    return Family.QUICKSELECT;
+  }
+
+  @Override
+  public int getRetainedEntries(final boolean valid) {
+    return table_.get().count.get();
+  }
+
+  @Override
+  public long getThetaLong() {
+    return table_.get().thetaLong;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return table_.get().empty;
+  }
+
+  @Override
+  public boolean isEstimationMode() {
+    return (getRetainedEntries(false) > exactLimit_) || super.isEstimationMode();
+  }
+
+  @Override
+  public HashIterator iterator() {
+    return snapshot().iterator();
+  }
+
+  @Override
+  public byte[] toByteArray() {
+    return snapshot().toByteArray();
+  }
+
+  //UpdateSketch
+
+  @Override
+  public UpdateSketch rebuild() {
+    final Table table = table_.get();
+    if (table.count.get() > (1 << lgNomLongs_)) {
+      rebuild(table);
+    }
+    return this;
+  }
+
+  /**
+   * {@inheritDoc}
+   * Waits for the background propagation tasks to complete. A propagation that is invoked before
+   * the reset cannot affect the sketch after the reset is completed.
+   */
+  @Override
+  public void reset() {
+    awaitBgPropagationTermination();
+    final Table table = table_.get();
+    table_.set(new Table(lgNomLongs_, Long.MAX_VALUE, table.epoch + 1));
+  }
+
+  @Override
+  UpdateReturnState hashUpdate(final long hash) {
+    final String msg = "No update method should be called directly to a shared theta sketch."
+        + " Updating the shared sketch is only permitted through propagation from local sketches.";
+    throw new UnsupportedOperationException(msg);
+  }
+
+  //ConcurrentSharedThetaSketch declarations
+
+  @Override
+  public long getExactLimit() {
+    return exactLimit_;
+  }
+
+  /**
+   * {@inheritDoc}
+   * Propagations into this sketch never exclude each other, thus this only checks the mode.
+   */
+  @Override
+  public boolean startEagerPropagation() {
+    return (!isEstimationMode());// no eager propagation is allowed in estimation mode
+  }
+
+  @Override
+  public void endPropagation(final AtomicBoolean localPropagationInProgress, final boolean isEager) {
+    //theta and the uniques estimate are always up to date
+    if (localPropagationInProgress != null) {
+      localPropagationInProgress.set(false); //clear local propagation flag
+    }
+  }
+
+  @Override
+  public long getVolatileTheta() {
+    return table_.get().thetaLong;
+  }
+
+  @Override
+  public void awaitBgPropagationTermination() {
+    propagationService_.awaitQuiescence();
+  }
+
+  @Override
+  public boolean propagate(final AtomicBoolean localPropagationInProgress,
+                           final Sketch sketchIn, final long singleHash) {
+    final long epoch = table_.get().epoch;
+    if ((singleHash != NOT_SINGLE_HASH)                 //namely, is a single hash and
+        && (getRetainedEntries(false) < exactLimit_)) { //a small sketch then propagate myself
+      if (!startEagerPropagation()) {
+        endPropagation(localPropagationInProgress, true);
+        return false;
+      }
+      if (validateEpoch(epoch)) {
+        propagate(singleHash, epoch);
+      }
+      endPropagation(localPropagationInProgress, true);
+      return true;
+    }
+    // otherwise, be nonblocking, let background thread do the work
+    final ConcurrentBackgroundThetaPropagation job = new ConcurrentBackgroundThetaPropagation(
+        this, localPropagationInProgress, sketchIn, singleHash, epoch);
+    propagationService_.execute(job);
+    return true;
+  }
+
+  @Override
+  public void propagate(final long singleHash) {
+    propagate(singleHash, table_.get().epoch);
+  }
+
+  @Override
+  public void updateEstimationSnapshot() {
+    //the estimate is computed from the current table on demand
+  }
+
+  @Override
+  public void updateVolatileTheta() {
+    //theta is published with each rebuilt table
+  }
+
+  @Override
+  public boolean validateEpoch(final long epoch) {
+    return table_.get().epoch == epoch;
+  }
+
+  //restricted methods
+
+  @Override
+  long[] getCache() {
+    return snapshot().getCache();
+  }
+
+  @Override
+  int getCompactPreambleLongs() {
+    final Table table = table_.get();
+    return CompactOperations.computeCompactPreLongs(table.empty, table.count.get(),
+        table.thetaLong);
+  }
+
+  @Override
+  int getCurrentPreambleLongs() {
+    return Family.QUICKSELECT.getMinPreLongs();
+  }
+
+  @Override
+  int getLgArrLongs() {
+    return lgNomLongs_ + 1;
+  }
+
+  @Override
+  WritableMemory getMemory() {
+    return null;
+  }
+
+  @Override
+  boolean isDirty() {
+    return false;
+  }
+
+  @Override
+  boolean isOutOfSpace(final int numEntries) {
+    return numEntries > table_.get().threshold;
+  }
+
+  /**
+   * Inserts the given hash into the current table of the given epoch, helping any rebuild along
+   * that is in the way.
+   * @param hash the given hash
+   * @param epoch the epoch of the propagation
+   * @return <a href="{@docRoot}/resources/dictionary.html#updateReturnState">See Update Return
+   * State</a>
+   */
+  UpdateReturnState propagate(final long hash, final long epoch) {
+    HashOperations.checkHashCorruption(hash);
+    while (true) {
+      final Table table = table_.get();
+      if (table.epoch != epoch) { return RejectedOverTheta; }
+      //the flag of a table that a concurrent reset has replaced is never read again
+      if (table.empty) { table.empty = false; }
+      if (HashOperations.continueCondition(table.thetaLong, hash)) {
+        return RejectedOverTheta;
+      }
+      if (table.count.get() >= table.threshold) {
+        rebuild(table);
+        continue;
+      }
+      final int index = table.searchOrInsert(hash);
+      if (index >= 0) { return RejectedDuplicate; }
+      if (index != Table.FROZEN_OR_FULL) {
+        table.count.incrementAndGet();
+        return InsertedCountIncremented;
+      }
+      rebuild(table);
+    }
+  }
+
+  /**
+   * Replaces the given table by a rebuilt one unless this has already been done. Any number of
+   * threads may do this at the same time.
+   * @param table the table to be replaced
+   */
+  private void rebuild(final Table table) {
+    if (table_.get() != table) { return; }
+    final long[] hashes = table.freeze();
+    final int count = hashes.length;
+    final int k = 1 << lgNomLongs_;
+    final long thetaLong = (count > k) ? selectExcludingZeros(hashes, count, k + 1)
+        : table.thetaLong;
+    final Table rebuilt = new Table(lgNomLongs_, thetaLong, table.epoch);
+    int newCount = 0;
+    for (int i = 0; i < count; i++) {
+      final long hash = hashes[i];
+      if ((hash < thetaLong) && (rebuilt.searchOrInsert(hash) < 0)) { newCount++; }
+    }
+    rebuilt.count.set(newCount);
+    rebuilt.empty = table.empty;
+    table_.compareAndSet(table, rebuilt);
+  }
+
+  /**
+   * Returns a QuickSelect sketch on the heap with a copy of the current table.
+   * @return a QuickSelect sketch on the heap with a copy of the current table
+   */
+  @Override
+  HeapQuickSelectSketch snapshot() {
+    final HeapQuickSelectSketch sketch = new HeapQuickSelectSketch(lgNomLongs_, getSeed(),
+        getHasher(), 1.0F, ResizeFactor.X1, false);
+    final Table table = table_.get();
+    sketch.thetaLong_ = table.thetaLong;
+    final AtomicLongArray slots = table.slots;
+    for (int i = 0; i < slots.length(); i++) {
+      final long hash = slots.get(i);
+      if ((hash > 0) && (hash < sketch.thetaLong_)) { sketch.hashUpdate(hash); }
+    }
+    sketch.empty_ = table.empty;
+    return sketch;
+  }
+
+  /**
+   * A hash table of a fixed size and theta. Slots go from empty to either a hash or FROZEN, and
+   * never change after that.
+   */
+  private static final class Table {
+    static final int FROZEN_OR_FULL = ~Integer.MAX_VALUE;
+
+    final AtomicLongArray slots;
+    final int lgArrLongs;
+    final int threshold;
+    final long thetaLong;
+    final long epoch;
+    final AtomicInteger count = new AtomicInteger();
+    //the empty flag of the sketch, kept with the table so that a reset, which replaces the table,
+    // cannot be undone by a propagation of the previous epoch
+    volatile boolean empty = true;
+
+    Table(final int lgNomLongs, final long thetaLong, final long epoch) {
+      lgArrLongs = lgNomLongs + 1;
+      slots = new AtomicLongArray(1 << lgArrLongs);
+      threshold = HeapQuickSelectSketch.setHashTableThreshold(lgNomLongs, lgArrLongs);
+      this.thetaLong = thetaLong;
+      this.epoch = epoch;
+    }
+
+    /**
+     * Searches for the given hash and inserts it into the first empty slot if it is not found.
+     * This follows the same probing scheme as
+     * {@link HashOperations#hashSearchOrInsert(long[], int, long)}.
+     * @param hash the given hash
+     * @return the index if found, the one's complement of the index if inserted, or
+     * FROZEN_OR_FULL if this table is frozen or full.
+     */
+    int searchOrInsert(final long hash) {
+      final int arrayMask = (1 << lgArrLongs) - 1;
+      final int stride = (2 * (int) ((hash >>> lgArrLongs) & HashOperations.STRIDE_MASK)) + 1;
+      int curProbe = (int) (hash & arrayMask);
+      final int loopIndex = curProbe;
+      do {
+        long arrVal = slots.get(curProbe);
+        if (arrVal == 0) {
+          if (slots.compareAndSet(curProbe, 0, hash)) {
+            return ~curProbe;
+          }
+          arrVal = slots.get(curProbe); //set concurrently, possibly to the same hash
+        }
+        if (arrVal == hash) {
+          return curProbe;
+        }
+        if (arrVal == FROZEN) {
+          return FROZEN_OR_FULL;
+        }
+        curProbe = (curProbe + stride) & arrayMask;
+      } while (curProbe != loopIndex);
+      return FROZEN_OR_FULL;
+    }
+
+    /**
+     * Freezes all empty slots, after which the contents of this table cannot change.
+     * @return the hashes of this table
+     */
+    long[] freeze() {
+      final long[] hashes = new long[slots.length()];
+      int count = 0;
+      for (int i = 0; i < slots.length(); i++) {
+        slots.compareAndSet(i, 0, FROZEN);
+        final long hash = slots.get(i);
+        if (hash != FROZEN) { hashes[count++] = hash; }
+      }
+      return Arrays.copyOf(hashes, count);
+    }
+  }
+}
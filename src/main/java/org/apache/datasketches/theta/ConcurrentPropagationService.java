@@ -19,51 +19,171 @@
 
 package org.apache.datasketches.theta;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Pool of threads to serve <i>all</i> propagation tasks in the system.
+ * The background propagation service of a single concurrent shared sketch.
+ *
+ * <p>Background propagation tasks of one shared sketch must not run concurrently with each other,
+ * unless the shared sketch is lock-free. A serial service queues the tasks of its sketch and runs
+ * them one at a time on an underlying Executor, which may be shared by any number of shared
+ * sketches. Different shared sketches thus propagate in parallel, up to the parallelism of the
+ * Executor. A parallel service, used by lock-free shared sketches, hands every task to the
+ * Executor directly and only tracks its completion.</p>
+ *
+ * <p>The underlying Executor is either supplied by the caller through
+ * {@link UpdateSketchBuilder#setPropagationExecutor(Executor)}, in which case its lifecycle is
+ * owned by the caller, or it is one of the default pools of daemon threads managed here.
+ * The default pools are shared by all shared sketches built without an Executor, so they are
+ * never shut down: a pool cannot know that no sketch will use it again, and its daemon threads do
+ * not keep the JVM from exiting. A caller that must control the lifecycle of the propagation
+ * threads supplies its own Executor.</p>
  *
  * @author eshcar
  */
-final class ConcurrentPropagationService {
+final class ConcurrentPropagationService implements Executor {
+
+  static final int NUM_POOL_THREADS = 3; // Default: 3 threads
 
-  static int NUM_POOL_THREADS = 3; // Default: 3 threads
-  private static volatile ConcurrentPropagationService instance = null; // Singleton
-  private static ExecutorService[] propagationExecutorService = null;
+  //The default pools, one per requested number of threads. Their threads are daemons and they
+  // live as long as the JVM, see the class comment.
+  private static final Map<Integer, ExecutorService> defaultPools = new HashMap<>();
+
+  private final Executor executor_;
+  private final boolean serial_;
+  private final Queue<Runnable> tasks_ = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pending_ = new AtomicInteger(); //queued plus running tasks
+  private final Runnable drainer_ = this::drain;
+  private final Object quiescence_ = new Object(); //notified when pending_ drops to zero
+
+  ConcurrentPropagationService(final Executor executor) {
+    this(executor, true);
+  }
 
+  ConcurrentPropagationService(final Executor executor, final boolean serial) {
+    executor_ = executor;
+    serial_ = serial;
+  }
 
-  private ConcurrentPropagationService() {
-    propagationExecutorService = new ExecutorService[NUM_POOL_THREADS];
+  /**
+   * Returns the default shared pool of daemon threads with the given number of threads, which is
+   * created on first use and never shut down.
+   * @param numPoolThreads the number of threads of the pool
+   * @return the default pool
+   */
+  static synchronized Executor getDefaultExecutor(final int numPoolThreads) {
+    ExecutorService pool = defaultPools.get(numPoolThreads);
+    if (pool == null) {
+      pool = Executors.newFixedThreadPool(numPoolThreads, new DaemonThreadFactory());
+      defaultPools.put(numPoolThreads, pool);
+    }
+    return pool;
   }
 
-  //Factory: Get the singleton
-  private static ConcurrentPropagationService getInstance() {
-    if (instance == null) {
-      synchronized (ConcurrentPropagationService.class) {
-        if (instance == null) {
-          instance = new ConcurrentPropagationService();
+  /**
+   * Queues the given propagation task. If this service is serial, it will run after all previously
+   * queued tasks of this service have completed.
+   * @param task the propagation task
+   */
+  @Override
+  public void execute(final Runnable task) {
+    if (!serial_) {
+      pending_.incrementAndGet();
+      try {
+        executor_.execute(() -> {
+          try {
+            task.run();
+          } finally {
+            decrementPending();
+          }
+        });
+      } catch (final RuntimeException e) { //e.g., rejected by a shut down Executor
+        decrementPending();
+        throw e;
+      }
+      return;
+    }
+    tasks_.add(task);
+    if (pending_.getAndIncrement() == 0) {
+      try {
+        executor_.execute(drainer_);
+      } catch (final RuntimeException e) { //e.g., rejected by a shut down Executor
+        tasks_.remove(task);
+        if (decrementPending() > 0) {
+          //tasks queued meanwhile rely on the drainer that was just rejected
+          drain();
         }
+        throw e;
       }
     }
-    return instance;
   }
 
-  public static ExecutorService getExecutorService(final long id) {
-    return getInstance().initExecutorService((int) id % NUM_POOL_THREADS);
+  /**
+   * Waits until all queued tasks of this service have completed. The underlying Executor is not
+   * affected. If the waiting thread is interrupted, it keeps waiting and its interrupt status is
+   * restored on return.
+   */
+  void awaitQuiescence() {
+    boolean interrupted = false;
+    synchronized (quiescence_) {
+      while (pending_.get() > 0) {
+        try {
+          quiescence_.wait();
+        } catch (final InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) { Thread.currentThread().interrupt(); }
+  }
+
+  Executor getExecutor() {
+    return executor_;
   }
 
-  @SuppressWarnings("static-access")
-  public static ExecutorService resetExecutorService(final long id) {
-    return getInstance().propagationExecutorService[(int) id % NUM_POOL_THREADS] = null;
+  boolean isSerial() {
+    return serial_;
   }
 
-  @SuppressWarnings("static-method")
-  private ExecutorService initExecutorService(final int i) {
-    if (propagationExecutorService[i] == null) {
-      propagationExecutorService[i] = Executors.newSingleThreadExecutor();
+  private void drain() {
+    boolean more = true;
+    while (more) {
+      final Runnable task = tasks_.poll();
+      try {
+        task.run();
+      } catch (final RuntimeException | Error e) {
+        //do not strand the remaining tasks of this service
+        if (decrementPending() > 0) { executor_.execute(drainer_); }
+        throw e;
+      }
+      more = decrementPending() > 0;
+    }
+  }
+
+  private int decrementPending() {
+    final int pending = pending_.decrementAndGet();
+    if (pending == 0) {
+      synchronized (quiescence_) { quiescence_.notifyAll(); }
+    }
+    return pending;
+  }
+
+  private static final class DaemonThreadFactory implements ThreadFactory {
+    private final ThreadFactory factory_ = Executors.defaultThreadFactory();
+
+    @Override
+    public Thread newThread(final Runnable r) {
+      final Thread thread = factory_.newThread(r);
+      thread.setDaemon(true);
+      return thread;
     }
-    return propagationExecutorService[i];
   }
 }
@@ -69,15 +69,11 @@ interface ConcurrentSharedThetaSketch {
   long getVolatileTheta();
 
   /**
-   * Awaits termination of background (lazy) propagation tasks
+   * Awaits completion of all background (lazy) propagation tasks of this sketch. The propagation
+   * Executor itself is not shut down.
    */
   void awaitBgPropagationTermination();
 
-  /**
-   * Init background (lazy) propagation service
-   */
-  void initBgPropagationService();
-
   /**
    * (Eager) Propagates the given sketch or hash value into this sketch
    * @param localPropagationInProgress the flag to be updated when propagation is done
@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.apache.datasketches.theta.UpdateReturnState.RejectedDuplicate;
+import static org.apache.datasketches.theta.UpdateReturnState.RejectedOverTheta;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.apache.datasketches.Family;
+import org.apache.datasketches.HashOperations;
+import org.apache.datasketches.ResizeFactor;
+import org.apache.datasketches.hash.Hasher;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * A concurrent QuickSelect sketch on the Java heap that may be updated directly by any number of
+ * threads, without a local buffer per writer thread.
+ *
+ * <p>The sketch is split into a power of 2 number of stripes, each a complete QuickSelect sketch
+ * of the configured nominal entries that is guarded by its own compare-and-set lock. A hash always
+ * selects the same stripe, so the stripes hold disjoint sets of hashes. Writers contend only on
+ * the stripe selected by their hash, and never block readers.</p>
+ *
+ * <p>The stripes are merged lazily into a snapshot when the sketch is read and has been updated
+ * since the previous read. The snapshot holds the <i>k</i> smallest hashes of all stripes, which
+ * are the <i>k</i> smallest hashes presented to this sketch, so it is identical to a single
+ * QuickSelect sketch with the same configuration after a {@link #rebuild()}: the error is that of
+ * a sequential sketch of <i>k</i> nominal entries. The theta of each snapshot is shared with the
+ * writers, which reject hashes at or above it before acquiring a stripe lock.</p>
+ *
+ * <p>The stripes may grow up to twice the nominal entries each, so the footprint is up to the
+ * number of stripes times that of a sequential sketch.</p>
+ *
+ * <p>The {@link #reset()} method must not be called concurrently with updates.</p>
+ */
+final class ConcurrentStripedQuickSelectSketch extends HeapUpdateSketch {
+
+  /**
+   * The default number of stripes.
+   */
+  static final int DEFAULT_NUM_STRIPES = 16;
+
+  //The number of ints between two locks, which keeps each lock on its own cache line.
+  private static final int LOCK_STRIDE = 16;
+
+  //Multiplier that spreads all bits of a hash into the high bits used to select a stripe.
+  private static final long STRIPE_MIX = 0x9E3779B97F4A7C15L;
+
+  private final HeapQuickSelectSketch[] stripes_;
+  private final int stripeMask_;
+  private final AtomicIntegerArray locks_;
+  private final HeapQuickSelectSketch merged_; //guarded by this
+  private long[] scratch_;                     //guarded by this
+
+  //Hashes at or above this are rejected by writers. Long.MAX_VALUE until the first non-empty merge.
+  private volatile long sharedThetaLong_;
+  private volatile boolean dirty_;
+
+  /**
+   * Construct a new striped sketch instance on the java heap.
+   *
+   * @param lgNomLongs <a href="{@docRoot}/resources/dictionary.html#lgNomLogs">See lgNomLongs</a>.
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
+   * @param hasher the Hasher used to hash the input data
+   * @param p <a href="{@docRoot}/resources/dictionary.html#p">See Sampling Probability, <i>p</i></a>
+   * @param rf <a href="{@docRoot}/resources/dictionary.html#resizeFactor">See Resize Factor</a>
+   * @param numStripes the number of stripes, a power of 2.
+   */
+  ConcurrentStripedQuickSelectSketch(final int lgNomLongs, final long seed, final Hasher hasher,
+      final float p, final ResizeFactor rf, final int numStripes) {
+    super(lgNomLongs, seed, p, rf, hasher);
+    assert Integer.bitCount(numStripes) == 1 : "numStripes must be a power of 2: " + numStripes;
+    stripes_ = new HeapQuickSelectSketch[numStripes];
+    for (int i = 0; i < numStripes; i++) {
+      stripes_[i] = new HeapQuickSelectSketch(lgNomLongs, seed, hasher, p, rf, false);
+    }
+    stripeMask_ = numStripes - 1;
+    locks_ = new AtomicIntegerArray(numStripes * LOCK_STRIDE);
+    merged_ = new HeapQuickSelectSketch(lgNomLongs, seed, hasher, p, rf, false);
+    scratch_ = new long[0];
+    sharedThetaLong_ = Long.MAX_VALUE;
+    dirty_ = false;
+  }
+
+  //Sketch
+
+  @Override
+  public synchronized CompactSketch compact(final boolean dstOrdered,
+      final WritableMemory dstMem) {
+    return merge().compact(dstOrdered, dstMem);
+  }
+
+  @Override
+  public synchronized int getCompactBytes() {
+    return merge().getCompactBytes();
+  }
+
+  @Override
+  public synchronized int getCurrentBytes() {
+    return merge().getCurrentBytes();
+  }
+
+  @Override
+  public synchronized double getEstimate() {
+    return merge().getEstimate();
+  }
+
+  @Override
+  public Family getFamily() {
+    return Family.QUICKSELECT;
+  }
+
+  @Override
+  public synchronized double getLowerBound(final int numStdDev) {
+    return merge().getLowerBound(numStdDev);
+  }
+
+  @Override
+  public synchronized int getRetainedEntries(final boolean valid) {
+    return merge().getRetainedEntries(valid);
+  }
+
+  @Override
+  public synchronized long getThetaLong() {
+    return merge().getThetaLong();
+  }
+
+  @Override
+  public synchronized double getUpperBound(final int numStdDev) {
+    return merge().getUpperBound(numStdDev);
+  }
+
+  @Override
+  public synchronized boolean isEmpty() {
+    return merge().isEmpty();
+  }
+
+  @Override
+  public synchronized boolean isEstimationMode() {
+    return merge().isEstimationMode();
+  }
+
+  @Override
+  public HashIterator iterator() {
+    return compact(false, null).iterator();
+  }
+
+  @Override
+  public synchronized byte[] toByteArray() {
+    return merge().toByteArray();
+  }
+
+  //UpdateSketch
+
+  @Override
+  public synchronized UpdateSketch rebuild() {
+    merge();
+    return this;
+  }
+
+  @Override
+  public synchronized void reset() {
+    sharedThetaLong_ = Long.MAX_VALUE;
+    for (int i = 0; i < stripes_.length; i++) {
+      lock(i);
+      try {
+        stripes_[i].reset();
+      } finally {
+        unlock(i);
+      }
+    }
+    merged_.reset();
+    dirty_ = false;
+  }
+
+  //restricted methods
+
+  /**
+   * Returns a copy of the hash table of the merged snapshot. A later call to another getter may
+   * see a later snapshot, so readers that need the theta and the cache of the same snapshot,
+   * such as the set operations, read them from {@link #snapshot()}.
+   * @return a copy of the hash table of the merged snapshot
+   */
+  @Override
+  synchronized long[] getCache() {
+    return merge().getCache().clone();
+  }
+
+  @Override
+  synchronized int getCompactPreambleLongs() {
+    return merge().getCompactPreambleLongs();
+  }
+
+  @Override
+  int getCurrentPreambleLongs() {
+    return merged_.getCurrentPreambleLongs();
+  }
+
+  @Override
+  Sketch snapshot() {
+    return compact(false, null);
+  }
+
+  @Override
+  synchronized int getLgArrLongs() {
+    return merge().getLgArrLongs();
+  }
+
+  @Override
+  WritableMemory getMemory() {
+    return null;
+  }
+
+  int getNumStripes() {
+    return stripes_.length;
+  }
+
+  @Override
+  UpdateReturnState hashUpdate(final long hash) {
+    HashOperations.checkHashCorruption(hash);
+    if (hash >= sharedThetaLong_) {
+      return RejectedOverTheta;
+    }
+    final int i = (int) ((hash * STRIPE_MIX) >>> 32) & stripeMask_;
+    final UpdateReturnState state;
+    lock(i);
+    try {
+      state = stripes_[i].hashUpdate(hash);
+    } finally {
+      unlock(i);
+    }
+    //set only after the stripe is updated, so that a concurrent merge cannot miss this update
+    if ((state != RejectedDuplicate) && !dirty_) {
+      dirty_ = true;
+    }
+    return state;
+  }
+
+  @Override
+  boolean isDirty() {
+    return false;
+  }
+
+  @Override
+  synchronized boolean isOutOfSpace(final int numEntries) {
+    return merge().isOutOfSpace(numEntries);
+  }
+
+  /**
+   * Merges the stripes into the snapshot if any stripe has been updated since the last merge.
+   * The caller must hold the monitor of this sketch.
+   * @return the merged snapshot
+   */
+  private HeapQuickSelectSketch merge() {
+    if (!dirty_) { return merged_; }
+    dirty_ = false; //cleared before the stripes are read
+
+    long thetaLong = Long.MAX_VALUE;
+    boolean empty = true;
+    int count = 0;
+    for (int i = 0; i < stripes_.length; i++) {
+      lock(i);
+      try {
+        final HeapQuickSelectSketch stripe = stripes_[i];
+        final long stripeTheta = stripe.thetaLong_;
+        final long[] cache = stripe.getCache();
+        if ((count + stripe.curCount_) > scratch_.length) {
+          scratch_ = Arrays.copyOf(scratch_, Math.max(2 * scratch_.length,
+              count + stripe.curCount_));
+        }
+        for (int j = 0; j < cache.length; j++) {
+          final long hash = cache[j];
+          if ((hash != 0) && (hash < stripeTheta)) { scratch_[count++] = hash; }
+        }
+        thetaLong = Math.min(thetaLong, stripeTheta);
+        empty &= stripe.empty_;
+      } finally {
+        unlock(i);
+      }
+    }
+
+    merged_.reset();
+    merged_.thetaLong_ = Math.min(merged_.thetaLong_, thetaLong);
+    for (int j = 0; j < count; j++) {
+      final long hash = scratch_[j];
+      if (hash < merged_.thetaLong_) { merged_.hashUpdate(hash); }
+    }
+    merged_.rebuild();
+    merged_.empty_ = empty;
+    if (!empty) { sharedThetaLong_ = merged_.thetaLong_; }
+    return merged_;
+  }
+
+  private void lock(final int stripe) {
+    final int idx = stripe * LOCK_STRIDE;
+    while (!locks_.compareAndSet(idx, 0, 1)) {
+      Thread.yield();
+    }
+  }
+
+  private void unlock(final int stripe) {
+    locks_.set(stripe * LOCK_STRIDE, 0);
+  }
+}
@@ -0,0 +1,491 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.sqrt;
+import static org.apache.datasketches.HashOperations.STRIDE_MASK;
+import static org.apache.datasketches.Util.LONG_MAX_VALUE_AS_DOUBLE;
+import static org.apache.datasketches.Util.MIN_LG_ARR_LONGS;
+import static org.apache.datasketches.Util.startingSubMultiple;
+import static org.apache.datasketches.theta.CompactOperations.checkIllegalCurCountAndEmpty;
+import static org.apache.datasketches.theta.CompactOperations.correctThetaOnCompact;
+import static org.apache.datasketches.theta.HeapAlphaSketch.ALPHA_MIN_LG_NOM_LONGS;
+import static org.apache.datasketches.theta.HeapAlphaSketch.checkAlphaFamily;
+import static org.apache.datasketches.theta.HeapAlphaSketch.getVariance;
+import static org.apache.datasketches.theta.PreambleUtil.EMPTY_FLAG_MASK;
+import static org.apache.datasketches.theta.PreambleUtil.FLAGS_BYTE;
+import static org.apache.datasketches.theta.PreambleUtil.PREAMBLE_LONGS_BYTE;
+import static org.apache.datasketches.theta.PreambleUtil.RETAINED_ENTRIES_INT;
+import static org.apache.datasketches.theta.PreambleUtil.SER_VER;
+import static org.apache.datasketches.theta.PreambleUtil.extractCurCount;
+import static org.apache.datasketches.theta.PreambleUtil.extractLgArrLongs;
+import static org.apache.datasketches.theta.PreambleUtil.extractLgNomLongs;
+import static org.apache.datasketches.theta.PreambleUtil.extractPreLongs;
+import static org.apache.datasketches.theta.PreambleUtil.extractSeedHash;
+import static org.apache.datasketches.theta.PreambleUtil.extractThetaLong;
+import static org.apache.datasketches.theta.PreambleUtil.getMemBytes;
+import static org.apache.datasketches.theta.PreambleUtil.insertCurCount;
+import static org.apache.datasketches.theta.PreambleUtil.insertFamilyID;
+import static org.apache.datasketches.theta.PreambleUtil.insertFlags;
+import static org.apache.datasketches.theta.PreambleUtil.insertLgArrLongs;
+import static org.apache.datasketches.theta.PreambleUtil.insertLgNomLongs;
+import static org.apache.datasketches.theta.PreambleUtil.insertLgResizeFactor;
+import static org.apache.datasketches.theta.PreambleUtil.insertP;
+import static org.apache.datasketches.theta.PreambleUtil.insertPreLongs;
+import static org.apache.datasketches.theta.PreambleUtil.insertSeedHash;
+import static org.apache.datasketches.theta.PreambleUtil.insertSerVer;
+import static org.apache.datasketches.theta.PreambleUtil.insertThetaLong;
+import static org.apache.datasketches.theta.Rebuilder.moveAndResize;
+import static org.apache.datasketches.theta.Rebuilder.resize;
+import static org.apache.datasketches.theta.UpdateReturnState.InsertedCountIncremented;
+import static org.apache.datasketches.theta.UpdateReturnState.InsertedCountIncrementedRebuilt;
+import static org.apache.datasketches.theta.UpdateReturnState.InsertedCountIncrementedResized;
+import static org.apache.datasketches.theta.UpdateReturnState.InsertedCountNotIncremented;
+import static org.apache.datasketches.theta.UpdateReturnState.RejectedDuplicate;
+import static org.apache.datasketches.theta.UpdateReturnState.RejectedOverTheta;
+
+import org.apache.datasketches.Family;
+import org.apache.datasketches.HashOperations;
+import org.apache.datasketches.ResizeFactor;
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.SketchesReadOnlyException;
+import org.apache.datasketches.hash.Hasher;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * This sketch uses the
+ * <a href="{@docRoot}/resources/dictionary.html#thetaSketch">Theta Sketch Framework</a>
+ * and the
+ * <a href="{@docRoot}/resources/dictionary.html#alphaTCF">Alpha TCF</a> algorithm
+ * with a single cache, which is kept in a given Memory.
+ *
+ * <p>The Memory layout is the same as that of the DirectQuickSelectSketch and the
+ * serialized form of the HeapAlphaSketch, with the Family set to ALPHA. As with the
+ * HeapAlphaSketch, the hash table may hold dirty values, which are values greater than or equal
+ * to theta. Whether there may be dirty values is not serialized, thus a wrapped sketch that is in
+ * sketch mode assumes that there may be.</p>
+ *
+ * <p>This implementation uses data in a given Memory that is owned and managed by the caller.
+ * This Memory can be off-heap, which if managed properly will greatly reduce the need for
+ * the JVM to perform garbage collection.</p>
+ */
+final class DirectAlphaSketch extends DirectQuickSelectSketch {
+  private final double alpha_;  // computed from lgNomLongs
+  private final long split1_;   // computed from alpha and p
+  private final boolean readOnly_;
+  private boolean dirty_ = false; //never serialized
+
+  private DirectAlphaSketch(final long seed, final Hasher hasher, final WritableMemory wmem,
+      final boolean readOnly) {
+    super(seed, hasher, wmem);
+    final double nomLongs = (1L << extractLgNomLongs(wmem));
+    alpha_ = nomLongs / (nomLongs + 1.0);
+    split1_ = (long) (((getP() * (alpha_ + 1.0)) / 2.0) * LONG_MAX_VALUE_AS_DOUBLE);
+    readOnly_ = readOnly;
+    hashTableThreshold_ =
+        HeapAlphaSketch.setHashTableThreshold(extractLgNomLongs(wmem), extractLgArrLongs(wmem));
+    dirty_ = extractThetaLong(wmem) <= split1_; //in sketch mode
+  }
+
+  /**
+   * Construct a new sketch instance and initialize the given Memory as its backing store.
+   *
+   * @param lgNomLongs <a href="{@docRoot}/resources/dictionary.html#lgNomLongs">See lgNomLongs</a>.
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>.
+   * @param hasher the Hasher used to hash the input data
+   * @param p
+   * <a href="{@docRoot}/resources/dictionary.html#p">See Sampling Probability, <i>p</i></a>
+   * @param rf <a href="{@docRoot}/resources/dictionary.html#resizeFactor">See Resize Factor</a>
+   * @param memReqSvr the given MemoryRequestServer
+   * @param dstMem the given Memory object destination. It cannot be null.
+   * It will be cleared prior to use.
+   * @return instance of this sketch
+   */
+  static DirectAlphaSketch newInstance(final int lgNomLongs, final long seed,
+      final Hasher hasher, final float p, final ResizeFactor rf,
+      final MemoryRequestServer memReqSvr, final WritableMemory dstMem) {
+    if (lgNomLongs < ALPHA_MIN_LG_NOM_LONGS) {
+      throw new SketchesArgumentException(
+        "This sketch requires a minimum nominal entries of " + (1 << ALPHA_MIN_LG_NOM_LONGS));
+    }
+    final int preambleLongs = Family.ALPHA.getMinPreLongs();
+    final int lgArrLongs = startingSubMultiple(lgNomLongs + 1, rf.lg(), MIN_LG_ARR_LONGS);
+    final int minReqBytes = getMemBytes(lgArrLongs, preambleLongs);
+    final long curMemCapBytes = dstMem.getCapacity();
+    if (curMemCapBytes < minReqBytes) {
+      throw new SketchesArgumentException(
+        "Memory capacity is too small: " + curMemCapBytes + " < " + minReqBytes);
+    }
+
+    //@formatter:off
+    //Build preamble
+    insertPreLongs(dstMem, preambleLongs);                 //byte 0
+    insertLgResizeFactor(dstMem, rf.lg());                 //byte 0
+    insertSerVer(dstMem, SER_VER);                         //byte 1
+    insertFamilyID(dstMem, Family.ALPHA.getID());          //byte 2
+    insertLgNomLongs(dstMem, lgNomLongs);                  //byte 3
+    insertLgArrLongs(dstMem, lgArrLongs);                  //byte 4
+    //flags: bigEndian = readOnly = compact = ordered = false; empty = true : 00100 = 4
+    insertFlags(dstMem, EMPTY_FLAG_MASK);                  //byte 5
+    insertSeedHash(dstMem, hasher.computeSeedHash(seed)); //bytes 6,7
+    insertCurCount(dstMem, 0);                             //bytes 8-11
+    insertP(dstMem, p);                                    //bytes 12-15
+    insertThetaLong(dstMem, (long)(p * LONG_MAX_VALUE_AS_DOUBLE)); //bytes 16-23
+    //@formatter:on
+
+    //clear hash table area
+    dstMem.clear(preambleLongs << 3, 8 << lgArrLongs);
+
+    final DirectAlphaSketch das = new DirectAlphaSketch(seed, hasher, dstMem, false);
+    das.memReqSvr_ = memReqSvr;
+    return das;
+  }
+
+  /**
+   * Wrap a sketch around the given source Memory containing sketch data that originated from
+   * this sketch or from the serialized form of a HeapAlphaSketch.
+   * @param srcMem <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
+   * The given Memory object must be in hash table form and not read only.
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>
+   * @return instance of this sketch
+   */
+  static DirectAlphaSketch writableWrap(final WritableMemory srcMem, final long seed) {
+    checkWrap(srcMem, seed);
+    if (isResizeFactorIncorrect(srcMem, extractLgNomLongs(srcMem), extractLgArrLongs(srcMem))) {
+      //If incorrect it sets it to X2 which always works.
+      insertLgResizeFactor(srcMem, ResizeFactor.X2.lg());
+    }
+    return new DirectAlphaSketch(seed, Hasher.seedHashToHasher(
+        (short) extractSeedHash(srcMem), seed), srcMem, false);
+  }
+
+  /**
+   * Wrap a read-only sketch around the given source Memory containing sketch data that
+   * originated from this sketch or from the serialized form of a HeapAlphaSketch.
+   * @param srcMem <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
+   * The given Memory object must be in hash table form.
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>
+   * @return instance of this sketch
+   */
+  static DirectAlphaSketch readOnlyWrap(final Memory srcMem, final long seed) {
+    checkWrap(srcMem, seed);
+    return new DirectAlphaSketch(seed, Hasher.seedHashToHasher(
+        (short) extractSeedHash(srcMem), seed), (WritableMemory) srcMem, true);
+  }
+
+  private static void checkWrap(final Memory srcMem, final long seed) {
+    final int preambleLongs = extractPreLongs(srcMem);                  //byte 0
+    final int lgNomLongs = extractLgNomLongs(srcMem);                   //byte 3
+    final int lgArrLongs = extractLgArrLongs(srcMem);                   //byte 4
+    checkAlphaFamily(srcMem, preambleLongs, lgNomLongs);
+    checkMemIntegrity(srcMem, seed, preambleLongs, lgNomLongs, lgArrLongs);
+  }
+
+  //Sketch
+
+  @Override
+  public double getEstimate() {
+    final long thetaLong = getThetaLong();
+    return (thetaLong > split1_)
+        ? Sketch.estimate(thetaLong, extractCurCount(wmem_))
+        : (1 << getLgNomLongs()) * (LONG_MAX_VALUE_AS_DOUBLE / thetaLong);
+  }
+
+  @Override
+  public double getLowerBound(final int numStdDev) {
+    if ((numStdDev < 1) || (numStdDev > 3)) {
+      throw new SketchesArgumentException("numStdDev can only be the values 1, 2 or 3.");
+    }
+    if (!isEstimationMode()) { return extractCurCount(wmem_); }
+    final int validCount = getRetainedEntries(true);
+    if (validCount == 0) { return 0.0; }
+    final double var = getVariance(1 << getLgNomLongs(), getP(), alpha_, getTheta(), validCount);
+    return max(getEstimate() - (numStdDev * sqrt(var)), 0.0);
+  }
+
+  @Override
+  public int getRetainedEntries(final boolean valid) {
+    final int curCount = extractCurCount(wmem_);
+    if ((curCount > 0) && valid && dirty_) {
+      return countValid();
+    }
+    return curCount;
+  }
+
+  @Override
+  public double getUpperBound(final int numStdDev) {
+    if ((numStdDev < 1) || (numStdDev > 3)) {
+      throw new SketchesArgumentException("numStdDev can only be the values 1, 2 or 3.");
+    }
+    if (!isEstimationMode()) { return extractCurCount(wmem_); }
+    final double var =
+        getVariance(1 << getLgNomLongs(), getP(), alpha_, getTheta(), getRetainedEntries(true));
+    return getEstimate() + (numStdDev * sqrt(var));
+  }
+
+  @Override
+  public byte[] toByteArray() {
+    //like the HeapAlphaSketch, the serialized form has no dirty values
+    if (dirty_ && !readOnly_) { rebuild(); }
+    final int lengthBytes = getCurrentBytes();
+    final byte[] byteArray = new byte[lengthBytes];
+    final WritableMemory mem = WritableMemory.wrap(byteArray);
+    wmem_.copyTo(0, mem, 0, lengthBytes);
+    if (dirty_) { //read only
+      rebuildDirty(mem, extractLgArrLongs(mem), getThetaLong());
+    }
+    checkIllegalCurCountAndEmpty(isEmpty(), extractCurCount(mem));
+    insertThetaLong(mem, correctThetaOnCompact(isEmpty(), extractCurCount(mem), getThetaLong()));
+    return byteArray;
+  }
+
+  //UpdateSketch
+
+  @Override
+  public UpdateSketch rebuild() {
+    checkWritable();
+    if (dirty_) {
+      //a wrapped sketch may not have had any dirty values, so there is no lockup check here
+      rebuildDirty(wmem_, getLgArrLongs(), getThetaLong());
+      dirty_ = false;
+    }
+    return this;
+  }
+
+  @Override
+  public void reset() {
+    checkWritable();
+    super.reset();
+    dirty_ = false;
+  }
+
+  //restricted methods
+
+  @Override
+  boolean isDirty() {
+    return dirty_;
+  }
+
+  @Override
+  UpdateReturnState hashUpdate(final long hash) {
+    checkWritable();
+    HashOperations.checkHashCorruption(hash);
+
+    wmem_.putByte(FLAGS_BYTE, (byte) (wmem_.getByte(FLAGS_BYTE) & ~EMPTY_FLAG_MASK));
+    final long thetaLong = getThetaLong();
+    //The over-theta test
+    if (HashOperations.continueCondition(thetaLong, hash)) {
+      return RejectedOverTheta; //signal that hash was rejected due to theta or zero.
+    }
+
+    //The duplicate/inserted tests
+    if (dirty_) { //may have dirty values, must be at tgt size
+      return enhancedHashInsert(hash, thetaLong);
+    }
+
+    //NOT dirty, the other duplicate or inserted test
+    final int lgArrLongs = getLgArrLongs();
+    final int preambleLongs = wmem_.getByte(PREAMBLE_LONGS_BYTE) & 0X3F;
+    final int index =
+        HashOperations.hashSearchOrInsertMemory(wmem_, lgArrLongs, hash, preambleLongs << 3);
+    if (index >= 0) {
+      return RejectedDuplicate;
+    }
+    //insertion occurred, must increment
+    final int curCount = extractCurCount(wmem_) + 1;
+    insertCurCount(wmem_, curCount);
+    final int lgNomLongs = getLgNomLongs();
+    //not yet sketch mode (has not seen k+1 inserts), but could be sampling
+    if (thetaLong > split1_) {
+      if (curCount > (1 << lgNomLongs)) { // > k
+        //Reached the k+1 insert. Must be at tgt size or larger.
+        //Transition to Sketch Mode. Happens only once.
+        //Decrement theta, make dirty, don't bother check size, already not-empty.
+        insertThetaLong(wmem_, (long) (thetaLong * alpha_));
+        dirty_ = true; //now may have dirty values
+      }
+      else if (isOutOfSpace(curCount)) {
+        //inserts (not entries!) <= k. It may not be at tgt size.
+        resizeClean(); //not dirty, not at tgt size.
+        return InsertedCountIncrementedResized;
+      }
+    }
+    else { //sketch mode and not dirty (e.g., after a rebuild).
+      //dec theta, make dirty, cnt already ++, must be at tgt size or larger. check for rebuild
+      assert (lgArrLongs > lgNomLongs) : "lgArr: " + lgArrLongs + ", lgNom: " + lgNomLongs;
+      insertThetaLong(wmem_, (long) (thetaLong * alpha_)); //decrement theta
+      dirty_ = true; //now may have dirty values
+      if (isOutOfSpace(curCount)) {
+        rebuildDirty(); // at tgt size and maybe dirty
+        return InsertedCountIncrementedRebuilt;
+      }
+    }
+    return InsertedCountIncremented;
+  }
+
+  /**
+   * Enhanced Knuth-style Open Addressing, Double Hash insert into the Memory hash table.
+   * See HeapAlphaSketch.enhancedHashInsert(...).
+   *
+   * @param hash must not be 0. If not a duplicate, it will be inserted into the hash table
+   * @param thetaLong the current thetaLong
+   * @return <a href="{@docRoot}/resources/dictionary.html#updateReturnState">
+   * See Update Return State</a>
+   */
+  private UpdateReturnState enhancedHashInsert(final long hash, final long thetaLong) {
+    final int lgArrLongs = getLgArrLongs();
+    final int preBytes = (wmem_.getByte(PREAMBLE_LONGS_BYTE) & 0X3F) << 3;
+    final int arrayMask = (1 << lgArrLongs) - 1; // arrayLongs -1
+    // make odd and independent of curProbe:
+    final int stride = (2 * (int) ((hash >>> lgArrLongs) & STRIDE_MASK)) + 1;
+    int curProbe = (int) (hash & arrayMask);
+    long curTableHash = wmem_.getLong(preBytes + (curProbe << 3));
+    final int loopIndex = curProbe;
+
+    // Search for duplicate or zero, or opportunity to replace garbage.
+    while ((curTableHash != hash) && (curTableHash != 0)) {
+      if (curTableHash >= thetaLong) { // curTableHash is garbage, do enhanced insert
+        final int rememberPos = curProbe; // remember its position.
+        // Now we must make sure there are no duplicates in this search path
+        curProbe = (curProbe + stride) & arrayMask;
+        curTableHash = wmem_.getLong(preBytes + (curProbe << 3));
+        while ((curTableHash != hash) && (curTableHash != 0)) {
+          curProbe = (curProbe + stride) & arrayMask;
+          curTableHash = wmem_.getLong(preBytes + (curProbe << 3));
+        }
+        if (curTableHash == hash) {
+          return RejectedDuplicate; // duplicate, just return
+        }
+        // no duplicates, insert at first garbage value position
+        wmem_.putLong(preBytes + (rememberPos << 3), hash);
+        insertThetaLong(wmem_, (long) (thetaLong * alpha_)); //decrement theta
+        dirty_ = true; //the decremented theta could have produced a new dirty value
+        return InsertedCountNotIncremented;
+      }
+      // not a duplicate, not zero, and NOT garbage, so we keep searching
+      curProbe = (curProbe + stride) & arrayMask;
+      curTableHash = wmem_.getLong(preBytes + (curProbe << 3));
+      if (curProbe == loopIndex) {
+        throw new SketchesArgumentException("No empty slot in table!");
+      }
+    }
+
+    if (curTableHash == hash) {
+      return RejectedDuplicate; // duplicate, just return
+    }
+    // must be zero, so insert and increment
+    wmem_.putLong(preBytes + (curProbe << 3), hash);
+    insertThetaLong(wmem_, (long) (thetaLong * alpha_)); //decrement theta
+    dirty_ = true; //the decremented theta could have produced a new dirty value
+    final int curCount = extractCurCount(wmem_) + 1;
+    insertCurCount(wmem_, curCount);
+    if (curCount > hashTableThreshold_) {
+      rebuildDirty(); //at tgt size and maybe dirty
+      return InsertedCountIncrementedRebuilt;
+    }
+    return InsertedCountIncremented;
+  }
+
+  //At tgt size or greater
+  //Checks for rare lockup condition
+  private void rebuildDirty() {
+    final int curCountBefore = extractCurCount(wmem_);
+    rebuildDirty(wmem_, getLgArrLongs(), getThetaLong()); //changes curCount only
+    dirty_ = false;
+    if (curCountBefore == extractCurCount(wmem_)) {
+      //clean but unsuccessful at reducing count, must take drastic measures, very rare.
+      forceResizeCleanCache(1);
+    }
+  }
+
+  //curCount > hashTableThreshold
+  //Checks for rare lockup condition
+  private void resizeClean() {
+    //must resize, but are we at tgt size?
+    final int lgTgtLongs = getLgNomLongs() + 1;
+    final int lgArrLongs = getLgArrLongs();
+    if (lgTgtLongs > lgArrLongs) {
+      //not yet at tgt size
+      final int lgDeltaLongs = lgTgtLongs - lgArrLongs; //must be > 0
+      final int lgResizeFactor = max(min(getLgRF(), lgDeltaLongs), 1); //lgRF could be 0
+      forceResizeCleanCache(lgResizeFactor);
+    }
+    else {
+      //at tgt size or larger, no dirty values, must take drastic measures, very rare.
+      forceResizeCleanCache(1);
+    }
+  }
+
+  //Force resize in the current Memory, or in a new one if it is too small.
+  //Changes lgArrLongs only. Theta doesn't change, count doesn't change.
+  private void forceResizeCleanCache(final int lgResizeFactor) {
+    assert (!dirty_); // Should never be dirty before a resize.
+    final int lgArrLongs = getLgArrLongs();
+    final int tgtLgArrLongs = lgArrLongs + lgResizeFactor;
+    final int preambleLongs = wmem_.getByte(PREAMBLE_LONGS_BYTE) & 0X3F;
+    final int reqBytes = getMemBytes(tgtLgArrLongs, preambleLongs);
+    if (wmem_.getCapacity() >= reqBytes) { //Expand in current Memory
+      resize(wmem_, preambleLongs, lgArrLongs, tgtLgArrLongs);
+    } else { //Request more memory, then resize
+      memReqSvr_ = (memReqSvr_ == null) ? wmem_.getMemoryRequestServer() : memReqSvr_;
+      final WritableMemory newDstMem = memReqSvr_.request(reqBytes);
+      moveAndResize(wmem_, preambleLongs, lgArrLongs, newDstMem, tgtLgArrLongs, getThetaLong());
+      memReqSvr_.requestClose(wmem_, newDstMem);
+      wmem_ = newDstMem;
+    }
+    hashTableThreshold_ = HeapAlphaSketch.setHashTableThreshold(getLgNomLongs(), tgtLgArrLongs);
+  }
+
+  /**
+   * Rebuilds the hash table in the given Memory at its current size, removing the dirty values.
+   * Theta doesn't change, curCount will change.
+   */
+  private static void rebuildDirty(final WritableMemory mem, final int lgArrLongs,
+      final long thetaLong) {
+    final int arrLongs = 1 << lgArrLongs;
+    final int preBytes = (mem.getByte(PREAMBLE_LONGS_BYTE) & 0X3F) << 3;
+    final long[] srcArr = new long[arrLongs];
+    mem.getLongArray(preBytes, srcArr, 0, arrLongs);
+    final long[] tgtArr = new long[arrLongs];
+    final int curCount = HashOperations.hashArrayInsert(srcArr, tgtArr, lgArrLongs, thetaLong);
+    mem.putLongArray(preBytes, tgtArr, 0, arrLongs);
+    mem.putInt(RETAINED_ENTRIES_INT, curCount);
+  }
+
+  private int countValid() {
+    final int arrLongs = 1 << getLgArrLongs();
+    final int preBytes = (wmem_.getByte(PREAMBLE_LONGS_BYTE) & 0X3F) << 3;
+    final long thetaLong = getThetaLong();
+    int count = 0;
+    for (int i = 0; i < arrLongs; i++) {
+      final long hash = wmem_.getLong(preBytes + ((long) i << 3));
+      if (!HashOperations.continueCondition(thetaLong, hash)) { count++; }
+    }
+    return count;
+  }
+
+  private void checkWritable() {
+    if (readOnly_) { throw new SketchesReadOnlyException(); }
+  }
+}
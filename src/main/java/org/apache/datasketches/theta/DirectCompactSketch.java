@@ -46,7 +46,7 @@ import org.apache.datasketches.memory.WritableMemory;
  * @author Lee Rhodes
  */
 class DirectCompactSketch extends CompactSketch {
-  final Memory mem_;
+  Memory mem_; //not final, see ReusableCompactSketch
 
   /**
    * Construct this sketch with the given memory.
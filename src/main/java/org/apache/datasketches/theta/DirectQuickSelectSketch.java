@@ -21,7 +21,6 @@ package org.apache.datasketches.theta;
 
 import static org.apache.datasketches.Util.LONG_MAX_VALUE_AS_DOUBLE;
 import static org.apache.datasketches.Util.MIN_LG_ARR_LONGS;
-import static org.apache.datasketches.Util.computeSeedHash;
 import static org.apache.datasketches.theta.PreambleUtil.EMPTY_FLAG_MASK;
 import static org.apache.datasketches.theta.PreambleUtil.FLAGS_BYTE;
 import static org.apache.datasketches.theta.PreambleUtil.PREAMBLE_LONGS_BYTE;
@@ -32,6 +31,7 @@ import static org.apache.datasketches.theta.PreambleUtil.THETA_LONG;
 import static org.apache.datasketches.theta.PreambleUtil.extractLgArrLongs;
 import static org.apache.datasketches.theta.PreambleUtil.extractLgNomLongs;
 import static org.apache.datasketches.theta.PreambleUtil.extractPreLongs;
+import static org.apache.datasketches.theta.PreambleUtil.extractSeedHash;
 import static org.apache.datasketches.theta.PreambleUtil.getMemBytes;
 import static org.apache.datasketches.theta.PreambleUtil.insertCurCount;
 import static org.apache.datasketches.theta.PreambleUtil.insertFamilyID;
@@ -55,10 +55,13 @@ import static org.apache.datasketches.theta.UpdateReturnState.InsertedCountIncre
 import static org.apache.datasketches.theta.UpdateReturnState.RejectedDuplicate;
 import static org.apache.datasketches.theta.UpdateReturnState.RejectedOverTheta;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.datasketches.Family;
 import org.apache.datasketches.HashOperations;
 import org.apache.datasketches.ResizeFactor;
 import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.MemoryRequestServer;
 import org.apache.datasketches.memory.WritableMemory;
 
@@ -75,11 +78,13 @@ import org.apache.datasketches.memory.WritableMemory;
  */
 class DirectQuickSelectSketch extends DirectQuickSelectSketchR {
   MemoryRequestServer memReqSvr_ = null; //never serialized
+  ForkJoinPool rebuildPool_ = null; //never serialized, null rebuilds sequentially
 
-  private DirectQuickSelectSketch(
+  DirectQuickSelectSketch(
       final long seed,
+      final Hasher hasher,
       final WritableMemory wmem) {
-    super(seed, wmem);
+    super(seed, hasher, wmem);
   }
 
   /**
@@ -87,6 +92,7 @@ class DirectQuickSelectSketch extends DirectQuickSelectSketchR {
    *
    * @param lgNomLongs <a href="{@docRoot}/resources/dictionary.html#lgNomLongs">See lgNomLongs</a>.
    * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>.
+   * @param hasher the Hasher used to hash the input data
    * @param p
    * <a href="{@docRoot}/resources/dictionary.html#p">See Sampling Probability, <i>p</i></a>
    * @param rf Currently internally fixed at 2. Unless dstMem is not configured with a valid
@@ -102,12 +108,13 @@ class DirectQuickSelectSketch extends DirectQuickSelectSketchR {
   DirectQuickSelectSketch(
       final int lgNomLongs,
       final long seed,
+      final Hasher hasher,
       final float p,
       final ResizeFactor rf,
       final MemoryRequestServer memReqSvr,
       final WritableMemory dstMem,
       final boolean unionGadget) {
-    super(seed, dstMem);
+    super(seed, hasher, dstMem);
 
     //Choose family, preambleLongs
     final Family family;
@@ -143,7 +150,7 @@ class DirectQuickSelectSketch extends DirectQuickSelectSketchR {
     insertLgArrLongs(dstMem, lgArrLongs);                  //byte 4
     //flags: bigEndian = readOnly = compact = ordered = false; empty = true : 00100 = 4
     insertFlags(dstMem, EMPTY_FLAG_MASK);                  //byte 5
-    insertSeedHash(dstMem, computeSeedHash(seed));    //bytes 6,7
+    insertSeedHash(dstMem, hasher.computeSeedHash(seed)); //bytes 6,7
     insertCurCount(dstMem, 0);                             //bytes 8-11
     insertP(dstMem, p);                                    //bytes 12-15
     final long thetaLong = (long)(p * LONG_MAX_VALUE_AS_DOUBLE);
@@ -169,6 +176,21 @@ class DirectQuickSelectSketch extends DirectQuickSelectSketchR {
    * @return instance of this sketch
    */
   static DirectQuickSelectSketch writableWrap(final WritableMemory srcMem, final long seed) {
+    return writableWrap(srcMem, seed, null);
+  }
+
+  /**
+   * Wrap a sketch around the given source Memory containing sketch data that originated from
+   * this sketch, using the given MemoryRequestServer when the sketch needs more memory.
+   * @param srcMem <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
+   * The given Memory object must be in hash table form and not read only.
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>
+   * @param memReqSvr a given instance of a MemoryRequestServer, or null to use the one of the
+   * given Memory
+   * @return instance of this sketch
+   */
+  static DirectQuickSelectSketch writableWrap(final WritableMemory srcMem, final long seed,
+      final MemoryRequestServer memReqSvr) {
     final int preambleLongs = extractPreLongs(srcMem);                  //byte 0
     final int lgNomLongs = extractLgNomLongs(srcMem);                   //byte 3
     final int lgArrLongs = extractLgArrLongs(srcMem);                   //byte 4
@@ -182,8 +204,10 @@ class DirectQuickSelectSketch extends DirectQuickSelectSketchR {
     }
 
     final DirectQuickSelectSketch dqss =
-        new DirectQuickSelectSketch(seed, srcMem);
+        new DirectQuickSelectSketch(seed, Hasher.seedHashToHasher(
+            (short) extractSeedHash(srcMem), seed), srcMem);
     dqss.hashTableThreshold_ = setHashTableThreshold(lgNomLongs, lgArrLongs);
+    dqss.memReqSvr_ = memReqSvr;
     return dqss;
   }
 
@@ -200,7 +224,8 @@ class DirectQuickSelectSketch extends DirectQuickSelectSketchR {
     final int lgArrLongs = extractLgArrLongs(srcMem);                   //byte 4
 
     final DirectQuickSelectSketch dqss =
-        new DirectQuickSelectSketch(seed, srcMem);
+        new DirectQuickSelectSketch(seed, Hasher.seedHashToHasher(
+            (short) extractSeedHash(srcMem), seed), srcMem);
     dqss.hashTableThreshold_ = setHashTableThreshold(lgNomLongs, lgArrLongs);
     return dqss;
   }
@@ -214,7 +239,7 @@ class DirectQuickSelectSketch extends DirectQuickSelectSketchR {
     final int lgNomLongs = getLgNomLongs();
     final int preambleLongs = wmem_.getByte(PREAMBLE_LONGS_BYTE) & 0X3F;
     if (getRetainedEntries(true) > (1 << lgNomLongs)) {
-      quickSelectAndRebuild(wmem_, preambleLongs, lgNomLongs);
+      quickSelectAndRebuild(wmem_, preambleLongs, lgNomLongs, rebuildPool_);
     }
     return this;
   }
@@ -239,6 +264,11 @@ class DirectQuickSelectSketch extends DirectQuickSelectSketchR {
 
   //restricted methods
 
+  @Override
+  ForkJoinPool getRebuildPool() {
+    return rebuildPool_;
+  }
+
   @Override
   UpdateReturnState hashUpdate(final long hash) {
     HashOperations.checkHashCorruption(hash);
@@ -271,7 +301,7 @@ class DirectQuickSelectSketch extends DirectQuickSelectSketchR {
         assert (lgArrLongs == (lgNomLongs + 1))
             : "lgArr: " + lgArrLongs + ", lgNom: " + lgNomLongs;
         //rebuild, refresh curCount based on # values in the hashtable.
-        quickSelectAndRebuild(wmem_, preambleLongs, lgNomLongs);
+        quickSelectAndRebuild(wmem_, preambleLongs, lgNomLongs, rebuildPool_);
         return InsertedCountIncrementedRebuilt;
       } //end of rebuild, exit
 
@@ -298,7 +328,12 @@ class DirectQuickSelectSketch extends DirectQuickSelectSketchR {
 
           final WritableMemory newDstMem = memReqSvr_.request(reqBytes);
 
-          moveAndResize(wmem_, preambleLongs, lgArrLongs, newDstMem, tgtLgArrLongs, thetaLong);
+          try {
+            moveAndResize(wmem_, preambleLongs, lgArrLongs, newDstMem, tgtLgArrLongs, thetaLong);
+          } catch (final RuntimeException e) {
+            memReqSvr_.requestClose(newDstMem, wmem_); //the new memory is not used
+            throw e;
+          }
 
           memReqSvr_.requestClose(wmem_, newDstMem);
 
@@ -35,12 +35,14 @@ import static org.apache.datasketches.theta.PreambleUtil.extractCurCount;
 import static org.apache.datasketches.theta.PreambleUtil.extractLgArrLongs;
 import static org.apache.datasketches.theta.PreambleUtil.extractLgNomLongs;
 import static org.apache.datasketches.theta.PreambleUtil.extractPreLongs;
+import static org.apache.datasketches.theta.PreambleUtil.extractSeedHash;
 import static org.apache.datasketches.theta.PreambleUtil.extractThetaLong;
 import static org.apache.datasketches.theta.PreambleUtil.insertThetaLong;
 
 import org.apache.datasketches.Family;
 import org.apache.datasketches.ResizeFactor;
 import org.apache.datasketches.SketchesReadOnlyException;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableMemory;
 
@@ -58,12 +60,14 @@ import org.apache.datasketches.memory.WritableMemory;
 class DirectQuickSelectSketchR extends UpdateSketch {
   static final double DQS_RESIZE_THRESHOLD  = 15.0 / 16.0; //tuned for space
   final long seed_; //provided, kept only on heap, never serialized.
+  final Hasher hasher_; //recovered from the seedHash, kept only on heap, never serialized.
   int hashTableThreshold_; //computed, kept only on heap, never serialized.
   WritableMemory wmem_; //A WritableMemory for child class, but no write methods here
 
   //only called by DirectQuickSelectSketch and below
-  DirectQuickSelectSketchR(final long seed, final WritableMemory wmem) {
+  DirectQuickSelectSketchR(final long seed, final Hasher hasher, final WritableMemory wmem) {
     seed_ = seed;
+    hasher_ = hasher;
     wmem_ = wmem;
   }
 
@@ -84,7 +88,8 @@ class DirectQuickSelectSketchR extends UpdateSketch {
     checkMemIntegrity(srcMem, seed, preambleLongs, lgNomLongs, lgArrLongs);
 
     final DirectQuickSelectSketchR dqssr =
-        new DirectQuickSelectSketchR(seed, (WritableMemory) srcMem);
+        new DirectQuickSelectSketchR(seed, Hasher.seedHashToHasher(
+            (short) extractSeedHash(srcMem), seed), (WritableMemory) srcMem);
     dqssr.hashTableThreshold_ = setHashTableThreshold(lgNomLongs, lgArrLongs);
     return dqssr;
   }
@@ -103,7 +108,8 @@ class DirectQuickSelectSketchR extends UpdateSketch {
     final int lgArrLongs = srcMem.getByte(LG_ARR_LONGS_BYTE) & 0XFF;
 
     final DirectQuickSelectSketchR dqss =
-        new DirectQuickSelectSketchR(seed, (WritableMemory) srcMem);
+        new DirectQuickSelectSketchR(seed, Hasher.seedHashToHasher(
+            (short) extractSeedHash(srcMem), seed), (WritableMemory) srcMem);
     dqss.hashTableThreshold_ = setHashTableThreshold(lgNomLongs, lgArrLongs);
     return dqss;
   }
@@ -202,6 +208,11 @@ class DirectQuickSelectSketchR extends UpdateSketch {
     return seed_;
   }
 
+  @Override
+  Hasher getHasher() {
+    return hasher_;
+  }
+
   @Override
   public UpdateSketch rebuild() {
     throw new SketchesReadOnlyException();
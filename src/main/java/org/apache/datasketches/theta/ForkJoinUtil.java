@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static java.lang.Math.max;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Sizing of the fork/join tasks that process ranges of sketches in parallel.
+ */
+final class ForkJoinUtil {
+
+  /**
+   * The minimum number of inputs processed by a single task.
+   */
+  static final int MIN_LEAF_SIZE = 64;
+
+  /**
+   * The number of leaf tasks per worker thread, which allows work stealing to balance the load.
+   */
+  private static final int LEAVES_PER_THREAD = 4;
+
+  private ForkJoinUtil() {}
+
+  /**
+   * Returns the number of inputs processed by a single leaf task.
+   * @param numInputs the total number of inputs
+   * @param pool the ForkJoinPool that runs the tasks
+   * @return the number of inputs processed by a single leaf task
+   */
+  static int leafSize(final int numInputs, final ForkJoinPool pool) {
+    final int numLeaves = pool.getParallelism() * LEAVES_PER_THREAD;
+    return max(MIN_LEAF_SIZE, (numInputs + numLeaves - 1) / numLeaves);
+  }
+}
@@ -35,6 +35,7 @@ import static org.apache.datasketches.theta.PreambleUtil.extractLgNomLongs;
 import static org.apache.datasketches.theta.PreambleUtil.extractLgResizeFactor;
 import static org.apache.datasketches.theta.PreambleUtil.extractP;
 import static org.apache.datasketches.theta.PreambleUtil.extractPreLongs;
+import static org.apache.datasketches.theta.PreambleUtil.extractSeedHash;
 import static org.apache.datasketches.theta.PreambleUtil.extractThetaLong;
 import static org.apache.datasketches.theta.UpdateReturnState.InsertedCountIncremented;
 import static org.apache.datasketches.theta.UpdateReturnState.InsertedCountNotIncremented;
@@ -45,6 +46,7 @@ import org.apache.datasketches.Family;
 import org.apache.datasketches.HashOperations;
 import org.apache.datasketches.ResizeFactor;
 import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableMemory;
 
@@ -59,7 +61,7 @@ import org.apache.datasketches.memory.WritableMemory;
  * @author Kevin Lang
  */
 final class HeapAlphaSketch extends HeapUpdateSketch {
-  private static final int ALPHA_MIN_LG_NOM_LONGS = 9; //The smallest Log2 k allowed => 512.
+  static final int ALPHA_MIN_LG_NOM_LONGS = 9; //The smallest Log2 k allowed => 512.
   private final double alpha_;  // computed from lgNomLongs
   private final long split1_;   // computed from alpha and p
 
@@ -72,9 +74,9 @@ final class HeapAlphaSketch extends HeapUpdateSketch {
   private long[] cache_;
   private boolean dirty_ = false;
 
-  private HeapAlphaSketch(final int lgNomLongs, final long seed, final float p,
-      final ResizeFactor rf, final double alpha, final long split1) {
-    super(lgNomLongs, seed, p, rf);
+  private HeapAlphaSketch(final int lgNomLongs, final long seed, final Hasher hasher,
+      final float p, final ResizeFactor rf, final double alpha, final long split1) {
+    super(lgNomLongs, seed, p, rf, hasher);
     alpha_ = alpha;
     split1_ = split1;
   }
@@ -84,12 +86,13 @@ final class HeapAlphaSketch extends HeapUpdateSketch {
    *
    * @param lgNomLongs <a href="{@docRoot}/resources/dictionary.html#lgNomLongs">See lgNomLongs</a>
    * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>
+   * @param hasher the Hasher used to hash the input data
    * @param p <a href="{@docRoot}/resources/dictionary.html#p">See Sampling Probability, <i>p</i></a>
    * @param rf <a href="{@docRoot}/resources/dictionary.html#resizeFactor">See Resize Factor</a>
    * @return instance of this sketch
    */
-  static HeapAlphaSketch newHeapInstance(final int lgNomLongs, final long seed, final float p,
-      final ResizeFactor rf) {
+  static HeapAlphaSketch newHeapInstance(final int lgNomLongs, final long seed,
+      final Hasher hasher, final float p, final ResizeFactor rf) {
 
     if (lgNomLongs < ALPHA_MIN_LG_NOM_LONGS) {
       throw new SketchesArgumentException(
@@ -100,7 +103,8 @@ final class HeapAlphaSketch extends HeapUpdateSketch {
     final double alpha = nomLongs / (nomLongs + 1.0);
     final long split1 = (long) (((p * (alpha + 1.0)) / 2.0) * LONG_MAX_VALUE_AS_DOUBLE);
 
-    final HeapAlphaSketch has = new HeapAlphaSketch(lgNomLongs, seed, p, rf, alpha, split1);
+    final HeapAlphaSketch has = new HeapAlphaSketch(lgNomLongs, seed, hasher, p, rf, alpha,
+        split1);
 
     final int lgArrLongs = startingSubMultiple(lgNomLongs + 1, rf.lg(), MIN_LG_ARR_LONGS);
     has.lgArrLongs_ = lgArrLongs;
@@ -139,7 +143,9 @@ final class HeapAlphaSketch extends HeapUpdateSketch {
       memRF = ResizeFactor.X2; //X2 always works.
     }
 
-    final HeapAlphaSketch has = new HeapAlphaSketch(lgNomLongs, seed, p, memRF, alpha, split1);
+    final Hasher hasher = Hasher.seedHashToHasher((short) extractSeedHash(srcMem), seed);
+    final HeapAlphaSketch has = new HeapAlphaSketch(lgNomLongs, seed, hasher, p, memRF, alpha,
+        split1);
     has.lgArrLongs_ = lgArrLongs;
     has.hashTableThreshold_ = setHashTableThreshold(lgNomLongs, lgArrLongs);
     has.curCount_ = extractCurCount(srcMem);
@@ -147,6 +153,7 @@ final class HeapAlphaSketch extends HeapUpdateSketch {
     has.empty_ = PreambleUtil.isEmptyFlag(srcMem);
     has.cache_ = new long[1 << lgArrLongs];
     srcMem.getLongArray(preambleLongs << 3, has.cache_, 0, 1 << lgArrLongs); //read in as hash table
+    has.dirty_ = has.thetaLong_ <= split1; //in sketch mode the table may hold stale values
     return has;
   }
 
@@ -501,7 +508,7 @@ final class HeapAlphaSketch extends HeapUpdateSketch {
    * @return the variance.
    */
   // @formatter:on
-  private static final double getVariance(final double k, final double p, final double alpha,
+  static final double getVariance(final double k, final double p, final double alpha,
       final double theta, final int count) {
     final double kPlus1 = k + 1.0;
     final double y = 1.0 / p;
@@ -551,7 +558,7 @@ final class HeapAlphaSketch extends HeapUpdateSketch {
    * @param lgArrLongs <a href="{@docRoot}/resources/dictionary.html#lgArrLongs">See lgArrLongs</a>.
    * @return the hash table threshold
    */
-  private static final int setHashTableThreshold(final int lgNomLongs, final int lgArrLongs) {
+  static final int setHashTableThreshold(final int lgNomLongs, final int lgArrLongs) {
     final double fraction = (lgArrLongs <= lgNomLongs) ? RESIZE_THRESHOLD : REBUILD_THRESHOLD;
     return (int) Math.floor(fraction * (1 << lgArrLongs));
   }
@@ -21,7 +21,6 @@ package org.apache.datasketches.theta;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
-import static org.apache.datasketches.QuickSelect.selectExcludingZeros;
 import static org.apache.datasketches.Util.LONG_MAX_VALUE_AS_DOUBLE;
 import static org.apache.datasketches.Util.MIN_LG_ARR_LONGS;
 import static org.apache.datasketches.Util.REBUILD_THRESHOLD;
@@ -34,6 +33,7 @@ import static org.apache.datasketches.theta.PreambleUtil.extractLgNomLongs;
 import static org.apache.datasketches.theta.PreambleUtil.extractLgResizeFactor;
 import static org.apache.datasketches.theta.PreambleUtil.extractP;
 import static org.apache.datasketches.theta.PreambleUtil.extractPreLongs;
+import static org.apache.datasketches.theta.PreambleUtil.extractSeedHash;
 import static org.apache.datasketches.theta.PreambleUtil.extractThetaLong;
 import static org.apache.datasketches.theta.UpdateReturnState.InsertedCountIncremented;
 import static org.apache.datasketches.theta.UpdateReturnState.InsertedCountIncrementedRebuilt;
@@ -41,9 +41,13 @@ import static org.apache.datasketches.theta.UpdateReturnState.InsertedCountIncre
 import static org.apache.datasketches.theta.UpdateReturnState.RejectedDuplicate;
 import static org.apache.datasketches.theta.UpdateReturnState.RejectedOverTheta;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.datasketches.Family;
 import org.apache.datasketches.HashOperations;
+import org.apache.datasketches.QuickSelect;
 import org.apache.datasketches.ResizeFactor;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableMemory;
 
@@ -63,11 +67,22 @@ class HeapQuickSelectSketch extends HeapUpdateSketch {
 
   private long[] cache_;
 
-  private HeapQuickSelectSketch(final int lgNomLongs, final long seed, final float p,
-      final ResizeFactor rf, final int preambleLongs, final Family family) {
-    super(lgNomLongs, seed, p, rf);
+  //Incremental resize and rebuild, never serialized
+  private final boolean incrementalResize_;
+  private long[] resizeSrc_; //the hash table being migrated into cache_, or null
+  private int resizeSrcLgArrLongs_;
+  private int resizeIndex_; //the next slot of resizeSrc_ to migrate
+  private int resizeSlotsPerUpdate_;
+  private IncrementalRebuild rebuild_; //the rebuild in progress, or null
+
+  ForkJoinPool rebuildPool_ = null; //never serialized, null rebuilds sequentially
+
+  private HeapQuickSelectSketch(final int lgNomLongs, final long seed, final Hasher hasher,
+      final float p, final ResizeFactor rf, final int preambleLongs, final Family family) {
+    super(lgNomLongs, seed, p, rf, hasher);
     preambleLongs_ = preambleLongs;
     MY_FAMILY = family;
+    incrementalResize_ = false;
   }
 
   /**
@@ -75,14 +90,34 @@ class HeapQuickSelectSketch extends HeapUpdateSketch {
    *
    * @param lgNomLongs <a href="{@docRoot}/resources/dictionary.html#lgNomLogs">See lgNomLongs</a>.
    * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
+   * @param hasher the Hasher used to hash the input data
    * @param p <a href="{@docRoot}/resources/dictionary.html#p">See Sampling Probability, <i>p</i></a>
    * @param rf <a href="{@docRoot}/resources/dictionary.html#resizeFactor">See Resize Factor</a>
    * @param unionGadget true if this sketch is implementing the Union gadget function.
    * Otherwise, it is behaving as a normal QuickSelectSketch.
    */
-  HeapQuickSelectSketch(final int lgNomLongs, final long seed, final float p,
+  HeapQuickSelectSketch(final int lgNomLongs, final long seed, final Hasher hasher, final float p,
       final ResizeFactor rf, final boolean unionGadget) {
-    super(lgNomLongs, seed, p, rf);
+    this(lgNomLongs, seed, hasher, p, rf, unionGadget, false);
+  }
+
+  /**
+   * Construct a new sketch instance on the java heap.
+   *
+   * @param lgNomLongs <a href="{@docRoot}/resources/dictionary.html#lgNomLogs">See lgNomLongs</a>.
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
+   * @param hasher the Hasher used to hash the input data
+   * @param p <a href="{@docRoot}/resources/dictionary.html#p">See Sampling Probability, <i>p</i></a>
+   * @param rf <a href="{@docRoot}/resources/dictionary.html#resizeFactor">See Resize Factor</a>
+   * @param unionGadget true if this sketch is implementing the Union gadget function.
+   * Otherwise, it is behaving as a normal QuickSelectSketch.
+   * @param incrementalResize true if a resize or a rebuild of the hash table is spread over the
+   * following updates instead of done all at once.
+   */
+  HeapQuickSelectSketch(final int lgNomLongs, final long seed, final Hasher hasher, final float p,
+      final ResizeFactor rf, final boolean unionGadget, final boolean incrementalResize) {
+    super(lgNomLongs, seed, p, rf, hasher);
+    incrementalResize_ = incrementalResize;
 
     //Choose family, preambleLongs
     if (unionGadget) {
@@ -128,8 +163,9 @@ class HeapQuickSelectSketch extends HeapUpdateSketch {
       memRF = ResizeFactor.X2; //X2 always works.
     }
 
-    final HeapQuickSelectSketch hqss = new HeapQuickSelectSketch(lgNomLongs, seed, p, memRF,
-        preambleLongs, family);
+    final Hasher hasher = Hasher.seedHashToHasher((short) extractSeedHash(srcMem), seed);
+    final HeapQuickSelectSketch hqss = new HeapQuickSelectSketch(lgNomLongs, seed, hasher, p,
+        memRF, preambleLongs, family);
     hqss.lgArrLongs_ = lgArrLongs;
     hqss.hashTableThreshold_ = setHashTableThreshold(lgNomLongs, lgArrLongs);
     hqss.curCount_ = extractCurCount(srcMem);
@@ -154,11 +190,13 @@ class HeapQuickSelectSketch extends HeapUpdateSketch {
 
   @Override
   public int getRetainedEntries(final boolean valid) {
+    completeResize();
     return curCount_;
   }
 
   @Override
   public long getThetaLong() {
+    completeResize();
     return thetaLong_;
   }
 
@@ -169,6 +207,7 @@ class HeapQuickSelectSketch extends HeapUpdateSketch {
 
   @Override
   public HashIterator iterator() {
+    completeResize();
     return new HeapHashIterator(cache_, 1 << lgArrLongs_, thetaLong_);
   }
 
@@ -181,6 +220,7 @@ class HeapQuickSelectSketch extends HeapUpdateSketch {
 
   @Override
   public UpdateSketch rebuild() {
+    completeResize();
     if (getRetainedEntries(true) > (1 << getLgNomLongs())) {
       quickSelectAndRebuild();
     }
@@ -191,6 +231,8 @@ class HeapQuickSelectSketch extends HeapUpdateSketch {
   public void reset() {
     final ResizeFactor rf = getResizeFactor();
     final int lgArrLongsSM = startingSubMultiple(lgNomLongs_ + 1, rf.lg(), MIN_LG_ARR_LONGS);
+    resizeSrc_ = null;
+    rebuild_ = null;
     if (lgArrLongsSM == lgArrLongs_) {
       final int arrLongs = cache_.length;
       assert (1 << lgArrLongs_) == arrLongs;
@@ -210,6 +252,7 @@ class HeapQuickSelectSketch extends HeapUpdateSketch {
 
   @Override
   long[] getCache() {
+    completeResize();
     return cache_;
   }
 
@@ -242,13 +285,31 @@ class HeapQuickSelectSketch extends HeapUpdateSketch {
   UpdateReturnState hashUpdate(final long hash) {
     HashOperations.checkHashCorruption(hash);
     empty_ = false;
+    if (resizeSrc_ != null) {
+      migrateSlots(resizeSlotsPerUpdate_);
+    }
+    if ((rebuild_ != null) && rebuild_.step(rebuild_.stepsPerUpdate_)) {
+      finishRebuild();
+    }
 
     //The over-theta test
     if (HashOperations.continueCondition(thetaLong_, hash)) {
       return RejectedOverTheta; //signal that hash was rejected due to theta.
     }
 
-    //The duplicate test
+    if (rebuild_ != null) { //the old thetaLong is still in effect
+      if (!rebuild_.insert(hash)) {
+        return RejectedDuplicate;
+      }
+      curCount_++;
+      return InsertedCountIncremented;
+    }
+
+    //The duplicate test, which must also search the table being migrated
+    if ((resizeSrc_ != null)
+        && (HashOperations.hashSearch(resizeSrc_, resizeSrcLgArrLongs_, hash) >= 0)) {
+      return RejectedDuplicate;
+    }
     if (HashOperations.hashSearchOrInsert(cache_, lgArrLongs_, hash) >= 0) {
       return RejectedDuplicate; //Duplicate, not inserted
     }
@@ -256,6 +317,7 @@ class HeapQuickSelectSketch extends HeapUpdateSketch {
     curCount_++;
 
     if (isOutOfSpace(curCount_)) { //we need to do something, we are out of space
+      completeResize(); //normally already complete
       //must rebuild or resize
       if (lgArrLongs_ <= lgNomLongs_) { //resize
         resizeCache();
@@ -263,7 +325,11 @@ class HeapQuickSelectSketch extends HeapUpdateSketch {
       }
       //Already at tgt size, must rebuild
       assert (lgArrLongs_ == (lgNomLongs_ + 1)) : "lgArr: " + lgArrLongs_ + ", lgNom: " + lgNomLongs_;
-      quickSelectAndRebuild(); //Changes thetaLong_, curCount_, reassigns cache
+      if (incrementalResize_) { //spread over the following updates
+        rebuild_ = new IncrementalRebuild(cache_, lgArrLongs_, lgNomLongs_, thetaLong_);
+      } else {
+        quickSelectAndRebuild(); //Changes thetaLong_, curCount_, reassigns cache
+      }
       return InsertedCountIncrementedRebuilt;
     }
     return InsertedCountIncremented;
@@ -279,6 +345,11 @@ class HeapQuickSelectSketch extends HeapUpdateSketch {
     return numEntries > hashTableThreshold_;
   }
 
+  @Override
+  ForkJoinPool getRebuildPool() {
+    return rebuildPool_;
+  }
+
   //Must resize. Changes lgArrLongs_, cache_, hashTableThreshold;
   // theta and count don't change.
   // Used by hashUpdate()
@@ -287,9 +358,21 @@ class HeapQuickSelectSketch extends HeapUpdateSketch {
     final int lgMaxArrLongs = lgNomLongs_ + 1;
     final int lgDeltaLongs = lgMaxArrLongs - lgArrLongs_;
     final int lgResizeFactor = max(min(rf.lg(), lgDeltaLongs), 1); //rf_.lg() could be 0
+    final int srcLgArrLongs = lgArrLongs_;
     lgArrLongs_ += lgResizeFactor; // new arr size
 
     final long[] tgtArr = new long[1 << lgArrLongs_];
+    if (incrementalResize_) { //cache_ becomes the source of the migration
+      hashTableThreshold_ = setHashTableThreshold(lgNomLongs_, lgArrLongs_);
+      //finish the migration before the new threshold can be reached
+      final int headroom = max(hashTableThreshold_ - curCount_, 1);
+      resizeSrc_ = cache_;
+      resizeSrcLgArrLongs_ = srcLgArrLongs;
+      resizeIndex_ = 0;
+      resizeSlotsPerUpdate_ = (((1 << srcLgArrLongs) + headroom) - 1) / headroom;
+      cache_ = tgtArr;
+      return;
+    }
     final int newCount = HashOperations.hashArrayInsert(cache_, tgtArr, lgArrLongs_, thetaLong_);
 
     assert newCount == curCount_;  //Assumes no dirty values.
@@ -299,17 +382,50 @@ class HeapQuickSelectSketch extends HeapUpdateSketch {
     hashTableThreshold_ = setHashTableThreshold(lgNomLongs_, lgArrLongs_);
   }
 
+  //Migrates up to the given number of slots of the old hash table of an incremental resize.
+  // Theta does not change during a resize, so every old value is still valid.
+  private final void migrateSlots(final int slots) {
+    final long[] src = resizeSrc_;
+    final int end = min(resizeIndex_ + slots, src.length);
+    for (int i = resizeIndex_; i < end; i++) {
+      final long hash = src[i];
+      if (hash != 0) { HashOperations.hashSearchOrInsert(cache_, lgArrLongs_, hash); }
+    }
+    resizeIndex_ = end;
+    if (end == src.length) { resizeSrc_ = null; }
+  }
+
+  //Completes an incremental resize or rebuild in progress, if any
+  final void completeResize() {
+    if (resizeSrc_ != null) {
+      migrateSlots(resizeSrc_.length);
+    }
+    if (rebuild_ != null) {
+      rebuild_.step(Integer.MAX_VALUE);
+      finishRebuild();
+    }
+  }
+
+  //Switches to the new thetaLong and hash table of a done incremental rebuild
+  private final void finishRebuild() {
+    thetaLong_ = rebuild_.newThetaLong_;
+    curCount_ = rebuild_.count_;
+    cache_ = rebuild_.tgt_;
+    rebuild_ = null;
+    //hashTableThreshold stays the same
+  }
+
   //array stays the same size. Changes theta and thus count
   private final void quickSelectAndRebuild() {
     final int arrLongs = 1 << lgArrLongs_; // generally 2 * k,
 
-    final int pivot = (1 << lgNomLongs_) + 1; // pivot for QS = k + 1
-
-    thetaLong_ = selectExcludingZeros(cache_, curCount_, pivot); //messes up the cache_
+    //QS pivot = k + 1, large tables are selected in parallel. May mess up the cache_
+    thetaLong_ = Rebuilder.rebuildThetaLong(cache_, curCount_, lgNomLongs_, thetaLong_,
+        rebuildPool_);
 
     // now we rebuild to clean up dirty data, update count, reconfigure as a hash table
     final long[] tgtArr = new long[arrLongs];
-    curCount_ = HashOperations.hashArrayInsert(cache_, tgtArr, lgArrLongs_, thetaLong_);
+    curCount_ = Rebuilder.rebuildHashTable(cache_, tgtArr, lgArrLongs_, thetaLong_, rebuildPool_);
     cache_ = tgtArr;
     //hashTableThreshold stays the same
   }
@@ -326,4 +442,158 @@ class HeapQuickSelectSketch extends HeapUpdateSketch {
     return (int) Math.floor(fraction * (1 << lgArrLongs));
   }
 
+  /**
+   * The rebuild of a full size hash table, spread over the updates that follow it. The new
+   * thetaLong is the (k+1)th smallest value of the old table, which is found by counting the
+   * values into small buckets, then selecting within the bucket that holds it. The values below
+   * the new thetaLong are then moved into the new table. Until this is done the old thetaLong stays
+   * in effect, and the values inserted meanwhile that are not known to be below the new thetaLong
+   * are kept in a small pending table.
+   */
+  private static final class IncrementalRebuild {
+    private static final int HISTOGRAM = 0;
+    private static final int FIND = 1;
+    private static final int GATHER = 2;
+    private static final int SELECT = 3;
+    private static final int MOVE_SRC = 4;
+    private static final int MOVE_PENDING = 5;
+    private static final int DONE = 6;
+    private static final int LG_VALUES_PER_BUCKET = 3;
+
+    private final long[] src_; //the old hash table, not modified
+    private final int lgArrLongs_;
+    private final long[] pending_;
+    private final int lgPendingLongs_;
+    private final int[] hist_;
+    private final int shift_;
+    private int phase_ = HISTOGRAM;
+    private int index_ = 0; //the next slot or bucket of the current phase
+    private int bucket_;
+    private int rank_; //the 1-based rank of the new thetaLong, within bucket_ once it is found
+    private long[] bucketArr_;
+    private int bucketCount_ = 0;
+    final long[] tgt_; //the new hash table
+    final int stepsPerUpdate_;
+    long newThetaLong_;
+    int count_ = 0; //the number of values in tgt_
+
+    IncrementalRebuild(final long[] src, final int lgArrLongs, final int lgNomLongs,
+        final long thetaLong) {
+      src_ = src;
+      lgArrLongs_ = lgArrLongs;
+      tgt_ = new long[1 << lgArrLongs];
+      lgPendingLongs_ = lgNomLongs - 1;
+      pending_ = new long[1 << lgPendingLongs_];
+      final int lgBuckets = lgNomLongs - LG_VALUES_PER_BUCKET;
+      hist_ = new int[1 << lgBuckets];
+      shift_ = max(0, Long.SIZE - Long.numberOfLeadingZeros(thetaLong) - lgBuckets);
+      rank_ = (1 << lgNomLongs) + 1; // (K+1) pivot, as for QuickSelect
+      //done before the pending table is half full, which takes at least this many updates
+      final int updates = (pending_.length >>> 1) - 1;
+      final int steps = (3 * src.length) + hist_.length + 1 + pending_.length;
+      stepsPerUpdate_ = ((steps + updates) - 1) / updates;
+    }
+
+    //Returns true if the given hash, which is below the old thetaLong, was inserted
+    boolean insert(final long hash) {
+      if (HashOperations.hashSearch(src_, lgArrLongs_, hash) >= 0) {
+        return false;
+      }
+      if ((phase_ < MOVE_SRC) || (hash >= newThetaLong_)) {
+        return HashOperations.hashSearchOrInsert(pending_, lgPendingLongs_, hash) < 0;
+      }
+      //below the new thetaLong, it may be pending from before the new thetaLong was known
+      if ((HashOperations.hashSearch(pending_, lgPendingLongs_, hash) >= 0)
+          || (HashOperations.hashSearchOrInsert(tgt_, lgArrLongs_, hash) >= 0)) {
+        return false;
+      }
+      count_++;
+      return true;
+    }
+
+    //Does up to about the given number of steps, returns true if the rebuild is done
+    boolean step(final int steps) {
+      int budget = steps;
+      while ((budget > 0) && (phase_ != DONE)) {
+        switch (phase_) {
+          case HISTOGRAM: {
+            final int end = index_ + min(budget, src_.length - index_);
+            for (int i = index_; i < end; i++) {
+              if (src_[i] != 0) { hist_[bucketOf(src_[i])]++; }
+            }
+            budget -= end - index_;
+            index_ = end;
+            if (end == src_.length) { next(FIND); }
+            break;
+          }
+          case FIND: {
+            final int end = index_ + min(budget, hist_.length - index_);
+            budget -= end - index_;
+            while ((index_ < end) && (hist_[index_] < rank_)) {
+              rank_ -= hist_[index_++];
+            }
+            if (index_ < end) {
+              bucket_ = index_;
+              bucketArr_ = new long[hist_[bucket_]];
+              next(GATHER);
+            }
+            break;
+          }
+          case GATHER: {
+            final int end = index_ + min(budget, src_.length - index_);
+            for (int i = index_; i < end; i++) {
+              final long v = src_[i];
+              if ((v != 0) && (bucketOf(v) == bucket_)) { bucketArr_[bucketCount_++] = v; }
+            }
+            budget -= end - index_;
+            index_ = end;
+            if (end == src_.length) { next(SELECT); }
+            break;
+          }
+          case SELECT: {
+            newThetaLong_ = QuickSelect.select(bucketArr_, 0, bucketCount_ - 1, rank_ - 1);
+            bucketArr_ = null;
+            budget--;
+            next(MOVE_SRC);
+            break;
+          }
+          case MOVE_SRC: {
+            budget = move(src_, budget);
+            if (index_ == src_.length) { next(MOVE_PENDING); }
+            break;
+          }
+          default: { //MOVE_PENDING
+            budget = move(pending_, budget);
+            if (index_ == pending_.length) { next(DONE); }
+          }
+        }
+      }
+      return phase_ == DONE;
+    }
+
+    //Moves the values below the new thetaLong of the given array into tgt_, returns the budget left
+    private int move(final long[] arr, final int budget) {
+      final int end = index_ + min(budget, arr.length - index_);
+      for (int i = index_; i < end; i++) {
+        final long v = arr[i];
+        if ((v != 0) && (v < newThetaLong_)) {
+          HashOperations.hashInsertOnly(tgt_, lgArrLongs_, v);
+          count_++;
+        }
+      }
+      final int left = budget - (end - index_);
+      index_ = end;
+      return left;
+    }
+
+    private void next(final int phase) {
+      phase_ = phase;
+      index_ = 0;
+    }
+
+    private int bucketOf(final long v) {
+      return (int) min(v >>> shift_, hist_.length - 1);
+    }
+  }
+
 }
@@ -37,7 +37,7 @@ import static org.apache.datasketches.theta.PreambleUtil.insertSerVer;
 import static org.apache.datasketches.theta.PreambleUtil.insertThetaLong;
 
 import org.apache.datasketches.ResizeFactor;
-import org.apache.datasketches.Util;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.WritableMemory;
 
 /**
@@ -50,12 +50,15 @@ abstract class HeapUpdateSketch extends UpdateSketch {
   private final long seed_;
   private final float p_;
   private final ResizeFactor rf_;
+  private final Hasher hasher_;
 
-  HeapUpdateSketch(final int lgNomLongs, final long seed, final float p, final ResizeFactor rf) {
+  HeapUpdateSketch(final int lgNomLongs, final long seed, final float p, final ResizeFactor rf,
+      final Hasher hasher) {
     lgNomLongs_ = Math.max(lgNomLongs, MIN_LG_NOM_LONGS);
     seed_ = seed;
     p_ = p;
     rf_ = rf;
+    hasher_ = hasher;
   }
 
   //Sketch
@@ -99,11 +102,16 @@ abstract class HeapUpdateSketch extends UpdateSketch {
     return seed_;
   }
 
+  @Override
+  Hasher getHasher() {
+    return hasher_;
+  }
+
   //restricted methods
 
   @Override
   short getSeedHash() {
-    return Util.computeSeedHash(getSeed());
+    return hasher_.computeSeedHash(seed_);
   }
 
   //Used by HeapAlphaSketch and HeapQuickSelectSketch
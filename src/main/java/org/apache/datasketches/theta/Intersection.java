@@ -30,6 +30,7 @@ import static org.apache.datasketches.theta.PreambleUtil.extractPreLongs;
 import static org.apache.datasketches.theta.PreambleUtil.extractSerVer;
 
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.datasketches.Family;
 import org.apache.datasketches.SketchesArgumentException;
@@ -122,6 +123,20 @@ public abstract class Intersection extends SetOperation {
    */
   public abstract void intersect(Sketch sketchIn);
 
+  /**
+   * Intersect all of the given sketches with the internal state. The result is the same as
+   * calling {@link #intersect(Sketch)} with each sketch in turn.
+   *
+   * <p>If all of the given sketches are ordered compact sketches, on the Java heap or in Memory,
+   * their sorted hash arrays are intersected together in a single sorted merge that needs no
+   * intermediate hash tables. The smallest input drives the merge, and the larger inputs are only
+   * searched, so intersecting one small sketch with many large ones is fast. Otherwise each sketch
+   * is intersected in turn.</p>
+   *
+   * @param sketches the given sketches, none of which may be null
+   */
+  public abstract void intersectAll(List<? extends Sketch> sketches);
+
   /**
    * Perform intersect set operation on the two given sketch arguments and return the result as an
    * ordered CompactSketch on the heap.
@@ -136,6 +151,9 @@ public abstract class Intersection extends SetOperation {
   /**
    * Perform intersect set operation on the two given sketches and return the result as a
    * CompactSketch.
+   *
+   * <p>If both sketches are ordered compact sketches, on the Java heap or in Memory, the result
+   * is computed by a sorted merge of their hash arrays, which needs no hash table.</p>
    * @param a The first sketch argument
    * @param b The second sketch argument
    * @param dstOrdered
@@ -27,7 +27,6 @@ import static org.apache.datasketches.HashOperations.hashSearch;
 import static org.apache.datasketches.HashOperations.minLgHashTableSize;
 import static org.apache.datasketches.Util.MIN_LG_ARR_LONGS;
 import static org.apache.datasketches.Util.REBUILD_THRESHOLD;
-import static org.apache.datasketches.Util.computeSeedHash;
 import static org.apache.datasketches.theta.PreambleUtil.EMPTY_FLAG_MASK;
 import static org.apache.datasketches.theta.PreambleUtil.FAMILY_BYTE;
 import static org.apache.datasketches.theta.PreambleUtil.FLAGS_BYTE;
@@ -55,12 +54,14 @@ import static org.apache.datasketches.theta.PreambleUtil.insertThetaLong;
 import static org.apache.datasketches.theta.PreambleUtil.setEmpty;
 
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.datasketches.Family;
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.SketchesReadOnlyException;
 import org.apache.datasketches.SketchesStateException;
 import org.apache.datasketches.Util;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableMemory;
 
@@ -92,28 +93,29 @@ class IntersectionImpl extends Intersection {
    * Constructor: Sets the class finals and computes, sets and checks the seedHash.
    * @param wmem Can be either a Source(e.g. wrap) or Destination (new Direct) WritableMemory.
    * @param seed Used to validate incoming sketch arguments.
+   * @param hasher Used with the seed to compute the seedHash. Ignored for a Source WritableMemory.
    * @param dstMemFlag The given memory is a Destination (new Direct) WritableMemory.
    * @param readOnly True if memory is to be treated as read only.
    */
-  protected IntersectionImpl(final WritableMemory wmem, final long seed, final boolean dstMemFlag,
-      final boolean readOnly) {
+  protected IntersectionImpl(final WritableMemory wmem, final long seed, final Hasher hasher,
+      final boolean dstMemFlag, final boolean readOnly) {
     readOnly_ = readOnly;
     if (wmem != null) {
       wmem_ = wmem;
       if (dstMemFlag) { //DstMem: compute & store seedHash, no seedhash checking
         checkMinSizeMemory(wmem);
         maxLgArrLongs_ = !readOnly ? getMaxLgArrLongs(wmem) : 0; //Only Off Heap
-        seedHash_ = computeSeedHash(seed);
+        seedHash_ = hasher.computeSeedHash(seed);
         wmem_.putShort(SEED_HASH_SHORT, seedHash_);
       } else { //SrcMem:gets and stores the seedHash, checks mem_seedHash against the seed
         seedHash_ = wmem_.getShort(SEED_HASH_SHORT);
-        Util.checkSeedHashes(seedHash_, computeSeedHash(seed)); //check for seed hash conflict
+        Hasher.seedHashToHasher(seedHash_, seed); //check for seed hash conflict
         maxLgArrLongs_ = 0;
       }
     } else { //compute & store seedHash
       wmem_ = null;
       maxLgArrLongs_ = 0;
-      seedHash_ = computeSeedHash(seed);
+      seedHash_ = hasher.computeSeedHash(seed);
     }
   }
 
@@ -122,12 +124,13 @@ class IntersectionImpl extends Intersection {
    * Called by SetOperationBuilder, test.
    *
    * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Seed</a>
+   * @param hasher the Hasher of the sketches to be intersected
    * @return a new IntersectionImpl on the Java heap
    */
-  static IntersectionImpl initNewHeapInstance(final long seed) {
+  static IntersectionImpl initNewHeapInstance(final long seed, final Hasher hasher) {
     final boolean dstMemFlag = false;
     final boolean readOnly = false;
-    final IntersectionImpl impl = new IntersectionImpl(null, seed, dstMemFlag, readOnly);
+    final IntersectionImpl impl = new IntersectionImpl(null, seed, hasher, dstMemFlag, readOnly);
     impl.hardReset();
     return impl;
   }
@@ -137,11 +140,13 @@ class IntersectionImpl extends Intersection {
    * Called by SetOperationBuilder, test.
    *
    * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Seed</a>
+   * @param hasher the Hasher of the sketches to be intersected
    * @param dstMem destination Memory
    * <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
    * @return a new IntersectionImpl that may be off-heap
    */
-  static IntersectionImpl initNewDirectInstance(final long seed, final WritableMemory dstMem) {
+  static IntersectionImpl initNewDirectInstance(final long seed, final Hasher hasher,
+      final WritableMemory dstMem) {
     //Load Preamble
     //Pre0
     dstMem.clear(0, CONST_PREAMBLE_LONGS << 3);
@@ -161,7 +166,7 @@ class IntersectionImpl extends Intersection {
     //Initialize
     final boolean dstMemFlag = true;
     final boolean readOnly = false;
-    final IntersectionImpl impl = new IntersectionImpl(dstMem, seed, dstMemFlag, readOnly);
+    final IntersectionImpl impl = new IntersectionImpl(dstMem, seed, hasher, dstMemFlag, readOnly);
     impl.hardReset();
     return impl;
   }
@@ -176,8 +181,9 @@ class IntersectionImpl extends Intersection {
   static IntersectionImpl heapifyInstance(final Memory srcMem, final long seed) {
     final boolean dstMemFlag = false;
     final boolean readOnly = false;
-    final IntersectionImpl impl = new IntersectionImpl(null, seed, dstMemFlag, readOnly);
     memChecks(srcMem);
+    final Hasher hasher = Hasher.seedHashToHasher(srcMem.getShort(SEED_HASH_SHORT), seed);
+    final IntersectionImpl impl = new IntersectionImpl(null, seed, hasher, dstMemFlag, readOnly);
 
     //Initialize
     impl.lgArrLongs_ = extractLgArrLongs(srcMem);
@@ -207,7 +213,7 @@ class IntersectionImpl extends Intersection {
       final long seed,
       final boolean readOnly) {
     final boolean dstMemFlag = false;
-    final IntersectionImpl impl = new IntersectionImpl(srcMem, seed, dstMemFlag, readOnly);
+    final IntersectionImpl impl = new IntersectionImpl(srcMem, seed, null, dstMemFlag, readOnly);
     memChecks(srcMem);
     impl.lgArrLongs_ = extractLgArrLongs(srcMem);
     impl.curCount_ = extractCurCount(srcMem);
@@ -221,6 +227,16 @@ class IntersectionImpl extends Intersection {
      final WritableMemory dstMem) {
     if ((wmem_ != null) && readOnly_) { throw new SketchesReadOnlyException(); }
     hardReset();
+    if ((a != null) && (b != null) && a.isOrdered() && b.isOrdered() && !a.isEmpty()
+        && !b.isEmpty()) { //both ordered compact, a sorted merge needs no hash table
+      Util.checkSeedHashes(seedHash_, a.getSeedHash());
+      Util.checkSeedHashes(seedHash_, b.getSeedHash());
+      final long minThetaLong = min(a.getThetaLong(), b.getThetaLong());
+      final long[] matchSet = OrderedHashArray.intersect(
+          new OrderedHashArray[] {new OrderedHashArray(a), new OrderedHashArray(b)}, minThetaLong);
+      return CompactOperations.componentsToCompact(minThetaLong, matchSet.length, seedHash_,
+          false, true, true, dstOrdered, dstMem, matchSet);
+    }
     intersect(a);
     intersect(b);
     final CompactSketch csk = getResult(dstOrdered, dstMem);
@@ -229,10 +245,11 @@ class IntersectionImpl extends Intersection {
   }
 
   @Override
-  public void intersect(final Sketch sketchIn) {
-    if (sketchIn == null) {
+  public void intersect(final Sketch sketch) {
+    if (sketch == null) {
       throw new SketchesArgumentException("Intersection argument must not be null.");
     }
+    final Sketch sketchIn = sketch.snapshot();
     if ((wmem_ != null) && readOnly_) { throw new SketchesReadOnlyException(); }
     if (empty_ || sketchIn.isEmpty()) { //empty rule
       //Because of the def of null above and the Empty Rule (which is OR), empty_ must be true.
@@ -270,28 +287,7 @@ class IntersectionImpl extends Intersection {
 
     // state 5
     else if ((curCount_ < 0) && (sketchInEntries > 0)) {
-      curCount_ = sketchIn.getRetainedEntries(true);
-      final int requiredLgArrLongs = minLgHashTableSize(curCount_, REBUILD_THRESHOLD);
-      final int priorLgArrLongs = lgArrLongs_; //prior only used in error message
-      lgArrLongs_ = requiredLgArrLongs;
-
-      if (wmem_ != null) { //Off heap, check if current dstMem is large enough
-        insertCurCount(wmem_, curCount_);
-        insertLgArrLongs(wmem_, lgArrLongs_);
-        if (requiredLgArrLongs <= maxLgArrLongs_) {
-          wmem_.clear(CONST_PREAMBLE_LONGS << 3, 8 << lgArrLongs_); //clear only what required
-        }
-        else { //not enough space in dstMem
-          final int requiredBytes = (8 << requiredLgArrLongs) + 24;
-          final int givenBytes = (8 << priorLgArrLongs) + 24;
-          throw new SketchesArgumentException(
-              "Insufficient internal Memory space: " + requiredBytes + " > " + givenBytes);
-        }
-      }
-      else { //On the heap, allocate a HT
-        hashTable_ = new long[1 << lgArrLongs_];
-      }
-      moveDataToTgt(sketchIn.getCache(), curCount_);
+      loadHashTable(sketchIn.getCache(), sketchIn.getRetainedEntries(true));
     } //end of state 5
 
     //state 7
@@ -305,6 +301,69 @@ class IntersectionImpl extends Intersection {
     }
   }
 
+  @Override
+  public void intersectAll(final List<? extends Sketch> sketches) {
+    if (sketches == null) {
+      throw new SketchesArgumentException("Intersection argument must not be null.");
+    }
+    if ((wmem_ != null) && readOnly_) { throw new SketchesReadOnlyException(); }
+    for (final Sketch sketchIn : sketches) {
+      if ((sketchIn == null) || !(sketchIn.isOrdered() || sketchIn.isEmpty())) {
+        for (final Sketch sk : sketches) { intersect(sk); }
+        return;
+      }
+    }
+    //All inputs are ordered compact or empty
+    final int numIn = sketches.size();
+    if (numIn == 0) { return; }
+    final OrderedHashArray[] arrays = new OrderedHashArray[numIn + 1];
+    long minThetaLong = thetaLong_;
+    for (int i = 0; i < numIn; i++) {
+      final Sketch sketchIn = sketches.get(i);
+      if (empty_ || sketchIn.isEmpty()) { //empty rule
+        resetToEmpty();
+        return;
+      }
+      Util.checkSeedHashes(seedHash_, sketchIn.getSeedHash());
+      minThetaLong = min(minThetaLong, sketchIn.getThetaLong()); //Theta rule
+      arrays[i] = new OrderedHashArray(sketchIn);
+    }
+
+    final long[] matchSet;
+    if (curCount_ == 0) {
+      matchSet = new long[0];
+    } else {
+      int numArrays = numIn;
+      if (curCount_ > 0) { //the current state is one more input
+        final long[] hashArr = compactCachePart(getHashTable(), lgArrLongs_, curCount_, thetaLong_,
+            true);
+        arrays[numArrays++] = new OrderedHashArray(hashArr, hashArr.length);
+      }
+      matchSet = OrderedHashArray.intersect(Arrays.copyOf(arrays, numArrays), minThetaLong);
+    }
+    if ((matchSet.length == 0) && (thetaLong_ == Long.MAX_VALUE)
+        && (sketches.get(0).getThetaLong() == Long.MAX_VALUE)) {
+      //An empty match at theta = 1.0 may have made this intersection empty part way through the
+      // sequence. Rare, so simply replay the sequence.
+      for (final Sketch sk : sketches) { intersect(sk); }
+      return;
+    }
+
+    thetaLong_ = minThetaLong;
+    empty_ = false;
+    if (wmem_ != null) {
+      insertThetaLong(wmem_, thetaLong_);
+      clearEmpty(wmem_); //false
+    }
+    if (matchSet.length == 0) {
+      curCount_ = 0;
+      if (wmem_ != null) { insertCurCount(wmem_, 0); }
+      hashTable_ = null;
+    } else {
+      loadHashTable(matchSet, matchSet.length);
+    }
+  }
+
   @Override
   public CompactSketch getResult(final boolean dstOrdered, final WritableMemory dstMem) {
     if (curCount_ < 0) {
@@ -323,14 +382,7 @@ class IntersectionImpl extends Intersection {
           dstMem, compactCache);
     }
     //else curCount > 0
-    final long[] hashTable;
-    if (wmem_ != null) {
-      final int htLen = 1 << lgArrLongs_;
-      hashTable = new long[htLen];
-      wmem_.getLongArray(CONST_PREAMBLE_LONGS << 3, hashTable, 0, htLen);
-    } else {
-      hashTable = hashTable_;
-    }
+    final long[] hashTable = getHashTable();
     compactCache = compactCachePart(hashTable, lgArrLongs_, curCount_, thetaLong_, dstOrdered);
     srcCompact = true;
     srcOrdered = dstOrdered;
@@ -429,14 +481,7 @@ class IntersectionImpl extends Intersection {
     assert ((curCount_ > 0) && (!empty_));
     final long[] cacheIn = sketchIn.getCache();
     final int arrLongsIn = cacheIn.length;
-    final long[] hashTable;
-    if (wmem_ != null) {
-      final int htLen = 1 << lgArrLongs_;
-      hashTable = new long[htLen];
-      wmem_.getLongArray(CONST_PREAMBLE_LONGS << 3, hashTable, 0, htLen);
-    } else {
-      hashTable = hashTable_;
-    }
+    final long[] hashTable = getHashTable();
     //allocate space for matching
     final long[] matchSet = new long[ min(curCount_, sketchIn.getRetainedEntries(true)) ];
 
@@ -484,6 +529,46 @@ class IntersectionImpl extends Intersection {
     }
   }
 
+  private long[] getHashTable() {
+    if (wmem_ != null) {
+      final int htLen = 1 << lgArrLongs_;
+      final long[] hashTable = new long[htLen];
+      wmem_.getLongArray(CONST_PREAMBLE_LONGS << 3, hashTable, 0, htLen);
+      return hashTable;
+    }
+    return hashTable_;
+  }
+
+  /**
+   * Loads the given hashes into a new hash table sized for them, which becomes the internal state.
+   * @param arr the given hashes, which must all be less than thetaLong_
+   * @param count the number of hashes
+   */
+  private void loadHashTable(final long[] arr, final int count) {
+    curCount_ = count;
+    final int requiredLgArrLongs = minLgHashTableSize(curCount_, REBUILD_THRESHOLD);
+    final int priorLgArrLongs = lgArrLongs_; //prior only used in error message
+    lgArrLongs_ = requiredLgArrLongs;
+
+    if (wmem_ != null) { //Off heap, check if current dstMem is large enough
+      insertCurCount(wmem_, curCount_);
+      insertLgArrLongs(wmem_, lgArrLongs_);
+      if (requiredLgArrLongs <= maxLgArrLongs_) {
+        wmem_.clear(CONST_PREAMBLE_LONGS << 3, 8 << lgArrLongs_); //clear only what required
+      }
+      else { //not enough space in dstMem
+        final int requiredBytes = (8 << requiredLgArrLongs) + 24;
+        final int givenBytes = (8 << priorLgArrLongs) + 24;
+        throw new SketchesArgumentException(
+            "Insufficient internal Memory space: " + requiredBytes + " > " + givenBytes);
+      }
+    }
+    else { //On the heap, allocate a HT
+      hashTable_ = new long[1 << lgArrLongs_];
+    }
+    moveDataToTgt(arr, count);
+  }
+
   private void moveDataToTgt(final long[] arr, final int count) {
     final int arrLongsIn = arr.length;
     int tmpCnt = 0;
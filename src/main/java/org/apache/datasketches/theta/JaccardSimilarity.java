@@ -24,9 +24,21 @@ import static java.lang.Math.min;
 import static org.apache.datasketches.BoundsOnRatiosInThetaSketchedSets.getEstimateOfBoverA;
 import static org.apache.datasketches.BoundsOnRatiosInThetaSketchedSets.getLowerBoundForBoverA;
 import static org.apache.datasketches.BoundsOnRatiosInThetaSketchedSets.getUpperBoundForBoverA;
+import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
+import static org.apache.datasketches.Util.LONG_MAX_VALUE_AS_DOUBLE;
 import static org.apache.datasketches.Util.MAX_LG_NOM_LONGS;
 import static org.apache.datasketches.Util.MIN_LG_NOM_LONGS;
 import static org.apache.datasketches.Util.ceilingPowerOf2;
+import static org.apache.datasketches.Util.checkSeedHashes;
+import static org.apache.datasketches.Util.computeSeedHash;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.datasketches.BoundsOnRatiosInSampledSets;
+import org.apache.datasketches.SketchesArgumentException;
 
 /**
  * Jaccard similarity of two Theta Sketches.
@@ -37,6 +49,11 @@ public final class JaccardSimilarity {
   private static final double[] ZEROS = {0.0, 0.0, 0.0}; // LB, Estimate, UB
   private static final double[] ONES = {1.0, 1.0, 1.0};
 
+  /**
+   * The maximum number of pairs computed by a single task of a Jaccard matrix.
+   */
+  static final int MAX_LEAF_PAIRS = 1 << 14;
+
   /**
    * Computes the Jaccard similarity ratio with upper and lower bounds. The Jaccard similarity ratio
    * <i>J(A,B) = (A ^ B)/(A U B)</i> is used to measure how similar the two sketches are to each
@@ -95,6 +112,168 @@ public final class JaccardSimilarity {
     return new double[] {lb, est, ub};
   }
 
+  /**
+   * Computes the Jaccard similarity ratios with upper and lower bounds of every pair of the given
+   * sketches, in parallel on the common ForkJoinPool.
+   * See {@link #jaccardMatrix(List, ForkJoinPool)}.
+   *
+   * @param sketches the given sketches
+   * @return the lower triangle of the Jaccard matrix of the given sketches.
+   */
+  public static double[][] jaccardMatrix(final List<? extends Sketch> sketches) {
+    return jaccardMatrix(sketches, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Computes the Jaccard similarity ratios with upper and lower bounds of every pair of the given
+   * sketches, in parallel on the given ForkJoinPool. Every result is the same as that of
+   * {@link #jaccard(Sketch, Sketch)} for the same pair.
+   *
+   * <p>Every sketch is converted to a sorted array of hashes only once. Ordered compact sketches,
+   * on the Java heap or in Memory, are used in place. The union and intersection counts of each
+   * pair are then computed by a merge of the two sorted arrays at the minimum theta of the pair,
+   * without creating a Union, an Intersection or any other object. The rows of the matrix are
+   * split into blocks of about equal work, which are computed as separate tasks.</p>
+   *
+   * <p>The result is the lower triangle of the symmetric matrix, without the diagonal. Row
+   * <i>i</i> has <i>3i</i> entries, and the {LowerBound, Estimate, UpperBound} of the Jaccard
+   * ratio of sketches <i>i</i> and <i>j</i>, where <i>j &lt; i</i>, start at index <i>3j</i>.</p>
+   *
+   * <p>As for {@link #jaccard(Sketch, Sketch)}, the non-empty sketches must have been built with
+   * the {@link org.apache.datasketches.Util#DEFAULT_UPDATE_SEED}, otherwise a
+   * SketchesArgumentException is thrown before any pair is computed.</p>
+   *
+   * @param sketches the given sketches, which must not change during this computation
+   * @param pool the ForkJoinPool that runs the computation
+   * @return the lower triangle of the Jaccard matrix of the given sketches.
+   */
+  public static double[][] jaccardMatrix(final List<? extends Sketch> sketches,
+      final ForkJoinPool pool) {
+    if (sketches == null) {
+      throw new SketchesArgumentException("The list of sketches must not be null.");
+    }
+    if (pool == null) {
+      throw new SketchesArgumentException("ForkJoinPool must not be null.");
+    }
+    final List<Sketch> list = new ArrayList<>(sketches);
+    final int n = list.size();
+    final OrderedHashArray[] arrays = new OrderedHashArray[n];
+    final short seedHash = computeSeedHash(DEFAULT_UPDATE_SEED); //that of the pairwise Union
+    for (int i = 0; i < n; i++) {
+      final Sketch sketch = list.get(i);
+      if ((sketch == null) || sketch.isEmpty()) { continue; }
+      checkSeedHashes(seedHash, sketch.getSeedHash());
+      arrays[i] = new OrderedHashArray(sketch.isOrdered() ? sketch : sketch.compact(true, null));
+    }
+    final double[][] matrix = new double[n][];
+    for (int i = 0; i < n; i++) { matrix[i] = new double[3 * i]; }
+    pool.invoke(new JaccardRowsTask(list, arrays, matrix, 1, n));
+    return matrix;
+  }
+
+  /**
+   * Computes the Jaccard ratio of the sketches <i>i</i> and <i>j</i> into the given row, without
+   * creating any objects. This follows {@link #jaccard(Sketch, Sketch)} step by step.
+   */
+  private static void jaccard(final List<Sketch> sketches, final OrderedHashArray[] arrays,
+      final int i, final int j, final double[] row) {
+    final Sketch sketchA = sketches.get(i);
+    final Sketch sketchB = sketches.get(j);
+    final int idx = 3 * j;
+    //Corner case checks
+    if ((sketchA == null) || (sketchB == null)) { fill(row, idx, ZEROS); return; }
+    if (sketchA == sketchB) { fill(row, idx, ONES); return; }
+    if (sketchA.isEmpty() && sketchB.isEmpty()) { fill(row, idx, ONES); return; }
+    if (sketchA.isEmpty() || sketchB.isEmpty()) { fill(row, idx, ZEROS); return; }
+
+    final int countA = arrays[i].getCount();
+    final int countB = arrays[j].getCount();
+    if (((long) countA + countB) > (1 << MAX_LG_NOM_LONGS)) { //the union may be limited
+      System.arraycopy(jaccard(sketchA, sketchB), 0, row, idx, 3);
+      return;
+    }
+
+    //The union and intersection of both at the minimum theta
+    final long thetaLongA = sketchA.getThetaLong();
+    final long thetaLongB = sketchB.getThetaLong();
+    final long thetaLongUAB = min(thetaLongA, thetaLongB);
+    final OrderedHashArray small = (countA <= countB) ? arrays[i] : arrays[j];
+    final OrderedHashArray large = (countA <= countB) ? arrays[j] : arrays[i];
+    final int countSmall = small.seek(thetaLongUAB, 0);
+    final int countLarge = large.seek(thetaLongUAB, 0);
+    int countInter = 0;
+    for (int s = 0, l = 0; (s < countSmall) && (l < countLarge); s++) {
+      final long hash = small.get(s);
+      l = large.seek(hash, l);
+      if ((l < countLarge) && (large.get(l) == hash)) {
+        countInter++;
+        l++;
+      }
+    }
+    final int countUAB = (countSmall + countLarge) - countInter;
+
+    //Check for identical data
+    if ((countUAB == countA) && (countUAB == countB)
+        && (thetaLongUAB == thetaLongA) && (thetaLongUAB == thetaLongB)) {
+      fill(row, idx, ONES);
+      return;
+    }
+    if (countUAB <= 0) {
+      row[idx] = 0;
+      row[idx + 1] = 0.5;
+      row[idx + 2] = 1.0;
+      return;
+    }
+    final double f = thetaLongUAB / LONG_MAX_VALUE_AS_DOUBLE;
+    row[idx] = BoundsOnRatiosInSampledSets.getLowerBoundForBoverA(countUAB, countInter, f);
+    row[idx + 1] = (double) countInter / (double) countUAB;
+    row[idx + 2] = BoundsOnRatiosInSampledSets.getUpperBoundForBoverA(countUAB, countInter, f);
+  }
+
+  private static void fill(final double[] row, final int idx, final double[] values) {
+    System.arraycopy(values, 0, row, idx, 3);
+  }
+
+  /**
+   * Computes the rows <i>lo</i> to <i>hi - 1</i> of a Jaccard matrix. Row <i>i</i> has <i>i</i>
+   * pairs, so a range is split where the two halves have about the same number of pairs.
+   */
+  private static final class JaccardRowsTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final transient List<Sketch> sketches_;
+    private final transient OrderedHashArray[] arrays_;
+    private final double[][] matrix_;
+    private final int lo_;
+    private final int hi_;
+
+    JaccardRowsTask(final List<Sketch> sketches, final OrderedHashArray[] arrays,
+        final double[][] matrix, final int lo, final int hi) {
+      sketches_ = sketches;
+      arrays_ = arrays;
+      matrix_ = matrix;
+      lo_ = lo;
+      hi_ = hi;
+    }
+
+    @Override
+    protected void compute() {
+      final long pairs = (((long) hi_ * (hi_ - 1)) - ((long) lo_ * (lo_ - 1))) / 2;
+      if (((hi_ - lo_) <= 1) || (pairs <= MAX_LEAF_PAIRS)) {
+        for (int i = lo_; i < hi_; i++) {
+          final double[] row = matrix_[i];
+          for (int j = 0; j < i; j++) { jaccard(sketches_, arrays_, i, j, row); }
+        }
+        return;
+      }
+      //rows below mid have about half of the pairs
+      final double loSq = (double) lo_ * lo_;
+      final double hiSq = (double) hi_ * hi_;
+      final int mid = max(lo_ + 1, min(hi_ - 1, (int) Math.sqrt((loSq + hiSq) / 2)));
+      invokeAll(new JaccardRowsTask(sketches_, arrays_, matrix_, lo_, mid),
+          new JaccardRowsTask(sketches_, arrays_, matrix_, mid, hi_));
+    }
+  }
+
   /**
    * Returns true if the two given sketches have exactly the same hash values and the same
    * theta values. Thus, they are equivalent.
@@ -0,0 +1,601 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
+import static org.apache.datasketches.Util.MIN_LG_ARR_LONGS;
+import static org.apache.datasketches.theta.PreambleUtil.extractCurCount;
+import static org.apache.datasketches.theta.PreambleUtil.extractFamilyID;
+import static org.apache.datasketches.theta.PreambleUtil.extractLgArrLongs;
+import static org.apache.datasketches.theta.PreambleUtil.extractPreLongs;
+import static org.apache.datasketches.theta.PreambleUtil.getMemBytes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.apache.datasketches.Family;
+import org.apache.datasketches.HashOperations;
+import org.apache.datasketches.ResizeFactor;
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.SketchesStateException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableMapHandle;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * A directory of memory-mapped, file-backed Theta UpdateSketches and Unions, keyed by name.
+ *
+ * <p>Each sketch or union lives in its own file, <i>name</i>.theta or <i>name</i>.union, that is
+ * mapped into memory from the first time the store returns it until it is released or the store
+ * is closed. Updates are written to the mapped file directly,
+ * without any serialization or copies on the Java heap. The operating system writes the updated
+ * pages back to the files in its own time, and {@link #force()} writes all of them back as a
+ * checkpoint.</p>
+ *
+ * <p>The files are always replaced atomically. A new sketch or union, and a sketch or union that
+ * grows beyond its file, is written to a temporary file that is forced to the storage device and
+ * then renamed over the target file. A crash thus never leaves a partially grown or partially
+ * created file behind. Leftover temporary files are deleted when a store is opened. When an
+ * existing file is mapped again its preamble is validated, and a file that is not a valid sketch
+ * or union of the seed of the store is rejected.</p>
+ *
+ * <p>Updates between checkpoints are not atomic. The operating system may write any updated page
+ * back to a file at any time, so after a crash a file that was mapped may hold a torn hash table,
+ * e.g., a count in the preamble that does not match the entries. While a file is mapped, a marker
+ * file, <i>file</i>.open, exists next to it, and it is deleted after the file is written back and
+ * unmapped. When a file whose marker was left behind by a crash is mapped again, its whole hash
+ * table is checked against its preamble, and a torn file is rejected.</p>
+ *
+ * <p>Every mapped sketch or union holds one memory mapping, which counts against the limit of the
+ * operating system on the number of mappings of a process. On Linux this limit is
+ * vm.max_map_count, 65530 by default, which the other mappings of the process share. A store of
+ * more sketches and unions than that must release the ones not in use, either explicitly with
+ * {@link #releaseSketch(String)} and {@link #releaseUnion(String)}, or by opening the store with a
+ * maximum number of mapped files, see {@link #open(File, long, int)}.</p>
+ *
+ * <p>The methods of this class are thread safe, but the sketches and unions it returns are not.
+ * A sketch or union must not be used after it is released or the store is closed, as its memory
+ * is unmapped. It can be obtained from the store again.</p>
+ */
+public final class MappedThetaStore implements AutoCloseable {
+  static final String SKETCH_SUFFIX = ".theta";
+  static final String UNION_SUFFIX = ".union";
+  static final String TEMP_SUFFIX = ".tmp";
+  static final String OPEN_SUFFIX = ".open";
+
+  private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9_\\-][A-Za-z0-9_.\\-]*");
+
+  private final File dir_;
+  private final long seed_;
+  private final int maxMapped_;
+  //the mapped entries by file name, least recently returned first
+  private final Map<String, Entry> mapped_ = new LinkedHashMap<>(16, 0.75f, true);
+  private boolean closed_;
+
+  private MappedThetaStore(final File dir, final long seed, final int maxMapped) {
+    dir_ = dir;
+    seed_ = seed;
+    maxMapped_ = maxMapped;
+  }
+
+  /**
+   * Opens the store in the given directory with the
+   * {@link org.apache.datasketches.Util#DEFAULT_UPDATE_SEED}. The directory is created if it does
+   * not exist.
+   * @param dir the directory of the store
+   * @return the store
+   * @throws IOException if the directory cannot be created or read
+   */
+  public static MappedThetaStore open(final File dir) throws IOException {
+    return open(dir, DEFAULT_UPDATE_SEED);
+  }
+
+  /**
+   * Opens the store in the given directory. The directory is created if it does not exist.
+   * Each sketch or union that is open at the same time holds its own memory mapping, see the
+   * class comment for the limit on their number.
+   * @param dir the directory of the store
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>.
+   * All sketches and unions of the store share this seed.
+   * @return the store
+   * @throws IOException if the directory cannot be created or read
+   */
+  public static MappedThetaStore open(final File dir, final long seed) throws IOException {
+    return open(dir, seed, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Opens the store in the given directory, which maps at most the given number of sketches and
+   * unions at the same time. When a sketch or union is mapped beyond that number, the one that was
+   * least recently returned by this store is released, and must not be used anymore. A sketch or
+   * union should thus be obtained from the store each time it is used. The directory is created if
+   * it does not exist.
+   * @param dir the directory of the store
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>.
+   * All sketches and unions of the store share this seed.
+   * @param maxMapped the maximum number of sketches and unions that are mapped at the same time
+   * @return the store
+   * @throws IOException if the directory cannot be created or read
+   */
+  public static MappedThetaStore open(final File dir, final long seed, final int maxMapped)
+      throws IOException {
+    if (dir == null) {
+      throw new SketchesArgumentException("The directory must not be null.");
+    }
+    if (maxMapped < 1) {
+      throw new SketchesArgumentException("maxMapped must be at least 1: " + maxMapped);
+    }
+    Files.createDirectories(dir.toPath());
+    final File[] temps = dir.listFiles((d, fileName) -> fileName.endsWith(TEMP_SUFFIX));
+    final File[] markers = dir.listFiles((d, fileName) -> fileName.endsWith(OPEN_SUFFIX));
+    if ((temps == null) || (markers == null)) {
+      throw new IOException("Cannot list the directory: " + dir);
+    }
+    for (final File temp : temps) {
+      Files.delete(temp.toPath());
+    }
+    for (final File marker : markers) { //of a file that was never created
+      final String path = marker.getPath();
+      if (!new File(path.substring(0, path.length() - OPEN_SUFFIX.length())).exists()) {
+        Files.delete(marker.toPath());
+      }
+    }
+    return new MappedThetaStore(dir, seed, maxMapped);
+  }
+
+  /**
+   * Returns the directory of this store.
+   * @return the directory of this store
+   */
+  public File getDirectory() {
+    return dir_;
+  }
+
+  /**
+   * Returns the seed of this store.
+   * @return the seed of this store
+   */
+  public long getSeed() {
+    return seed_;
+  }
+
+  /**
+   * Returns the maximum number of sketches and unions this store maps at the same time.
+   * @return the maximum number of sketches and unions this store maps at the same time
+   */
+  public int getMaxMapped() {
+    return maxMapped_;
+  }
+
+  /**
+   * Returns the sketch of the given name, or null if there is none.
+   * @param name the name of the sketch
+   * @return the sketch of the given name, or null if there is none
+   * @throws IOException if the file of the sketch cannot be mapped
+   */
+  public synchronized UpdateSketch getSketch(final String name) throws IOException {
+    final Entry entry = getEntry(name, SKETCH_SUFFIX);
+    return (entry == null) ? null : (UpdateSketch) entry.obj;
+  }
+
+  /**
+   * Returns the sketch of the given name, which is created with the configuration of the given
+   * builder if there is none. The configuration of an existing sketch is not changed.
+   * @param name the name of the sketch
+   * @param bldr the builder of a new sketch. Its seed must be the seed of this store, and its
+   * family must be QUICKSELECT, without incremental resize.
+   * @return the sketch of the given name
+   * @throws IOException if the file of the sketch cannot be created or mapped
+   */
+  public synchronized UpdateSketch getOrCreateSketch(final String name,
+      final UpdateSketchBuilder bldr) throws IOException {
+    final UpdateSketch sketch = getSketch(name);
+    if (sketch != null) { return sketch; }
+    checkSeed(bldr.getSeed());
+    if (bldr.getFamily() != Family.QUICKSELECT) {
+      throw new SketchesArgumentException(
+          "The family of the builder must be QUICKSELECT: " + bldr.getFamily());
+    }
+    if (bldr.getIncrementalResize()) {
+      throw new SketchesArgumentException(
+          "An incremental resize sketch cannot be stored in a mapped file.");
+    }
+    final int lgNomLongs = bldr.getLgNominalEntries();
+    final ResizeFactor rf = bldr.getResizeFactor();
+    final int preLongs = Family.QUICKSELECT.getMinPreLongs();
+    final Entry entry = new Entry(new File(dir_, name + SKETCH_SUFFIX));
+    entry.create(initialBytes(lgNomLongs, rf, preLongs), mem ->
+        new DirectQuickSelectSketch(lgNomLongs, seed_, bldr.getHasher(), bldr.getP(), rf, entry,
+            mem, false));
+    putEntry(entry);
+    return (UpdateSketch) entry.obj;
+  }
+
+  /**
+   * Returns the union of the given name, or null if there is none.
+   * @param name the name of the union
+   * @return the union of the given name, or null if there is none
+   * @throws IOException if the file of the union cannot be mapped
+   */
+  public synchronized Union getUnion(final String name) throws IOException {
+    final Entry entry = getEntry(name, UNION_SUFFIX);
+    return (entry == null) ? null : (Union) entry.obj;
+  }
+
+  /**
+   * Returns the union of the given name, which is created with the configuration of the given
+   * builder if there is none. The configuration of an existing union is not changed.
+   * @param name the name of the union
+   * @param bldr the builder of a new union. Its seed must be the seed of this store.
+   * @return the union of the given name
+   * @throws IOException if the file of the union cannot be created or mapped
+   */
+  public synchronized Union getOrCreateUnion(final String name, final SetOperationBuilder bldr)
+      throws IOException {
+    final Union union = getUnion(name);
+    if (union != null) { return union; }
+    checkSeed(bldr.getSeed());
+    final int lgNomLongs = bldr.getLgNominalEntries();
+    final ResizeFactor rf = bldr.getResizeFactor();
+    final int preLongs = Family.UNION.getMinPreLongs();
+    final Entry entry = new Entry(new File(dir_, name + UNION_SUFFIX));
+    entry.create(initialBytes(lgNomLongs, rf, preLongs), mem ->
+        UnionImpl.initNewDirectInstance(lgNomLongs, seed_, bldr.getHasher(), bldr.getP(), rf,
+            entry, mem));
+    putEntry(entry);
+    return (Union) entry.obj;
+  }
+
+  /**
+   * Writes the sketch of the given name back to its file and unmaps it. The sketch returned by
+   * this store must not be used afterwards, but it can be obtained from the store again.
+   * @param name the name of the sketch
+   * @return true if the sketch was mapped
+   */
+  public synchronized boolean releaseSketch(final String name) {
+    return release(name, SKETCH_SUFFIX);
+  }
+
+  /**
+   * Writes the union of the given name back to its file and unmaps it. The union returned by
+   * this store must not be used afterwards, but it can be obtained from the store again.
+   * @param name the name of the union
+   * @return true if the union was mapped
+   */
+  public synchronized boolean releaseUnion(final String name) {
+    return release(name, UNION_SUFFIX);
+  }
+
+  /**
+   * Returns the number of sketches and unions that are mapped.
+   * @return the number of sketches and unions that are mapped
+   */
+  public synchronized int getNumMapped() {
+    return mapped_.size();
+  }
+
+  /**
+   * Returns the names of all sketches of this store, including those that are not mapped yet.
+   * @return the names of all sketches of this store
+   */
+  public synchronized SortedSet<String> getSketchNames() {
+    return listNames(SKETCH_SUFFIX);
+  }
+
+  /**
+   * Returns the names of all unions of this store, including those that are not mapped yet.
+   * @return the names of all unions of this store
+   */
+  public synchronized SortedSet<String> getUnionNames() {
+    return listNames(UNION_SUFFIX);
+  }
+
+  /**
+   * Checkpoint: writes the contents of all mapped sketches and unions back to their files on the
+   * storage device.
+   */
+  public synchronized void force() {
+    checkOpen();
+    for (final Entry entry : mapped_.values()) { entry.handle.force(); }
+    syncDirectory();
+  }
+
+  /**
+   * Writes all sketches and unions back to their files and unmaps them. The sketches and unions
+   * returned by this store must not be used afterwards. Closing a closed store has no effect.
+   */
+  @Override
+  public synchronized void close() {
+    if (closed_) { return; }
+    force();
+    closed_ = true;
+    for (final Entry entry : mapped_.values()) { entry.release(); }
+    mapped_.clear();
+  }
+
+  /**
+   * Returns true if this store is closed.
+   * @return true if this store is closed
+   */
+  public synchronized boolean isClosed() {
+    return closed_;
+  }
+
+  //restricted
+
+  private Entry getEntry(final String name, final String suffix) throws IOException {
+    checkOpen();
+    checkName(name);
+    Entry entry = mapped_.get(name + suffix);
+    if (entry == null) {
+      final File file = new File(dir_, name + suffix);
+      if (!file.exists()) { return null; }
+      entry = new Entry(file);
+      entry.open(suffix.equals(UNION_SUFFIX));
+      putEntry(entry);
+    }
+    return entry;
+  }
+
+  //Adds a newly mapped entry, then releases the least recently returned ones beyond maxMapped_
+  private void putEntry(final Entry entry) {
+    mapped_.put(entry.file.getName(), entry);
+    final Iterator<Entry> it = mapped_.values().iterator();
+    while (mapped_.size() > maxMapped_) {
+      final Entry eldest = it.next();
+      it.remove();
+      eldest.release();
+    }
+  }
+
+  private boolean release(final String name, final String suffix) {
+    checkOpen();
+    checkName(name);
+    final Entry entry = mapped_.remove(name + suffix);
+    if (entry == null) { return false; }
+    entry.release();
+    return true;
+  }
+
+  private SortedSet<String> listNames(final String suffix) {
+    checkOpen();
+    final SortedSet<String> names = new TreeSet<>();
+    final String[] fileNames = dir_.list();
+    if (fileNames != null) {
+      for (final String fileName : fileNames) {
+        if (fileName.endsWith(suffix)) {
+          names.add(fileName.substring(0, fileName.length() - suffix.length()));
+        }
+      }
+    }
+    return names;
+  }
+
+  private void checkOpen() {
+    if (closed_) {
+      throw new SketchesStateException("The store is closed: " + dir_);
+    }
+  }
+
+  private void checkSeed(final long seed) {
+    if (seed != seed_) {
+      throw new SketchesArgumentException(
+          "The seed of the builder does not match the seed of the store: " + seed + " != "
+              + seed_);
+    }
+  }
+
+  private static void checkName(final String name) {
+    if ((name == null) || !NAME_PATTERN.matcher(name).matches()) {
+      throw new SketchesArgumentException("Illegal name: " + name
+          + ". Names may only contain letters, digits, '_', '-' and '.', and not start with '.'");
+    }
+  }
+
+  //The bytes of a new sketch or union, which grows from there through the MemoryRequestServer
+  private static long initialBytes(final int lgNomLongs, final ResizeFactor rf,
+      final int preLongs) {
+    final int lgArrLongs = (rf.lg() == 0) ? lgNomLongs + 1 : MIN_LG_ARR_LONGS;
+    return getMemBytes(lgArrLongs, preLongs);
+  }
+
+  //Checks that the hash table of a sketch or union agrees with its preamble, which it may not if
+  // its file was torn by a crash. Dirty entries, greater than or equal to theta, are allowed.
+  private static void checkHashTable(final Memory mem) {
+    final int preBytes = extractPreLongs(mem) << 3;
+    final int lgArrLongs = extractLgArrLongs(mem);
+    final int arrLongs = 1 << lgArrLongs;
+    int count = 0;
+    for (int i = 0; i < arrLongs; i++) {
+      final long hash = mem.getLong(preBytes + (i << 3));
+      if (hash == 0) { continue; }
+      if ((hash < 0) || (HashOperations.hashSearchMemory(mem, lgArrLongs, hash, preBytes) != i)) {
+        throw new SketchesArgumentException(
+            "Possible corruption: Hash table entry is misplaced: " + i);
+      }
+      count++;
+    }
+    final int curCount = extractCurCount(mem);
+    if ((count != curCount) || ((count > 0) && PreambleUtil.isEmptyFlag(mem))) {
+      throw new SketchesArgumentException("Possible corruption: Hash table has " + count
+          + " entries, the preamble: " + curCount);
+    }
+  }
+
+  private static WritableMapHandle map(final File file, final long capacityBytes)
+      throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(capacityBytes);
+    }
+    return WritableMemory.map(file, 0, capacityBytes, ByteOrder.nativeOrder());
+  }
+
+  private static void replace(final File source, final File target) throws IOException {
+    Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  //Makes renames in the directory durable. Not supported on all platforms.
+  private void syncDirectory() {
+    try (FileChannel channel = FileChannel.open(dir_.toPath(), StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (final IOException e) {
+      //the renames are still atomic, only their durability is up to the operating system
+    }
+  }
+
+  private interface Initializer {
+    Object init(WritableMemory mem);
+  }
+
+  /**
+   * The mapped file of one sketch or union. It is also the MemoryRequestServer of the sketch or
+   * union, which grows the file into a temporary file that replaces it.
+   */
+  private final class Entry implements MemoryRequestServer {
+    private final File file;
+    private final File temp;
+    private final File marker; //exists while the file is mapped
+    private WritableMapHandle handle;
+    private WritableMapHandle tempHandle;
+    private Object obj;
+
+    Entry(final File file) {
+      this.file = file;
+      temp = new File(file.getPath() + TEMP_SUFFIX);
+      marker = new File(file.getPath() + OPEN_SUFFIX);
+    }
+
+    void create(final long capacityBytes, final Initializer initializer) throws IOException {
+      createMarker();
+      WritableMapHandle newHandle = null;
+      try {
+        newHandle = map(temp, capacityBytes);
+        obj = initializer.init(newHandle.get());
+        newHandle.force();
+        replace(temp, file);
+      } catch (final IOException | RuntimeException e) {
+        if (newHandle != null) { newHandle.close(); }
+        Files.deleteIfExists(temp.toPath());
+        Files.deleteIfExists(marker.toPath());
+        throw e;
+      }
+      handle = newHandle;
+      syncDirectory();
+    }
+
+    void open(final boolean union) throws IOException {
+      final long capacityBytes = file.length();
+      final Family family = union ? Family.UNION : Family.QUICKSELECT;
+      if (capacityBytes < (family.getMinPreLongs() << 3)) {
+        throw new SketchesArgumentException("Invalid file " + file
+            + ": Possible corruption: File is too small: " + capacityBytes);
+      }
+      final boolean crashed = marker.exists(); //left behind while the file was mapped
+      if (!crashed) { createMarker(); }
+      WritableMapHandle newHandle = null;
+      try {
+        newHandle = WritableMemory.map(file, 0, capacityBytes, ByteOrder.nativeOrder());
+        final WritableMemory mem = newHandle.get();
+        family.checkFamilyID(extractFamilyID(mem));
+        if (union) {
+          obj = UnionImpl.wrapInstance(mem, seed_, this);
+        } else {
+          obj = DirectQuickSelectSketch.writableWrap(mem, seed_, this);
+        }
+        if (crashed) { checkHashTable(mem); }
+      } catch (final IOException | RuntimeException e) {
+        if (newHandle != null) { newHandle.close(); }
+        if (!crashed) { Files.deleteIfExists(marker.toPath()); }
+        if (e instanceof SketchesArgumentException) {
+          throw new SketchesArgumentException("Invalid file " + file
+              + (crashed ? " (not released before a crash): " : ": ") + e.getMessage());
+        }
+        throw e;
+      }
+      handle = newHandle;
+    }
+
+    //Writes the file back, unmaps it and deletes the marker
+    void release() {
+      discardTemp();
+      handle.force();
+      handle.close();
+      marker.delete(); //if it remains, the file is only checked when it is mapped again
+    }
+
+    private void createMarker() throws IOException {
+      Files.write(marker.toPath(), new byte[0]);
+      syncDirectory();
+    }
+
+    //Unmaps and deletes the temporary file of a resize that did not complete, if any
+    private void discardTemp() {
+      if (tempHandle != null) {
+        tempHandle.close();
+        tempHandle = null;
+      }
+      temp.delete();
+    }
+
+    @Override
+    public WritableMemory request(final long capacityBytes) {
+      discardTemp();
+      try {
+        tempHandle = map(temp, capacityBytes);
+      } catch (final IOException | RuntimeException e) {
+        discardTemp();
+        throw new SketchesStateException("Cannot grow " + file + ": " + e);
+      }
+      return tempHandle.get();
+    }
+
+    @Override
+    public void requestClose(final WritableMemory memToClose, final WritableMemory newMemory) {
+      if ((tempHandle == null) || memToClose.isSameResource(tempHandle.get())) {
+        discardTemp(); //the resize failed, the requested memory is not used
+        return;
+      }
+      tempHandle.force();
+      try {
+        replace(temp, file);
+      } catch (final IOException e) {
+        discardTemp();
+        throw new SketchesStateException("Cannot replace " + file + ": " + e);
+      }
+      handle.close();
+      handle = tempHandle;
+      tempHandle = null;
+    }
+  }
+}
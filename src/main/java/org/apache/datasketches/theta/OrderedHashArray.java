@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.apache.datasketches.theta.PreambleUtil.PREAMBLE_LONGS_BYTE;
+
+import java.util.Arrays;
+
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * A read-only view of the ascending hash array of an ordered compact sketch. Sketches on the Java
+ * heap are read from their cache and sketches in Memory are read in place, so no copy is made.
+ *
+ * <p>The static set operations of this class are sorted merges of these views. Unlike the
+ * intersection and AnotB of hash tables, they need no hash table at all.</p>
+ */
+final class OrderedHashArray {
+  private final long[] cache_; //null for Memory inputs
+  private final Memory mem_;   //null for heap inputs
+  private final int offset_;   //byte offset of the hash array for Memory inputs
+  private final int count_;
+
+  /**
+   * Creates a view of the given ordered compact sketch.
+   * @param sketch the given sketch, which must be ordered and compact
+   */
+  OrderedHashArray(final Sketch sketch) {
+    assert sketch.isOrdered();
+    count_ = sketch.getRetainedEntries(true);
+    if (sketch.hasMemory()) {
+      mem_ = ((CompactSketch) sketch).getMemory();
+      offset_ = (mem_.getByte(PREAMBLE_LONGS_BYTE) & 0X3F) << 3;
+      cache_ = null;
+    } else {
+      cache_ = sketch.getCache(); //not a copy!
+      mem_ = null;
+      offset_ = 0;
+    }
+  }
+
+  /**
+   * Creates a view of the first <i>count</i> hashes of the given ascending array.
+   * @param hashArr the given array, not copied
+   * @param count the number of hashes in use
+   */
+  OrderedHashArray(final long[] hashArr, final int count) {
+    cache_ = hashArr;
+    mem_ = null;
+    offset_ = 0;
+    count_ = count;
+  }
+
+  int getCount() {
+    return count_;
+  }
+
+  long get(final int index) {
+    return (cache_ != null) ? cache_[index] : mem_.getLong(offset_ + ((long) index << 3));
+  }
+
+  /**
+   * Returns the index of the first hash, at or after <i>from</i>, that is not less than the given
+   * hash, or <i>count</i> if there is none. The search gallops forward from <i>from</i> and then
+   * bisects, so short skips cost a few reads and long skips cost a logarithmic number of reads.
+   * @param hash the hash to search for
+   * @param from the index to start from
+   * @return the index of the first hash not less than the given hash
+   */
+  int seek(final long hash, final int from) {
+    if ((from >= count_) || (get(from) >= hash)) { return from; }
+    int lo = from; //get(lo) < hash
+    int step = 1;
+    int hi = from + 1;
+    while ((hi < count_) && (get(hi) < hash)) {
+      lo = hi;
+      step <<= 1;
+      hi = from + step;
+    }
+    if (hi > count_) { hi = count_; }
+    while ((hi - lo) > 1) { //get(hi) >= hash or hi == count
+      final int mid = (lo + hi) >>> 1;
+      if (get(mid) < hash) { lo = mid; } else { hi = mid; }
+    }
+    return hi;
+  }
+
+  /**
+   * Returns the ascending hashes that are in all of the given arrays and are less than the given
+   * theta. The arrays are joined leapfrog style: each candidate hash is sought in the other arrays
+   * in turn, and any larger hash found there becomes the next candidate.
+   * @param arrays the given arrays, at least one. Its order may be changed.
+   * @param thetaLong hashes greater than or equal to this are excluded
+   * @return a new array of the matching hashes
+   */
+  static long[] intersect(final OrderedHashArray[] arrays, final long thetaLong) {
+    //The smallest array drives the join, the others are only sought
+    Arrays.sort(arrays, (x, y) -> Integer.compare(x.count_, y.count_));
+    final int numArrays = arrays.length;
+    final int[] positions = new int[numArrays];
+    final OrderedHashArray driver = arrays[0];
+    final long[] matches = new long[driver.count_];
+    int numMatches = 0;
+    if (driver.count_ == 0) { return matches; }
+    long candidate = driver.get(0);
+    while (candidate < thetaLong) {
+      boolean matched = true;
+      for (int i = 1; i < numArrays; i++) {
+        final OrderedHashArray array = arrays[i];
+        final int pos = array.seek(candidate, positions[i]);
+        if (pos == array.count_) { return Arrays.copyOf(matches, numMatches); }
+        positions[i] = pos;
+        final long hash = array.get(pos);
+        if (hash != candidate) {
+          candidate = hash;
+          matched = false;
+          break;
+        }
+      }
+      final int pos;
+      if (matched) {
+        matches[numMatches++] = candidate;
+        pos = positions[0] + 1;
+      } else {
+        pos = driver.seek(candidate, positions[0]);
+      }
+      if (pos == driver.count_) { break; }
+      positions[0] = pos;
+      candidate = driver.get(pos);
+    }
+    return Arrays.copyOf(matches, numMatches);
+  }
+
+  /**
+   * Returns the ascending hashes of <i>a</i> that are not in <i>b</i> and are less than the given
+   * theta, using a two-pointer merge.
+   * @param a the array to keep hashes from
+   * @param b the array of hashes to remove
+   * @param thetaLong hashes greater than or equal to this are excluded
+   * @return a new array of the remaining hashes
+   */
+  static long[] aNotB(final OrderedHashArray a, final OrderedHashArray b, final long thetaLong) {
+    final long[] out = new long[a.count_];
+    int numOut = 0;
+    int posB = 0;
+    for (int posA = 0; posA < a.count_; posA++) {
+      final long hash = a.get(posA);
+      if (hash >= thetaLong) { break; } //early stop
+      posB = b.seek(hash, posB);
+      if ((posB == b.count_) || (b.get(posB) != hash)) { out[numOut++] = hash; }
+    }
+    return Arrays.copyOf(out, numOut);
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.apache.datasketches.theta.PreambleUtil.PREAMBLE_LONGS_BYTE;
+
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * A k-way merge of the hash arrays of ordered compact sketches. It returns the distinct hashes of
+ * all inputs in ascending order, using a binary min-heap of input cursors. Inputs may be on the
+ * Java heap or in Memory; Memory inputs are read in place.
+ */
+final class OrderedHashMerge {
+  private final long[][] caches_;  //null for Memory inputs
+  private final Memory[] mems_;    //null for heap inputs
+  private final int[] offsets_;    //byte offset of the hash array for Memory inputs
+  private final int[] counts_;
+  private final int[] positions_;
+  private final int[] heap_;       //cursor indices, ordered by heads_
+  private final long[] heads_;     //the current hash of each cursor
+  private final long thetaLong_;
+  private int numInputs_;
+  private int heapSize_;
+  private long lastHash_;          //hashes are never zero
+
+  /**
+   * Creates a new merge for up to the given number of inputs.
+   * @param maxInputs the maximum number of inputs that will be added
+   * @param thetaLong hashes greater than or equal to this are never returned
+   */
+  OrderedHashMerge(final int maxInputs, final long thetaLong) {
+    caches_ = new long[maxInputs][];
+    mems_ = new Memory[maxInputs];
+    offsets_ = new int[maxInputs];
+    counts_ = new int[maxInputs];
+    positions_ = new int[maxInputs];
+    heap_ = new int[maxInputs];
+    heads_ = new long[maxInputs];
+    thetaLong_ = thetaLong;
+  }
+
+  /**
+   * Adds an ordered, compact, non-empty sketch to this merge. All inputs must be added before
+   * the first call to {@link #next()}.
+   * @param sketch the given sketch
+   */
+  void add(final Sketch sketch) {
+    final int count = sketch.getRetainedEntries(true);
+    if (count == 0) { return; }
+    final int i = numInputs_++;
+    if (sketch.hasMemory()) {
+      final Memory mem = ((CompactSketch) sketch).getMemory();
+      mems_[i] = mem;
+      offsets_[i] = (mem.getByte(PREAMBLE_LONGS_BYTE) & 0X3F) << 3;
+    } else {
+      caches_[i] = sketch.getCache(); //not a copy!
+    }
+    counts_[i] = count;
+    final long head = hashAt(i, 0);
+    if (head < thetaLong_) {
+      heads_[i] = head;
+      heap_[heapSize_] = i;
+      siftUp(heapSize_++);
+    }
+  }
+
+  /**
+   * Returns the next distinct hash in ascending order, or <i>thetaLong</i> if there are none left.
+   * @return the next distinct hash
+   */
+  long next() {
+    while (heapSize_ > 0) {
+      final int i = heap_[0];
+      final long hash = heads_[i];
+      final int pos = ++positions_[i];
+      final long nextHash = (pos < counts_[i]) ? hashAt(i, pos) : thetaLong_;
+      if (nextHash < thetaLong_) {
+        heads_[i] = nextHash;
+      } else {
+        heap_[0] = heap_[--heapSize_];
+      }
+      if (heapSize_ > 0) { siftDown(0); }
+      if (hash != lastHash_) {
+        lastHash_ = hash;
+        return hash;
+      }
+    }
+    return thetaLong_;
+  }
+
+  private long hashAt(final int i, final int pos) {
+    final long[] cache = caches_[i];
+    return (cache != null) ? cache[pos] : mems_[i].getLong(offsets_[i] + (pos << 3));
+  }
+
+  private void siftUp(final int start) {
+    int child = start;
+    final int idx = heap_[child];
+    final long key = heads_[idx];
+    while (child > 0) {
+      final int parent = (child - 1) >>> 1;
+      if (heads_[heap_[parent]] <= key) { break; }
+      heap_[child] = heap_[parent];
+      child = parent;
+    }
+    heap_[child] = idx;
+  }
+
+  private void siftDown(final int start) {
+    int parent = start;
+    final int idx = heap_[parent];
+    final long key = heads_[idx];
+    final int half = heapSize_ >>> 1;
+    while (parent < half) {
+      int child = (parent << 1) + 1;
+      final int right = child + 1;
+      if ((right < heapSize_) && (heads_[heap_[right]] < heads_[heap_[child]])) { child = right; }
+      if (key <= heads_[heap_[child]]) { break; }
+      heap_[parent] = heap_[child];
+      parent = child;
+    }
+    heap_[parent] = idx;
+  }
+}
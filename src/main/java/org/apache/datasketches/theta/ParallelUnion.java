@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * Unions large collections of Theta sketches in parallel on a {@link ForkJoinPool}.
+ *
+ * <p>The input is split into contiguous ranges, each range is unioned by its own {@link Union},
+ * and the partial results are combined pairwise in a tree reduction. The result is identical to
+ * that of a single Union, configured by the same {@link SetOperationBuilder}, that is updated
+ * with every input in turn.</p>
+ *
+ * <p>The given SetOperationBuilder must not be modified while a parallel union is running.</p>
+ */
+public final class ParallelUnion {
+
+  private ParallelUnion() {}
+
+  /**
+   * Unions the given sketches in parallel on the common ForkJoinPool.
+   *
+   * <p>Nulls and empty sketches in the list are ignored.</p>
+   *
+   * @param sketches the sketches to union
+   * @param bldr the builder that configures every Union of the reduction
+   * @return the result as an ordered CompactSketch on the heap.
+   */
+  public static CompactSketch union(final List<? extends Sketch> sketches,
+      final SetOperationBuilder bldr) {
+    return union(sketches, bldr, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Unions the given sketches in parallel on the given ForkJoinPool.
+   *
+   * <p>Nulls and empty sketches in the list are ignored.</p>
+   *
+   * @param sketches the sketches to union
+   * @param bldr the builder that configures every Union of the reduction
+   * @param pool the ForkJoinPool that runs the reduction
+   * @return the result as an ordered CompactSketch on the heap.
+   */
+  public static CompactSketch union(final List<? extends Sketch> sketches,
+      final SetOperationBuilder bldr, final ForkJoinPool pool) {
+    checkArgs(bldr, pool);
+    if ((sketches == null) || sketches.isEmpty()) { return bldr.buildUnion().getResult(); }
+    final List<? extends Sketch> list =
+        (sketches instanceof RandomAccess) ? sketches : new ArrayList<>(sketches);
+    return pool.invoke(new UnionTask(bldr, list, null, 0, list.size(),
+        ForkJoinUtil.leafSize(list.size(), pool)));
+  }
+
+  /**
+   * Unions the given Memory images of Theta sketches in parallel on the common ForkJoinPool.
+   * The images may be in any form accepted by {@link Union#update(Memory)}.
+   *
+   * <p>Null images in the collection are ignored.</p>
+   *
+   * @param images the Memory images of the sketches to union
+   * @param bldr the builder that configures every Union of the reduction
+   * @return the result as an ordered CompactSketch on the heap.
+   */
+  public static CompactSketch unionImages(final Collection<? extends Memory> images,
+      final SetOperationBuilder bldr) {
+    return unionImages(images, bldr, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Unions the given Memory images of Theta sketches in parallel on the given ForkJoinPool.
+   * The images may be in any form accepted by {@link Union#update(Memory)}.
+   *
+   * <p>Null images in the collection are ignored.</p>
+   *
+   * @param images the Memory images of the sketches to union
+   * @param bldr the builder that configures every Union of the reduction
+   * @param pool the ForkJoinPool that runs the reduction
+   * @return the result as an ordered CompactSketch on the heap.
+   */
+  public static CompactSketch unionImages(final Collection<? extends Memory> images,
+      final SetOperationBuilder bldr, final ForkJoinPool pool) {
+    checkArgs(bldr, pool);
+    if ((images == null) || images.isEmpty()) { return bldr.buildUnion().getResult(); }
+    final List<Memory> list = new ArrayList<>(images);
+    return pool.invoke(new UnionTask(bldr, null, list, 0, list.size(),
+        ForkJoinUtil.leafSize(list.size(), pool)));
+  }
+
+  private static void checkArgs(final SetOperationBuilder bldr, final ForkJoinPool pool) {
+    if (bldr == null) {
+      throw new SketchesArgumentException("SetOperationBuilder must not be null.");
+    }
+    if (pool == null) {
+      throw new SketchesArgumentException("ForkJoinPool must not be null.");
+    }
+  }
+
+  /**
+   * Unions the inputs in the range [lo, hi) of either the sketches or the images.
+   */
+  private static final class UnionTask extends RecursiveTask<CompactSketch> {
+    private static final long serialVersionUID = 1L;
+    private final transient SetOperationBuilder bldr;
+    private final transient List<? extends Sketch> sketches;
+    private final transient List<? extends Memory> images;
+    private final int lo;
+    private final int hi;
+    private final int leafSize;
+
+    UnionTask(final SetOperationBuilder bldr, final List<? extends Sketch> sketches,
+        final List<? extends Memory> images, final int lo, final int hi, final int leafSize) {
+      this.bldr = bldr;
+      this.sketches = sketches;
+      this.images = images;
+      this.lo = lo;
+      this.hi = hi;
+      this.leafSize = leafSize;
+    }
+
+    @Override
+    protected CompactSketch compute() {
+      final Union union = bldr.buildUnion();
+      if ((hi - lo) <= leafSize) {
+        if (sketches != null) {
+          union.updateAll(sketches.subList(lo, hi));
+        } else {
+          for (int i = lo; i < hi; i++) { union.update(images.get(i)); }
+        }
+        return union.getResult();
+      }
+      final int mid = (lo + hi) >>> 1;
+      final UnionTask left = new UnionTask(bldr, sketches, images, lo, mid, leafSize);
+      left.fork();
+      final CompactSketch rightResult =
+          new UnionTask(bldr, sketches, images, mid, hi, leafSize).compute();
+      return union.union(left.join(), rightResult);
+    }
+  }
+}
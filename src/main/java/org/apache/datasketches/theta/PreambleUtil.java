@@ -20,8 +20,6 @@
 package org.apache.datasketches.theta;
 
 import static org.apache.datasketches.Util.LS;
-import static org.apache.datasketches.Util.checkSeedHashes;
-import static org.apache.datasketches.Util.computeSeedHash;
 import static org.apache.datasketches.Util.zeroPad;
 
 import java.nio.ByteOrder;
@@ -30,6 +28,7 @@ import org.apache.datasketches.Family;
 import org.apache.datasketches.ResizeFactor;
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.Util;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableMemory;
 
@@ -497,7 +496,7 @@ final class PreambleUtil {
 
   static final short checkMemorySeedHash(final Memory mem, final long seed) {
     final short seedHashMem = (short) extractSeedHash(mem);
-    checkSeedHashes(seedHashMem, computeSeedHash(seed)); //throws if bad seedHash
+    Hasher.seedHashToHasher(seedHashMem, seed); //throws if no Hasher produces this seedHash
     return seedHashMem;
   }
 
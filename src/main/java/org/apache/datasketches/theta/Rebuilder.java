@@ -19,6 +19,7 @@
 
 package org.apache.datasketches.theta;
 
+import static org.apache.datasketches.QuickSelect.select;
 import static org.apache.datasketches.QuickSelect.selectExcludingZeros;
 import static org.apache.datasketches.theta.PreambleUtil.LG_ARR_LONGS_BYTE;
 import static org.apache.datasketches.theta.PreambleUtil.extractCurCount;
@@ -28,6 +29,10 @@ import static org.apache.datasketches.theta.PreambleUtil.insertCurCount;
 import static org.apache.datasketches.theta.PreambleUtil.insertLgArrLongs;
 import static org.apache.datasketches.theta.PreambleUtil.insertThetaLong;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
 import org.apache.datasketches.HashOperations;
 import org.apache.datasketches.Util;
 import org.apache.datasketches.memory.Memory;
@@ -41,6 +46,20 @@ import org.apache.datasketches.memory.WritableMemory;
  */
 final class Rebuilder {
 
+  /**
+   * The log_base2 of the smallest hash table, in longs, that is rebuilt in parallel by a sketch
+   * that was given a rebuild pool. Smaller tables are rebuilt on the calling thread.
+   */
+  static final int PARALLEL_MIN_LG_ARR_LONGS = 20;
+
+  /**
+   * The smallest number of hash values that a compaction sorts in parallel.
+   */
+  static final int PARALLEL_MIN_SORT_LENGTH = 1 << 19;
+
+  private static final int LG_BUCKETS = 12;
+  private static final int CHUNKS_PER_THREAD = 4;
+
   private Rebuilder() {}
 
   /**
@@ -52,9 +71,10 @@ final class Rebuilder {
    * @param mem the Memory the given Memory
    * @param preambleLongs size of preamble in longs
    * @param lgNomLongs the log_base2 of k, the configuration parameter of the sketch
+   * @param pool the ForkJoinPool that rebuilds large tables in parallel, or null
    */
   static final void quickSelectAndRebuild(final WritableMemory mem, final int preambleLongs,
-      final int lgNomLongs) {
+      final int lgNomLongs, final ForkJoinPool pool) {
     //Note: This copies the Memory data onto the heap and then at the end copies the result
     // back to Memory. Even if we tried to do this directly into Memory it would require pre-clearing,
     // and the internal loops would be slower. The bulk copies are performed at a low level and
@@ -69,14 +89,13 @@ final class Rebuilder {
     mem.getLongArray(preBytes, tmpArr, 0, arrLongs); //copy mem data to tmpArr
 
     //Do the QuickSelect on a tmp arr to create new thetaLong
-    final int pivot = (1 << lgNomLongs) + 1; // (K+1) pivot for QS
-    final long newThetaLong = selectExcludingZeros(tmpArr, curCount, pivot);
+    final long newThetaLong =
+        rebuildThetaLong(tmpArr, curCount, lgNomLongs, extractThetaLong(mem), pool);
     insertThetaLong(mem, newThetaLong); //UPDATE thetalong
 
     //Rebuild to clean up dirty data, update count
     final long[] tgtArr = new long[arrLongs];
-    final int newCurCount =
-        HashOperations.hashArrayInsert(tmpArr, tgtArr, lgArrLongs, newThetaLong);
+    final int newCurCount = rebuildHashTable(tmpArr, tgtArr, lgArrLongs, newThetaLong, pool);
     insertCurCount(mem, newCurCount); //UPDATE curCount
 
     //put the rebuilt array back into memory
@@ -160,6 +179,161 @@ final class Rebuilder {
     insertLgArrLongs(mem, tgtLgArrLongs); //update in mem
   }
 
+  /**
+   * Returns the new thetaLong of a rebuild, which is the (k+1)th smallest nonzero hash value of
+   * the given hash table. If a pool is given, tables of at least 2^PARALLEL_MIN_LG_ARR_LONGS
+   * longs are selected in parallel on it, otherwise this is a QuickSelect that reorders the
+   * given hash table.
+   *
+   * @param hashTable the hash table, which may be reordered
+   * @param curCount the number of nonzero values in the hash table
+   * @param lgNomLongs the log_base2 of k, the configuration parameter of the sketch
+   * @param thetaLong the current thetaLong, which bounds the values of the hash table
+   * @param pool the ForkJoinPool that selects large tables in parallel, or null
+   * @return the new thetaLong
+   */
+  static final long rebuildThetaLong(final long[] hashTable, final int curCount,
+      final int lgNomLongs, final long thetaLong, final ForkJoinPool pool) {
+    final int pivot = (1 << lgNomLongs) + 1; // (K+1) pivot for QS
+    if (!isParallel(hashTable.length, pool)) {
+      return selectExcludingZeros(hashTable, curCount, pivot);
+    }
+    return parallelSelectExcludingZeros(hashTable, curCount, pivot, thetaLong, pool);
+  }
+
+  /**
+   * Inserts the values of the source array that are nonzero and less than thetaLong into the
+   * given empty hash table. If a pool is given, arrays of at least 2^PARALLEL_MIN_LG_ARR_LONGS
+   * longs are scanned in parallel on it, the surviving values are then inserted on the calling
+   * thread.
+   *
+   * @param srcArr the source array, which is not modified
+   * @param tgtArr the empty target hash table
+   * @param lgArrLongs the log_base2 of the size of the target hash table
+   * @param thetaLong the thetaLong of the rebuilt hash table
+   * @param pool the ForkJoinPool that scans large arrays in parallel, or null
+   * @return the number of values inserted
+   */
+  static final int rebuildHashTable(final long[] srcArr, final long[] tgtArr,
+      final int lgArrLongs, final long thetaLong, final ForkJoinPool pool) {
+    if (!isParallel(srcArr.length, pool)) {
+      return HashOperations.hashArrayInsert(srcArr, tgtArr, lgArrLongs, thetaLong);
+    }
+    final int chunks = numChunks(pool);
+    final int chunkLen = ((srcArr.length + chunks) - 1) / chunks;
+    final long[][] survivors = new long[chunks][];
+    invokeChunks(pool, chunks, c -> {
+      final int lo = c * chunkLen;
+      final int hi = Math.min(lo + chunkLen, srcArr.length);
+      int count = 0;
+      for (int i = lo; i < hi; i++) {
+        final long v = srcArr[i];
+        if ((v != 0) && (v < thetaLong)) { count++; }
+      }
+      final long[] arr = new long[count];
+      int j = 0;
+      for (int i = lo; (i < hi) && (j < count); i++) {
+        final long v = srcArr[i];
+        if ((v != 0) && (v < thetaLong)) { arr[j++] = v; }
+      }
+      survivors[c] = arr;
+    });
+    int count = 0;
+    for (int c = 0; c < chunks; c++) {
+      count += HashOperations.hashArrayInsert(survivors[c], tgtArr, lgArrLongs, thetaLong);
+    }
+    return count;
+  }
+
+  /**
+   * Gets the 1-based kth order statistic from the array excluding any zero values in the array,
+   * in parallel on the given ForkJoinPool. The array is not modified.
+   *
+   * <p>The nonzero values are counted into buckets of equal width below the given upper bound,
+   * the bucket that holds the requested order statistic is gathered into a small array, and
+   * the statistic is selected from that array.</p>
+   *
+   * @param arr the hash array
+   * @param nonZeros the number of nonzero values in the array
+   * @param pivot the 1-based index of the value to select
+   * @param upperBound a value that is greater than the values of the array, typically thetaLong.
+   * Larger values are counted into the last bucket.
+   * @param pool the ForkJoinPool that runs the selection
+   * @return the value of the smallest (N)th element excluding zeros, where N is 1-based.
+   */
+  static final long parallelSelectExcludingZeros(final long[] arr, final int nonZeros,
+      final int pivot, final long upperBound, final ForkJoinPool pool) {
+    if (pivot > nonZeros) {
+      return 0L;
+    }
+    final int buckets = 1 << LG_BUCKETS;
+    final int shift =
+        Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(upperBound) - LG_BUCKETS);
+    final int chunks = numChunks(pool);
+    final int chunkLen = ((arr.length + chunks) - 1) / chunks;
+
+    //count the nonzero values of each chunk into buckets
+    final int[][] histograms = new int[chunks][buckets];
+    invokeChunks(pool, chunks, c -> {
+      final int[] hist = histograms[c];
+      final int hi = Math.min((c + 1) * chunkLen, arr.length);
+      for (int i = c * chunkLen; i < hi; i++) {
+        final long v = arr[i];
+        if (v != 0) { hist[bucket(v, shift, buckets)]++; }
+      }
+    });
+
+    //find the bucket that holds the pivot and the rank of the pivot within that bucket
+    int bucket = 0;
+    int bucketCount = 0;
+    int rank = pivot;
+    for (; bucket < buckets; bucket++) {
+      bucketCount = 0;
+      for (int c = 0; c < chunks; c++) { bucketCount += histograms[c][bucket]; }
+      if (rank <= bucketCount) { break; }
+      rank -= bucketCount;
+    }
+    if (bucket == buckets) { //fewer nonzero values than the given nonZeros
+      return 0L;
+    }
+
+    //gather the values of that bucket, each chunk into its own range
+    final int[] offsets = new int[chunks];
+    for (int c = 1; c < chunks; c++) {
+      offsets[c] = offsets[c - 1] + histograms[c - 1][bucket];
+    }
+    final long[] bucketArr = new long[bucketCount];
+    final int tgtBucket = bucket;
+    invokeChunks(pool, chunks, c -> {
+      int j = offsets[c];
+      final int end = j + histograms[c][tgtBucket];
+      final int hi = Math.min((c + 1) * chunkLen, arr.length);
+      for (int i = c * chunkLen; (i < hi) && (j < end); i++) {
+        final long v = arr[i];
+        if ((v != 0) && (bucket(v, shift, buckets) == tgtBucket)) { bucketArr[j++] = v; }
+      }
+    });
+    return select(bucketArr, 0, bucketCount - 1, rank - 1);
+  }
+
+  private static int bucket(final long v, final int shift, final int buckets) {
+    return (int) Math.min(v >>> shift, buckets - 1);
+  }
+
+  private static boolean isParallel(final int arrLongs, final ForkJoinPool pool) {
+    return (pool != null) && (arrLongs >= (1 << PARALLEL_MIN_LG_ARR_LONGS))
+        && (pool.getParallelism() > 1);
+  }
+
+  private static int numChunks(final ForkJoinPool pool) {
+    return pool.getParallelism() * CHUNKS_PER_THREAD;
+  }
+
+  private static void invokeChunks(final ForkJoinPool pool, final int chunks,
+      final IntConsumer action) {
+    pool.invoke(new ChunkTask(action, 0, chunks));
+  }
+
   /**
    * Returns the actual log2 Resize Factor that can be used to grow the hash table. This will be
    * an integer value between zero and the given lgRF, inclusive;
@@ -176,4 +350,27 @@ final class Rebuilder {
     return (lgFactor >= lgRF) ? lgRF : lgFactor;
   }
 
+  private static final class ChunkTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final transient IntConsumer action;
+    private final int lo;
+    private final int hi;
+
+    ChunkTask(final IntConsumer action, final int lo, final int hi) {
+      this.action = action;
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    @Override
+    protected void compute() {
+      if ((hi - lo) == 1) {
+        action.accept(lo);
+        return;
+      }
+      final int mid = (lo + hi) >>> 1;
+      invokeAll(new ChunkTask(action, lo, mid), new ChunkTask(action, mid, hi));
+    }
+  }
+
 }
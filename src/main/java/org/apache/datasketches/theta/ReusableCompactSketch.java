@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * A read-only, Direct compact sketch that can be reset to wrap a different compact sketch image
+ * without allocating any objects. It is meant for query paths that read many stored sketches
+ * one after the other, where a new wrapper per sketch would be needed with
+ * {@link Sketch#wrap(Memory)}.
+ *
+ * <p>The wrapped image must be a Serialization Version 3 compact sketch, which may be empty,
+ * a single item, ordered or unordered. Unlike {@link Sketch#wrap(Memory)}, empty and single item
+ * images are read in place as well. Before the first reset this sketch is empty.</p>
+ *
+ * <p>This sketch is not thread safe. A reference to it that is kept by the caller sees the
+ * image of the latest reset, so anything that must outlive the next reset should be copied with
+ * {@link #compact(boolean, org.apache.datasketches.memory.WritableMemory) compact(...)}.</p>
+ */
+public final class ReusableCompactSketch extends DirectCompactSketch {
+  private final long seed_;
+  private short seedHash_; //the seed hash of the last image that was checked
+
+  /**
+   * Creates an empty sketch that can wrap images created with the default update seed.
+   */
+  public ReusableCompactSketch() {
+    this(DEFAULT_UPDATE_SEED);
+  }
+
+  /**
+   * Creates an empty sketch that can wrap images created with the given update seed and any
+   * {@link org.apache.datasketches.hash.Hasher Hasher}.
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>.
+   */
+  public ReusableCompactSketch(final long seed) {
+    super(Memory.wrap(EmptyCompactSketch.EMPTY_COMPACT_SKETCH_ARR));
+    seed_ = seed;
+  }
+
+  /**
+   * Resets this sketch to wrap the given compact sketch image. Only the preamble is checked.
+   * @param srcMem the given compact sketch image, which must not change while it is wrapped.
+   * <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
+   * @return this sketch
+   */
+  public ReusableCompactSketch reset(final Memory srcMem) {
+    if (srcMem == null) {
+      throw new SketchesArgumentException("Memory must not be null.");
+    }
+    final long capacity = srcMem.getCapacity();
+    if (capacity < 8) {
+      throw new SketchesArgumentException("Memory capacity too small: " + capacity + " < 8");
+    }
+    if (CompactSketchArena.checkSketch(srcMem, 0, capacity) > 8) { //not empty
+      seedHash_ = CompactSketchArena.checkSeedHash(srcMem, 0, seed_, seedHash_);
+    }
+    mem_ = srcMem;
+    return this;
+  }
+}
@@ -0,0 +1,497 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static java.lang.Math.min;
+import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
+
+import java.util.Arrays;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.Util;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * An expression tree of set operations over Theta Sketches, such as
+ * <i>((A &cup; B) &cap; C) \ D</i>, which is evaluated in a single streaming pass.
+ *
+ * <p>Chaining {@link Union}, {@link Intersection} and {@link AnotB} operators compacts every
+ * intermediate result. Instead, an evaluation first computes the theta of the whole expression,
+ * which is the minimum theta of the sketches that contribute to it. It then walks the sorted hash
+ * arrays of all the input sketches together in ascending order, in the manner of a merge join,
+ * and only materializes the final CompactSketch. Ordered compact inputs, including those wrapped
+ * in Memory, are read in place. Any other input is compacted once at the start of an
+ * evaluation.</p>
+ *
+ * <p>The operator semantics, including the empty rules, are those of the operator classes, with
+ * one exception: a union within an expression is not limited to a number of nominal entries, so
+ * it keeps every hash less than the theta of the expression. To limit the size of the result, see
+ * {@link #evaluate(int, boolean, WritableMemory)}.</p>
+ *
+ * <p>Expressions are immutable and may be shared by concurrent evaluations, provided that their
+ * input sketches are not changed. The same expression may appear more than once in a tree.</p>
+ */
+public abstract class SetExpression {
+
+  SetExpression() {}
+
+  /**
+   * Returns an expression of the theta sketch in the given Memory, which is wrapped, not copied.
+   * The sketch must have been created with the default update seed.
+   * @param srcMem an image of a Theta Sketch, which must not change until all evaluations are done
+   * @return an expression of the given sketch
+   */
+  public static SetExpression sketch(final Memory srcMem) {
+    return sketch(srcMem, DEFAULT_UPDATE_SEED);
+  }
+
+  /**
+   * Returns an expression of the theta sketch in the given Memory, which is wrapped, not copied.
+   * @param srcMem an image of a Theta Sketch, which must not change until all evaluations are done
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>.
+   * @return an expression of the given sketch
+   */
+  public static SetExpression sketch(final Memory srcMem, final long seed) {
+    if (srcMem == null) {
+      throw new SketchesArgumentException("The source Memory must not be null.");
+    }
+    return sketch(Sketch.wrap(srcMem, seed)); //the seed hash of the image, of any Hasher
+  }
+
+  /**
+   * Returns an expression of the given sketch.
+   * @param sketch the given sketch, which must not change until all evaluations are done
+   * @return an expression of the given sketch
+   */
+  public static SetExpression sketch(final Sketch sketch) {
+    if (sketch == null) {
+      throw new SketchesArgumentException("The sketch must not be null.");
+    }
+    return new Leaf(sketch, sketch.isEmpty() ? 0 : sketch.getSeedHash());
+  }
+
+  /**
+   * Returns the union of the given expressions.
+   * @param operands the given expressions, at least one
+   * @return the union of the given expressions
+   */
+  public static SetExpression union(final SetExpression... operands) {
+    return new Node(Node.UNION, checkOperands(operands));
+  }
+
+  /**
+   * Returns the intersection of the given expressions.
+   * @param operands the given expressions, at least one
+   * @return the intersection of the given expressions
+   */
+  public static SetExpression intersection(final SetExpression... operands) {
+    return new Node(Node.INTERSECTION, checkOperands(operands));
+  }
+
+  /**
+   * Returns the expression <i>a</i> and not <i>b</i>.
+   * @param a the expression to keep entries from
+   * @param b the expression of the entries to remove
+   * @return the expression <i>a</i> and not <i>b</i>
+   */
+  public static SetExpression aNotB(final SetExpression a, final SetExpression b) {
+    return new Node(Node.A_NOT_B, checkOperands(a, b));
+  }
+
+  /**
+   * Evaluates this expression and returns the result as an ordered CompactSketch on the heap.
+   * @return the result as an ordered CompactSketch on the heap
+   */
+  public CompactSketch evaluate() {
+    return evaluate(Integer.MAX_VALUE, true, null);
+  }
+
+  /**
+   * Evaluates this expression and returns the result as a CompactSketch.
+   * @param dstOrdered
+   * <a href="{@docRoot}/resources/dictionary.html#dstOrdered">See Destination Ordered</a>.
+   * @param dstMem
+   * <a href="{@docRoot}/resources/dictionary.html#dstMem">See Destination Memory</a>.
+   * @return the result as a CompactSketch
+   */
+  public CompactSketch evaluate(final boolean dstOrdered, final WritableMemory dstMem) {
+    return evaluate(Integer.MAX_VALUE, dstOrdered, dstMem);
+  }
+
+  /**
+   * Evaluates this expression and returns the result as a CompactSketch of at most the given
+   * number of entries. If the expression has more entries, only the smallest are kept and theta
+   * becomes the smallest hash that was not kept, as in a {@link Union}. The evaluation stops as
+   * soon as that hash is found.
+   * @param maxEntries the maximum number of entries of the result, at least one
+   * @param dstOrdered
+   * <a href="{@docRoot}/resources/dictionary.html#dstOrdered">See Destination Ordered</a>.
+   * @param dstMem
+   * <a href="{@docRoot}/resources/dictionary.html#dstMem">See Destination Memory</a>.
+   * @return the result as a CompactSketch
+   */
+  public CompactSketch evaluate(final int maxEntries, final boolean dstOrdered,
+      final WritableMemory dstMem) {
+    if (maxEntries < 1) {
+      throw new SketchesArgumentException("maxEntries must be at least one: " + maxEntries);
+    }
+    final short seedHash = checkSeedHash((short) 0);
+    final short resultSeedHash = (seedHash != 0) ? seedHash
+        : Util.computeSeedHash(DEFAULT_UPDATE_SEED);
+    if (isEmpty()) {
+      return CompactOperations.componentsToCompact(Long.MAX_VALUE, 0, resultSeedHash, true, true,
+          true, dstOrdered, dstMem, new long[0]);
+    }
+    long thetaLong = getThetaLong();
+    final Cursor cursor = cursor(thetaLong);
+    long[] hashArr = new long[(int) min(min(maxCount(), maxEntries), 1024)];
+    int count = 0;
+    for (long hash = cursor.advance(1); hash < thetaLong; hash = cursor.advance(hash + 1)) {
+      if (count == maxEntries) {
+        thetaLong = hash;
+        break;
+      }
+      if (count == hashArr.length) {
+        hashArr = Arrays.copyOf(hashArr, (int) min((2L * count) + 16, Integer.MAX_VALUE - 8));
+      }
+      hashArr[count++] = hash;
+    }
+    return CompactOperations.componentsToCompact(thetaLong, count, resultSeedHash, false, true,
+        true, dstOrdered, dstMem, Arrays.copyOf(hashArr, count));
+  }
+
+  //restricted
+
+  /**
+   * Returns true if the result of this expression is empty by the empty rules of the operators.
+   * @return true if the result of this expression is empty
+   */
+  abstract boolean isEmpty();
+
+  /**
+   * Returns the theta of this expression, which is Long.MAX_VALUE if it is empty.
+   * @return the theta of this expression
+   */
+  abstract long getThetaLong();
+
+  /**
+   * Returns an upper bound of the number of hashes of this expression.
+   * @return an upper bound of the number of hashes of this expression
+   */
+  abstract long maxCount();
+
+  /**
+   * Checks the seed hashes of the sketches of this expression against the given seed hash.
+   * @param seedHash the seed hash so far, or zero if none has been seen
+   * @return the seed hash of the sketches, or zero if none has been seen
+   */
+  abstract short checkSeedHash(short seedHash);
+
+  /**
+   * Returns a new cursor over the hashes of this expression that are less than the given theta.
+   * @param thetaLong the theta of the evaluation
+   * @return a new cursor
+   */
+  abstract Cursor cursor(long thetaLong);
+
+  private static SetExpression[] checkOperands(final SetExpression... operands) {
+    if ((operands == null) || (operands.length == 0)) {
+      throw new SketchesArgumentException("At least one operand is required.");
+    }
+    for (final SetExpression operand : operands) {
+      if (operand == null) {
+        throw new SketchesArgumentException("Operands must not be null.");
+      }
+    }
+    return operands.clone();
+  }
+
+  /**
+   * A forward-only cursor over the ascending hashes of an expression.
+   */
+  abstract static class Cursor {
+
+    /**
+     * Returns the smallest hash of the expression that is greater than or equal to the given
+     * target, or the theta of the evaluation if there is none. Targets must never decrease.
+     * @param target the given target
+     * @return the smallest hash greater than or equal to the target
+     */
+    abstract long advance(long target);
+  }
+
+  private static final class Leaf extends SetExpression {
+    private final Sketch sketch_;
+    private final short seedHash_; //zero if unknown
+
+    Leaf(final Sketch sketch, final short seedHash) {
+      sketch_ = sketch;
+      seedHash_ = seedHash;
+    }
+
+    @Override
+    boolean isEmpty() {
+      return sketch_.isEmpty();
+    }
+
+    @Override
+    long getThetaLong() {
+      return sketch_.isEmpty() ? Long.MAX_VALUE : sketch_.getThetaLong();
+    }
+
+    @Override
+    long maxCount() {
+      return sketch_.getRetainedEntries(true);
+    }
+
+    @Override
+    short checkSeedHash(final short seedHash) {
+      if (seedHash_ == 0) { return seedHash; }
+      if (seedHash != 0) { Util.checkSeedHashes(seedHash, seedHash_); }
+      return seedHash_;
+    }
+
+    @Override
+    Cursor cursor(final long thetaLong) {
+      final Sketch ordered = (sketch_.isOrdered() || sketch_.isEmpty()) ? sketch_
+          : sketch_.compact(true, null);
+      final OrderedHashArray array = ordered.isEmpty() ? new OrderedHashArray(new long[0], 0)
+          : new OrderedHashArray(ordered);
+      return new Cursor() {
+        private int pos_;
+
+        @Override
+        long advance(final long target) {
+          pos_ = array.seek(target, pos_);
+          if (pos_ == array.getCount()) { return thetaLong; }
+          return min(array.get(pos_), thetaLong);
+        }
+      };
+    }
+
+    @Override
+    public String toString() {
+      return "sketch(" + sketch_.getRetainedEntries(true) + ")";
+    }
+  }
+
+  private static final class Node extends SetExpression {
+    static final int UNION = 0;
+    static final int INTERSECTION = 1;
+    static final int A_NOT_B = 2;
+    private static final String[] NAMES = {"union", "intersection", "aNotB"};
+    private final int op_;
+    private final SetExpression[] operands_;
+
+    Node(final int op, final SetExpression[] operands) {
+      op_ = op;
+      operands_ = operands;
+    }
+
+    @Override
+    boolean isEmpty() {
+      switch (op_) {
+        case UNION: {
+          for (final SetExpression operand : operands_) {
+            if (!operand.isEmpty()) { return false; }
+          }
+          return true;
+        }
+        case INTERSECTION: {
+          for (final SetExpression operand : operands_) {
+            if (operand.isEmpty()) { return true; }
+          }
+          return false;
+        }
+        default: return operands_[0].isEmpty();
+      }
+    }
+
+    @Override
+    long getThetaLong() {
+      if (isEmpty()) { return Long.MAX_VALUE; }
+      long thetaLong = Long.MAX_VALUE;
+      for (final SetExpression operand : operands_) {
+        thetaLong = min(thetaLong, operand.getThetaLong());
+      }
+      return thetaLong;
+    }
+
+    @Override
+    long maxCount() {
+      switch (op_) {
+        case UNION: {
+          long count = 0;
+          for (final SetExpression operand : operands_) { count += operand.maxCount(); }
+          return count;
+        }
+        case INTERSECTION: {
+          long count = Long.MAX_VALUE;
+          for (final SetExpression operand : operands_) {
+            count = min(count, operand.maxCount());
+          }
+          return count;
+        }
+        default: return operands_[0].maxCount();
+      }
+    }
+
+    @Override
+    short checkSeedHash(final short seedHash) {
+      short result = seedHash;
+      for (final SetExpression operand : operands_) { result = operand.checkSeedHash(result); }
+      return result;
+    }
+
+    @Override
+    Cursor cursor(final long thetaLong) {
+      switch (op_) {
+        case UNION: return new UnionCursor(operands_, thetaLong);
+        case INTERSECTION: return new IntersectionCursor(operands_, thetaLong);
+        default: return new AnotBCursor(operands_[0], operands_[1], thetaLong);
+      }
+    }
+
+    @Override
+    public String toString() {
+      final StringBuilder sb = new StringBuilder(NAMES[op_]).append('(');
+      for (int i = 0; i < operands_.length; i++) {
+        if (i > 0) { sb.append(", "); }
+        sb.append(operands_[i]);
+      }
+      return sb.append(')').toString();
+    }
+  }
+
+  /**
+   * The union of its operands, using a binary min-heap of their current hashes.
+   */
+  private static final class UnionCursor extends Cursor {
+    private final Cursor[] cursors_;
+    private final long[] heads_; //the current hash of each cursor
+    private final int[] heap_;   //cursor indices, ordered by heads_
+    private final long thetaLong_;
+    private int heapSize_;
+
+    UnionCursor(final SetExpression[] operands, final long thetaLong) {
+      final int num = operands.length;
+      cursors_ = new Cursor[num];
+      heads_ = new long[num]; //all zero, below any target, so the heap is in order
+      heap_ = new int[num];
+      for (int i = 0; i < num; i++) {
+        cursors_[i] = operands[i].cursor(thetaLong);
+        heap_[i] = i;
+      }
+      thetaLong_ = thetaLong;
+      heapSize_ = num;
+    }
+
+    @Override
+    long advance(final long target) {
+      while ((heapSize_ > 0) && (heads_[heap_[0]] < target)) {
+        final int i = heap_[0];
+        final long hash = cursors_[i].advance(target);
+        if (hash < thetaLong_) {
+          heads_[i] = hash;
+        } else {
+          heap_[0] = heap_[--heapSize_];
+        }
+        siftDown();
+      }
+      return (heapSize_ > 0) ? heads_[heap_[0]] : thetaLong_;
+    }
+
+    private void siftDown() {
+      int parent = 0;
+      final int idx = heap_[parent];
+      final long key = heads_[idx];
+      final int half = heapSize_ >>> 1;
+      while (parent < half) {
+        int child = (parent << 1) + 1;
+        final int right = child + 1;
+        if ((right < heapSize_) && (heads_[heap_[right]] < heads_[heap_[child]])) { child = right; }
+        if (key <= heads_[heap_[child]]) { break; }
+        heap_[parent] = heap_[child];
+        parent = child;
+      }
+      heap_[parent] = idx;
+    }
+  }
+
+  /**
+   * The intersection of its operands, using a leapfrog join. The operand with the fewest hashes
+   * proposes the candidates first.
+   */
+  private static final class IntersectionCursor extends Cursor {
+    private final Cursor[] cursors_;
+    private final long thetaLong_;
+
+    IntersectionCursor(final SetExpression[] operands, final long thetaLong) {
+      final SetExpression[] sorted = operands.clone();
+      Arrays.sort(sorted, (x, y) -> Long.compare(x.maxCount(), y.maxCount()));
+      cursors_ = new Cursor[sorted.length];
+      for (int i = 0; i < sorted.length; i++) { cursors_[i] = sorted[i].cursor(thetaLong); }
+      thetaLong_ = thetaLong;
+    }
+
+    @Override
+    long advance(final long target) {
+      final int num = cursors_.length;
+      long candidate = target;
+      int agreed = 0;
+      for (int i = 0; ; i = (i + 1 == num) ? 0 : i + 1) {
+        final long hash = cursors_[i].advance(candidate);
+        if (hash >= thetaLong_) { return thetaLong_; }
+        if (hash == candidate) {
+          if (++agreed == num) { return candidate; }
+        } else {
+          candidate = hash;
+          agreed = 1;
+        }
+      }
+    }
+  }
+
+  /**
+   * The hashes of <i>a</i> that are not in <i>b</i>.
+   */
+  private static final class AnotBCursor extends Cursor {
+    private final Cursor a_;
+    private final Cursor b_;
+    private final long thetaLong_;
+
+    AnotBCursor(final SetExpression a, final SetExpression b, final long thetaLong) {
+      a_ = a.cursor(thetaLong);
+      b_ = b.cursor(thetaLong);
+      thetaLong_ = thetaLong;
+    }
+
+    @Override
+    long advance(final long target) {
+      long hash = a_.advance(target);
+      while (hash < thetaLong_) {
+        if (b_.advance(hash) != hash) { return hash; }
+        hash = a_.advance(hash + 1);
+      }
+      return thetaLong_;
+    }
+  }
+}
@@ -30,6 +30,7 @@ import static org.apache.datasketches.Util.ceilingPowerOf2;
 import org.apache.datasketches.Family;
 import org.apache.datasketches.ResizeFactor;
 import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.DefaultMemoryRequestServer;
 import org.apache.datasketches.memory.MemoryRequestServer;
 import org.apache.datasketches.memory.WritableMemory;
@@ -45,12 +46,14 @@ public class SetOperationBuilder {
   private ResizeFactor bRF;
   private float bP;
   private MemoryRequestServer bMemReqSvr;
+  private Hasher bHasher;
 
   /**
    * Constructor for building a new SetOperation.  The default configuration is
    * <ul>
    * <li>Nominal Entries: {@value org.apache.datasketches.Util#DEFAULT_NOMINAL_ENTRIES}</li>
    * <li>Seed: {@value org.apache.datasketches.Util#DEFAULT_UPDATE_SEED}</li>
+   * <li>Hasher: {@link Hasher#MURMUR3}</li>
    * <li>{@link ResizeFactor#X8}</li>
    * <li>Input Sampling Probability: 1.0</li>
    * <li>Memory: null</li>
@@ -62,6 +65,7 @@ public class SetOperationBuilder {
     bP = (float) 1.0;
     bRF = ResizeFactor.X8;
     bMemReqSvr = new DefaultMemoryRequestServer();
+    bHasher = Hasher.MURMUR3;
   }
 
   /**
@@ -109,6 +113,28 @@ public class SetOperationBuilder {
     return bSeed;
   }
 
+  /**
+   * Sets the Hasher of the sketches that this set operation will accept. It must be the same
+   * Hasher that the sketches were built with.
+   * @param hasher the given Hasher. It cannot be null.
+   * @return this SetOperationBuilder
+   */
+  public SetOperationBuilder setHasher(final Hasher hasher) {
+    if (hasher == null) {
+      throw new SketchesArgumentException("Hasher cannot be null.");
+    }
+    bHasher = hasher;
+    return this;
+  }
+
+  /**
+   * Returns the Hasher
+   * @return the Hasher
+   */
+  public Hasher getHasher() {
+    return bHasher;
+  }
+
   /**
    * Sets the upfront uniform sampling probability, <i>p</i>. Although this functionality is
    * implemented for Unions only, it rarely makes sense to use it. The proper use of upfront
@@ -189,25 +215,26 @@ public class SetOperationBuilder {
     switch (family) {
       case UNION: {
         if (dstMem == null) {
-          setOp = UnionImpl.initNewHeapInstance(bLgNomLongs, bSeed, bP, bRF);
+          setOp = UnionImpl.initNewHeapInstance(bLgNomLongs, bSeed, bHasher, bP, bRF);
         }
         else {
-          setOp = UnionImpl.initNewDirectInstance(bLgNomLongs, bSeed, bP, bRF, bMemReqSvr, dstMem);
+          setOp = UnionImpl.initNewDirectInstance(bLgNomLongs, bSeed, bHasher, bP, bRF,
+              bMemReqSvr, dstMem);
         }
         break;
       }
       case INTERSECTION: {
         if (dstMem == null) {
-          setOp = IntersectionImpl.initNewHeapInstance(bSeed);
+          setOp = IntersectionImpl.initNewHeapInstance(bSeed, bHasher);
         }
         else {
-          setOp = IntersectionImpl.initNewDirectInstance(bSeed, dstMem);
+          setOp = IntersectionImpl.initNewDirectInstance(bSeed, bHasher, dstMem);
         }
         break;
       }
       case A_NOT_B: {
         if (dstMem == null) {
-          setOp = new AnotBimpl(bSeed);
+          setOp = new AnotBimpl(bSeed, bHasher);
         }
         else {
           throw new SketchesArgumentException(
@@ -279,6 +306,7 @@ public class SetOperationBuilder {
     sb.append("LgK:").append(TAB).append(bLgNomLongs).append(LS);
     sb.append("K:").append(TAB).append(1 << bLgNomLongs).append(LS);
     sb.append("Seed:").append(TAB).append(bSeed).append(LS);
+    sb.append("Hasher:").append(TAB).append(bHasher).append(LS);
     sb.append("p:").append(TAB).append(bP).append(LS);
     sb.append("ResizeFactor:").append(TAB).append(bRF).append(LS);
     final String mrsStr = bMemReqSvr.getClass().getSimpleName();
@@ -142,6 +142,14 @@ public abstract class Sketch {
               "Corrupted: " + family + " family image: must have SerVer = 3 and preLongs = 3");
         }
       }
+      case ALPHA: { //Hash Table structure
+        if ((serVer == 3) && (preLongs == 3)) {
+          return DirectAlphaSketch.readOnlyWrap(srcMem, seed);
+        } else {
+          throw new SketchesArgumentException(
+              "Corrupted: " + family + " family image: must have SerVer = 3 and preLongs = 3");
+        }
+      }
       case COMPACT: { //serVer 1, 2, 3; preLongs = 1, 2, or 3
         if (serVer == 3) {
           if (PreambleUtil.isEmptyFlag(srcMem)) {
@@ -606,6 +614,16 @@ public abstract class Sketch {
    */
   abstract short getSeedHash();
 
+  /**
+   * Returns a sketch whose theta, retained entries and cache describe the same state for as long
+   * as it is read. Set operations read these through separate calls, so they read the snapshot of
+   * their input. This is the sketch itself, unless it may be updated concurrently with a read.
+   * @return this sketch, or a compact copy of its current state
+   */
+  Sketch snapshot() {
+    return this;
+  }
+
   /**
    * Returns true if given Family id is one of the theta sketches
    * @param id the given Family id
@@ -19,6 +19,8 @@
 
 package org.apache.datasketches.theta;
 
+import java.util.List;
+
 import org.apache.datasketches.Family;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableMemory;
@@ -110,6 +112,21 @@ public abstract class Union extends SetOperation {
    */
   public abstract void update(Sketch sketchIn);
 
+  /**
+   * Perform a Union operation with <i>this</i> union and all of the given sketches of the Theta
+   * Family. The result is the same as calling {@link #update(Sketch)} with each sketch in turn.
+   *
+   * <p>Ordered compact sketches are not inserted one hash at a time. Instead, their sorted hash
+   * arrays are merged together in a single pass, which stops as soon as no further hash can be
+   * retained by this union. This is much faster when unioning many ordered compact sketches, such
+   * as serialized sketches from earlier aggregations. Other sketches are updated individually.</p>
+   *
+   * <p>Nulls and empty sketches in the list are ignored. A null list is ignored.</p>
+   *
+   * @param sketches the incoming sketches.
+   */
+  public abstract void updateAll(List<? extends Sketch> sketches);
+
   /**
    * Perform a Union operation with <i>this</i> union and the given Memory image of any sketch of the
    * Theta Family. The input image may be from earlier versions of the Theta Compact Sketch,
@@ -22,7 +22,6 @@ package org.apache.datasketches.theta;
 import static java.lang.Math.min;
 import static org.apache.datasketches.QuickSelect.selectExcludingZeros;
 import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
-import static org.apache.datasketches.Util.computeSeedHash;
 import static org.apache.datasketches.theta.PreambleUtil.COMPACT_FLAG_MASK;
 import static org.apache.datasketches.theta.PreambleUtil.ORDERED_FLAG_MASK;
 import static org.apache.datasketches.theta.PreambleUtil.PREAMBLE_LONGS_BYTE;
@@ -40,11 +39,14 @@ import static org.apache.datasketches.theta.PreambleUtil.extractUnionThetaLong;
 import static org.apache.datasketches.theta.PreambleUtil.insertUnionThetaLong;
 import static org.apache.datasketches.theta.SingleItemSketch.otherCheckForSingleItem;
 
+import java.util.List;
+
 import org.apache.datasketches.Family;
 import org.apache.datasketches.HashOperations;
 import org.apache.datasketches.ResizeFactor;
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.Util;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.MemoryRequestServer;
 import org.apache.datasketches.memory.WritableMemory;
@@ -71,9 +73,9 @@ final class UnionImpl extends Union {
   private long unionThetaLong_; //when on-heap, this is the only copy
   private boolean unionEmpty_;  //when on-heap, this is the only copy
 
-  private UnionImpl(final UpdateSketch gadget, final long seed) {
+  private UnionImpl(final UpdateSketch gadget) {
     gadget_ = gadget;
-    seedHash_ = computeSeedHash(seed);
+    seedHash_ = gadget.getSeedHash(); //encodes both the seed and the Hasher of the gadget
   }
 
   /**
@@ -82,15 +84,16 @@ final class UnionImpl extends Union {
    *
    * @param lgNomLongs <a href="{@docRoot}/resources/dictionary.html#lgNomLogs">See lgNomLongs</a>
    * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
+   * @param hasher the Hasher used to hash the input data
    * @param p <a href="{@docRoot}/resources/dictionary.html#p">See Sampling Probability, <i>p</i></a>
    * @param rf <a href="{@docRoot}/resources/dictionary.html#resizeFactor">See Resize Factor</a>
    * @return instance of this sketch
    */
-  static UnionImpl initNewHeapInstance(final int lgNomLongs, final long seed, final float p,
-      final ResizeFactor rf) {
+  static UnionImpl initNewHeapInstance(final int lgNomLongs, final long seed, final Hasher hasher,
+      final float p, final ResizeFactor rf) {
     final UpdateSketch gadget = //create with UNION family
-        new HeapQuickSelectSketch(lgNomLongs, seed, p, rf, true);
-    final UnionImpl unionImpl = new UnionImpl(gadget, seed);
+        new HeapQuickSelectSketch(lgNomLongs, seed, hasher, p, rf, true);
+    final UnionImpl unionImpl = new UnionImpl(gadget);
     unionImpl.unionThetaLong_ = gadget.getThetaLong();
     unionImpl.unionEmpty_ = gadget.isEmpty();
     return unionImpl;
@@ -102,6 +105,7 @@ final class UnionImpl extends Union {
    *
    * @param lgNomLongs <a href="{@docRoot}/resources/dictionary.html#lgNomLogs">See lgNomLongs</a>.
    * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
+   * @param hasher the Hasher used to hash the input data
    * @param p <a href="{@docRoot}/resources/dictionary.html#p">See Sampling Probability, <i>p</i></a>
    * @param rf <a href="{@docRoot}/resources/dictionary.html#resizeFactor">See Resize Factor</a>
    * @param memReqSvr a given instance of a MemoryRequestServer
@@ -111,13 +115,14 @@ final class UnionImpl extends Union {
   static UnionImpl initNewDirectInstance(
       final int lgNomLongs,
       final long seed,
+      final Hasher hasher,
       final float p,
       final ResizeFactor rf,
       final MemoryRequestServer memReqSvr,
       final WritableMemory dstMem) {
     final UpdateSketch gadget = //create with UNION family
-        new DirectQuickSelectSketch(lgNomLongs, seed, p, rf, memReqSvr, dstMem, true);
-    final UnionImpl unionImpl = new UnionImpl(gadget, seed);
+        new DirectQuickSelectSketch(lgNomLongs, seed, hasher, p, rf, memReqSvr, dstMem, true);
+    final UnionImpl unionImpl = new UnionImpl(gadget);
     unionImpl.unionThetaLong_ = gadget.getThetaLong();
     unionImpl.unionEmpty_ = gadget.isEmpty();
     return unionImpl;
@@ -134,7 +139,7 @@ final class UnionImpl extends Union {
   static UnionImpl heapifyInstance(final Memory srcMem, final long seed) {
     Family.UNION.checkFamilyID(extractFamilyID(srcMem));
     final UpdateSketch gadget = HeapQuickSelectSketch.heapifyInstance(srcMem, seed);
-    final UnionImpl unionImpl = new UnionImpl(gadget, seed);
+    final UnionImpl unionImpl = new UnionImpl(gadget);
     unionImpl.unionThetaLong_ = extractUnionThetaLong(srcMem);
     unionImpl.unionEmpty_ = PreambleUtil.isEmptyFlag(srcMem);
     return unionImpl;
@@ -151,7 +156,7 @@ final class UnionImpl extends Union {
   static UnionImpl fastWrap(final Memory srcMem, final long seed) {
     Family.UNION.checkFamilyID(extractFamilyID(srcMem));
     final UpdateSketch gadget = DirectQuickSelectSketchR.fastReadOnlyWrap(srcMem, seed);
-    final UnionImpl unionImpl = new UnionImpl(gadget, seed);
+    final UnionImpl unionImpl = new UnionImpl(gadget);
     unionImpl.unionThetaLong_ = extractUnionThetaLong(srcMem);
     unionImpl.unionEmpty_ = PreambleUtil.isEmptyFlag(srcMem);
     return unionImpl;
@@ -168,7 +173,7 @@ final class UnionImpl extends Union {
   static UnionImpl fastWrap(final WritableMemory srcMem, final long seed) {
     Family.UNION.checkFamilyID(extractFamilyID(srcMem));
     final UpdateSketch gadget = DirectQuickSelectSketch.fastWritableWrap(srcMem, seed);
-    final UnionImpl unionImpl = new UnionImpl(gadget, seed);
+    final UnionImpl unionImpl = new UnionImpl(gadget);
     unionImpl.unionThetaLong_ = extractUnionThetaLong(srcMem);
     unionImpl.unionEmpty_ = PreambleUtil.isEmptyFlag(srcMem);
     return unionImpl;
@@ -185,7 +190,7 @@ final class UnionImpl extends Union {
   static UnionImpl wrapInstance(final Memory srcMem, final long seed) {
     Family.UNION.checkFamilyID(extractFamilyID(srcMem));
     final UpdateSketch gadget = DirectQuickSelectSketchR.readOnlyWrap(srcMem, seed);
-    final UnionImpl unionImpl = new UnionImpl(gadget, seed);
+    final UnionImpl unionImpl = new UnionImpl(gadget);
     unionImpl.unionThetaLong_ = extractUnionThetaLong(srcMem);
     unionImpl.unionEmpty_ = PreambleUtil.isEmptyFlag(srcMem);
     return unionImpl;
@@ -200,9 +205,25 @@ final class UnionImpl extends Union {
    * @return this class
    */
   static UnionImpl wrapInstance(final WritableMemory srcMem, final long seed) {
+    return wrapInstance(srcMem, seed, null);
+  }
+
+  /**
+   * Wrap a Union object around a Union Memory object containing data, using the given
+   * MemoryRequestServer when the Union needs more memory.
+   * @param srcMem The source Memory object.
+   * <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
+   * @param memReqSvr a given instance of a MemoryRequestServer, or null to use the one of the
+   * given Memory
+   * @return this class
+   */
+  static UnionImpl wrapInstance(final WritableMemory srcMem, final long seed,
+      final MemoryRequestServer memReqSvr) {
     Family.UNION.checkFamilyID(extractFamilyID(srcMem));
-    final UpdateSketch gadget = DirectQuickSelectSketch.writableWrap(srcMem, seed);
-    final UnionImpl unionImpl = new UnionImpl(gadget, seed);
+    final DirectQuickSelectSketch gadget =
+        DirectQuickSelectSketch.writableWrap(srcMem, seed, memReqSvr);
+    final UnionImpl unionImpl = new UnionImpl(gadget);
     unionImpl.unionThetaLong_ = extractUnionThetaLong(srcMem);
     unionImpl.unionEmpty_ = PreambleUtil.isEmptyFlag(srcMem);
     return unionImpl;
@@ -278,9 +299,9 @@ final class UnionImpl extends Union {
   }
 
   @Override
-  public void update(final Sketch sketchIn) { //Only valid for theta Sketches using SerVer = 3
+  public void update(final Sketch sketch) { //Only valid for theta Sketches using SerVer = 3
     //UNION Empty Rule: AND the empty states.
-
+    final Sketch sketchIn = (sketch == null) ? null : sketch.snapshot();
     if ((sketchIn == null) || sketchIn.isEmpty()) {
       //null and empty is interpreted as (Theta = 1.0, count = 0, empty = T).  Nothing changes
       return;
@@ -337,6 +358,54 @@ final class UnionImpl extends Union {
     }
   }
 
+  @Override
+  public void updateAll(final List<? extends Sketch> sketches) {
+    if (sketches == null) { return; }
+    final Sketch[] orderedIn = new Sketch[sketches.size()];
+    int numOrdered = 0;
+    for (final Sketch sketchIn : sketches) {
+      if ((sketchIn == null) || sketchIn.isEmpty()) { continue; }
+      if (sketchIn.isOrdered()) { //Only true if Compact
+        Util.checkSeedHashes(seedHash_, sketchIn.getSeedHash());
+        Sketch.checkSketchAndMemoryFlags(sketchIn);
+        orderedIn[numOrdered++] = sketchIn;
+      } else {
+        update(sketchIn);
+      }
+    }
+    if (numOrdered == 0) { return; }
+
+    //Theta rule over all ordered inputs at once, then a k-way merge of their hash arrays
+    long minThetaLong = min(unionThetaLong_, gadget_.getThetaLong());
+    for (int i = 0; i < numOrdered; i++) {
+      final Sketch sketchIn = orderedIn[i];
+      minThetaLong = min(minThetaLong, sketchIn.getThetaLong());
+      if (!(sketchIn instanceof SingleItemSketch)) { unionEmpty_ = false; }
+    }
+    unionThetaLong_ = minThetaLong;
+    final OrderedHashMerge merge = new OrderedHashMerge(numOrdered, minThetaLong);
+    for (int i = 0; i < numOrdered; i++) { merge.add(orderedIn[i]); }
+
+    //Any hash greater than the (k+1)th smallest merged hash can never be retained by this union,
+    // so the merge stops there and that hash becomes the union theta.
+    final int k = 1 << gadget_.getLgNomLongs();
+    for (int numMerged = 1; ; numMerged++) {
+      final long hashIn = merge.next();
+      if (hashIn >= min(unionThetaLong_, gadget_.getThetaLong())) { break; } // "early stop"
+      gadget_.hashUpdate(hashIn); //backdoor update, hash function is bypassed
+      if (numMerged > k) {
+        unionThetaLong_ = hashIn;
+        break;
+      }
+    }
+    unionThetaLong_ = min(unionThetaLong_, gadget_.getThetaLong()); //Theta rule with gadget
+    if (gadget_.hasMemory()) {
+      final WritableMemory wmem = (WritableMemory)gadget_.getMemory();
+      PreambleUtil.insertUnionThetaLong(wmem, unionThetaLong_);
+      if (!unionEmpty_) { PreambleUtil.clearEmpty(wmem); }
+    }
+  }
+
   @Override
   public void update(final Memory skMem) {
     if (skMem == null) { return; }
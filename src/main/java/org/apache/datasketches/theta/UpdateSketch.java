@@ -19,13 +19,9 @@
 
 package org.apache.datasketches.theta;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
 import static org.apache.datasketches.Util.LONG_MAX_VALUE_AS_DOUBLE;
 import static org.apache.datasketches.Util.MIN_LG_NOM_LONGS;
-import static org.apache.datasketches.Util.checkSeedHashes;
-import static org.apache.datasketches.Util.computeSeedHash;
-import static org.apache.datasketches.hash.MurmurHash3.hash;
 import static org.apache.datasketches.theta.CompactOperations.componentsToCompact;
 import static org.apache.datasketches.theta.PreambleUtil.BIG_ENDIAN_FLAG_MASK;
 import static org.apache.datasketches.theta.PreambleUtil.COMPACT_FLAG_MASK;
@@ -45,10 +41,14 @@ import static org.apache.datasketches.theta.PreambleUtil.extractThetaLong;
 import static org.apache.datasketches.theta.PreambleUtil.getMemBytes;
 import static org.apache.datasketches.theta.UpdateReturnState.RejectedNullOrEmpty;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.datasketches.Family;
 import org.apache.datasketches.ResizeFactor;
 import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.UnsafeUtil;
 import org.apache.datasketches.memory.WritableMemory;
 
 /**
@@ -59,6 +59,7 @@ import org.apache.datasketches.memory.WritableMemory;
  * @author Lee Rhodes
  */
 public abstract class UpdateSketch extends Sketch {
+  private static final int UPDATE_ALL_CHUNK = 1024; //max hashes buffered by updateAll
 
   UpdateSketch() {}
 
@@ -93,12 +94,14 @@ public abstract class UpdateSketch extends Sketch {
     final int serVer = srcMem.getByte(SER_VER_BYTE) & 0XFF;
     final int familyID = srcMem.getByte(FAMILY_BYTE) & 0XFF;
     final Family family = Family.idToFamily(familyID);
-    if (family != Family.QUICKSELECT) {
+    if ((family != Family.QUICKSELECT) && (family != Family.ALPHA)) {
       throw new SketchesArgumentException(
         "A " + family + " sketch cannot be wrapped as an UpdateSketch.");
     }
     if ((serVer == 3) && (preLongs == 3)) {
-      return DirectQuickSelectSketch.writableWrap(srcMem, seed);
+      return (family == Family.ALPHA)
+          ? DirectAlphaSketch.writableWrap(srcMem, seed)
+          : DirectQuickSelectSketch.writableWrap(srcMem, seed);
     } else {
       throw new SketchesArgumentException(
         "Corrupted: An UpdateSketch image: must have SerVer = 3 and preLongs = 3");
@@ -134,7 +137,7 @@ public abstract class UpdateSketch extends Sketch {
   @Override
   public CompactSketch compact(final boolean dstOrdered, final WritableMemory dstMem) {
     return componentsToCompact(getThetaLong(), getRetainedEntries(true), getSeedHash(), isEmpty(),
-        false, false, dstOrdered, dstMem, getCache());
+        false, false, dstOrdered, dstMem, getCache(), getRebuildPool());
   }
 
   @Override
@@ -188,6 +191,12 @@ public abstract class UpdateSketch extends Sketch {
    */
   abstract long getSeed();
 
+  /**
+   * Gets the Hasher used to hash the input data
+   * @return the Hasher used to hash the input data
+   */
+  abstract Hasher getHasher();
+
   /**
    * Resets this sketch back to a virgin empty state.
    */
@@ -208,8 +217,7 @@ public abstract class UpdateSketch extends Sketch {
    * <a href="{@docRoot}/resources/dictionary.html#updateReturnState">See Update Return State</a>
    */
   public UpdateReturnState update(final long datum) {
-    final long[] data = { datum };
-    return hashUpdate(hash(data, getSeed())[0] >>> 1);
+    return hashUpdate(getHasher().hash64(datum, getSeed()) >>> 1);
   }
 
   /**
@@ -224,14 +232,13 @@ public abstract class UpdateSketch extends Sketch {
    * <a href="{@docRoot}/resources/dictionary.html#updateReturnState">See Update Return State</a>
    */
   public UpdateReturnState update(final double datum) {
-    final double d = (datum == 0.0) ? 0.0 : datum; // canonicalize -0.0, 0.0
-    final long[] data = { Double.doubleToLongBits(d) };// canonicalize all NaN forms
-    return hashUpdate(hash(data, getSeed())[0] >>> 1);
+    //canonicalizes -0.0 and NaN forms
+    return hashUpdate(getHasher().hash64(datum, getSeed()) >>> 1);
   }
 
   /**
    * Present this sketch with the given String.
-   * The string is converted to a byte array using UTF8 encoding.
+   * The string is hashed as its UTF8 encoding.
    * If the string is null or empty no update attempt is made and the method returns.
    *
    * <p>Note: this will not produce the same output hash values as the {@link #update(char[])}
@@ -243,11 +250,25 @@ public abstract class UpdateSketch extends Sketch {
    * <a href="{@docRoot}/resources/dictionary.html#updateReturnState">See Update Return State</a>
    */
   public UpdateReturnState update(final String datum) {
-    if ((datum == null) || datum.isEmpty()) {
+    return update((CharSequence) datum);
+  }
+
+  /**
+   * Present this sketch with the given CharSequence.
+   * The characters are hashed as their UTF8 encoding, so this produces exactly the same result as
+   * {@link #update(String)} with <i>datum.toString()</i>, but the encoding is streamed into the
+   * hash function without creating a String or a byte array.
+   * If the CharSequence is null or empty no update attempt is made and the method returns.
+   *
+   * @param datum The given CharSequence.
+   * @return
+   * <a href="{@docRoot}/resources/dictionary.html#updateReturnState">See Update Return State</a>
+   */
+  public UpdateReturnState update(final CharSequence datum) {
+    if ((datum == null) || (datum.length() == 0)) {
       return RejectedNullOrEmpty;
     }
-    final byte[] data = datum.getBytes(UTF_8);
-    return hashUpdate(hash(data, getSeed())[0] >>> 1);
+    return hashUpdate(getHasher().hash64(datum, getSeed()) >>> 1);
   }
 
   /**
@@ -262,7 +283,29 @@ public abstract class UpdateSketch extends Sketch {
     if ((data == null) || (data.length == 0)) {
       return RejectedNullOrEmpty;
     }
-    return hashUpdate(hash(data, getSeed())[0] >>> 1);
+    return hashUpdate(getHasher().hash64(data, getSeed()) >>> 1);
+  }
+
+  /**
+   * Present this sketch with the given region of Memory as a single datum.
+   * This produces exactly the same result as calling {@link #update(byte[])} with the bytes of the
+   * region, without copying them. For example, the region can be a UTF8 encoded string in a
+   * network buffer, which then gives the same result as {@link #update(String)} with the string.
+   * If the Memory is null or the length is zero no update attempt is made and the method returns.
+   *
+   * @param mem The given Memory.
+   * @param offsetBytes the offset in bytes of the region
+   * @param lengthBytes the length in bytes of the region
+   * @return
+   * <a href="{@docRoot}/resources/dictionary.html#updateReturnState">See Update Return State</a>
+   */
+  public UpdateReturnState update(final Memory mem, final long offsetBytes,
+      final long lengthBytes) {
+    if ((mem == null) || (lengthBytes == 0)) {
+      return RejectedNullOrEmpty;
+    }
+    UnsafeUtil.checkBounds(offsetBytes, lengthBytes, mem.getCapacity());
+    return hashUpdate(getHasher().hash64(mem, offsetBytes, lengthBytes, getSeed()) >>> 1);
   }
 
   /**
@@ -280,7 +323,7 @@ public abstract class UpdateSketch extends Sketch {
     if ((data == null) || (data.length == 0)) {
       return RejectedNullOrEmpty;
     }
-    return hashUpdate(hash(data, getSeed())[0] >>> 1);
+    return hashUpdate(getHasher().hash64(data, getSeed()) >>> 1);
   }
 
   /**
@@ -295,7 +338,7 @@ public abstract class UpdateSketch extends Sketch {
     if ((data == null) || (data.length == 0)) {
       return RejectedNullOrEmpty;
     }
-    return hashUpdate(hash(data, getSeed())[0] >>> 1);
+    return hashUpdate(getHasher().hash64(data, getSeed()) >>> 1);
   }
 
   /**
@@ -310,7 +353,100 @@ public abstract class UpdateSketch extends Sketch {
     if ((data == null) || (data.length == 0)) {
       return RejectedNullOrEmpty;
     }
-    return hashUpdate(hash(data, getSeed())[0] >>> 1);
+    return hashUpdate(getHasher().hash64(data, getSeed()) >>> 1);
+  }
+
+  /**
+   * Present this sketch with each long of the given range of the array as a separate datum.
+   * This produces exactly the same result as calling {@link #update(long)} for each value,
+   * but avoids the per-item method overhead. This is not the same as {@link #update(long[])},
+   * which treats the whole array as a single datum.
+   *
+   * @param values the given array of long data
+   * @param offset the index of the first value to be presented to this sketch
+   * @param length the number of values to be presented to this sketch
+   */
+  public void updateAll(final long[] values, final int offset, final int length) {
+    if (values == null) { return; }
+    UnsafeUtil.checkBounds(offset, length, values.length);
+    final long seed = getSeed();
+    final Hasher hasher = getHasher();
+    final long[] hashes = new long[Math.min(length, UPDATE_ALL_CHUNK)];
+    final int end = offset + length;
+    for (int i = offset; i < end; i += hashes.length) {
+      final int count = Math.min(end - i, hashes.length);
+      hashUpdateAll(hasher.hash64(values, i, count, seed, hashes), count);
+    }
+  }
+
+  /**
+   * Present this sketch with each double of the given range of the array as a separate datum.
+   * This produces exactly the same result as calling {@link #update(double)} for each value,
+   * including the canonicalization of plus and minus zero and of the NaN forms.
+   *
+   * @param values the given array of double data
+   * @param offset the index of the first value to be presented to this sketch
+   * @param length the number of values to be presented to this sketch
+   */
+  public void updateAll(final double[] values, final int offset, final int length) {
+    if (values == null) { return; }
+    UnsafeUtil.checkBounds(offset, length, values.length);
+    final long seed = getSeed();
+    final Hasher hasher = getHasher();
+    final long[] hashes = new long[Math.min(length, UPDATE_ALL_CHUNK)];
+    final int end = offset + length;
+    for (int i = offset; i < end; i += hashes.length) {
+      final int count = Math.min(end - i, hashes.length);
+      hashUpdateAll(hasher.hash64(values, i, count, seed, hashes), count);
+    }
+  }
+
+  /**
+   * Present this sketch with each int of the given range of the array as a separate datum.
+   * Each int is widened to a long, so this produces exactly the same result as calling
+   * {@link #update(long)} for each value.
+   * This is not the same as {@link #update(int[])}, which treats the whole array as a single datum.
+   *
+   * @param values the given array of int data
+   * @param offset the index of the first value to be presented to this sketch
+   * @param length the number of values to be presented to this sketch
+   */
+  public void updateAll(final int[] values, final int offset, final int length) {
+    if (values == null) { return; }
+    UnsafeUtil.checkBounds(offset, length, values.length);
+    final long seed = getSeed();
+    final Hasher hasher = getHasher();
+    final int end = offset + length;
+    for (int i = offset; i < end; i++) {
+      hashUpdate(hasher.hash64(values[i], seed) >>> 1);
+    }
+  }
+
+  /**
+   * Present this sketch with each of the given fixed-width records in Memory as a separate datum.
+   * Each record is hashed as a byte array, so this produces exactly the same result as
+   * calling {@link #update(byte[])} with the bytes of each record.
+   *
+   * @param mem the given Memory holding the records end-to-end
+   * @param offsetBytes the offset in bytes of the first record
+   * @param recordBytes the width in bytes of each record. It must be greater than zero.
+   * @param numRecords the number of records to be presented to this sketch
+   */
+  public void updateAll(final Memory mem, final long offsetBytes, final int recordBytes,
+      final int numRecords) {
+    if (mem == null) { return; }
+    if (recordBytes <= 0) {
+      throw new SketchesArgumentException("recordBytes must be > 0: " + recordBytes);
+    }
+    UnsafeUtil.checkBounds(offsetBytes, (long) recordBytes * numRecords, mem.getCapacity());
+    final long seed = getSeed();
+    final Hasher hasher = getHasher();
+    final long[] hashes = new long[Math.min(numRecords, UPDATE_ALL_CHUNK)];
+    for (int i = 0; i < numRecords; i += hashes.length) {
+      final int count = Math.min(numRecords - i, hashes.length);
+      final long off = offsetBytes + ((long) i * recordBytes);
+      hashUpdateAll(hasher.hash64(mem, off, recordBytes, count, seed, hashes), count);
+    }
   }
 
   //restricted methods
@@ -325,6 +461,12 @@ public abstract class UpdateSketch extends Sketch {
    */
   abstract UpdateReturnState hashUpdate(long hash);
 
+  private void hashUpdateAll(final long[] hashes, final int count) {
+    for (int i = 0; i < count; i++) {
+      hashUpdate(hashes[i] >>> 1);
+    }
+  }
+
   /**
    * Gets the Log base 2 of the current size of the internal cache
    * @return the Log base 2 of the current size of the internal cache
@@ -351,6 +493,16 @@ public abstract class UpdateSketch extends Sketch {
    */
   abstract boolean isOutOfSpace(int numEntries);
 
+  /**
+   * Gets the pool used to rebuild and sort very large hash tables, or null if this sketch
+   * always rebuilds and sorts sequentially, which is the default.
+   * @return the pool used for parallel rebuilds and sorts, or null.
+   * @see UpdateSketchBuilder#setParallelRebuild(boolean)
+   */
+  ForkJoinPool getRebuildPool() {
+    return null;
+  }
+
   static void checkUnionQuickSelectFamily(final Memory mem, final int preambleLongs,
       final int lgNomLongs) {
     //Check Family
@@ -400,8 +552,7 @@ public abstract class UpdateSketch extends Sketch {
     }
 
     //Check seed hashes
-    final short seedHash = checkMemorySeedHash(srcMem, seed);              //byte 6,7
-    checkSeedHashes(seedHash, computeSeedHash(seed));
+    checkMemorySeedHash(srcMem, seed);                                  //byte 6,7
 
     //Check mem capacity, lgArrLongs
     final long curCapBytes = srcMem.getCapacity();
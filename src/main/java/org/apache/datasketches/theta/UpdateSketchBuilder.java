@@ -28,10 +28,14 @@ import static org.apache.datasketches.Util.TAB;
 import static org.apache.datasketches.Util.ceilingPowerOf2;
 import static org.apache.datasketches.Util.checkNomLongs;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.datasketches.Family;
 import org.apache.datasketches.ResizeFactor;
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.SketchesStateException;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.DefaultMemoryRequestServer;
 import org.apache.datasketches.memory.MemoryRequestServer;
 import org.apache.datasketches.memory.WritableMemory;
@@ -48,19 +52,27 @@ public class UpdateSketchBuilder {
   private Family bFam;
   private float bP;
   private MemoryRequestServer bMemReqSvr;
+  private Hasher bHasher;
+  private boolean bIncrementalResize;
+  private boolean bParallelRebuild;
+  private ForkJoinPool bRebuildPool;
 
   //Fields for concurrent theta sketch
   private int bNumPoolThreads;
+  private Executor bPropagationExecutor;
   private int bLocalLgNomLongs;
   private boolean bPropagateOrderedCompact;
   private double bMaxConcurrencyError;
   private int bMaxNumLocalThreads;
+  private boolean bLockFreePropagation;
+  private int bNumStripes;
 
   /**
    * Constructor for building a new UpdateSketch. The default configuration is
    * <ul>
    * <li>Nominal Entries: {@value org.apache.datasketches.Util#DEFAULT_NOMINAL_ENTRIES}</li>
    * <li>Seed: {@value org.apache.datasketches.Util#DEFAULT_UPDATE_SEED}</li>
+   * <li>Hasher: {@link Hasher#MURMUR3}</li>
    * <li>Input Sampling Probability: 1.0</li>
    * <li>Family: {@link org.apache.datasketches.Family#QUICKSELECT}</li>
    * <li>Resize Factor: The default for sketches on the Java heap is {@link ResizeFactor#X8}.
@@ -68,13 +80,21 @@ public class UpdateSketchBuilder {
    * be fixed at either {@link ResizeFactor#X1} or {@link ResizeFactor#X2}.</li>
    * <li>MemoryRequestServer (Direct only):
    * {@link org.apache.datasketches.memory.DefaultMemoryRequestServer}.</li>
+   * <li>Incremental Resize (QuickSelect on the Java heap only): false</li>
+   * <li>Parallel Rebuild (QuickSelect only): false</li>
+   * <li>Rebuild Pool (QuickSelect only): null, which selects the common ForkJoinPool when
+   * Parallel Rebuild is true</li>
    * </ul>
    * Parameters unique to the concurrent sketches only:
    * <ul>
    * <li>Number of local Nominal Entries: 4</li>
    * <li>Concurrent NumPoolThreads: 3</li>
+   * <li>Concurrent PropagationExecutor: null, which selects a shared pool of NumPoolThreads daemon
+   * threads</li>
    * <li>Concurrent PropagateOrderedCompact: true</li>
    * <li>Concurrent MaxConcurrencyError: 0</li>
+   * <li>Concurrent LockFreePropagation: false</li>
+   * <li>Striped NumStripes: 16</li>
    * </ul>
    */
   public UpdateSketchBuilder() {
@@ -84,12 +104,18 @@ public class UpdateSketchBuilder {
     bRF = ResizeFactor.X8;
     bFam = Family.QUICKSELECT;
     bMemReqSvr = new DefaultMemoryRequestServer();
+    bHasher = Hasher.MURMUR3;
+    bIncrementalResize = false;
+    bParallelRebuild = false;
+    bRebuildPool = null;
     // Default values for concurrent sketch
     bNumPoolThreads = ConcurrentPropagationService.NUM_POOL_THREADS;
     bLocalLgNomLongs = 4; //default is smallest legal QS sketch
     bPropagateOrderedCompact = true;
     bMaxConcurrencyError = 0;
     bMaxNumLocalThreads = 1;
+    bLockFreePropagation = false;
+    bNumStripes = ConcurrentStripedQuickSelectSketch.DEFAULT_NUM_STRIPES;
   }
 
   /**
@@ -195,6 +221,28 @@ public class UpdateSketchBuilder {
     return bSeed;
   }
 
+  /**
+   * Sets the Hasher used to hash the input data. Sketches built with different Hashers
+   * cannot be merged, even if they were built with the same seed.
+   * @param hasher the given Hasher. It cannot be null.
+   * @return this UpdateSketchBuilder
+   */
+  public UpdateSketchBuilder setHasher(final Hasher hasher) {
+    if (hasher == null) {
+      throw new SketchesArgumentException("Hasher cannot be null.");
+    }
+    bHasher = hasher;
+    return this;
+  }
+
+  /**
+   * Returns the Hasher
+   * @return the Hasher
+   */
+  public Hasher getHasher() {
+    return bHasher;
+  }
+
   /**
    * Sets the upfront uniform sampling probability, <i>p</i>
    * @param p <a href="{@docRoot}/resources/dictionary.html#p">See Sampling Probability, <i>p</i></a>
@@ -270,6 +318,75 @@ public class UpdateSketchBuilder {
     return bMemReqSvr;
   }
 
+  /**
+   * Sets the Incremental Resize flag. If true, a QuickSelect sketch on the Java heap spreads the
+   * growth and the rebuilds of its hash table over the updates that follow, instead of doing them
+   * all at once during the update that reaches the threshold. Each update then processes a bounded
+   * number of table slots, at the cost of keeping the old table, and during a rebuild a small
+   * pending table, until the work is done. Reading the theta, the retained entries or the hash
+   * table of the sketch completes the work in progress, getEstimate() does not.
+   *
+   * <p>This flag is not serialized and has no effect on the Alpha family or the concurrent
+   * sketches. A QuickSelect sketch in a destination WritableMemory cannot be built with it.</p>
+   *
+   * @param incremental the given value
+   * @return this UpdateSketchBuilder
+   */
+  public UpdateSketchBuilder setIncrementalResize(final boolean incremental) {
+    bIncrementalResize = incremental;
+    return this;
+  }
+
+  /**
+   * Gets the Incremental Resize flag.
+   * @return the Incremental Resize flag
+   */
+  public boolean getIncrementalResize() {
+    return bIncrementalResize;
+  }
+
+  /**
+   * Sets the Parallel Rebuild flag. If true, a QuickSelect sketch whose hash table holds at least
+   * 2^20 longs selects its new theta, rebuilds its hash table and sorts its compact form on the
+   * Rebuild Pool. Otherwise, which is the default, all of this runs sequentially on the calling
+   * thread. This flag is not serialized.
+   *
+   * @param parallel the given value
+   * @return this UpdateSketchBuilder
+   */
+  public UpdateSketchBuilder setParallelRebuild(final boolean parallel) {
+    bParallelRebuild = parallel;
+    return this;
+  }
+
+  /**
+   * Gets the Parallel Rebuild flag.
+   * @return the Parallel Rebuild flag
+   */
+  public boolean getParallelRebuild() {
+    return bParallelRebuild;
+  }
+
+  /**
+   * Sets the ForkJoinPool used when Parallel Rebuild is true. If null, which is the default,
+   * the common ForkJoinPool is used. This pool is ignored if Parallel Rebuild is false.
+   *
+   * @param pool the given ForkJoinPool, or null
+   * @return this UpdateSketchBuilder
+   */
+  public UpdateSketchBuilder setRebuildPool(final ForkJoinPool pool) {
+    bRebuildPool = pool;
+    return this;
+  }
+
+  /**
+   * Gets the ForkJoinPool used when Parallel Rebuild is true.
+   * @return the ForkJoinPool used when Parallel Rebuild is true, or null
+   */
+  public ForkJoinPool getRebuildPool() {
+    return bRebuildPool;
+  }
+
   /**
    * Sets the number of pool threads used for background propagation in the concurrent sketches.
    * @param numPoolThreads the given number of pool threads
@@ -286,6 +403,35 @@ public class UpdateSketchBuilder {
     return bNumPoolThreads;
   }
 
+  /**
+   * Sets the Executor that runs the background propagation of the concurrent shared sketches built
+   * by this builder, for example a shared ForkJoinPool. The background propagation tasks of one
+   * shared sketch run one at a time, but different shared sketches propagate in parallel on the
+   * given Executor.
+   *
+   * <p>The caller owns the lifecycle of the given Executor. It is never shut down by a sketch and
+   * must accept tasks for as long as any shared sketch built with it is being updated.</p>
+   *
+   * <p>If null, which is the default, a shared pool of daemon threads of size
+   * {@link #getNumPoolThreads()} is used. That pool is shared by all such sketches and is never
+   * shut down; its threads do not keep the JVM from exiting.</p>
+   *
+   * @param executor the given Executor or null
+   * @return this UpdateSketchBuilder
+   */
+  public UpdateSketchBuilder setPropagationExecutor(final Executor executor) {
+    bPropagationExecutor = executor;
+    return this;
+  }
+
+  /**
+   * Gets the Executor that runs the background propagation of the concurrent shared sketches.
+   * @return the Executor set by the caller, or null if the default pool is used
+   */
+  public Executor getPropagationExecutor() {
+    return bPropagationExecutor;
+  }
+
   /**
    * Sets the Propagate Ordered Compact flag to the given value. Used with concurrent sketches.
    *
@@ -338,6 +484,52 @@ public class UpdateSketchBuilder {
     return bMaxNumLocalThreads;
   }
 
+  /**
+   * Sets the Lock-Free Propagation flag. If true, the concurrent shared sketch built on the Java
+   * heap inserts propagated hashes into its hash table with compare-and-set operations instead of
+   * under a lock, so that several local buffers can propagate into it at the same time. Lock-free
+   * shared sketches cannot be built in a destination WritableMemory.
+   *
+   * @param lockFree the given value
+   * @return this UpdateSketchBuilder
+   */
+  public UpdateSketchBuilder setLockFreePropagation(final boolean lockFree) {
+    bLockFreePropagation = lockFree;
+    return this;
+  }
+
+  /**
+   * Gets the Lock-Free Propagation flag used with concurrent shared sketches.
+   * @return the Lock-Free Propagation flag
+   */
+  public boolean getLockFreePropagation() {
+    return bLockFreePropagation;
+  }
+
+  /**
+   * Sets the number of stripes of the striped concurrent sketch built by {@link #buildStriped()}.
+   * More stripes reduce the contention between writer threads, but each stripe may grow up to
+   * the size of a sequential sketch.
+   * @param numStripes the given number of stripes.
+   * This will become the ceiling power of 2 if the given value is not.
+   * @return this UpdateSketchBuilder
+   */
+  public UpdateSketchBuilder setNumStripes(final int numStripes) {
+    if (numStripes < 1) {
+      throw new SketchesArgumentException("numStripes must be at least 1: " + numStripes);
+    }
+    bNumStripes = ceilingPowerOf2(numStripes);
+    return this;
+  }
+
+  /**
+   * Gets the number of stripes of the striped concurrent sketch.
+   * @return the number of stripes
+   */
+  public int getNumStripes() {
+    return bNumStripes;
+  }
+
   // BUILD FUNCTIONS
 
   /**
@@ -351,7 +543,7 @@ public class UpdateSketchBuilder {
   /**
    * Returns an UpdateSketch with the current configuration of this Builder
    * with the specified backing destination Memory store.
-   * Note: this cannot be used with the Alpha Family of sketches.
+   * Note: the Alpha Family of sketches requires a nominal entries of at least 512.
    * @param dstMem The destination Memory.
    * @return an UpdateSketch
    */
@@ -360,20 +552,30 @@ public class UpdateSketchBuilder {
     switch (bFam) {
       case ALPHA: {
         if (dstMem == null) {
-          sketch = HeapAlphaSketch.newHeapInstance(bLgNomLongs, bSeed, bP, bRF);
+          sketch = HeapAlphaSketch.newHeapInstance(bLgNomLongs, bSeed, bHasher, bP, bRF);
         }
         else {
-          throw new SketchesArgumentException("AlphaSketch cannot be made Direct to Memory.");
+          sketch = DirectAlphaSketch.newInstance(bLgNomLongs, bSeed, bHasher, bP, bRF,
+              bMemReqSvr, dstMem);
         }
         break;
       }
       case QUICKSELECT: {
         if (dstMem == null) {
-          sketch =  new HeapQuickSelectSketch(bLgNomLongs, bSeed, bP, bRF, false);
+          final HeapQuickSelectSketch hqss = new HeapQuickSelectSketch(bLgNomLongs, bSeed,
+              bHasher, bP, bRF, false, bIncrementalResize);
+          hqss.rebuildPool_ = getActualRebuildPool();
+          sketch = hqss;
         }
         else {
-          sketch = new DirectQuickSelectSketch(
-              bLgNomLongs, bSeed, bP, bRF, bMemReqSvr, dstMem, false);
+          if (bIncrementalResize) {
+            throw new SketchesArgumentException(
+                "An incremental resize sketch cannot be built in a destination WritableMemory.");
+          }
+          final DirectQuickSelectSketch dqss = new DirectQuickSelectSketch(
+              bLgNomLongs, bSeed, bHasher, bP, bRF, bMemReqSvr, dstMem, false);
+          dqss.rebuildPool_ = getActualRebuildPool();
+          sketch = dqss;
         }
         break;
       }
@@ -392,6 +594,8 @@ public class UpdateSketchBuilder {
    * <p>The parameters unique to the shared concurrent sketch are:
    * <ul>
    * <li>Number of Pool Threads (default is 3)</li>
+   * <li>Propagation Executor (default is null)</li>
+   * <li>Lock-Free Propagation (default is false, on the Java heap only)</li>
    * <li>Maximum Concurrency Error</li>
    * </ul>
    *
@@ -414,6 +618,8 @@ public class UpdateSketchBuilder {
    * <p>The parameters unique to the shared concurrent sketch are:
    * <ul>
    * <li>Number of Pool Threads (default is 3)</li>
+   * <li>Propagation Executor (default is null)</li>
+   * <li>Lock-Free Propagation (default is false, on the Java heap only)</li>
    * <li>Maximum Concurrency Error</li>
    * </ul>
    *
@@ -428,11 +634,18 @@ public class UpdateSketchBuilder {
    * and the given destination WritableMemory.
    */
   public UpdateSketch buildShared(final WritableMemory dstMem) {
-    ConcurrentPropagationService.NUM_POOL_THREADS = bNumPoolThreads;
+    final Executor executor = getSharedExecutor();
+    if (bLockFreePropagation) {
+      checkLockFreeOnHeap(dstMem);
+      return new ConcurrentLockFreeQuickSelectSketch(bLgNomLongs, bSeed, bHasher,
+          bMaxConcurrencyError, executor);
+    }
     if (dstMem == null) {
-      return new ConcurrentHeapQuickSelectSketch(bLgNomLongs, bSeed, bMaxConcurrencyError);
+      return new ConcurrentHeapQuickSelectSketch(bLgNomLongs, bSeed, bHasher,
+          bMaxConcurrencyError, executor);
     } else {
-      return new ConcurrentDirectQuickSelectSketch(bLgNomLongs, bSeed, bMaxConcurrencyError, dstMem);
+      return new ConcurrentDirectQuickSelectSketch(bLgNomLongs, bSeed, bHasher,
+          bMaxConcurrencyError, executor, dstMem);
     }
   }
 
@@ -445,6 +658,8 @@ public class UpdateSketchBuilder {
    * <p>The parameters unique to the shared concurrent sketch are:
    * <ul>
    * <li>Number of Pool Threads (default is 3)</li>
+   * <li>Propagation Executor (default is null)</li>
+   * <li>Lock-Free Propagation (default is false, on the Java heap only)</li>
    * <li>Maximum Concurrency Error</li>
    * </ul>
    *
@@ -461,11 +676,17 @@ public class UpdateSketchBuilder {
    * and the given destination WritableMemory.
    */
   public UpdateSketch buildSharedFromSketch(final UpdateSketch sketch, final WritableMemory dstMem) {
-    ConcurrentPropagationService.NUM_POOL_THREADS = bNumPoolThreads;
+    final Executor executor = getSharedExecutor();
+    if (bLockFreePropagation) {
+      checkLockFreeOnHeap(dstMem);
+      return new ConcurrentLockFreeQuickSelectSketch(sketch, bSeed, bMaxConcurrencyError,
+          executor);
+    }
     if (dstMem == null) {
-      return new ConcurrentHeapQuickSelectSketch(sketch, bSeed, bMaxConcurrencyError);
+      return new ConcurrentHeapQuickSelectSketch(sketch, bSeed, bMaxConcurrencyError, executor);
     } else {
-      return new ConcurrentDirectQuickSelectSketch(sketch, bSeed, bMaxConcurrencyError, dstMem);
+      return new ConcurrentDirectQuickSelectSketch(sketch, bSeed, bMaxConcurrencyError, executor,
+          dstMem);
     }
   }
 
@@ -487,10 +708,55 @@ public class UpdateSketchBuilder {
     if ((shared == null) || !(shared instanceof ConcurrentSharedThetaSketch)) {
       throw new SketchesStateException("The concurrent shared sketch must be built first.");
     }
-    return new ConcurrentHeapThetaBuffer(bLocalLgNomLongs, bSeed,
+    return new ConcurrentHeapThetaBuffer(bLocalLgNomLongs, bSeed, shared.getHasher(),
         (ConcurrentSharedThetaSketch) shared, bPropagateOrderedCompact, bMaxNumLocalThreads);
   }
 
+  /**
+   * Returns an on-heap striped concurrent UpdateSketch with the current configuration of this
+   * Builder. Unlike the shared concurrent sketch, it needs no local buffers: any thread may update
+   * it directly, which suits thread pools and short-lived threads.
+   *
+   * <p>Its estimates are those of a single QuickSelect sketch with the same configuration after
+   * {@link UpdateSketch#rebuild()}.</p>
+   *
+   * <p>The parameter unique to the striped concurrent sketch is:
+   * <ul>
+   * <li>Number of Stripes (default is 16)</li>
+   * </ul>
+   *
+   * <p>Key parameters that are in common with other <i>Theta</i> sketches:
+   * <ul>
+   * <li>Nominal Entries or Log Nominal Entries</li>
+   * <li>Seed, Hasher, Sampling Probability and Resize Factor</li>
+   * </ul>
+   *
+   * @return an on-heap striped concurrent UpdateSketch with the current configuration of the
+   * Builder.
+   */
+  public UpdateSketch buildStriped() {
+    return new ConcurrentStripedQuickSelectSketch(bLgNomLongs, bSeed, bHasher, bP, bRF,
+        bNumStripes);
+  }
+
+  private static void checkLockFreeOnHeap(final WritableMemory dstMem) {
+    if (dstMem != null) {
+      throw new SketchesArgumentException(
+          "A lock-free shared sketch cannot be built in a destination WritableMemory.");
+    }
+  }
+
+  private Executor getSharedExecutor() {
+    return (bPropagationExecutor != null)
+        ? bPropagationExecutor
+        : ConcurrentPropagationService.getDefaultExecutor(bNumPoolThreads);
+  }
+
+  private ForkJoinPool getActualRebuildPool() {
+    if (!bParallelRebuild) { return null; }
+    return (bRebuildPool != null) ? bRebuildPool : ForkJoinPool.commonPool();
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder();
@@ -500,15 +766,25 @@ public class UpdateSketchBuilder {
     sb.append("LgLocalK:").append(TAB).append(bLocalLgNomLongs).append(LS);
     sb.append("LocalK:").append(TAB).append(1 << bLocalLgNomLongs).append(LS);
     sb.append("Seed:").append(TAB).append(bSeed).append(LS);
+    sb.append("Hasher:").append(TAB).append(bHasher).append(LS);
     sb.append("p:").append(TAB).append(bP).append(LS);
     sb.append("ResizeFactor:").append(TAB).append(bRF).append(LS);
     sb.append("Family:").append(TAB).append(bFam).append(LS);
+    sb.append("IncrementalResize:").append(TAB).append(bIncrementalResize).append(LS);
+    sb.append("ParallelRebuild:").append(TAB).append(bParallelRebuild).append(LS);
+    final String poolStr = (bRebuildPool == null) ? "null" : bRebuildPool.toString();
+    sb.append("RebuildPool:").append(TAB).append(poolStr).append(LS);
     final String mrsStr = bMemReqSvr.getClass().getSimpleName();
     sb.append("MemoryRequestServer:").append(TAB).append(mrsStr).append(LS);
     sb.append("Propagate Ordered Compact").append(TAB).append(bPropagateOrderedCompact).append(LS);
     sb.append("NumPoolThreads").append(TAB).append(bNumPoolThreads).append(LS);
+    final String execStr = (bPropagationExecutor == null)
+        ? "default" : bPropagationExecutor.getClass().getSimpleName();
+    sb.append("PropagationExecutor").append(TAB).append(execStr).append(LS);
     sb.append("MaxConcurrencyError").append(TAB).append(bMaxConcurrencyError).append(LS);
     sb.append("MaxNumLocalThreads").append(TAB).append(bMaxNumLocalThreads).append(LS);
+    sb.append("LockFreePropagation").append(TAB).append(bLockFreePropagation).append(LS);
+    sb.append("NumStripes").append(TAB).append(bNumStripes).append(LS);
     return sb.toString();
   }
 
@@ -22,7 +22,9 @@ package org.apache.datasketches.tuple;
 import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
 
 import org.apache.datasketches.hash.MurmurHash3;
+import org.apache.datasketches.hash.MurmurHash3v2;
 import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.UnsafeUtil;
 
 /**
  * An extension of QuickSelectSketch&lt;S&gt;, which can be updated with many types of keys.
@@ -101,7 +103,22 @@ public class UpdatableSketch<U, S extends UpdatableSummary<U>> extends QuickSele
    * @param value The given U value
    */
   public void update(final String key, final U value) {
-    update(Util.stringToByteArray(key), value);
+    update((CharSequence) key, value);
+  }
+
+  /**
+   * Updates this sketch with a CharSequence key and U value.
+   * The key is hashed as its UTF8 encoding, so this produces exactly the same result as
+   * {@link #update(String, Object)} with <i>key.toString()</i>, but without creating a String or
+   * a byte array.
+   * The value is passed to update() method of the Summary object associated with the key
+   *
+   * @param key The given CharSequence key
+   * @param value The given U value
+   */
+  public void update(final CharSequence key, final U value) {
+    if ((key == null) || (key.length() == 0)) { return; }
+    insertOrIgnore(MurmurHash3v2.hash64(key, DEFAULT_UPDATE_SEED) >>> 1, value);
   }
 
   /**
@@ -116,6 +133,25 @@ public class UpdatableSketch<U, S extends UpdatableSummary<U>> extends QuickSele
     insertOrIgnore(MurmurHash3.hash(key, DEFAULT_UPDATE_SEED)[0] >>> 1, value);
   }
 
+  /**
+   * Updates this sketch with a key given as a region of Memory and U value.
+   * This produces exactly the same result as {@link #update(byte[], Object)} with the bytes of
+   * the region, without copying them.
+   * The value is passed to update() method of the Summary object associated with the key
+   *
+   * @param mem The given Memory
+   * @param offsetBytes the offset in bytes of the key
+   * @param lengthBytes the length in bytes of the key
+   * @param value The given U value
+   */
+  public void update(final Memory mem, final long offsetBytes, final long lengthBytes,
+      final U value) {
+    if ((mem == null) || (lengthBytes == 0)) { return; }
+    UnsafeUtil.checkBounds(offsetBytes, lengthBytes, mem.getCapacity());
+    insertOrIgnore(MurmurHash3v2.hash64(mem, offsetBytes, lengthBytes, DEFAULT_UPDATE_SEED) >>> 1,
+        value);
+  }
+
   /**
    * Updates this sketch with a int[] key and U value.
    * The value is passed to update() method of the Summary object associated with the key
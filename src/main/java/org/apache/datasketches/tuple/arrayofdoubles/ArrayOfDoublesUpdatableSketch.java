@@ -23,7 +23,9 @@ import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
 
 import org.apache.datasketches.ResizeFactor;
 import org.apache.datasketches.hash.MurmurHash3;
+import org.apache.datasketches.hash.MurmurHash3v2;
 import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.UnsafeUtil;
 import org.apache.datasketches.memory.WritableMemory;
 import org.apache.datasketches.tuple.Util;
 
@@ -107,7 +109,22 @@ public abstract class ArrayOfDoublesUpdatableSketch extends ArrayOfDoublesSketch
    * @param values The given values
    */
   public void update(final String key, final double[] values) {
-    update(Util.stringToByteArray(key), values);
+    update((CharSequence) key, values);
+  }
+
+  /**
+   * Updates this sketch with a CharSequence key and double values.
+   * The key is hashed as its UTF8 encoding, so this produces exactly the same result as
+   * {@link #update(String, double[])} with <i>key.toString()</i>, but without creating a String
+   * or a byte array.
+   * The values will be stored or added to the ones associated with the key
+   *
+   * @param key The given CharSequence key
+   * @param values The given values
+   */
+  public void update(final CharSequence key, final double[] values) {
+    if (key == null || key.length() == 0) { return; }
+    insertOrIgnore(MurmurHash3v2.hash64(key, seed_) >>> 1, values);
   }
 
   /**
@@ -122,6 +139,24 @@ public abstract class ArrayOfDoublesUpdatableSketch extends ArrayOfDoublesSketch
     insertOrIgnore(MurmurHash3.hash(key, seed_)[0] >>> 1, values);
   }
 
+  /**
+   * Updates this sketch with a key given as a region of Memory and double values.
+   * This produces exactly the same result as {@link #update(byte[], double[])} with the bytes of
+   * the region, without copying them.
+   * The values will be stored or added to the ones associated with the key
+   *
+   * @param mem The given Memory
+   * @param offsetBytes the offset in bytes of the key
+   * @param lengthBytes the length in bytes of the key
+   * @param values The given values
+   */
+  public void update(final Memory mem, final long offsetBytes, final long lengthBytes,
+      final double[] values) {
+    if (mem == null || lengthBytes == 0) { return; }
+    UnsafeUtil.checkBounds(offsetBytes, lengthBytes, mem.getCapacity());
+    insertOrIgnore(MurmurHash3v2.hash64(mem, offsetBytes, lengthBytes, seed_) >>> 1, values);
+  }
+
   /**
    * Updates this sketch with a int[] key and double values.
    * The values will be stored or added to the ones associated with the key
@@ -19,6 +19,7 @@
 
 package org.apache.datasketches.cpc;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
 import static org.apache.datasketches.cpc.TestUtil.specialEquals;
 import static org.testng.Assert.assertEquals;
@@ -30,6 +31,7 @@ import java.io.PrintStream;
 import org.apache.datasketches.Family;
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
 import org.testng.annotations.Test;
 
 /**
@@ -63,6 +65,32 @@ public class CpcSketchTest {
     println(sk.toString(true));
   }
 
+  @Test
+  public void checkCharSequenceAndMemoryUpdates() {
+    final int n = 10000;
+    final CpcSketch sk1 = new CpcSketch(10);
+    final CpcSketch sk2 = new CpcSketch(10);
+    final CpcSketch sk3 = new CpcSketch(10);
+    final WritableMemory wmem = WritableMemory.allocate(64);
+    for (int i = 0; i < n; i++) {
+      final String s = "\u00e9t\u00e9 " + i + " \ud83d\ude00";
+      sk1.update(s);
+      sk2.update(new StringBuilder(s));
+      final byte[] bytes = s.getBytes(UTF_8);
+      wmem.putByteArray(5, bytes, 0, bytes.length);
+      sk3.update(wmem, 5, bytes.length);
+    }
+    assertEquals(sk2.toByteArray(), sk1.toByteArray());
+    assertEquals(sk3.toByteArray(), sk1.toByteArray());
+    sk2.update(new StringBuilder());
+    sk3.update(wmem, 0, 0);
+    assertEquals(sk3.toByteArray(), sk1.toByteArray());
+    try {
+      sk3.update(wmem, 60, 8);
+      fail();
+    } catch (final IllegalArgumentException e) { } //expected
+  }
+
   @Test
   public void checkEstimatesWithMerge() {
     final int lgK = 4;
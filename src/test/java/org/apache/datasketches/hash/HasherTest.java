@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.hash;
+
+import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.fail;
+
+import org.testng.annotations.Test;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.Util;
+import org.apache.datasketches.memory.Memory;
+
+@SuppressWarnings("javadoc")
+public class HasherTest {
+
+  @Test
+  public void checkMurmur3MatchesMurmurHash3() {
+    final long seed = DEFAULT_UPDATE_SEED;
+    final Hasher h = Hasher.MURMUR3;
+    assertEquals(h.hash64(123L, seed), MurmurHash3.hash(new long[] {123L}, seed)[0]);
+    assertEquals(h.hash64(-0.0, seed),
+        MurmurHash3.hash(new long[] {Double.doubleToLongBits(0.0)}, seed)[0]);
+    final byte[] bytes = {1, 2, 3, 4, 5};
+    assertEquals(h.hash64(bytes, seed), MurmurHash3.hash(bytes, seed)[0]);
+    assertEquals(h.hash64(Memory.wrap(bytes), 0, bytes.length, seed),
+        MurmurHash3.hash(bytes, seed)[0]);
+    assertEquals(h.computeSeedHash(seed), Util.computeSeedHash(seed));
+  }
+
+  @Test
+  public void checkXxHash64MatchesXxHash() {
+    final long seed = DEFAULT_UPDATE_SEED;
+    final Hasher h = Hasher.XXHASH64;
+    assertEquals(h.hash64(123L, seed), XxHash.hash(123L, seed));
+    final long[] longs = {1L, 2L, 3L};
+    assertEquals(h.hash64(longs, seed), XxHash.hash(Memory.wrap(longs), 0, 24, seed));
+    assertEquals(h.hash64(-0.0, seed), h.hash64(0.0, seed));
+    assertEquals(h.hash64(Double.longBitsToDouble(0x7ff8000000000001L), seed),
+        h.hash64(Double.NaN, seed));
+  }
+
+  @Test
+  public void checkBatchMatchesSingle() {
+    final long seed = DEFAULT_UPDATE_SEED;
+    final int n = 10;
+    final long[] longArr = new long[n];
+    final double[] dblArr = new double[n];
+    final long[] memArr = new long[2 * n];
+    for (int i = 0; i < n; i++) {
+      longArr[i] = i;
+      dblArr[i] = (i == 0) ? -0.0 : i + 0.5;
+      memArr[2 * i] = i;
+      memArr[(2 * i) + 1] = -i;
+    }
+    final Memory mem = Memory.wrap(memArr);
+    final long[] out = new long[n];
+    for (Hasher h : Hasher.values()) {
+      h.hash64(longArr, 2, n - 2, seed, out);
+      for (int i = 2; i < n; i++) { assertEquals(out[i - 2], h.hash64(longArr[i], seed)); }
+      h.hash64(dblArr, 0, n, seed, out);
+      for (int i = 0; i < n; i++) { assertEquals(out[i], h.hash64(dblArr[i], seed)); }
+      h.hash64(mem, 0, 16, n, seed, out);
+      for (int i = 0; i < n; i++) {
+        assertEquals(out[i], h.hash64(mem, i * 16L, 16L, seed));
+      }
+    }
+  }
+
+  @Test
+  public void checkSeedHashes() {
+    final long seed = DEFAULT_UPDATE_SEED;
+    final short murmurSeedHash = Hasher.MURMUR3.computeSeedHash(seed);
+    final short xxSeedHash = Hasher.XXHASH64.computeSeedHash(seed);
+    assertNotEquals(murmurSeedHash, xxSeedHash);
+    assertEquals(Hasher.seedHashToHasher(murmurSeedHash, seed), Hasher.MURMUR3);
+    assertEquals(Hasher.seedHashToHasher(xxSeedHash, seed), Hasher.XXHASH64);
+    try {
+      Hasher.seedHashToHasher(murmurSeedHash, seed + 1);
+      fail();
+    } catch (SketchesArgumentException e) { } //expected
+  }
+
+  @Test
+  public void checkIdsAndNames() {
+    assertEquals(Hasher.MURMUR3.getID(), 1);
+    assertEquals(Hasher.XXHASH64.getID(), 2);
+    assertEquals(Hasher.MURMUR3.toString(), Hasher.MURMUR3.getHasherName());
+    assertEquals(Hasher.XXHASH64.getHasherName(), "XxHash64");
+  }
+
+}
@@ -19,6 +19,7 @@
 
 package org.apache.datasketches.hash;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
@@ -168,6 +169,72 @@ public class MurmurHash3v2Test {
     assertEquals(hash1, hash3);
   }
 
+  @Test
+  public void hash64Check() {
+    long seed = 12345;
+    long[] hashOut = new long[2];
+    for (long v = -1000; v < 1000; v++) {
+      long[] hash1 = MurmurHash3.hash(new long[] { v }, seed);
+      assertEquals(MurmurHash3v2.hash64(v, seed), hash1[0]);
+      assertEquals(MurmurHash3v2.hash(v, seed, hashOut), hash1);
+    }
+    double[] dArr = { -0.0, 0.0, 1.0, -1.0, Double.NaN, Double.longBitsToDouble((0x7FFL << 52) + 1L),
+        Double.POSITIVE_INFINITY, Double.MIN_VALUE };
+    for (double d : dArr) {
+      assertEquals(MurmurHash3v2.hash64(d, seed), MurmurHash3v2.hash(d, seed, hashOut)[0]);
+    }
+    assertEquals(MurmurHash3v2.hash64(-0.0, seed), MurmurHash3v2.hash64(0.0, seed));
+  }
+
+  @Test
+  public void batchChecks() {
+    long seed = 12345;
+    int n = 100;
+    int offset = 3;
+    long[] longArr = new long[n + offset];
+    double[] dblArr = new double[n + offset];
+    for (int i = 0; i < longArr.length; i++) {
+      longArr[i] = (i * 0x9E3779B97F4A7C15L) - 50;
+      dblArr[i] = (i % 7 == 0) ? -0.0 : (i % 11 == 0) ? Double.NaN : i * 1.5;
+    }
+    long[] out64 = new long[n];
+    long[] out128 = new long[2 * n];
+    long[] hashOut = new long[2];
+
+    MurmurHash3v2.hash64(longArr, offset, n, seed, out64);
+    MurmurHash3v2.hash128(longArr, offset, n, seed, out128);
+    for (int i = 0; i < n; i++) {
+      MurmurHash3v2.hash(longArr[offset + i], seed, hashOut);
+      assertEquals(out64[i], hashOut[0]);
+      assertEquals(out128[2 * i], hashOut[0]);
+      assertEquals(out128[(2 * i) + 1], hashOut[1]);
+    }
+
+    MurmurHash3v2.hash64(dblArr, offset, n, seed, out64);
+    MurmurHash3v2.hash128(dblArr, offset, n, seed, out128);
+    for (int i = 0; i < n; i++) {
+      MurmurHash3v2.hash(dblArr[offset + i], seed, hashOut);
+      assertEquals(out64[i], hashOut[0]);
+      assertEquals(out128[2 * i], hashOut[0]);
+      assertEquals(out128[(2 * i) + 1], hashOut[1]);
+    }
+
+    Memory mem = Memory.wrap(longArr);
+    for (int keyBytes = 1; keyBytes <= 24; keyBytes++) {
+      int numKeys = (int) ((mem.getCapacity() - 5) / keyBytes);
+      MurmurHash3v2.hash64(mem, 5, keyBytes, numKeys, seed, out64 = new long[numKeys]);
+      MurmurHash3v2.hash128(mem, 5, keyBytes, numKeys, seed, out128 = new long[2 * numKeys]);
+      for (int i = 0; i < numKeys; i++) {
+        byte[] key = new byte[keyBytes];
+        mem.getByteArray(5 + (i * keyBytes), key, 0, keyBytes);
+        long[] hash1 = MurmurHash3.hash(key, seed);
+        assertEquals(out64[i], hash1[0]);
+        assertEquals(out128[2 * i], hash1[0]);
+        assertEquals(out128[(2 * i) + 1], hash1[1]);
+      }
+    }
+  }
+
   @Test
   public void checkEmptiesNulls() {
     long seed = 123;
@@ -208,6 +275,39 @@ public class MurmurHash3v2Test {
     assertTrue(MurmurHash3v2.hash(v, seed, hashOut)[0] != 0);
   }
 
+  @Test
+  public void checkCharSequenceUtf8() {
+    long seed = 123;
+    long[] hashOut = new long[2];
+    String[] strs = {
+        "a", "abcdefghijklmno", "abcdefghijklmnop", "abcdefghijklmnopq", //around one block
+        "\u00e9t\u00e9 \u00fcber na\u00efve", //2-byte
+        "\u65e5\u672c\u8a9e\u306e\u30c6\u30ad\u30b9\u30c8", //3-byte
+        "\ud83d\ude00 smile \ud83d\ude80 rocket", //4-byte surrogate pairs
+        "x\ud83dy", "\ude00abc", "abc\ud83d", //unpaired surrogates
+        "mixed \u00e9\u65e5\ud83d\ude00 ascii 0123456789 \u0800\u07ff\uffff"
+    };
+    for (String str : strs) {
+      byte[] bytes = str.getBytes(UTF_8);
+      long[] expected = MurmurHash3v2.hash(bytes, seed);
+      assertEquals(MurmurHash3v2.hash(str, seed, hashOut), expected);
+      assertEquals(MurmurHash3v2.hash(new StringBuilder(str), seed, hashOut), expected);
+      assertEquals(MurmurHash3v2.hash64(new StringBuilder(str), seed), expected[0]);
+      assertEquals(MurmurHash3.hash(bytes, seed), expected);
+
+      //the same bytes as a slice of a larger Memory
+      WritableMemory wmem = WritableMemory.allocate(bytes.length + 7);
+      wmem.putByteArray(3, bytes, 0, bytes.length);
+      assertEquals(MurmurHash3v2.hash(wmem, 3, bytes.length, seed, hashOut), expected);
+      assertEquals(MurmurHash3v2.hash64(wmem, 3, bytes.length, seed), expected[0]);
+    }
+    CharSequence cs = null;
+    long hash0 = MurmurHash3v2.hash(new byte[0], seed)[0];
+    assertEquals(MurmurHash3v2.hash(cs, seed, hashOut)[0], hash0);
+    assertEquals(MurmurHash3v2.hash64(cs, seed), hash0);
+    assertEquals(MurmurHash3v2.hash64(new StringBuilder(), seed), hash0);
+  }
+
   @Test
   public void doubleCheck() {
     long[] hash1 = checkDouble(-0.0);
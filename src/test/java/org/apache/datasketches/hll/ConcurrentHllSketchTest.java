@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.hll;
+
+import static org.apache.datasketches.hll.TgtHllType.HLL_4;
+import static org.apache.datasketches.hll.TgtHllType.HLL_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class ConcurrentHllSketchTest {
+
+  @Test
+  public void checkWarmUpMatchesSketch() {
+    int lgK = 10;
+    ConcurrentHllSketch csk = new ConcurrentHllSketch(lgK);
+    HllSketch sk = new HllSketch(lgK, HLL_8);
+    assertTrue(csk.isEmpty());
+    assertEquals(csk.getEstimate(), 0.0);
+    assertEquals(csk.getCurMode(), CurMode.LIST);
+    for (int i = 0; i < 90; i++) { //the sketch moves to HLL mode at 96 coupons
+      csk.update(i);
+      sk.update(i);
+      assertEquals(csk.getCurMode(), sk.getCurMode());
+      assertEquals(csk.getEstimate(), sk.getEstimate());
+      assertEquals(csk.getCompositeEstimate(), sk.getCompositeEstimate());
+      assertEquals(csk.getLowerBound(2), sk.getLowerBound(2));
+      assertEquals(csk.getUpperBound(2), sk.getUpperBound(2));
+    }
+    assertFalse(csk.isEmpty());
+    assertEquals(csk.getCurMode(), CurMode.SET);
+    assertEquals(csk.getResult(HLL_4).getEstimate(), sk.getEstimate());
+    assertEquals(csk.getTgtHllType(), HLL_8);
+    assertEquals(csk.getLgConfigK(), lgK);
+    assertFalse(csk.isCompact());
+    assertFalse(csk.isMemory());
+    assertFalse(csk.isOffHeap());
+    println(csk.toString());
+  }
+
+  @Test
+  public void checkHllModeMatchesUnion() {
+    int lgK = 10;
+    int n = 1 << 16;
+    ConcurrentHllSketch csk = new ConcurrentHllSketch(lgK);
+    HllSketch[] parts = new HllSketch[4];
+    for (int p = 0; p < parts.length; p++) { parts[p] = new HllSketch(lgK, HLL_8); }
+    for (int i = 0; i < n; i++) {
+      csk.update(i);
+      parts[i & 3].update(i);
+    }
+    Union union = new Union(lgK);
+    for (HllSketch part : parts) { union.update(part); }
+    checkEqual(csk, union.getResult(HLL_8));
+  }
+
+  @Test
+  public void checkConcurrentUpdates() throws InterruptedException {
+    int lgK = 12;
+    int numThreads = 4;
+    int n = 1 << 17;
+    ConcurrentHllSketch csk = new ConcurrentHllSketch(lgK);
+    Thread[] threads = new Thread[numThreads];
+    for (int t = 0; t < numThreads; t++) {
+      final int start = t * (n / 2 / numThreads); //half of each range overlaps the next
+      threads[t] = new Thread(() -> {
+        for (long i = start; i < (start + (n / numThreads)); i++) { csk.update(i); }
+      });
+    }
+    for (Thread thread : threads) { thread.start(); }
+    for (Thread thread : threads) { thread.join(); }
+
+    Union union = new Union(lgK);
+    for (int t = 0; t < numThreads; t++) {
+      HllSketch sk = new HllSketch(lgK, HLL_8);
+      int start = t * (n / 2 / numThreads);
+      for (long i = start; i < (start + (n / numThreads)); i++) { sk.update(i); }
+      union.update(sk);
+    }
+    checkEqual(csk, union.getResult(HLL_8));
+  }
+
+  @Test
+  public void checkMemory() {
+    int lgK = 8;
+    WritableMemory wmem = WritableMemory.allocate(1 << lgK);
+    wmem.fill((byte) 1);
+    ConcurrentHllSketch csk = new ConcurrentHllSketch(lgK, wmem);
+    ConcurrentHllSketch heap = new ConcurrentHllSketch(lgK);
+    assertTrue(csk.isEmpty());
+    assertTrue(csk.isMemory());
+    assertFalse(csk.isOffHeap());
+    assertTrue(csk.isSameResource(wmem));
+    assertFalse(heap.isSameResource(wmem));
+    for (int i = 0; i < 100000; i++) {
+      csk.update("item" + i);
+      heap.update("item" + i);
+    }
+    assertEquals(csk.getCurMode(), CurMode.HLL);
+    assertEquals(csk.getEstimate(), heap.getEstimate());
+    assertEquals(csk.toCompactByteArray(), heap.toCompactByteArray());
+    assertEquals(csk.toUpdatableByteArray(), heap.toUpdatableByteArray());
+    HllSketch result = HllSketch.heapify(Memory.wrap(csk.toCompactByteArray()));
+    assertEquals(result.getEstimate(), csk.getEstimate());
+    assertEquals(csk.getResult(HLL_4).getEstimate(), csk.getEstimate());
+
+    csk.reset();
+    assertTrue(csk.isEmpty());
+    assertEquals(csk.getEstimate(), 0.0);
+    assertEquals(wmem.getLong(0), 0L);
+
+    try {
+      new ConcurrentHllSketch(lgK, WritableMemory.allocate((1 << lgK) - 1));
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+    try {
+      WritableMemory misaligned =
+          WritableMemory.allocate((1 << lgK) + 8).writableRegion(1, 1 << lgK);
+      new ConcurrentHllSketch(lgK, misaligned);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+    WritableMemory region = WritableMemory.allocate((1 << lgK) + 8).writableRegion(8, 1 << lgK);
+    ConcurrentHllSketch aligned = new ConcurrentHllSketch(lgK, region);
+    aligned.update(1);
+    assertEquals(aligned.getEstimate(), 1.0, 0.01);
+  }
+
+  @Test
+  public void checkWarmUpResultCached() {
+    ConcurrentHllSketch csk = new ConcurrentHllSketch(10);
+    for (int i = 0; i < 50; i++) { csk.update(i); }
+    HllSketch first = csk.warmUpResult();
+    assertSame(csk.warmUpResult(), first);
+    double est = csk.getEstimate();
+    for (int i = 0; i < 50; i++) { csk.update(i); } //duplicates do not change the stripes
+    assertSame(csk.warmUpResult(), first);
+    assertEquals(csk.getEstimate(), est);
+    csk.update(50);
+    HllSketch second = csk.warmUpResult();
+    assertNotSame(second, first);
+    assertEquals(second.getEstimate(), 51.0, 0.01);
+    assertEquals(first.getEstimate(), est); //a cached result is not changed by later updates
+    csk.reset();
+    assertEquals(csk.getEstimate(), 0.0);
+    for (int i = 0; i < (1 << 14); i++) { csk.update(i); }
+    assertEquals(csk.getCurMode(), CurMode.HLL);
+    assertEquals(csk.warmUpResult(), null);
+  }
+
+  @Test
+  public void checkHashOutPerThread() throws Exception {
+    ConcurrentHllSketch csk = new ConcurrentHllSketch(10);
+    long[] hashOut = csk.hashOut();
+    assertSame(csk.hashOut(), hashOut);
+    long[][] other = new long[1][];
+    Thread thread = new Thread(() -> other[0] = csk.hashOut());
+    thread.start();
+    thread.join();
+    assertNotSame(other[0], hashOut);
+  }
+
+  private static void checkEqual(final ConcurrentHllSketch csk, final HllSketch sk) {
+    assertEquals(csk.getCurMode(), CurMode.HLL);
+    assertTrue(csk.isOutOfOrder());
+    assertEquals(csk.getEstimate(), sk.getEstimate());
+    assertEquals(csk.getCompositeEstimate(), sk.getCompositeEstimate());
+    for (int numStdDev = 1; numStdDev <= 3; numStdDev++) {
+      assertEquals(csk.getLowerBound(numStdDev), sk.getLowerBound(numStdDev));
+      assertEquals(csk.getUpperBound(numStdDev), sk.getUpperBound(numStdDev));
+    }
+    HllSketch result = csk.getResult(HLL_8);
+    PairIterator itr1 = result.iterator();
+    PairIterator itr2 = sk.iterator();
+    while (itr1.nextAll()) {
+      assertTrue(itr2.nextAll());
+      assertEquals(itr1.getValue(), itr2.getValue());
+    }
+    assertEquals(result.getEstimate(), sk.getEstimate());
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //Disable here
+  }
+}
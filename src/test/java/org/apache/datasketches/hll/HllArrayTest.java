@@ -65,6 +65,31 @@ public class HllArrayTest {
     res.getCompositeEstimate();
   }
 
+  @Test
+  public void checkCachedCompositeEst() {
+    for (TgtHllType tgtHllType : new TgtHllType[] {HLL_4, HLL_6, HLL_8}) {
+      int lgK = 8;
+      HllSketch sk = new HllSketch(lgK, tgtHllType);
+      int bytes = HllSketch.getMaxUpdatableSerializationBytes(lgK, tgtHllType);
+      WritableMemory wmem = WritableMemory.allocate(bytes);
+      HllSketch dsk = new HllSketch(lgK, tgtHllType, wmem);
+      HllSketch wrapped = null; //a second instance on the same memory, once in HLL mode
+      for (int i = 0; i < 5000; i++) {
+        sk.update(i);
+        dsk.update(i);
+        if (sk.getCurMode() != CurMode.HLL) { continue; }
+        if (wrapped == null) { wrapped = HllSketch.writableWrap(wmem); }
+        AbstractHllArray arr = (AbstractHllArray) sk.hllSketchImpl;
+        double expected = HllEstimators.hllCompositeEstimate(lgK, arr.getKxQ0(), arr.getKxQ1(),
+            arr.getCurMin(), arr.getNumAtCurMin());
+        assertEquals(sk.getCompositeEstimate(), expected);
+        assertEquals(sk.getCompositeEstimate(), expected); //cached
+        assertEquals(wrapped.getCompositeEstimate(), expected);
+        assertEquals(dsk.getCompositeEstimate(), expected);
+      }
+    }
+  }
+
   @Test
   public void toByteArray_Heapify() {
     int lgK = 4;
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.datasketches.hll;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.SketchesStateException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class HllSketchCursorTest {
+
+  @Test
+  public void checkCursorMatchesWrap() {
+    HllSketchCursor cursor = new HllSketchCursor();
+    int[] ns = {0, 1, 10, 100, 1000, 10000, 100000};
+    for (TgtHllType type : TgtHllType.values()) {
+      for (int lgK : new int[] {4, 10, 13}) {
+        for (int n : ns) {
+          HllSketch sk = new HllSketch(lgK, type);
+          for (int i = 0; i < n; i++) { sk.update(i); }
+          checkCursor(cursor, sk.toCompactByteArray());
+          checkCursor(cursor, sk.toUpdatableByteArray());
+
+          //out of order, from a union
+          Union union = new Union(lgK);
+          union.update(sk);
+          HllSketch other = new HllSketch(lgK, type);
+          for (int i = 0; i < n; i++) { other.update(-i); }
+          union.update(other);
+          checkCursor(cursor, union.getResult(type).toCompactByteArray());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void checkDirectUnionImage() {
+    HllSketchCursor cursor = new HllSketchCursor();
+    WritableMemory wmem = WritableMemory.allocate(Union.getMaxSerializationBytes(12));
+    Union union = new Union(12, wmem);
+    for (int s = 0; s < 4; s++) {
+      HllSketch sk = new HllSketch(12, TgtHllType.HLL_4);
+      for (int i = 0; i < 20000; i++) { sk.update((s * 10000) + i); }
+      union.update(sk);
+    }
+    assertTrue(PreambleUtil.extractRebuildCurMinNumKxQFlag(wmem));
+    cursor.reset(wmem);
+    double est = cursor.getEstimate();
+    double lb = cursor.getLowerBound(1);
+    double ub = cursor.getUpperBound(3);
+    double composite = cursor.getCompositeEstimate();
+    assertTrue(PreambleUtil.extractRebuildCurMinNumKxQFlag(wmem)); //not written
+    assertEquals(est, union.getEstimate()); //rebuilds in place
+    assertEquals(lb, union.getLowerBound(1));
+    assertEquals(ub, union.getUpperBound(3));
+    assertEquals(composite, union.getCompositeEstimate());
+  }
+
+  @Test
+  public void checkInvalidImages() {
+    HllSketchCursor cursor = new HllSketchCursor();
+    try {
+      cursor.getEstimate();
+      fail();
+    } catch (SketchesStateException e) {
+      //expected
+    }
+    HllSketch sk = new HllSketch(10);
+    for (int i = 0; i < 10000; i++) { sk.update(i); }
+    byte[] bytes = sk.toCompactByteArray();
+    cursor.reset(Memory.wrap(bytes));
+    checkInvalid(cursor, null);
+    checkInvalid(cursor, Memory.wrap(new byte[4]));
+    checkInvalid(cursor, Memory.wrap(new byte[64]));
+    checkInvalid(cursor, Memory.wrap(bytes).region(0, 16));
+    assertEquals(cursor.getEstimate(), sk.getEstimate());
+    try {
+      cursor.getLowerBound(4);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
+  private static void checkCursor(final HllSketchCursor cursor, final byte[] bytes) {
+    Memory mem = Memory.wrap(bytes);
+    HllSketch wrapped = HllSketch.wrap(mem);
+    assertEquals(cursor.reset(mem), cursor);
+    assertEquals(cursor.getLgConfigK(), wrapped.getLgConfigK());
+    assertEquals(cursor.getTgtHllType(), wrapped.getTgtHllType());
+    assertEquals(cursor.isEmpty(), wrapped.isEmpty());
+    assertEquals(cursor.isCompact(), wrapped.isCompact());
+    assertEquals(cursor.getEstimate(), wrapped.getEstimate());
+    assertEquals(cursor.getCompositeEstimate(), wrapped.getCompositeEstimate());
+    for (int numStdDev = 1; numStdDev <= 3; numStdDev++) {
+      assertEquals(cursor.getLowerBound(numStdDev), wrapped.getLowerBound(numStdDev));
+      assertEquals(cursor.getUpperBound(numStdDev), wrapped.getUpperBound(numStdDev));
+    }
+  }
+
+  private static void checkInvalid(final HllSketchCursor cursor, final Memory mem) {
+    try {
+      cursor.reset(mem);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //Disable here
+  }
+}
@@ -19,6 +19,7 @@
 
 package org.apache.datasketches.hll;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.datasketches.hll.HllSketch.getMaxUpdatableSerializationBytes;
 import static org.apache.datasketches.hll.HllUtil.LG_AUX_ARR_INTS;
 import static org.apache.datasketches.hll.HllUtil.LG_INIT_LIST_SIZE;
@@ -60,6 +61,94 @@ public class HllSketchTest {
     runCheckCopy(8, HLL_8, wmem);
   }
 
+  @Test
+  public void checkUpdateAll() {
+    for (TgtHllType type : TgtHllType.values()) {
+      runCheckUpdateAll(10, type, false);
+      runCheckUpdateAll(10, type, true);
+      runCheckUpdateAll(4, type, false);
+    }
+  }
+
+  private static void runCheckUpdateAll(int lgConfigK, TgtHllType tgtHllType, boolean direct) {
+    int n = 3000 + (1 << lgConfigK) * 4; //passes through LIST, SET and HLL modes
+    long[] longArr = new long[n];
+    double[] dblArr = new double[n];
+    WritableMemory recMem = WritableMemory.allocate(n * 8);
+    for (int i = 0; i < n; i++) {
+      longArr[i] = i;
+      dblArr[i] = -i - 0.5;
+      recMem.putLong(i * 8, n + i);
+    }
+    HllSketch sk = newSketch(lgConfigK, tgtHllType, direct);
+    HllSketch bsk = newSketch(lgConfigK, tgtHllType, direct);
+    for (int i = 0; i < n; i++) { sk.update(longArr[i]); }
+    for (int i = 0; i < n; i++) { sk.update(dblArr[i]); }
+    for (int i = 0; i < n; i++) {
+      byte[] rec = new byte[8];
+      recMem.getByteArray(i * 8, rec, 0, 8);
+      sk.update(rec);
+    }
+    bsk.updateAll(longArr, 0, 5);
+    bsk.updateAll(longArr, 5, n - 5);
+    bsk.updateAll(dblArr, 0, n);
+    bsk.updateAll(recMem, 0, 8, n);
+    assertEquals(bsk.getCurMode(), sk.getCurMode());
+    assertEquals(bsk.getEstimate(), sk.getEstimate());
+    assertEquals(bsk.getCompositeEstimate(), sk.getCompositeEstimate());
+    assertEquals(bsk.toCompactByteArray(), sk.toCompactByteArray());
+  }
+
+  private static HllSketch newSketch(int lgConfigK, TgtHllType tgtHllType, boolean direct) {
+    if (direct) {
+      int bytes = getMaxUpdatableSerializationBytes(lgConfigK, tgtHllType);
+      return new HllSketch(lgConfigK, tgtHllType, WritableMemory.allocate(bytes));
+    }
+    return new HllSketch(lgConfigK, tgtHllType);
+  }
+
+  @Test
+  public void checkUpdateAllBadArgs() {
+    HllSketch sk = new HllSketch(10);
+    long[] nullArr = null;
+    sk.updateAll(nullArr, 0, 0);
+    assertTrue(sk.isEmpty());
+    try {
+      sk.updateAll(new double[4], 2, 3);
+      fail();
+    } catch (IllegalArgumentException e) { } //expected
+    try {
+      sk.updateAll(Memory.wrap(new byte[8]), 0, 0, 1);
+      fail();
+    } catch (SketchesArgumentException e) { } //expected
+  }
+
+  @Test
+  public void checkCharSequenceAndMemoryUpdates() {
+    int n = 10000;
+    HllSketch sk1 = new HllSketch(10);
+    HllSketch sk2 = new HllSketch(10);
+    HllSketch sk3 = new HllSketch(10);
+    WritableMemory wmem = WritableMemory.allocate(64);
+    for (int i = 0; i < n; i++) {
+      String s = "\u00e9t\u00e9 " + i + " \ud83d\ude00";
+      sk1.update(s);
+      sk2.update(new StringBuilder(s));
+      byte[] bytes = s.getBytes(UTF_8);
+      wmem.putByteArray(5, bytes, 0, bytes.length);
+      sk3.update(wmem, 5, bytes.length);
+    }
+    assertEquals(sk2.toCompactByteArray(), sk1.toCompactByteArray());
+    assertEquals(sk3.toCompactByteArray(), sk1.toCompactByteArray());
+    sk2.update(new StringBuilder());
+    sk3.update(wmem, 0, 0);
+    assertEquals(sk3.toCompactByteArray(), sk1.toCompactByteArray());
+    try {
+      sk3.update(wmem, 60, 8);
+      fail();
+    } catch (IllegalArgumentException e) { } //expected
+  }
+
   private static void runCheckCopy(int lgConfigK, TgtHllType tgtHllType, WritableMemory wmem) {
     HllSketch sk;
     if (wmem == null) { //heap
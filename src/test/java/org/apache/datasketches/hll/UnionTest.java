@@ -487,6 +487,73 @@ public class UnionTest {
    assertTrue(err < rse3);
   }
 
+  @Test
+  public void checkByteWiseMax() {
+    java.util.Random rand = new java.util.Random(1);
+    for (int t = 0; t < 10000; t++) {
+      long a = rand.nextLong() & 0x7F7F7F7F7F7F7F7FL;
+      long b = ((t & 1) == 0) ? rand.nextLong() & 0x7F7F7F7F7F7F7F7FL : a ^ (1L << (8 * (t % 8)));
+      long max = Union.byteWiseMax(a, b);
+      for (int i = 0; i < 64; i += 8) {
+        long ai = (a >>> i) & 0xFF;
+        long bi = (b >>> i) & 0xFF;
+        assertEquals((max >>> i) & 0xFF, Math.max(ai, bi));
+      }
+    }
+    assertEquals(Union.byteWiseMax(0, 0x3F3F3F3F3F3F3F3FL), 0x3F3F3F3F3F3F3F3FL);
+  }
+
+  @Test
+  public void checkHll8WordMergeMatchesSlotMerge() {
+    checkWordMergeMatchesSlotMerge(HLL_8);
+  }
+
+  @Test
+  public void checkHll4WordMergeMatchesSlotMerge() {
+    assertTrue(checkWordMergeMatchesSlotMerge(HLL_4) > 0); //some exceptions in aux maps
+  }
+
+  /**
+   * Checks that unions of sources of the given type equal unions of the same sources as HLL_6,
+   * which are merged slot by slot. Returns the number of aux map exceptions of HLL_4 sources.
+   */
+  private static int checkWordMergeMatchesSlotMerge(final TgtHllType srcType) {
+    int auxCount = 0;
+    //source lgK, union lgMaxK. The first source has the lgMaxK, smaller sources downsample
+    int[][] lgKs = { {12, 12}, {14, 12}, {10, 12}, {4, 4}, {8, 4} };
+    for (int[] lg : lgKs) {
+      for (int form = 0; form < 4; form++) { //heap or Memory source and union
+        boolean srcMem = (form & 1) != 0;
+        boolean unionMem = (form & 2) != 0;
+        Union union = unionMem
+            ? new Union(lg[1], WritableMemory.allocate(Union.getMaxSerializationBytes(lg[1])))
+            : new Union(lg[1]);
+        Union union6 = new Union(lg[1]);
+        for (int s = 0; s < 5; s++) {
+          int lgK = (s == 0) ? lg[1] : lg[0];
+          int n = (s == 2) ? 10 : 1 << (lgK + 1 + (s & 2));
+          HllSketch sk = new HllSketch(lgK, srcType);
+          for (int i = 0; i < n; i++) { sk.update((s * 1000000) + i); }
+          if ((srcType == HLL_4) && (sk.getCurMode() == CurMode.HLL)) {
+            AuxHashMap aux = ((AbstractHllArray) sk.hllSketchImpl).getAuxHashMap();
+            auxCount += (aux == null) ? 0 : aux.getAuxCount();
+          }
+          byte[] bytes = ((s & 1) == 0) ? sk.toCompactByteArray() : sk.toUpdatableByteArray();
+          union.update(srcMem ? HllSketch.wrap(Memory.wrap(bytes)) : sk);
+          union6.update(sk.copyAs(HLL_6)); //merged slot by slot
+        }
+        assertTrue(union.isRebuildCurMinNumKxQFlag()); //deferred until queried
+        assertEquals(union.getEstimate(), union6.getEstimate());
+        assertFalse(union.isRebuildCurMinNumKxQFlag());
+        assertEquals(union.getCompositeEstimate(), union6.getCompositeEstimate());
+        assertEquals(union.getLowerBound(2), union6.getLowerBound(2));
+        assertEquals(union.getResult(HLL_8).toCompactByteArray(),
+            union6.getResult(HLL_8).toCompactByteArray());
+      }
+    }
+    return auxCount;
+  }
+
   private static HllSketch buildSketch(final int start, final int count) {
    HllSketch sketch = new HllSketch(10);
    for (int i = start; i < (start + count); i++) {
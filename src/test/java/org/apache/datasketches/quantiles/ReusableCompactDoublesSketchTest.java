@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.datasketches.quantiles;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class ReusableCompactDoublesSketchTest {
+
+  @Test
+  public void checkResetMatchesWrap() {
+    ReusableCompactDoublesSketch reusable = new ReusableCompactDoublesSketch();
+    assertTrue(reusable.isEmpty());
+    assertEquals(reusable.getK(), PreambleUtil.DEFAULT_K);
+
+    DoublesUnion union = DoublesUnion.builder().setMaxK(256).build();
+    double[] fractions = {0.0, 0.1, 0.5, 0.9, 1.0};
+    int[] ks = {16, 128, 256};
+    int[] ns = {0, 1, 100, 10000};
+    for (int k : ks) {
+      for (int n : ns) {
+        UpdateDoublesSketch sk = DoublesSketch.builder().setK(k).build();
+        for (int i = 0; i < n; i++) { sk.update(i); }
+        Memory mem = Memory.wrap(sk.toByteArray(true));
+        DoublesSketch wrapped = DoublesSketch.wrap(mem);
+        assertEquals(reusable.reset(mem), reusable);
+        assertEquals(reusable.getK(), k);
+        assertEquals(reusable.getN(), n);
+        assertEquals(reusable.isEmpty(), wrapped.isEmpty());
+        assertEquals(reusable.getMinValue(), wrapped.getMinValue());
+        assertEquals(reusable.getMaxValue(), wrapped.getMaxValue());
+        assertEquals(reusable.getQuantiles(fractions), wrapped.getQuantiles(fractions));
+        assertEquals(reusable.getQuantileUpperBound(0.5), wrapped.getQuantileUpperBound(0.5));
+        assertEquals(reusable.getQuantileLowerBound(0.5), wrapped.getQuantileLowerBound(0.5));
+        assertEquals(reusable.getNormalizedRankError(false), wrapped.getNormalizedRankError(false));
+        assertEquals(reusable.isEstimationMode(), wrapped.isEstimationMode());
+        assertEquals(reusable.getRank(n / 2.0), wrapped.getRank(n / 2.0));
+        assertEquals(reusable.toByteArray(true), wrapped.toByteArray(true));
+        assertTrue(reusable.isSameResource(mem));
+        union.update(reusable);
+      }
+    }
+    assertEquals(union.getResult().getN(), ks.length * (0 + 1 + 100 + 10000));
+  }
+
+  @Test
+  public void checkInvalidImages() {
+    ReusableCompactDoublesSketch reusable = new ReusableCompactDoublesSketch();
+    UpdateDoublesSketch sk = DoublesSketch.builder().build();
+    for (int i = 0; i < 1000; i++) { sk.update(i); }
+    byte[] bytes = sk.toByteArray(true);
+    reusable.reset(Memory.wrap(bytes));
+    checkInvalid(reusable, null);
+    checkInvalid(reusable, Memory.wrap(sk.toByteArray(false))); //not compact
+    checkInvalid(reusable, Memory.wrap(bytes).region(0, bytes.length - 8)); //truncated
+    //a failed reset keeps the previous image
+    assertEquals(reusable.getN(), 1000);
+    assertEquals(reusable.getK(), sk.getK());
+  }
+
+  private static void checkInvalid(final ReusableCompactDoublesSketch reusable,
+      final Memory mem) {
+    try {
+      reusable.reset(mem);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //Disable here
+  }
+}
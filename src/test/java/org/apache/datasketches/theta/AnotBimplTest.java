@@ -28,6 +28,7 @@ import static org.testng.Assert.fail;
 import org.apache.datasketches.Family;
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.Util;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.WritableMemory;
 import org.testng.annotations.Test;
 
@@ -310,7 +311,7 @@ public class AnotBimplTest {
   @Test
   public void checkGetFamily() {
     //cheap trick
-    AnotBimpl anotb = new AnotBimpl(Util.DEFAULT_UPDATE_SEED);
+    AnotBimpl anotb = new AnotBimpl(Util.DEFAULT_UPDATE_SEED, Hasher.MURMUR3);
     assertEquals(anotb.getFamily(), Family.A_NOT_B);
   }
 
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.hash.Hasher;
+import org.apache.datasketches.memory.Memory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class CompactSketchArenaTest {
+
+  @Test
+  public void checkCursorMatchesSketches() {
+    List<CompactSketch> sketches = sketches(200);
+    CompactSketchArena arena = CompactSketchArena.wrap(Memory.wrap(concat(sketches, 0)));
+    assertEquals(arena.getNumSketches(), sketches.size());
+
+    CompactSketchArena.Cursor cursor = arena.cursor();
+    assertEquals(cursor.getIndex(), -1);
+    long offset = 0;
+    for (int i = 0; i < sketches.size(); i++) {
+      CompactSketch sk = sketches.get(i);
+      assertEquals(arena.getOffset(i), offset);
+      assertEquals(arena.getSizeBytes(i), sk.getCurrentBytes());
+      offset += sk.getCurrentBytes();
+
+      assertEquals(cursor.moveTo(i), cursor);
+      assertEquals(cursor.getIndex(), i);
+      assertEquals(cursor.isEmpty(), sk.isEmpty());
+      assertEquals(cursor.isEstimationMode(), sk.isEstimationMode());
+      assertEquals(cursor.getRetainedEntries(), sk.getRetainedEntries(true));
+      assertEquals(cursor.getThetaLong(), sk.getThetaLong());
+      assertEquals(cursor.getTheta(), sk.getTheta());
+      assertEquals(cursor.getEstimate(), sk.getEstimate());
+      assertEquals(cursor.getLowerBound(2), sk.getLowerBound(2));
+      assertEquals(cursor.getUpperBound(1), sk.getUpperBound(1));
+      HashIterator it = sk.iterator();
+      while (it.next()) {
+        assertTrue(cursor.next());
+        assertEquals(cursor.get(), it.get());
+      }
+      assertFalse(cursor.next());
+      assertEquals(arena.getSketch(i).toByteArray(), sk.toByteArray());
+    }
+    assertEquals(arena.getDataBytes(), offset);
+
+    //moving back restarts the iteration
+    cursor.moveTo(0);
+    int count = 0;
+    while (cursor.next()) { count++; }
+    assertEquals(count, sketches.get(0).getRetainedEntries(true));
+  }
+
+  @Test
+  public void checkScans() {
+    List<CompactSketch> sketches = sketches(1000);
+    CompactSketchArena arena = CompactSketchArena.wrap(Memory.wrap(concat(sketches, 0)));
+    double[] expected = new double[sketches.size()];
+    for (int i = 0; i < expected.length; i++) { expected[i] = sketches.get(i).getEstimate(); }
+
+    double[] sequential = new double[expected.length];
+    arena.forEach(cursor -> sequential[cursor.getIndex()] = cursor.getEstimate());
+    assertEquals(sequential, expected);
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      assertEquals(arena.getEstimates(pool), expected);
+      AtomicLong totalEntries = new AtomicLong();
+      arena.forEach(cursor -> {
+        long entries = 0;
+        while (cursor.next()) { entries++; }
+        totalEntries.addAndGet(entries);
+      }, pool);
+      long expectedEntries = 0;
+      for (CompactSketch sk : sketches) { expectedEntries += sk.getRetainedEntries(true); }
+      assertEquals(totalEntries.get(), expectedEntries);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void checkUnusedTail() {
+    List<CompactSketch> sketches = sketches(10);
+    byte[] bytes = concat(sketches, 1000);
+    CompactSketchArena arena = CompactSketchArena.wrap(Memory.wrap(bytes));
+    assertEquals(arena.getNumSketches(), 10);
+    assertEquals(arena.getDataBytes(), bytes.length - 1000);
+    assertEquals(CompactSketchArena.wrap(Memory.wrap(new byte[64])).getNumSketches(), 0);
+  }
+
+  @Test
+  public void checkInvalidArenas() {
+    List<CompactSketch> sketches = sketches(10);
+    byte[] bytes = concat(sketches, 0);
+    checkInvalid(Arrays.copyOf(bytes, bytes.length - 8)); //truncated
+
+    UpdateSketch update = UpdateSketch.builder().build();
+    update.update(1);
+    checkInvalid(update.toByteArray()); //not compact
+
+    UpdateSketch seeded = UpdateSketch.builder().setSeed(123).build();
+    seeded.update(1);
+    byte[] seededBytes = seeded.compact(false, null).toByteArray();
+    checkInvalid(seededBytes);
+    assertEquals(CompactSketchArena.wrap(Memory.wrap(seededBytes), 123).getNumSketches(), 1);
+
+    //any Hasher with the given seed
+    UpdateSketch xx = UpdateSketch.builder().setHasher(Hasher.XXHASH64).build();
+    xx.update(1);
+    xx.update(2);
+    byte[] xxBytes = xx.compact().toByteArray();
+    CompactSketchArena xxArena = CompactSketchArena.wrap(Memory.wrap(xxBytes));
+    assertEquals(xxArena.getNumSketches(), 1);
+    assertEquals(xxArena.cursor().moveTo(0).getEstimate(), 2.0);
+    try {
+      CompactSketchArena.wrap(Memory.wrap(xxBytes), 123);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+
+    CompactSketchArena arena = CompactSketchArena.wrap(Memory.wrap(bytes));
+    try {
+      arena.cursor().moveTo(10);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+    try {
+      arena.getSketch(-1);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
+  private static void checkInvalid(final byte[] bytes) {
+    try {
+      CompactSketchArena.wrap(Memory.wrap(bytes));
+      fail();
+    } catch (SketchesArgumentException e) {
+      println(e.getMessage());
+    }
+  }
+
+  /**
+   * Returns empty, single item, exact and estimating, ordered and unordered compact sketches.
+   */
+  private static List<CompactSketch> sketches(final int num) {
+    List<CompactSketch> sketches = new ArrayList<>();
+    for (int i = 0; i < num; i++) {
+      UpdateSketch sk = UpdateSketch.builder().setNominalEntries(64).build();
+      int n = (i * 37) % 300;
+      for (int v = 0; v < n; v++) { sk.update((i * 1000) + v); }
+      sketches.add(((i & 1) == 0) ? sk.compact() : sk.compact(false, null));
+    }
+    return sketches;
+  }
+
+  private static byte[] concat(final List<CompactSketch> sketches, final int tailBytes) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (CompactSketch sk : sketches) {
+      byte[] bytes = sk.toByteArray();
+      out.write(bytes, 0, bytes.length);
+    }
+    out.write(new byte[tailBytes], 0, tailBytes);
+    return out.toByteArray();
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //Disable here
+  }
+}
@@ -29,6 +29,9 @@ import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.datasketches.Family;
 import org.apache.datasketches.SketchesArgumentException;
@@ -660,6 +663,41 @@ public class ConcurrentHeapQuickSelectSketchTest {
     assertEquals(bldr.getMaxNumLocalThreads(), 4);
   }
 
+  @Test
+  public void checkCallerPropagationExecutor() {
+    final AtomicInteger numTasks = new AtomicInteger();
+    ForkJoinPool pool = new ForkJoinPool(2);
+    Executor executor = task -> { numTasks.incrementAndGet(); pool.execute(task); };
+    try {
+      UpdateSketchBuilder bldr = new UpdateSketchBuilder();
+      assertEquals(bldr.getPropagationExecutor(), null);
+      bldr.setPropagationExecutor(executor).setLogNominalEntries(8).setLocalLogNominalEntries(4);
+      assertEquals(bldr.getPropagationExecutor(), executor);
+      assertTrue(bldr.toString().contains("PropagationExecutor"));
+      UpdateSketch[] shareds = new UpdateSketch[8];
+      for (int s = 0; s < shareds.length; s++) {
+        shareds[s] = bldr.buildShared();
+        UpdateSketch local = bldr.buildLocal(shareds[s]);
+        for (int i = 0; i < (100 << 8); i++) { local.update(i); }
+      }
+      for (UpdateSketch shared : shareds) {
+        waitForBgPropagationToComplete(shared);
+        assertTrue(shared.isEstimationMode());
+        assertEquals(shared.getEstimate(), 100 << 8, (100 << 8) * 0.2);
+      }
+      assertTrue(numTasks.get() > 0);
+      shareds[0].reset(); //must not shut down the caller's executor
+      assertTrue(shareds[0].isEmpty());
+      assertFalse(pool.isShutdown());
+      UpdateSketch local = bldr.buildLocal(shareds[0]);
+      for (int i = 0; i < (100 << 8); i++) { local.update(i); }
+      waitForBgPropagationToComplete(shareds[0]);
+      assertTrue(shareds[0].isEstimationMode());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   @Test(expectedExceptions = UnsupportedOperationException.class)
   public void checkToByteArray() {
     SharedLocal sl = new SharedLocal();
@@ -741,8 +779,6 @@ public class ConcurrentHeapQuickSelectSketchTest {
     }
     ConcurrentSharedThetaSketch csts = (ConcurrentSharedThetaSketch)shared;
     csts.awaitBgPropagationTermination();
-    ConcurrentPropagationService.resetExecutorService(Thread.currentThread().getId());
-    csts.initBgPropagationService();
   }
 
 }
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.hash.Hasher;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class ConcurrentLockFreeQuickSelectSketchTest {
+
+  @Test
+  public void checkConcurrentPropagationMatchesSequential() throws Exception {
+    int lgK = 9;
+    int[] ns = {0, 1, 100, 1 << lgK, 50000};
+    for (int n : ns) {
+      UpdateSketchBuilder bldr = new UpdateSketchBuilder().setLogNominalEntries(lgK)
+          .setLockFreePropagation(true);
+      UpdateSketch shared = bldr.buildShared();
+      UpdateSketch sequential = bldr.build();
+      ConcurrentSharedThetaSketch sharedIf = (ConcurrentSharedThetaSketch) shared;
+      runConcurrently(8, (t, numThreads) -> {
+        int offset = (t * n) / numThreads;
+        for (int i = 0; i < n; i++) {
+          sharedIf.propagate(Hasher.MURMUR3.hash64((i + offset) % n, DEFAULT_UPDATE_SEED) >>> 1);
+        }
+      });
+      for (int i = 0; i < n; i++) { sequential.update(i); }
+      shared.rebuild();
+      sequential.rebuild();
+      assertEquals(shared.isEmpty(), sequential.isEmpty());
+      assertEquals(shared.getThetaLong(), sequential.getThetaLong());
+      assertEquals(shared.getRetainedEntries(true), sequential.getRetainedEntries(true));
+      assertEquals(shared.getEstimate(), sequential.getEstimate());
+      assertEquals(shared.compact().toByteArray(), sequential.compact().toByteArray());
+    }
+  }
+
+  @Test
+  public void checkLocalBuffersPropagateConcurrently() throws Exception {
+    int lgK = 12;
+    int n = 200000;
+    UpdateSketchBuilder bldr = new UpdateSketchBuilder().setLogNominalEntries(lgK)
+        .setLockFreePropagation(true);
+    UpdateSketch shared = bldr.buildShared();
+    runConcurrently(4, (t, numThreads) -> {
+      UpdateSketch local = bldr.buildLocal(shared);
+      for (int i = t; i < n; i += numThreads) { local.update(i); }
+    });
+    ((ConcurrentSharedThetaSketch) shared).awaitBgPropagationTermination();
+    assertTrue(shared.isEstimationMode());
+    assertEquals(shared.getEstimate(), n, n * 0.05);
+    assertTrue(shared.getRetainedEntries(true) <= (2 << lgK));
+  }
+
+  @Test
+  public void checkExactModeEagerPropagation() {
+    UpdateSketchBuilder bldr = new UpdateSketchBuilder().setLogNominalEntries(9)
+        .setLockFreePropagation(true);
+    UpdateSketch shared = bldr.buildShared();
+    UpdateSketch local = bldr.buildLocal(shared);
+    assertTrue(shared.isEmpty());
+    for (int i = 0; i < 100; i++) { local.update(i); }
+    assertFalse(shared.isEmpty());
+    assertFalse(shared.isEstimationMode());
+    assertEquals(shared.getEstimate(), 100.0);
+    assertEquals(local.getEstimate(), 100.0);
+  }
+
+  @Test
+  public void checkResetAdvancesEpoch() {
+    UpdateSketchBuilder bldr = new UpdateSketchBuilder().setNominalEntries(16)
+        .setLockFreePropagation(true);
+    UpdateSketch shared = bldr.buildShared();
+    ConcurrentSharedThetaSketch sharedIf = (ConcurrentSharedThetaSketch) shared;
+    for (int i = 0; i < 1000; i++) {
+      sharedIf.propagate(Hasher.MURMUR3.hash64(i, DEFAULT_UPDATE_SEED) >>> 1);
+    }
+    assertTrue(shared.getThetaLong() < Long.MAX_VALUE);
+    assertTrue(shared.getRetainedEntries(true) <= 32);
+    assertTrue(sharedIf.validateEpoch(0));
+    shared.reset();
+    assertFalse(sharedIf.validateEpoch(0));
+    assertTrue(sharedIf.validateEpoch(1));
+    assertTrue(shared.isEmpty());
+    assertEquals(shared.getRetainedEntries(true), 0);
+    assertEquals(shared.getThetaLong(), Long.MAX_VALUE);
+    assertEquals(sharedIf.getVolatileTheta(), Long.MAX_VALUE);
+
+    //a propagation of the previous epoch that completes after the reset changes nothing
+    ConcurrentLockFreeQuickSelectSketch lockFree = (ConcurrentLockFreeQuickSelectSketch) shared;
+    assertEquals(lockFree.propagate(1000L, 0), UpdateReturnState.RejectedOverTheta);
+    assertTrue(shared.isEmpty());
+    assertEquals(lockFree.propagate(1000L, 1), UpdateReturnState.InsertedCountIncremented);
+    assertFalse(shared.isEmpty());
+  }
+
+  @Test
+  public void checkSerializationAndCopy() {
+    UpdateSketchBuilder bldr = new UpdateSketchBuilder().setNominalEntries(256);
+    UpdateSketch sketch = bldr.build();
+    for (int i = 0; i < 5000; i++) { sketch.update(i); }
+    UpdateSketch shared = bldr.setLockFreePropagation(true).buildSharedFromSketch(sketch, null);
+    assertTrue(shared instanceof ConcurrentLockFreeQuickSelectSketch);
+    sketch.rebuild();
+    shared.rebuild();
+    assertEquals(shared.getEstimate(), sketch.getEstimate());
+    assertEquals(shared.compact().toByteArray(), sketch.compact().toByteArray());
+
+    byte[] bytes = shared.toByteArray();
+    assertEquals(bytes.length, shared.getCurrentBytes());
+    UpdateSketch heapified = UpdateSketch.heapify(Memory.wrap(bytes));
+    assertEquals(heapified.getEstimate(), shared.getEstimate());
+    int count = 0;
+    HashIterator it = shared.iterator();
+    while (it.next()) { count++; }
+    assertEquals(count, shared.getRetainedEntries(true));
+    println(shared.toString());
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void checkIllegalHashUpdate() {
+    UpdateSketch shared = new UpdateSketchBuilder().setLockFreePropagation(true).buildShared();
+    shared.update(1);
+  }
+
+  @Test
+  public void checkBuilder() {
+    UpdateSketchBuilder bldr = new UpdateSketchBuilder();
+    assertFalse(bldr.getLockFreePropagation());
+    assertTrue(bldr.buildShared() instanceof ConcurrentHeapQuickSelectSketch);
+    bldr.setLockFreePropagation(true);
+    assertTrue(bldr.getLockFreePropagation());
+    assertTrue(bldr.toString().contains("LockFreePropagation"));
+    try {
+      bldr.buildShared(WritableMemory.allocate(1 << 16));
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
+  interface Task {
+    void run(int thread, int numThreads);
+  }
+
+  private static void runConcurrently(final int numThreads, final Task task) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < numThreads; t++) {
+        final int thread = t;
+        futures.add(pool.submit(() -> task.run(thread, numThreads)));
+      }
+      for (Future<?> future : futures) { future.get(); }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //Disable here
+  }
+}
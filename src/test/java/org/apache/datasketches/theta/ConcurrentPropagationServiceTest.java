@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class ConcurrentPropagationServiceTest {
+
+  @Test
+  public void checkTasksOfOneServiceRunSerially() {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      int numServices = 6;
+      int numTasks = 2000;
+      List<ConcurrentPropagationService> services = new ArrayList<>();
+      List<List<Integer>> runs = new ArrayList<>();
+      AtomicInteger overlaps = new AtomicInteger();
+      for (int s = 0; s < numServices; s++) {
+        services.add(new ConcurrentPropagationService(pool));
+        runs.add(new ArrayList<Integer>());
+      }
+      for (int t = 0; t < numTasks; t++) {
+        for (int s = 0; s < numServices; s++) {
+          final List<Integer> run = runs.get(s);
+          final AtomicBoolean running = new AtomicBoolean();
+          final int task = t;
+          services.get(s).execute(() -> {
+            if (!running.compareAndSet(false, true)) { overlaps.incrementAndGet(); }
+            run.add(task); //not thread safe, thus also checks the serial execution
+            running.set(false);
+          });
+        }
+      }
+      for (ConcurrentPropagationService service : services) { service.awaitQuiescence(); }
+      assertEquals(overlaps.get(), 0);
+      for (List<Integer> run : runs) {
+        assertEquals(run.size(), numTasks);
+        for (int t = 0; t < numTasks; t++) { assertEquals(run.get(t).intValue(), t); }
+      }
+      assertFalse(pool.isShutdown());
+      assertSame(services.get(0).getExecutor(), pool);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void checkFailingTaskDoesNotStrandQueue() {
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      Executor quietPool = task -> pool.execute(() -> {
+        try { task.run(); } catch (IllegalStateException e) { } //expected
+      });
+      ConcurrentPropagationService service = new ConcurrentPropagationService(quietPool);
+      AtomicInteger count = new AtomicInteger();
+      service.execute(() -> { throw new IllegalStateException("test"); });
+      for (int i = 0; i < 100; i++) { service.execute(count::incrementAndGet); }
+      service.awaitQuiescence();
+      assertEquals(count.get(), 100);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void checkRejectedTaskDoesNotStrandService() {
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      AtomicBoolean reject = new AtomicBoolean();
+      Executor executor = task -> {
+        if (reject.get()) { throw new RejectedExecutionException("test"); }
+        pool.execute(task);
+      };
+      for (boolean serial : new boolean[] {true, false}) {
+        ConcurrentPropagationService service = new ConcurrentPropagationService(executor, serial);
+        AtomicInteger count = new AtomicInteger();
+        reject.set(true);
+        try {
+          service.execute(count::incrementAndGet);
+          fail();
+        } catch (RejectedExecutionException e) {
+          //expected
+        }
+        service.awaitQuiescence(); //nothing is pending
+        reject.set(false);
+        for (int i = 0; i < 100; i++) { service.execute(count::incrementAndGet); }
+        service.awaitQuiescence();
+        assertEquals(count.get(), 100);
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void checkParallelServiceRunsAllTasks() {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      ConcurrentPropagationService service = new ConcurrentPropagationService(pool, false);
+      assertFalse(service.isSerial());
+      AtomicInteger runs = new AtomicInteger();
+      int numTasks = 5000;
+      for (int t = 0; t < numTasks; t++) {
+        service.execute(runs::incrementAndGet);
+      }
+      service.awaitQuiescence();
+      assertEquals(runs.get(), numTasks);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void checkDefaultExecutors() {
+    int numThreads = ConcurrentPropagationService.NUM_POOL_THREADS;
+    assertSame(ConcurrentPropagationService.getDefaultExecutor(numThreads),
+        ConcurrentPropagationService.getDefaultExecutor(numThreads));
+    assertNotSame(ConcurrentPropagationService.getDefaultExecutor(numThreads),
+        ConcurrentPropagationService.getDefaultExecutor(numThreads + 1));
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //Disable here
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.datasketches.Family;
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class ConcurrentStripedQuickSelectSketchTest {
+
+  @Test
+  public void checkMatchesSequentialSketch() throws Exception {
+    int lgK = 9;
+    int[] ns = {0, 1, 100, 1 << lgK, 50000};
+    for (int n : ns) {
+      UpdateSketchBuilder bldr = UpdateSketch.builder().setLogNominalEntries(lgK);
+      UpdateSketch striped = bldr.setNumStripes(8).buildStriped();
+      UpdateSketch sequential = bldr.build();
+      updateConcurrently(striped, n, 4, false);
+      for (int i = 0; i < n; i++) { sequential.update(i); }
+      assertSameSketch(striped, sequential);
+    }
+  }
+
+  @Test
+  public void checkConcurrentReadsDoNotChangeResult() throws Exception {
+    int n = 100000;
+    UpdateSketchBuilder bldr = UpdateSketch.builder().setLogNominalEntries(10);
+    UpdateSketch striped = bldr.buildStriped();
+    UpdateSketch sequential = bldr.build();
+    updateConcurrently(striped, n, 4, true);
+    for (int i = 0; i < n; i++) { sequential.update(i); }
+    assertSameSketch(striped, sequential);
+    double est = striped.getEstimate();
+    assertEquals(est, n, n * 0.1);
+    assertTrue(striped.getLowerBound(2) <= est);
+    assertTrue(striped.getUpperBound(2) >= est);
+    assertTrue(striped.isEstimationMode());
+  }
+
+  @Test
+  public void checkSingleStripe() {
+    UpdateSketchBuilder bldr = UpdateSketch.builder().setNominalEntries(64).setNumStripes(1);
+    UpdateSketch striped = bldr.buildStriped();
+    UpdateSketch sequential = bldr.build();
+    assertEquals(((ConcurrentStripedQuickSelectSketch) striped).getNumStripes(), 1);
+    for (int i = 0; i < 1000; i++) {
+      striped.update(i);
+      sequential.update(i);
+    }
+    assertSameSketch(striped, sequential);
+  }
+
+  @Test
+  public void checkSamplingProbability() {
+    UpdateSketchBuilder bldr = UpdateSketch.builder().setP((float) 0.5);
+    UpdateSketch striped = bldr.buildStriped();
+    UpdateSketch sequential = bldr.build();
+    assertTrue(striped.isEmpty());
+    for (int i = 0; i < 3; i++) {
+      striped.update(i);
+      sequential.update(i);
+    }
+    assertSameSketch(striped, sequential);
+    assertFalse(striped.isEmpty());
+  }
+
+  @Test
+  public void checkResetAndReuse() {
+    UpdateSketch striped = UpdateSketch.builder().setNominalEntries(32).buildStriped();
+    for (int i = 0; i < 10000; i++) { striped.update(i); }
+    assertTrue(striped.isEstimationMode());
+    striped.reset();
+    assertTrue(striped.isEmpty());
+    assertEquals(striped.getRetainedEntries(true), 0);
+    assertEquals(striped.getThetaLong(), Long.MAX_VALUE);
+    for (int i = 0; i < 10; i++) { striped.update(i); }
+    assertEquals(striped.getEstimate(), 10.0);
+  }
+
+  @Test
+  public void checkSerializationAndIteration() {
+    UpdateSketch striped = UpdateSketch.builder().setNominalEntries(256).buildStriped();
+    for (int i = 0; i < 5000; i++) { striped.update(i); }
+    assertEquals(striped.getFamily(), Family.QUICKSELECT);
+    assertFalse(striped.isDirect());
+    assertFalse(striped.hasMemory());
+
+    byte[] bytes = striped.toByteArray();
+    assertEquals(bytes.length, striped.getCurrentBytes());
+    UpdateSketch heapified = UpdateSketch.heapify(Memory.wrap(bytes));
+    assertEquals(heapified.getEstimate(), striped.getEstimate());
+    assertEquals(heapified.getThetaLong(), striped.getThetaLong());
+
+    int count = 0;
+    HashIterator it = striped.iterator();
+    while (it.next()) {
+      assertTrue(it.get() < striped.getThetaLong());
+      count++;
+    }
+    assertEquals(count, striped.getRetainedEntries(true));
+    assertEquals(striped.compact().getCompactBytes(), striped.getCompactBytes());
+    println(striped.toString());
+  }
+
+  @Test
+  public void checkSetOperationsReadSnapshot() {
+    UpdateSketch striped = UpdateSketch.builder().setNominalEntries(256).buildStriped();
+    UpdateSketch other = UpdateSketch.builder().setNominalEntries(256).build();
+    for (int i = 0; i < 5000; i++) {
+      striped.update(i);
+      other.update(i + 2500);
+    }
+    Sketch snapshot = striped.snapshot();
+    assertTrue(snapshot instanceof CompactSketch);
+    assertEquals(snapshot.getThetaLong(), striped.getThetaLong());
+    assertEquals(snapshot.getRetainedEntries(true), striped.getRetainedEntries(true));
+    assertSame(other.snapshot(), other);
+
+    CompactSketch compact = striped.compact();
+    Union union = SetOperation.builder().setNominalEntries(256).buildUnion();
+    assertEquals(union.union(striped, other).getEstimate(),
+        union.union(compact, other).getEstimate());
+    Intersection inter = SetOperation.builder().buildIntersection();
+    assertEquals(inter.intersect(striped, other).getEstimate(),
+        inter.intersect(compact, other).getEstimate());
+    AnotB aNotB = SetOperation.builder().buildANotB();
+    assertEquals(aNotB.aNotB(striped, other).getEstimate(),
+        aNotB.aNotB(compact, other).getEstimate());
+    aNotB.setA(other);
+    aNotB.notB(striped);
+    assertEquals(aNotB.getResult(true).getEstimate(), aNotB.aNotB(other, compact).getEstimate());
+  }
+
+  @Test
+  public void checkBuilderNumStripes() {
+    UpdateSketchBuilder bldr = UpdateSketch.builder();
+    assertEquals(bldr.getNumStripes(), ConcurrentStripedQuickSelectSketch.DEFAULT_NUM_STRIPES);
+    bldr.setNumStripes(5);
+    assertEquals(bldr.getNumStripes(), 8);
+    assertEquals(((ConcurrentStripedQuickSelectSketch) bldr.buildStriped()).getNumStripes(), 8);
+    assertTrue(bldr.toString().contains("NumStripes"));
+    try {
+      bldr.setNumStripes(0);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
+  /**
+   * Updates the given sketch with the items 0 to n-1 from the given number of threads. Every
+   * thread presents all items, starting at a different offset.
+   */
+  private static void updateConcurrently(final UpdateSketch sketch, final int n,
+      final int numThreads, final boolean readWhileUpdating) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(numThreads + 1);
+    try {
+      AtomicBoolean done = new AtomicBoolean();
+      Future<?> reader = pool.submit(() -> {
+        while (readWhileUpdating && !done.get()) {
+          assertTrue(sketch.getEstimate() >= 0);
+          sketch.compact();
+        }
+      });
+      List<Future<?>> writers = new ArrayList<>();
+      for (int t = 0; t < numThreads; t++) {
+        final int offset = (t * n) / numThreads;
+        writers.add(pool.submit(() -> {
+          for (int i = 0; i < n; i++) { sketch.update((i + offset) % n); }
+        }));
+      }
+      for (Future<?> writer : writers) { writer.get(); }
+      done.set(true);
+      reader.get();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static void assertSameSketch(final UpdateSketch striped, final UpdateSketch sequential) {
+    sequential.rebuild();
+    assertEquals(striped.isEmpty(), sequential.isEmpty());
+    assertEquals(striped.getThetaLong(), sequential.getThetaLong());
+    assertEquals(striped.getRetainedEntries(true), sequential.getRetainedEntries(true));
+    assertEquals(striped.getEstimate(), sequential.getEstimate());
+    assertEquals(striped.compact().toByteArray(), sequential.compact().toByteArray());
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //Disable here
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.apache.datasketches.Family;
+import org.apache.datasketches.ResizeFactor;
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.SketchesReadOnlyException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class DirectAlphaSketchTest {
+
+  @Test
+  public void checkMatchesHeapAlphaSketch() {
+    int[] ns = {0, 1, 100, 512, 513, 5000, 100000};
+    ResizeFactor[] rfs = {ResizeFactor.X1, ResizeFactor.X2, ResizeFactor.X8};
+    for (int lgK : new int[] {9, 12}) {
+      for (float p : new float[] {1.0f, 0.5f}) {
+        for (ResizeFactor rf : rfs) {
+          for (int n : ns) {
+            UpdateSketchBuilder bldr = UpdateSketch.builder().setFamily(Family.ALPHA)
+                .setNominalEntries(1 << lgK).setP(p).setResizeFactor(rf);
+            UpdateSketch heap = bldr.build();
+            int bytes = Sketch.getMaxUpdateSketchBytes(1 << lgK);
+            UpdateSketch direct = bldr.build(WritableMemory.allocate(bytes));
+            assertTrue(direct instanceof DirectAlphaSketch);
+            for (int i = 0; i < n; i++) {
+              heap.update(i);
+              direct.update(i);
+            }
+            checkEquals(direct, heap);
+            //the same hash table, as the update path is the same
+            assertEquals(direct.toByteArray(), heap.toByteArray());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void checkWrap() {
+    UpdateSketch heap = UpdateSketch.builder().setFamily(Family.ALPHA).setNominalEntries(1024)
+        .build();
+    for (int i = 0; i < 10000; i++) { heap.update(i); }
+    byte[] bytes = heap.toByteArray();
+
+    //writable wrap, then keep updating
+    WritableMemory wmem = WritableMemory.allocate(Sketch.getMaxUpdateSketchBytes(1024));
+    wmem.putByteArray(0, bytes, 0, bytes.length);
+    UpdateSketch direct = UpdateSketch.wrap(wmem);
+    assertTrue(direct instanceof DirectAlphaSketch);
+    checkEquals(direct, heap);
+    for (int i = 10000; i < 50000; i++) {
+      heap.update(i);
+      direct.update(i);
+    }
+    checkEquals(direct, heap);
+    assertEquals(UpdateSketch.heapify(Memory.wrap(direct.toByteArray())).getEstimate(),
+        heap.getEstimate());
+
+    //read-only wrap
+    Sketch readOnly = Sketch.wrap(wmem);
+    assertTrue(readOnly instanceof DirectAlphaSketch);
+    assertEquals(readOnly.getEstimate(), heap.getEstimate());
+    assertEquals(readOnly.getRetainedEntries(true), heap.getRetainedEntries(true));
+    try {
+      ((UpdateSketch) readOnly).update(1);
+      fail();
+    } catch (SketchesReadOnlyException e) {
+      //expected
+    }
+    try {
+      ((UpdateSketch) readOnly).reset();
+      fail();
+    } catch (SketchesReadOnlyException e) {
+      //expected
+    }
+
+    //reset
+    direct.reset();
+    assertTrue(direct.isEmpty());
+    assertEquals(direct.getRetainedEntries(true), 0);
+    assertEquals(direct.getEstimate(), 0.0);
+    direct.update(1);
+    assertEquals(direct.getEstimate(), 1.0);
+  }
+
+  @Test
+  public void checkHeapifyLiveMemory() {
+    UpdateSketchBuilder bldr = UpdateSketch.builder().setFamily(Family.ALPHA)
+        .setNominalEntries(512);
+    UpdateSketch heap = bldr.build();
+    WritableMemory wmem = WritableMemory.allocate(Sketch.getMaxUpdateSketchBytes(512));
+    UpdateSketch direct = bldr.build(wmem);
+    for (int i = 0; i < 5000; i++) {
+      heap.update(i);
+      direct.update(i);
+    }
+    //the image still holds the hashes above theta that the direct sketch has not rebuilt away
+    UpdateSketch heapified = UpdateSketch.heapify(wmem);
+    assertTrue(heapified instanceof HeapAlphaSketch);
+    checkEquals(heapified, heap);
+  }
+
+  @Test
+  public void checkMemoryRequest() {
+    UpdateSketchBuilder bldr = UpdateSketch.builder().setFamily(Family.ALPHA)
+        .setNominalEntries(4096).setResizeFactor(ResizeFactor.X2);
+    UpdateSketch heap = bldr.build();
+    WritableMemory wmem = WritableMemory.allocate(Family.ALPHA.getMinPreLongs() * 8 + 8 * 32);
+    UpdateSketch direct = bldr.build(wmem);
+    for (int i = 0; i < 100000; i++) {
+      heap.update(i);
+      direct.update(i);
+    }
+    assertFalse(direct.isSameResource(wmem));
+    checkEquals(direct, heap);
+    assertEquals(direct.toByteArray(), heap.toByteArray());
+  }
+
+  @Test
+  public void checkUnionAndSetOperations() {
+    UpdateSketch heap = UpdateSketch.builder().setFamily(Family.ALPHA).setNominalEntries(512)
+        .build();
+    UpdateSketch direct = UpdateSketch.builder().setFamily(Family.ALPHA).setNominalEntries(512)
+        .build(WritableMemory.allocate(Sketch.getMaxUpdateSketchBytes(512)));
+    for (int i = 0; i < 20000; i++) {
+      heap.update(i);
+      direct.update(i);
+    }
+    Union u1 = SetOperation.builder().buildUnion();
+    Union u2 = SetOperation.builder().buildUnion();
+    u1.update(heap);
+    u2.update(direct);
+    assertEquals(u2.getResult().toByteArray(), u1.getResult().toByteArray());
+    Union u3 = SetOperation.builder().buildUnion();
+    u3.update(Memory.wrap(direct.toByteArray()));
+    assertEquals(u3.getResult().toByteArray(), u1.getResult().toByteArray());
+  }
+
+  @Test
+  public void checkInvalid() {
+    try {
+      UpdateSketch.builder().setFamily(Family.ALPHA).setNominalEntries(256)
+          .build(WritableMemory.allocate(1 << 14));
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+    UpdateSketch sk = UpdateSketch.builder().setFamily(Family.ALPHA).setNominalEntries(512)
+        .setSeed(123).build();
+    sk.update(1);
+    try {
+      UpdateSketch.wrap(WritableMemory.wrap(sk.toByteArray()));
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+    try {
+      Sketch.wrap(Memory.wrap(sk.toByteArray()));
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
+  private static void checkEquals(final UpdateSketch direct, final UpdateSketch heap) {
+    assertEquals(direct.getFamily(), Family.ALPHA);
+    assertEquals(direct.isEmpty(), heap.isEmpty());
+    assertEquals(direct.isEstimationMode(), heap.isEstimationMode());
+    assertEquals(direct.getThetaLong(), heap.getThetaLong());
+    assertEquals(direct.getRetainedEntries(true), heap.getRetainedEntries(true));
+    assertEquals(direct.getEstimate(), heap.getEstimate());
+    for (int numStdDev = 1; numStdDev <= 3; numStdDev++) {
+      assertEquals(direct.getLowerBound(numStdDev), heap.getLowerBound(numStdDev));
+      assertEquals(direct.getUpperBound(numStdDev), heap.getUpperBound(numStdDev));
+    }
+    assertEquals(direct.compact().toByteArray(), heap.compact().toByteArray());
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //Disable here
+  }
+}
@@ -33,6 +33,7 @@ import org.apache.datasketches.Family;
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.SketchesReadOnlyException;
 import org.apache.datasketches.SketchesStateException;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableMemory;
 import org.testng.annotations.Test;
@@ -661,14 +662,14 @@ public class DirectIntersectionTest {
   public void checkDefaultMinSize() {
     int k = 32;
     WritableMemory mem = WritableMemory.wrap(new byte[(k*8) + PREBYTES]);
-    IntersectionImpl.initNewDirectInstance(DEFAULT_UPDATE_SEED, mem);
+    IntersectionImpl.initNewDirectInstance(DEFAULT_UPDATE_SEED, Hasher.MURMUR3, mem);
   }
 
   @Test(expectedExceptions = SketchesArgumentException.class)
   public void checkExceptionMinSize() {
     int k = 16;
     WritableMemory mem = WritableMemory.wrap(new byte[(k*8) + PREBYTES]);
-    IntersectionImpl.initNewDirectInstance(DEFAULT_UPDATE_SEED, mem);
+    IntersectionImpl.initNewDirectInstance(DEFAULT_UPDATE_SEED, Hasher.MURMUR3, mem);
   }
 
   @Test
@@ -691,7 +692,8 @@ public class DirectIntersectionTest {
     //cheap trick
     int k = 16;
     WritableMemory mem = WritableMemory.wrap(new byte[(k*16) + PREBYTES]);
-    IntersectionImpl impl = IntersectionImpl.initNewDirectInstance(DEFAULT_UPDATE_SEED, mem);
+    IntersectionImpl impl =
+        IntersectionImpl.initNewDirectInstance(DEFAULT_UPDATE_SEED, Hasher.MURMUR3, mem);
     assertEquals(impl.getFamily(), Family.INTERSECTION);
   }
 
@@ -699,7 +701,7 @@ public class DirectIntersectionTest {
   public void checkExceptions1() {
     int k = 16;
     WritableMemory mem = WritableMemory.wrap(new byte[(k*16) + PREBYTES]);
-    IntersectionImpl.initNewDirectInstance(DEFAULT_UPDATE_SEED, mem);
+    IntersectionImpl.initNewDirectInstance(DEFAULT_UPDATE_SEED, Hasher.MURMUR3, mem);
     //corrupt SerVer
     mem.putByte(PreambleUtil.SER_VER_BYTE, (byte) 2);
     IntersectionImpl.wrapInstance(mem, DEFAULT_UPDATE_SEED, false);
@@ -709,7 +711,7 @@ public class DirectIntersectionTest {
   public void checkExceptions2() {
     int k = 16;
     WritableMemory mem = WritableMemory.wrap(new byte[(k*16) + PREBYTES]);
-    IntersectionImpl.initNewDirectInstance(DEFAULT_UPDATE_SEED, mem);
+    IntersectionImpl.initNewDirectInstance(DEFAULT_UPDATE_SEED, Hasher.MURMUR3, mem);
     //mem now has non-empty intersection
     //corrupt empty and CurCount
     mem.setBits(PreambleUtil.FLAGS_BYTE, (byte) PreambleUtil.EMPTY_FLAG_MASK);
@@ -22,6 +22,7 @@ package org.apache.datasketches.theta;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.datasketches.theta.BackwardConversions.convertSerVer3toSerVer1;
 import static org.apache.datasketches.theta.BackwardConversions.convertSerVer3toSerVer2;
+import static org.apache.datasketches.theta.HeapUnionTest.assertUnionResultsEqual;
 import static org.apache.datasketches.theta.HeapUnionTest.testAllCompactForms;
 import static org.apache.datasketches.theta.PreambleUtil.SER_VER_BYTE;
 import static org.apache.datasketches.theta.SetOperation.getMaxUnionBytes;
@@ -29,7 +30,9 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.datasketches.Family;
 import org.apache.datasketches.SketchesArgumentException;
@@ -812,6 +815,26 @@ public class DirectUnionTest {
     assertTrue(est < 101530.0);
   }
 
+  @Test
+  public void checkUpdateAllMatchesSequentialUpdates() {
+    int k = 1024;
+    List<Sketch> sketches = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      UpdateSketch usk = UpdateSketch.builder().setNominalEntries(k).build();
+      for (int j = 0; j < ((i * 53) % (8 * k)); j++) { usk.update((i * 1000L) + j); }
+      WritableMemory skMem = WritableMemory.wrap(new byte[usk.getCompactBytes()]);
+      sketches.add(((i & 1) == 0) ? usk.compact(true, skMem) : usk.compact());
+    }
+    WritableMemory seqMem = WritableMemory.wrap(new byte[getMaxUnionBytes(k)]);
+    Union seqUnion = SetOperation.builder().setNominalEntries(k).buildUnion(seqMem);
+    for (Sketch sk : sketches) { seqUnion.update(sk); }
+    WritableMemory uMem = WritableMemory.wrap(new byte[getMaxUnionBytes(k)]);
+    Union union = SetOperation.builder().setNominalEntries(k).buildUnion(uMem);
+    union.updateAll(sketches);
+    assertUnionResultsEqual(union, seqUnion);
+    assertUnionResultsEqual(Sketches.wrapUnion(uMem), seqUnion); //theta and empty are in uMem
+  }
+
   @Test
   public void printlnTest() {
     println("PRINTING: "+this.getClass().getName());
@@ -86,8 +86,8 @@ public class HeapAlphaSketchTest {
   }
 
   @Test(expectedExceptions = SketchesArgumentException.class)
-  public void checkAlphaIncompatibleWithMem() {
-    WritableMemory mem = WritableMemory.wrap(new byte[(512*16)+24]);
+  public void checkAlphaMemTooSmall() {
+    WritableMemory mem = WritableMemory.wrap(new byte[64]);
     UpdateSketch.builder().setFamily(Family.ALPHA).setNominalEntries(512).build(mem);
   }
 
@@ -31,6 +31,7 @@ import static org.testng.Assert.fail;
 import org.apache.datasketches.Family;
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.SketchesStateException;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableMemory;
 import org.testng.annotations.Test;
@@ -506,7 +507,8 @@ public class HeapIntersectionTest {
 
   @Test
   public void checkFamily() {
-    IntersectionImpl impl = IntersectionImpl.initNewHeapInstance(DEFAULT_UPDATE_SEED);
+    IntersectionImpl impl =
+        IntersectionImpl.initNewHeapInstance(DEFAULT_UPDATE_SEED, Hasher.MURMUR3);
     assertEquals(impl.getFamily(), Family.INTERSECTION);
   }
 
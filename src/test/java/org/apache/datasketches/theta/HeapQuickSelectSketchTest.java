@@ -629,6 +629,154 @@ public class HeapQuickSelectSketchTest {
     }
   }
 
+  @Test
+  public void checkIncrementalResizeMatchesResize() {
+    ResizeFactor[] rfs = {X1, X2, ResizeFactor.X4, X8};
+    float[] ps = {(float) 1.0, (float) 0.5};
+    int[] ns = {0, 1, 100, 4096, 10000, 100000};
+    for (ResizeFactor rf : rfs) {
+      for (float p : ps) {
+        for (int n : ns) {
+          UpdateSketchBuilder bldr = UpdateSketch.builder().setNominalEntries(4096)
+              .setResizeFactor(rf).setP(p);
+          UpdateSketch sk1 = bldr.build();
+          UpdateSketch sk2 = bldr.setIncrementalResize(true).build();
+          for (int i = 0; i < n; i++) {
+            UpdateReturnState state1 = sk1.update(i);
+            assertEquals(sk2.update(i), state1);
+            assertEquals(sk2.getRetainedEntries(false), sk1.getRetainedEntries(false));
+          }
+          assertEquals(sk2.getThetaLong(), sk1.getThetaLong());
+          assertEquals(sk2.getEstimate(), sk1.getEstimate());
+          assertEquals(sk2.compact().toByteArray(), sk1.compact().toByteArray());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void checkIncrementalResizeInProgress() {
+    int k = 1 << 12;
+    UpdateSketchBuilder bldr = UpdateSketch.builder().setNominalEntries(k).setResizeFactor(X2)
+        .setIncrementalResize(true);
+    assertTrue(bldr.getIncrementalResize());
+    assertTrue(bldr.toString().contains("IncrementalResize"));
+    HeapQuickSelectSketch sk = (HeapQuickSelectSketch) bldr.build();
+    int u = 0;
+    while (sk.update(u++) != UpdateReturnState.InsertedCountIncrementedResized) { }
+    //the old table is being migrated, duplicates in either table are rejected
+    for (int i = 0; i < u; i++) { assertEquals(sk.update(i), UpdateReturnState.RejectedDuplicate); }
+    assertEquals(sk.update(u), UpdateReturnState.InsertedCountIncremented);
+    u++;
+    while (sk.update(u++) != UpdateReturnState.InsertedCountIncrementedResized) { }
+    sk.update(u++);
+    assertEquals(sk.getRetainedEntries(true), u);
+
+    //serialization and iteration complete the migration
+    UpdateSketch copy = Sketches.heapifyUpdateSketch(Memory.wrap(sk.toByteArray()));
+    assertEquals(copy.getRetainedEntries(true), u);
+    for (int i = 0; i < u; i++) {
+      assertEquals(copy.update(i), UpdateReturnState.RejectedDuplicate);
+    }
+    int count = 0;
+    HashIterator it = sk.iterator();
+    while (it.next()) { count++; }
+    assertEquals(count, u);
+
+    while (sk.update(u++) != UpdateReturnState.InsertedCountIncrementedResized) { }
+    sk.reset();
+    assertTrue(sk.isEmpty());
+    assertEquals(sk.getRetainedEntries(true), 0);
+    for (int i = 0; i < (4 * k); i++) { sk.update(i); }
+    UpdateSketch expected = UpdateSketch.builder().setNominalEntries(k).setResizeFactor(X2).build();
+    for (int i = 0; i < (4 * k); i++) { expected.update(i); }
+    assertEquals(sk.compact().toByteArray(), expected.compact().toByteArray());
+  }
+
+  @Test
+  public void checkIncrementalRebuildMatchesRebuild() {
+    int[] ks = {16, 4096};
+    float[] ps = {(float) 1.0, (float) 0.5};
+    for (int k : ks) {
+      for (float p : ps) {
+        UpdateSketchBuilder bldr = UpdateSketch.builder().setNominalEntries(k).setP(p);
+        UpdateSketch sk1 = bldr.build();
+        UpdateSketch sk2 = bldr.setIncrementalResize(true).build();
+        int rebuilds = 0;
+        for (int i = 0; i < (100 * k); i++) {
+          UpdateReturnState state1 = sk1.update(i);
+          UpdateReturnState state2 = sk2.update(i);
+          if (state1 == UpdateReturnState.InsertedCountIncrementedRebuilt) {
+            assertEquals(state2, state1);
+            rebuilds++;
+          }
+          if ((i % (7 * k)) == 0) { //reading the sketch completes the rebuild in progress
+            assertEquals(sk2.compact().toByteArray(), sk1.compact().toByteArray());
+          }
+        }
+        assertTrue(rebuilds > 2);
+        assertEquals(sk2.getThetaLong(), sk1.getThetaLong());
+        assertEquals(sk2.getEstimate(), sk1.getEstimate());
+        assertEquals(sk2.compact().toByteArray(), sk1.compact().toByteArray());
+      }
+    }
+  }
+
+  @Test
+  public void checkIncrementalRebuildInProgress() {
+    int k = 1 << 12;
+    UpdateSketch expected = UpdateSketch.builder().setNominalEntries(k).build();
+    UpdateSketch sk = UpdateSketch.builder().setNominalEntries(k).setIncrementalResize(true)
+        .build();
+    int u = 0;
+    while (sk.update(u) != UpdateReturnState.InsertedCountIncrementedRebuilt) {
+      expected.update(u++);
+    }
+    expected.update(u++);
+    //the old thetaLong is still in effect, every value of the old table is a duplicate
+    assertEquals(sk.getEstimate(), (double) u);
+    assertTrue(expected.isEstimationMode());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(sk.update(i), UpdateReturnState.RejectedDuplicate);
+    }
+    //the rebuild is done before the pending table is half full
+    for (int i = 0; i < (k / 4); i++) {
+      UpdateReturnState state = sk.update(u);
+      if (state != UpdateReturnState.RejectedOverTheta) {
+        assertEquals(state, UpdateReturnState.InsertedCountIncremented);
+        assertEquals(sk.update(u), UpdateReturnState.RejectedDuplicate);
+      }
+      expected.update(u++);
+    }
+    assertEquals(sk.getEstimate(), expected.getEstimate());
+    assertEquals(sk.compact().toByteArray(), expected.compact().toByteArray());
+
+    //the sketch is complete when it is read or serialized
+    while (sk.update(u) != UpdateReturnState.InsertedCountIncrementedRebuilt) {
+      expected.update(u++);
+    }
+    expected.update(u++);
+    UpdateSketch copy = Sketches.heapifyUpdateSketch(Memory.wrap(sk.toByteArray()));
+    assertEquals(copy.compact().toByteArray(), expected.compact().toByteArray());
+    sk.update(u);
+    expected.update(u++);
+    int count = 0;
+    HashIterator it = sk.iterator();
+    while (it.next()) { count++; }
+    assertEquals(count, expected.getRetainedEntries(true));
+
+    while (sk.update(u++) != UpdateReturnState.InsertedCountIncrementedRebuilt) { }
+    sk.reset();
+    assertTrue(sk.isEmpty());
+    assertEquals(sk.getRetainedEntries(true), 0);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkIncrementalResizeNotDirect() {
+    UpdateSketch.builder().setIncrementalResize(true)
+        .build(WritableMemory.allocate(Sketch.getMaxUpdateSketchBytes(4096)));
+  }
+
   @Test
   public void printlnTest() {
     println("PRINTING: "+this.getClass().getName());
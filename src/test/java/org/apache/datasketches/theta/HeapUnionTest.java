@@ -25,8 +25,11 @@ import static org.apache.datasketches.theta.BackwardConversions.convertSerVer3to
 import static org.apache.datasketches.theta.PreambleUtil.SER_VER_BYTE;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.datasketches.Family;
 import org.apache.datasketches.SketchesArgumentException;
@@ -634,6 +637,67 @@ public class HeapUnionTest {
     assertEquals(compEst2, compEst1, 0.0);
   }
 
+  @Test
+  public void checkUpdateAllMatchesSequentialUpdates() {
+    int k = 512;
+    List<Sketch> sketches = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      UpdateSketch usk = UpdateSketch.builder().setNominalEntries(k).build();
+      int n = (i * 37) % (4 * k); //some exact, some estimating, some empty
+      for (int j = 0; j < n; j++) { usk.update((i * 1000L) + j); }
+      switch (i % 5) {
+        case 0: sketches.add(usk); break; //hash table form
+        case 1: sketches.add(usk.compact(false, null)); break; //unordered
+        case 2: sketches.add(Sketches.wrapSketch(Memory.wrap(usk.compact().toByteArray()))); break;
+        case 3: sketches.add(null); sketches.add(SingleItemSketch.create(i)); break;
+        default: sketches.add(usk.compact()); break;
+      }
+    }
+    Union seqUnion = SetOperation.builder().setNominalEntries(k).buildUnion();
+    for (Sketch sk : sketches) { seqUnion.update(sk); }
+    Union union = SetOperation.builder().setNominalEntries(k).buildUnion();
+    union.updateAll(sketches);
+    assertUnionResultsEqual(union, seqUnion);
+
+    //the union remains valid for further updates
+    UpdateSketch usk = UpdateSketch.builder().setNominalEntries(k).build();
+    for (int j = 0; j < (2 * k); j++) { usk.update(-j); }
+    seqUnion.update(usk);
+    union.updateAll(Arrays.asList(usk.compact()));
+    assertUnionResultsEqual(union, seqUnion);
+    Union heapified = (Union) Sketches.heapifySetOperation(Memory.wrap(union.toByteArray()));
+    assertUnionResultsEqual(heapified, seqUnion);
+  }
+
+  @Test
+  public void checkUpdateAllEmptyAndNull() {
+    Union union = SetOperation.builder().buildUnion();
+    union.updateAll(null);
+    union.updateAll(new ArrayList<Sketch>());
+    union.updateAll(Arrays.asList(null, UpdateSketch.builder().build().compact()));
+    assertTrue(union.getResult().isEmpty());
+    UpdateSketch usk = UpdateSketch.builder().setP((float) 0.001).build();
+    usk.update(1);
+    union.updateAll(Arrays.asList(usk.compact()));
+    assertFalse(union.getResult().isEmpty()); //theta < 1.0 with no retained entries
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkUpdateAllSeedHashMismatch() {
+    UpdateSketch usk = UpdateSketch.builder().setSeed(123).build();
+    usk.update(1);
+    Union union = SetOperation.builder().buildUnion();
+    union.updateAll(Arrays.asList(usk.compact()));
+  }
+
+  static void assertUnionResultsEqual(Union union, Union expected) {
+    CompactSketch result = union.getResult();
+    CompactSketch expectedResult = expected.getResult();
+    assertEquals(result.getThetaLong(), expectedResult.getThetaLong());
+    assertEquals(result.isEmpty(), expectedResult.isEmpty());
+    assertEquals(result.getCache(), expectedResult.getCache());
+  }
+
   @Test
   public void checkGetFamily() {
     SetOperation setOp = new SetOperationBuilder().build(Family.UNION);
@@ -21,9 +21,19 @@ package org.apache.datasketches.theta;
 
 import static org.apache.datasketches.theta.JaccardSimilarity.exactlyEqual;
 import static org.apache.datasketches.theta.JaccardSimilarity.jaccard;
+import static org.apache.datasketches.theta.JaccardSimilarity.jaccardMatrix;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
 import org.testng.annotations.Test;
 
 /**
@@ -234,6 +244,93 @@ public class JaccardSimilarityTest {
     println(result[0] + ", " + result[1] + ", " + result[2]);
   }
 
+  @Test
+  public void checkJaccardMatrixMatchesPairs() {
+    List<Sketch> sketches = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      UpdateSketch sk = UpdateSketch.builder().setNominalEntries(1 << (5 + (i % 8))).build();
+      int start = (i % 5) * 1000;
+      int end = start + (((i * 7919) % 20) * 500);
+      for (int v = start; v < end; v++) { sk.update(v); }
+      switch (i % 4) {
+        case 0: sketches.add(sk); break;
+        case 1: sketches.add(sk.compact()); break;
+        case 2: sketches.add(sk.compact(false, null)); break;
+        default: sketches.add(Sketch.wrap(Memory.wrap(sk.compact().toByteArray())));
+      }
+    }
+    sketches.add(null);
+    sketches.add(UpdateSketch.builder().build());
+    sketches.add(sketches.get(3)); //the same object twice
+    UpdateSketch zeroCount = UpdateSketch.builder().setP((float) 0.001).build();
+    zeroCount.update(1);
+    sketches.add(zeroCount);
+    sketches.add(zeroCount.compact());
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      double[][] matrix = jaccardMatrix(sketches, pool);
+      assertEquals(matrix.length, sketches.size());
+      for (int i = 0; i < sketches.size(); i++) {
+        assertEquals(matrix[i].length, 3 * i);
+        for (int j = 0; j < i; j++) {
+          double[] expected = jaccard(sketches.get(i), sketches.get(j));
+          assertEquals(Arrays.copyOfRange(matrix[i], 3 * j, (3 * j) + 3), expected, i + ", " + j);
+        }
+      }
+      println(Arrays.toString(matrix[2]));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void checkJaccardMatrixSplitsRows() {
+    int n = 250; //more pairs than a single task computes
+    assertTrue(((n * (n - 1)) / 2) > JaccardSimilarity.MAX_LEAF_PAIRS);
+    List<Sketch> sketches = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      UpdateSketch sk = UpdateSketch.builder().setNominalEntries(64).build();
+      for (int v = i; v < (i + 100); v++) { sk.update(v); }
+      sketches.add(sk.compact());
+    }
+    double[][] matrix = jaccardMatrix(sketches);
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < i; j++) {
+        assertEquals(matrix[i][(3 * j) + 1], jaccard(sketches.get(i), sketches.get(j))[1]);
+      }
+    }
+    assertEquals(jaccardMatrix(new ArrayList<Sketch>()).length, 0);
+    try {
+      jaccardMatrix(null);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void checkJaccardMatrixSeedHashes() {
+    UpdateSketch a = UpdateSketch.builder().setSeed(123).build();
+    UpdateSketch b = UpdateSketch.builder().setSeed(456).build();
+    for (int i = 0; i < 100; i++) {
+      a.update(i);
+      b.update(i);
+    }
+    try {
+      jaccard(a, b);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+    try {
+      jaccardMatrix(Arrays.asList(a, b));
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
   @Test
   public void printlnTest() {
     println("PRINTING: "+this.getClass().getName());
@@ -0,0 +1,354 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
+import static org.apache.datasketches.theta.MappedThetaStore.OPEN_SUFFIX;
+import static org.apache.datasketches.theta.MappedThetaStore.SKETCH_SUFFIX;
+import static org.apache.datasketches.theta.MappedThetaStore.TEMP_SUFFIX;
+import static org.apache.datasketches.theta.PreambleUtil.RETAINED_ENTRIES_INT;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.datasketches.Family;
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.SketchesStateException;
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class MappedThetaStoreTest {
+  private File dir;
+
+  @BeforeMethod
+  public void createDirectory() throws IOException {
+    dir = Files.createTempDirectory("MappedThetaStoreTest").toFile();
+  }
+
+  @AfterMethod
+  public void deleteDirectory() throws IOException {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) { Files.delete(file.toPath()); }
+    }
+    Files.delete(dir.toPath());
+    assertEquals(WritableMemory.getCurrentDirectMemoryMapAllocations(), 0);
+  }
+
+  @Test
+  public void checkSketchGrowsAndReopens() throws IOException {
+    UpdateSketchBuilder bldr = UpdateSketch.builder().setNominalEntries(4096);
+    UpdateSketch heap = bldr.build();
+    File file = new File(dir, "users" + MappedThetaStore.SKETCH_SUFFIX);
+    try (MappedThetaStore store = MappedThetaStore.open(dir)) {
+      UpdateSketch sketch = store.getOrCreateSketch("users", bldr);
+      assertTrue(sketch.isDirect());
+      long initialLength = file.length();
+      for (int i = 0; i < 100000; i++) {
+        sketch.update(i);
+        heap.update(i);
+      }
+      assertTrue(file.length() > initialLength); //grown into a replacement file
+      assertEquals(sketch.getEstimate(), heap.getEstimate());
+      assertSame(store.getOrCreateSketch("users", bldr), sketch);
+      assertEquals(WritableMemory.getCurrentDirectMemoryMapAllocations(), 1);
+      store.force();
+    }
+
+    try (MappedThetaStore store = MappedThetaStore.open(dir)) {
+      assertEquals(store.getSketchNames().first(), "users");
+      UpdateSketch sketch = store.getSketch("users");
+      assertEquals(sketch.getEstimate(), heap.getEstimate());
+      for (int i = 100000; i < 200000; i++) {
+        sketch.update(i);
+        heap.update(i);
+      }
+      assertEquals(sketch.compact().toByteArray(), heap.compact().toByteArray());
+    }
+  }
+
+  @Test
+  public void checkUnionGrowsAndReopens() throws IOException {
+    SetOperationBuilder bldr = SetOperation.builder().setNominalEntries(1024);
+    Union heap = bldr.buildUnion();
+    try (MappedThetaStore store = MappedThetaStore.open(dir)) {
+      Union union = store.getOrCreateUnion("daily", bldr);
+      for (int s = 0; s < 10; s++) {
+        UpdateSketch sketch = UpdateSketch.builder().build();
+        for (int i = 0; i < 1000; i++) { sketch.update((s * 500) + i); }
+        union.update(sketch);
+        heap.update(sketch);
+      }
+      assertEquals(union.getResult().toByteArray(), heap.getResult().toByteArray());
+    }
+    try (MappedThetaStore store = MappedThetaStore.open(dir)) {
+      assertEquals(store.getUnionNames().first(), "daily");
+      assertTrue(store.getSketchNames().isEmpty());
+      assertNull(store.getSketch("daily"));
+      Union union = store.getUnion("daily");
+      assertEquals(union.getResult().toByteArray(), heap.getResult().toByteArray());
+    }
+  }
+
+  @Test
+  public void checkLeftoverTempFilesAreDeleted() throws IOException {
+    File temp = new File(dir, "users" + MappedThetaStore.SKETCH_SUFFIX
+        + MappedThetaStore.TEMP_SUFFIX);
+    Files.write(temp.toPath(), new byte[64]);
+    try (MappedThetaStore store = MappedThetaStore.open(dir)) {
+      assertFalse(temp.exists());
+      assertNull(store.getSketch("users"));
+      assertTrue(store.getSketchNames().isEmpty());
+    }
+  }
+
+  @Test
+  public void checkCorruptedFilesAreRejected() throws IOException {
+    try (MappedThetaStore store = MappedThetaStore.open(dir)) {
+      store.getOrCreateSketch("good", UpdateSketch.builder());
+    }
+    File good = new File(dir, "good" + MappedThetaStore.SKETCH_SUFFIX);
+    byte[] bytes = Files.readAllBytes(good.toPath());
+
+    //a union image under a sketch name
+    Files.write(new File(dir, "wrongFamily" + MappedThetaStore.SKETCH_SUFFIX).toPath(),
+        SetOperation.builder().buildUnion().toByteArray());
+    //a truncated file
+    Files.write(new File(dir, "truncated" + MappedThetaStore.SKETCH_SUFFIX).toPath(),
+        Arrays.copyOf(bytes, bytes.length / 2));
+    //a too small file
+    Files.write(new File(dir, "tiny" + MappedThetaStore.SKETCH_SUFFIX).toPath(), new byte[7]);
+
+    try (MappedThetaStore store = MappedThetaStore.open(dir)) {
+      for (String name : new String[] {"wrongFamily", "truncated", "tiny"}) {
+        try {
+          store.getSketch(name);
+          fail(name);
+        } catch (SketchesArgumentException e) {
+          println(e.getMessage());
+        }
+      }
+      assertTrue(store.getSketch("good").isEmpty());
+    }
+
+    //a different seed
+    try (MappedThetaStore store = MappedThetaStore.open(dir, 123)) {
+      store.getSketch("good");
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void checkReleaseAndMaxMapped() throws IOException {
+    UpdateSketchBuilder bldr = UpdateSketch.builder().setNominalEntries(64);
+    try (MappedThetaStore store = MappedThetaStore.open(dir, DEFAULT_UPDATE_SEED, 2)) {
+      assertEquals(store.getMaxMapped(), 2);
+      for (int s = 0; s < 5; s++) {
+        UpdateSketch sketch = store.getOrCreateSketch("s" + s, bldr);
+        for (int i = 0; i < (100 * (s + 1)); i++) { sketch.update(i); } //grows the file
+        assertTrue(store.getNumMapped() <= 2);
+      }
+      assertEquals(WritableMemory.getCurrentDirectMemoryMapAllocations(), 2);
+      assertFalse(new File(dir, "s0" + SKETCH_SUFFIX + OPEN_SUFFIX).exists()); //released
+      assertTrue(new File(dir, "s4" + SKETCH_SUFFIX + OPEN_SUFFIX).exists());
+      assertEquals(store.getSketchNames().size(), 5);
+      for (int s = 0; s < 5; s++) {
+        UpdateSketch expected = bldr.build();
+        for (int i = 0; i < (100 * (s + 1)); i++) { expected.update(i); }
+        assertEquals(store.getSketch("s" + s).compact().toByteArray(),
+            expected.compact().toByteArray());
+      }
+      assertEquals(WritableMemory.getCurrentDirectMemoryMapAllocations(), 2);
+      assertTrue(store.releaseSketch("s4"));
+      assertFalse(store.releaseSketch("s4"));
+      assertFalse(store.releaseUnion("s3"));
+      assertEquals(store.getNumMapped(), 1);
+      assertEquals(WritableMemory.getCurrentDirectMemoryMapAllocations(), 1);
+    }
+    assertEquals(dir.list((d, fileName) -> fileName.endsWith(OPEN_SUFFIX)).length, 0);
+    try {
+      MappedThetaStore.open(dir, DEFAULT_UPDATE_SEED, 0);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void checkTornFilesAreRejected() throws IOException {
+    File file = new File(dir, "a" + SKETCH_SUFFIX);
+    File marker = new File(dir, "a" + SKETCH_SUFFIX + OPEN_SUFFIX);
+    byte[] bytes;
+    try (MappedThetaStore store = MappedThetaStore.open(dir)) {
+      UpdateSketch sketch = store.getOrCreateSketch("a", UpdateSketch.builder());
+      for (int i = 0; i < 1000; i++) { sketch.update(i); }
+      assertTrue(marker.exists());
+      store.force();
+      bytes = Files.readAllBytes(file.toPath()); //as left by a crash after the checkpoint
+    }
+    assertFalse(marker.exists());
+
+    //a consistent file that was mapped during a crash
+    Files.write(marker.toPath(), new byte[0]);
+    try (MappedThetaStore store = MappedThetaStore.open(dir)) {
+      assertEquals(store.getSketch("a").getRetainedEntries(true), 1000);
+    }
+    assertFalse(marker.exists());
+
+    //a count that does not match the entries
+    WritableMemory torn = WritableMemory.wrap(bytes.clone());
+    torn.putInt(RETAINED_ENTRIES_INT, 999);
+    checkTornFile(file, marker, torn);
+
+    //an entry that is not where the hash table would find it
+    torn = WritableMemory.wrap(bytes.clone());
+    int preBytes = Family.QUICKSELECT.getMinPreLongs() << 3;
+    int first = preBytes;
+    while (torn.getLong(first) == 0) { first += 8; }
+    int empty = preBytes;
+    while (torn.getLong(empty) != 0) { empty += 8; }
+    torn.putLong(empty, torn.getLong(first));
+    torn.putInt(RETAINED_ENTRIES_INT, 1001);
+    checkTornFile(file, marker, torn);
+
+    //an orphaned marker is deleted
+    File orphan = new File(dir, "b" + SKETCH_SUFFIX + OPEN_SUFFIX);
+    Files.write(orphan.toPath(), new byte[0]);
+    MappedThetaStore.open(dir).close();
+    assertFalse(orphan.exists());
+  }
+
+  private void checkTornFile(File file, File marker, WritableMemory torn)
+      throws IOException {
+    byte[] bytes = new byte[(int) torn.getCapacity()];
+    torn.getByteArray(0, bytes, 0, bytes.length);
+    Files.write(file.toPath(), bytes);
+    Files.write(marker.toPath(), new byte[0]);
+    for (int i = 0; i < 2; i++) { //stays rejected
+      try (MappedThetaStore store = MappedThetaStore.open(dir)) {
+        store.getSketch("a");
+        fail();
+      } catch (SketchesArgumentException e) {
+        println(e.getMessage());
+      }
+      assertTrue(marker.exists());
+    }
+    Files.delete(marker.toPath());
+  }
+
+  @Test
+  public void checkFailedResizeDiscardsTemp() throws IOException {
+    File temp = new File(dir, "a" + SKETCH_SUFFIX + TEMP_SUFFIX);
+    try (MappedThetaStore store = MappedThetaStore.open(dir)) {
+      DirectQuickSelectSketch sketch =
+          (DirectQuickSelectSketch) store.getOrCreateSketch("a", UpdateSketch.builder());
+      MemoryRequestServer svr = sketch.memReqSvr_;
+      WritableMemory mem1 = svr.request(1024);
+      assertTrue(temp.exists());
+      WritableMemory mem2 = svr.request(2048); //discards the first
+      assertFalse(mem1.isValid());
+      assertEquals(temp.length(), 2048);
+      assertEquals(WritableMemory.getCurrentDirectMemoryMapAllocations(), 2);
+      svr.requestClose(mem2, sketch.getMemory()); //the resize failed
+      assertFalse(mem2.isValid());
+      assertFalse(temp.exists());
+      assertEquals(WritableMemory.getCurrentDirectMemoryMapAllocations(), 1);
+      UpdateSketch heap = UpdateSketch.builder().build();
+      for (int i = 0; i < 10000; i++) { //still grows
+        sketch.update(i);
+        heap.update(i);
+      }
+      assertEquals(sketch.getEstimate(), heap.getEstimate());
+    }
+  }
+
+  @Test
+  public void checkBuilderFamily() throws IOException {
+    try (MappedThetaStore store = MappedThetaStore.open(dir)) {
+      for (UpdateSketchBuilder bldr : new UpdateSketchBuilder[] {
+          UpdateSketch.builder().setFamily(Family.ALPHA),
+          UpdateSketch.builder().setIncrementalResize(true)}) {
+        try {
+          store.getOrCreateSketch("a", bldr);
+          fail();
+        } catch (SketchesArgumentException e) {
+          //expected
+        }
+      }
+      assertTrue(store.getSketchNames().isEmpty());
+    }
+  }
+
+  @Test
+  public void checkArgumentsAndState() throws IOException {
+    MappedThetaStore store = MappedThetaStore.open(dir, 123);
+    assertEquals(store.getSeed(), 123);
+    assertEquals(store.getDirectory(), dir);
+    for (String name : new String[] {null, "", ".hidden", "a/b", "a b"}) {
+      try {
+        store.getSketch(name);
+        fail(name);
+      } catch (SketchesArgumentException e) {
+        //expected
+      }
+    }
+    try {
+      store.getOrCreateSketch("a", UpdateSketch.builder());
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected, the seed of the builder differs
+    }
+    store.close();
+    assertTrue(store.isClosed());
+    store.close();
+    try {
+      store.getSketch("a");
+      fail();
+    } catch (SketchesStateException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //Disable here
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class OrderedHashArrayTest {
+
+  @Test
+  public void checkSeek() {
+    long[] arr = {2, 4, 6, 8, 10, 12, 14, 16, 18, 20};
+    OrderedHashArray array = new OrderedHashArray(arr, arr.length);
+    assertEquals(array.seek(1, 0), 0);
+    assertEquals(array.seek(2, 0), 0);
+    assertEquals(array.seek(3, 0), 1);
+    assertEquals(array.seek(17, 0), 8);
+    assertEquals(array.seek(20, 3), 9);
+    assertEquals(array.seek(21, 3), 10);
+    assertEquals(array.seek(4, 5), 5);
+    assertEquals(array.seek(100, 10), 10);
+    for (int from = 0; from < arr.length; from++) {
+      for (long hash = 0; hash < 23; hash++) {
+        int expected = from;
+        while ((expected < arr.length) && (arr[expected] < hash)) { expected++; }
+        assertEquals(array.seek(hash, from), expected);
+      }
+    }
+  }
+
+  @Test
+  public void checkIntersectMatchesHashTablePath() {
+    Intersection inter = SetOperation.builder().buildIntersection();
+    for (Sketch[] pair : pairs()) {
+      Sketch a = pair[0];
+      Sketch b = pair[1];
+      byte[] expected = inter.intersect(a.compact(false, null), b.compact(false, null))
+          .toByteArray();
+      for (Sketch ordA : orderedForms(a)) {
+        for (Sketch ordB : orderedForms(b)) {
+          assertEquals(inter.intersect(ordA, ordB).toByteArray(), expected);
+        }
+      }
+      CompactSketch csk = inter.intersect(a.compact(), b.compact(), false, null);
+      CompactSketch expectedCsk =
+          inter.intersect(a.compact(false, null), b.compact(false, null), false, null);
+      assertEquals(csk.getRetainedEntries(true), expectedCsk.getRetainedEntries(true));
+      assertEquals(csk.getThetaLong(), expectedCsk.getThetaLong());
+      assertEquals(csk.isEmpty(), expectedCsk.isEmpty());
+    }
+  }
+
+  @Test
+  public void checkAnotBMatchesHashTablePath() {
+    AnotB aNotB = SetOperation.builder().buildANotB();
+    for (Sketch[] pair : pairs()) {
+      Sketch a = pair[0];
+      Sketch b = pair[1];
+      byte[] expected = aNotB.aNotB(a.compact(false, null), b.compact(false, null))
+          .toByteArray();
+      for (Sketch ordA : orderedForms(a)) {
+        for (Sketch ordB : orderedForms(b)) {
+          assertEquals(aNotB.aNotB(ordA, ordB).toByteArray(), expected);
+          aNotB.setA(ordA);
+          aNotB.notB(ordB);
+          assertEquals(aNotB.getResult(true).toByteArray(), expected);
+        }
+      }
+      //a mix of the sorted merge and the hash table
+      aNotB.setA(a.compact());
+      aNotB.notB(b.compact());
+      aNotB.notB(b);
+      assertEquals(aNotB.getResult(true).toByteArray(), expected);
+    }
+  }
+
+  @Test
+  public void checkIntersectAllMatchesSequential() {
+    List<Sketch> inputs = new ArrayList<>();
+    for (int i = 0; i < 6; i++) { inputs.add(sketch(1 << (6 + i), 0, 100000 - (i * 10000))); }
+    inputs.add(sketch(1 << 14, 5000, 20000));
+    checkIntersectAll(inputs);
+
+    //some Memory inputs, heap and Memory intersections
+    List<Sketch> mixed = new ArrayList<>();
+    for (int i = 0; i < inputs.size(); i++) {
+      Sketch sk = inputs.get(i);
+      mixed.add(((i & 1) == 0) ? sk : orderedForms(sk).get(1));
+    }
+    checkIntersectAll(mixed);
+
+    //exact mode inputs with nothing in common, including the empty match at theta = 1.0
+    checkIntersectAll(Arrays.asList(sketch(4096, 0, 100), sketch(4096, 100, 200),
+        sketch(4096, 0, 200)));
+    checkIntersectAll(Arrays.asList(sketch(4096, 0, 100), sketch(4096, 50, 200)));
+
+    //empty, unordered and zero count inputs
+    checkIntersectAll(Arrays.asList(sketch(64, 0, 1000), UpdateSketch.builder().build().compact(),
+        sketch(64, 0, 1000)));
+    checkIntersectAll(Arrays.asList(sketch(64, 0, 1000),
+        sketch(64, 0, 10000).compact(false, null)));
+    UpdateSketch zeroCount = UpdateSketch.builder().setP((float) 0.001).build();
+    zeroCount.update(1);
+    assertEquals(zeroCount.getRetainedEntries(true), 0);
+    checkIntersectAll(Arrays.asList(sketch(64, 0, 1000), zeroCount.compact()));
+
+    //an accumulating intersection
+    Intersection inter = SetOperation.builder().buildIntersection();
+    Intersection expected = SetOperation.builder().buildIntersection();
+    inter.intersect(sketch(1024, 0, 30000));
+    expected.intersect(sketch(1024, 0, 30000));
+    inter.intersectAll(inputs.subList(0, 3));
+    inter.intersectAll(inputs.subList(3, inputs.size()));
+    for (Sketch sk : inputs) { expected.intersect(sk); }
+    assertEquals(inter.getResult().toByteArray(), expected.getResult().toByteArray());
+    inter.intersectAll(new ArrayList<Sketch>());
+    assertEquals(inter.getResult().toByteArray(), expected.getResult().toByteArray());
+  }
+
+  private static void checkIntersectAll(final List<Sketch> inputs) {
+    Intersection sequential = SetOperation.builder().buildIntersection();
+    for (Sketch sk : inputs) { sequential.intersect(sk); }
+    byte[] expected = sequential.getResult().toByteArray();
+
+    Intersection heap = SetOperation.builder().buildIntersection();
+    heap.intersectAll(inputs);
+    assertEquals(heap.getResult().toByteArray(), expected);
+
+    WritableMemory wmem = WritableMemory.allocate(1 << 20);
+    Intersection direct = SetOperation.builder().buildIntersection(wmem);
+    direct.intersectAll(inputs);
+    assertEquals(direct.getResult().toByteArray(), expected);
+    assertEquals(direct.toByteArray(), heap.toByteArray());
+  }
+
+  /**
+   * Returns pairs of ordered compact sketches in and out of estimation mode, with thetas that
+   * differ, little or no overlap and very different sizes.
+   */
+  private static List<Sketch[]> pairs() {
+    List<Sketch[]> pairs = new ArrayList<>();
+    int[][] params = { //k, start, end of a, then of b
+        {4096, 0, 1000, 4096, 500, 1500},
+        {4096, 0, 1000, 4096, 1000, 2000},
+        {4096, 0, 1, 4096, 0, 1},
+        {4096, 0, 10, 4096, 0, 100000},
+        {512, 0, 100000, 4096, 50000, 150000},
+        {4096, 0, 100000, 64, 0, 100000},
+        {1024, 0, 1000000, 1024, 999000, 1000500},
+    };
+    for (int[] p : params) {
+      Sketch a = sketch(p[0], p[1], p[2]);
+      Sketch b = sketch(p[3], p[4], p[5]);
+      pairs.add(new Sketch[] {a, b});
+      pairs.add(new Sketch[] {b, a});
+    }
+    return pairs;
+  }
+
+  /**
+   * Returns the heap and Memory forms of the ordered compact form of the given sketch.
+   */
+  private static List<Sketch> orderedForms(final Sketch sketch) {
+    CompactSketch heap = sketch.compact(true, null);
+    WritableMemory wmem = WritableMemory.allocate(heap.getCurrentBytes());
+    CompactSketch direct = sketch.compact(true, wmem);
+    assertTrue(direct.hasMemory() && direct.isOrdered());
+    return Arrays.asList(heap, direct);
+  }
+
+  private static CompactSketch sketch(final int k, final int start, final int end) {
+    UpdateSketch sketch = UpdateSketch.builder().setNominalEntries(k).build();
+    for (int i = start; i < end; i++) { sketch.update(i); }
+    return sketch.compact();
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //Disable here
+  }
+}
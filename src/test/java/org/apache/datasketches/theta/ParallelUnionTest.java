@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class ParallelUnionTest {
+
+  @Test
+  public void checkSketchesMatchSequentialUnion() {
+    int k = 1024;
+    List<Sketch> sketches = buildSketches(2000, k);
+    SetOperationBuilder bldr = SetOperation.builder().setNominalEntries(k);
+    Union seqUnion = bldr.buildUnion();
+    for (Sketch sk : sketches) { seqUnion.update(sk); }
+    CompactSketch expected = seqUnion.getResult();
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      assertSameSketch(ParallelUnion.union(sketches, bldr, pool), expected);
+      assertSameSketch(ParallelUnion.union(new LinkedList<>(sketches), bldr, pool), expected);
+    } finally {
+      pool.shutdown();
+    }
+    assertSameSketch(ParallelUnion.union(sketches, bldr), expected);
+  }
+
+  @Test
+  public void checkImagesMatchSequentialUnion() {
+    int k = 512;
+    List<Sketch> sketches = buildSketches(1000, k);
+    List<Memory> images = new ArrayList<>();
+    for (Sketch sk : sketches) {
+      if (sk != null) { images.add(Memory.wrap(sk.toByteArray())); }
+    }
+    images.add(null);
+    SetOperationBuilder bldr = SetOperation.builder().setNominalEntries(k).setP((float) 0.5);
+    Union seqUnion = bldr.buildUnion();
+    for (Memory mem : images) { seqUnion.update(mem); }
+    CompactSketch expected = seqUnion.getResult();
+
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      assertSameSketch(ParallelUnion.unionImages(images, bldr, pool), expected);
+    } finally {
+      pool.shutdown();
+    }
+    assertSameSketch(ParallelUnion.unionImages(images, bldr), expected);
+  }
+
+  @Test
+  public void checkEmptyInputs() {
+    SetOperationBuilder bldr = SetOperation.builder();
+    assertTrue(ParallelUnion.union(null, bldr).isEmpty());
+    assertTrue(ParallelUnion.union(new ArrayList<Sketch>(), bldr).isEmpty());
+    assertTrue(ParallelUnion.unionImages(null, bldr).isEmpty());
+    List<Sketch> empties = new ArrayList<>();
+    for (int i = 0; i < 200; i++) { empties.add(UpdateSketch.builder().build()); }
+    assertTrue(ParallelUnion.union(empties, bldr).isEmpty());
+  }
+
+  @Test
+  public void checkLeafSize() {
+    ForkJoinPool pool = new ForkJoinPool(8);
+    try {
+      assertEquals(ForkJoinUtil.leafSize(10, pool), ForkJoinUtil.MIN_LEAF_SIZE);
+      assertEquals(ForkJoinUtil.leafSize(32_000_000, pool), 1_000_000);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkNullBuilder() {
+    ParallelUnion.union(new ArrayList<Sketch>(), null);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkNullPool() {
+    ParallelUnion.unionImages(new ArrayList<Memory>(), SetOperation.builder(), null);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkSeedHashMismatch() {
+    List<Sketch> sketches = buildSketches(300, 64);
+    UpdateSketch usk = UpdateSketch.builder().setSeed(123).build();
+    usk.update(1);
+    sketches.add(usk);
+    ParallelUnion.union(sketches, SetOperation.builder());
+  }
+
+  private static List<Sketch> buildSketches(int n, int k) {
+    List<Sketch> sketches = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      UpdateSketch usk = UpdateSketch.builder().setNominalEntries(k).build();
+      int u = (i * 31) % (3 * k);
+      for (int j = 0; j < u; j++) { usk.update((i * 100L) + j); } //overlapping ranges
+      switch (i % 4) {
+        case 0: sketches.add(usk); break;
+        case 1: sketches.add(usk.compact(false, null)); break;
+        case 2: sketches.add(null); break;
+        default: sketches.add(usk.compact()); break;
+      }
+    }
+    return sketches;
+  }
+
+  private static void assertSameSketch(CompactSketch result, CompactSketch expected) {
+    assertEquals(result.toByteArray(), expected.toByteArray());
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //Disable here
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.apache.datasketches.theta.Rebuilder.PARALLEL_MIN_LG_ARR_LONGS;
+import static org.apache.datasketches.theta.Rebuilder.parallelSelectExcludingZeros;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.datasketches.HashOperations;
+import org.apache.datasketches.QuickSelect;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class RebuilderTest {
+
+  @Test
+  public void checkParallelSelectMatchesQuickSelect() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      checkParallelSelect(pool);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static void checkParallelSelect(final ForkJoinPool pool) {
+    Random rand = new Random(1);
+    int lgArrLongs = 16;
+    long[] thetas = {Long.MAX_VALUE, Long.MAX_VALUE >>> 20, 1L << 20};
+    for (long thetaLong : thetas) {
+      long[] table = hashTable(rand, lgArrLongs, 40000, thetaLong);
+      int nonZeros = count(table);
+      for (int pivot : new int[] {1, 2, 1025, 20000, nonZeros - 1, nonZeros, nonZeros + 1}) {
+        long expected = QuickSelect.selectExcludingZeros(table.clone(), nonZeros, pivot);
+        long[] copy = table.clone();
+        assertEquals(parallelSelectExcludingZeros(copy, nonZeros, pivot, thetaLong, pool),
+            expected);
+        assertEquals(copy, table); //not modified
+      }
+    }
+    //values above the upper bound and duplicate values
+    long[] arr = new long[1000];
+    for (int i = 0; i < arr.length; i += 2) { arr[i] = (i % 10) + 1; }
+    arr[1] = Long.MAX_VALUE - 1;
+    int nonZeros = count(arr);
+    for (int pivot = 1; pivot <= nonZeros; pivot++) {
+      assertEquals(parallelSelectExcludingZeros(arr, nonZeros, pivot, 100, pool),
+          QuickSelect.selectExcludingZeros(arr.clone(), nonZeros, pivot));
+    }
+  }
+
+  @Test
+  public void checkParallelRebuildMatchesSequential() {
+    Random rand = new Random(2);
+    int lgArrLongs = PARALLEL_MIN_LG_ARR_LONGS;
+    int lgNomLongs = lgArrLongs - 1;
+    long[] table = hashTable(rand, lgArrLongs, (int) (0.9375 * (1 << lgArrLongs)), Long.MAX_VALUE);
+    int curCount = count(table);
+    long[] src = table.clone();
+    ForkJoinPool pool = new ForkJoinPool(4);
+    long thetaLong;
+    int count;
+    long[] tgt = new long[1 << lgArrLongs];
+    try {
+      thetaLong = Rebuilder.rebuildThetaLong(src, curCount, lgNomLongs, Long.MAX_VALUE, pool);
+      count = Rebuilder.rebuildHashTable(src, tgt, lgArrLongs, thetaLong, pool);
+    } finally {
+      pool.shutdown();
+    }
+    assertEquals(thetaLong,
+        QuickSelect.selectExcludingZeros(table.clone(), curCount, (1 << lgNomLongs) + 1));
+
+    long[] expected = new long[1 << lgArrLongs];
+    int expectedCount = HashOperations.hashArrayInsert(table, expected, lgArrLongs, thetaLong);
+    assertEquals(count, expectedCount);
+    assertEquals(count, 1 << lgNomLongs);
+    assertEquals(sorted(tgt), sorted(expected));
+    for (long v : sorted(tgt)) {
+      if (v != 0) { assertTrue(HashOperations.hashSearch(tgt, lgArrLongs, v) >= 0); }
+    }
+  }
+
+  @Test
+  public void checkLargeSketches() {
+    int lgK = PARALLEL_MIN_LG_ARR_LONGS - 1;
+    UpdateSketch sequential = UpdateSketch.builder().setNominalEntries(1 << lgK).build();
+    assertNull(sequential.getRebuildPool()); //parallel rebuild is opt-in
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      UpdateSketchBuilder bldr = UpdateSketch.builder().setNominalEntries(1 << lgK)
+          .setParallelRebuild(true).setRebuildPool(pool);
+      UpdateSketch heap = bldr.build();
+      int bytes = Sketch.getMaxUpdateSketchBytes(1 << lgK);
+      UpdateSketch direct = bldr.build(WritableMemory.allocate(bytes));
+      assertEquals(heap.getRebuildPool(), pool);
+      assertEquals(direct.getRebuildPool(), pool);
+      assertEquals(bldr.setRebuildPool(null).build().getRebuildPool(), ForkJoinPool.commonPool());
+      checkLargeSketches(lgK, sequential, heap, direct);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static void checkLargeSketches(final int lgK, final UpdateSketch sequential,
+      final UpdateSketch heap, final UpdateSketch direct) {
+    int n = 3 << lgK;
+    for (int i = 0; i < n; i++) {
+      sequential.update(i);
+      heap.update(i);
+      direct.update(i);
+    }
+    assertTrue(heap.isEstimationMode());
+    assertEquals(heap.getThetaLong(), sequential.getThetaLong());
+    assertEquals(heap.getThetaLong(), direct.getThetaLong());
+    assertEquals(heap.getRetainedEntries(true), direct.getRetainedEntries(true));
+    assertEquals(heap.compact().toByteArray(), sequential.compact().toByteArray());
+    double re = (heap.getEstimate() / n) - 1.0;
+    assertTrue(Math.abs(re) < 0.01, "RE: " + re);
+
+    CompactSketch ordered = heap.compact();
+    assertTrue(ordered.getRetainedEntries(true) >= Rebuilder.PARALLEL_MIN_SORT_LENGTH);
+    assertEquals(ordered.toByteArray(), direct.compact().toByteArray());
+    long[] cache = ordered.getCache();
+    for (int i = 1; i < cache.length; i++) { assertTrue(cache[i - 1] < cache[i]); }
+    assertEquals(heap.rebuild().getRetainedEntries(false), heap.getRetainedEntries(true));
+  }
+
+  private static long[] hashTable(final Random rand, final int lgArrLongs, final int count,
+      final long thetaLong) {
+    long[] table = new long[1 << lgArrLongs];
+    for (int i = 0; i < count; i++) {
+      long hash = (rand.nextLong() >>> 1) % thetaLong;
+      if (hash != 0) { HashOperations.hashSearchOrInsert(table, lgArrLongs, hash); }
+    }
+    return table;
+  }
+
+  private static int count(final long[] arr) {
+    int count = 0;
+    for (long v : arr) { if (v != 0) { count++; } }
+    return count;
+  }
+
+  private static long[] sorted(final long[] arr) {
+    long[] out = arr.clone();
+    Arrays.sort(out);
+    return out;
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //Disable here
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.datasketches.theta;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.hash.Hasher;
+import org.apache.datasketches.memory.Memory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class ReusableCompactSketchTest {
+
+  @Test
+  public void checkResetMatchesWrap() {
+    ReusableCompactSketch reusable = new ReusableCompactSketch();
+    assertTrue(reusable.isEmpty());
+    assertEquals(reusable.getRetainedEntries(true), 0);
+    assertEquals(reusable.getEstimate(), 0.0);
+
+    Union union = SetOperation.builder().buildUnion();
+    for (int n : new int[] {0, 1, 2, 100, 10000, 100000}) {
+      UpdateSketch sk = UpdateSketch.builder().setNominalEntries(1024).build();
+      for (int i = 0; i < n; i++) { sk.update(i); }
+      for (CompactSketch csk : forms(sk)) {
+        Memory mem = Memory.wrap(csk.toByteArray());
+        Sketch wrapped = Sketch.wrap(mem);
+        assertEquals(reusable.reset(mem), reusable);
+        assertEquals(reusable.isEmpty(), wrapped.isEmpty());
+        assertEquals(reusable.isOrdered(), csk.isOrdered());
+        assertEquals(reusable.getRetainedEntries(true), wrapped.getRetainedEntries(true));
+        assertEquals(reusable.getThetaLong(), wrapped.getThetaLong());
+        assertEquals(reusable.getEstimate(), wrapped.getEstimate());
+        assertEquals(reusable.getLowerBound(2), wrapped.getLowerBound(2));
+        assertEquals(reusable.getUpperBound(2), wrapped.getUpperBound(2));
+        assertEquals(reusable.getCurrentBytes(), csk.getCurrentBytes());
+        assertEquals(reusable.toByteArray(), csk.toByteArray());
+        assertEquals(reusable.compact().toByteArray(), wrapped.compact().toByteArray());
+        assertTrue(reusable.isSameResource(mem));
+
+        Union expected = SetOperation.builder().buildUnion();
+        expected.update(union.getResult());
+        expected.update(wrapped);
+        union.update(reusable);
+        assertEquals(union.getResult().toByteArray(), expected.getResult().toByteArray());
+      }
+    }
+  }
+
+  @Test
+  public void checkSeed() {
+    UpdateSketch sk = UpdateSketch.builder().setSeed(123).build();
+    for (int i = 0; i < 100; i++) { sk.update(i); }
+    Memory mem = Memory.wrap(sk.compact().toByteArray());
+    assertEquals(new ReusableCompactSketch(123).reset(mem).getEstimate(), sk.getEstimate());
+    try {
+      new ReusableCompactSketch().reset(mem);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+
+    //images of any Hasher, one after the other
+    UpdateSketch xx = UpdateSketch.builder().setHasher(Hasher.XXHASH64).build();
+    UpdateSketch murmur = UpdateSketch.builder().build();
+    for (int i = 0; i < 100; i++) {
+      xx.update(i);
+      murmur.update(i);
+    }
+    ReusableCompactSketch reusable = new ReusableCompactSketch();
+    Memory xxMem = Memory.wrap(xx.compact().toByteArray());
+    assertEquals(reusable.reset(xxMem).getSeedHash(), xx.getSeedHash());
+    assertEquals(reusable.getEstimate(), xx.getEstimate());
+    Memory murmurMem = Memory.wrap(murmur.compact().toByteArray());
+    assertEquals(reusable.reset(murmurMem).getSeedHash(), murmur.getSeedHash());
+    assertEquals(reusable.reset(xxMem).getEstimate(), xx.getEstimate());
+    try {
+      new ReusableCompactSketch(123).reset(xxMem);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void checkInvalidImages() {
+    ReusableCompactSketch reusable = new ReusableCompactSketch();
+    UpdateSketch sk = UpdateSketch.builder().build();
+    for (int i = 0; i < 100; i++) { sk.update(i); }
+    byte[] bytes = sk.compact().toByteArray();
+    Memory mem = Memory.wrap(bytes);
+    reusable.reset(mem);
+
+    checkInvalid(reusable, null);
+    checkInvalid(reusable, Memory.wrap(new byte[4]));
+    checkInvalid(reusable, Memory.wrap(sk.toByteArray())); //not compact
+    checkInvalid(reusable, mem.region(0, bytes.length - 8)); //truncated
+    //a failed reset keeps the previous image
+    assertEquals(reusable.getEstimate(), sk.getEstimate());
+    assertFalse(reusable.isEmpty());
+  }
+
+  private static void checkInvalid(final ReusableCompactSketch reusable, final Memory mem) {
+    try {
+      reusable.reset(mem);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
+  private static List<CompactSketch> forms(final UpdateSketch sk) {
+    List<CompactSketch> forms = new ArrayList<>();
+    forms.add(sk.compact(true, null));
+    forms.add(sk.compact(false, null));
+    return forms;
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //Disable here
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.theta;
+
+import static org.apache.datasketches.theta.SetExpression.aNotB;
+import static org.apache.datasketches.theta.SetExpression.intersection;
+import static org.apache.datasketches.theta.SetExpression.sketch;
+import static org.apache.datasketches.theta.SetExpression.union;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.Util;
+import org.apache.datasketches.hash.Hasher;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class SetExpressionTest {
+
+  @Test
+  public void checkMatchesChainedOperators() {
+    int[][] params = { //k, start, end of A, B, C and D
+        {4096, 0, 1000, 4096, 500, 1500, 4096, 0, 1200, 4096, 800, 900},
+        {1024, 0, 100000, 4096, 50000, 150000, 512, 0, 200000, 2048, 90000, 110000},
+        {4096, 0, 10, 4096, 5, 15, 4096, 100, 200, 4096, 0, 1},
+        {64, 0, 1000000, 64, 0, 1000000, 4096, 0, 1000000, 64, 500000, 1000000},
+    };
+    for (int[] p : params) {
+      UpdateSketch a = updateSketch(p[0], p[1], p[2]);
+      UpdateSketch b = updateSketch(p[3], p[4], p[5]);
+      UpdateSketch c = updateSketch(p[6], p[7], p[8]);
+      UpdateSketch d = updateSketch(p[9], p[10], p[11]);
+      byte[] expected = chained(a, b, c, d).toByteArray();
+
+      //heap ordered, Memory ordered, unordered and update sketch inputs
+      SetExpression[] forms = {
+        expression(sketch(a.compact()), sketch(b.compact()), sketch(c.compact()),
+            sketch(d.compact())),
+        expression(sketch(Memory.wrap(a.compact().toByteArray())),
+            sketch(Memory.wrap(b.compact().toByteArray())),
+            sketch(Memory.wrap(c.compact().toByteArray())),
+            sketch(Memory.wrap(d.compact().toByteArray()))),
+        expression(sketch(a.compact(false, null)), sketch(b), sketch(Memory.wrap(c.toByteArray())),
+            sketch(d.compact(false, null))),
+      };
+      for (SetExpression expr : forms) {
+        assertEquals(expr.evaluate().toByteArray(), expected);
+        WritableMemory wmem = WritableMemory.allocate(expected.length);
+        CompactSketch direct = expr.evaluate(true, wmem);
+        assertTrue(direct.hasMemory());
+        assertEquals(Sketch.heapify(Memory.wrap(direct.toByteArray())).toByteArray(), expected);
+        CompactSketch unordered = expr.evaluate(false, null);
+        assertEquals(unordered.getEstimate(), Sketch.wrap(Memory.wrap(expected)).getEstimate());
+      }
+      println(forms[0].toString());
+    }
+  }
+
+  @Test
+  public void checkMaxEntries() {
+    UpdateSketch a = updateSketch(4096, 0, 20000);
+    UpdateSketch b = updateSketch(4096, 10000, 30000);
+    SetExpression expr = union(sketch(a.compact()), sketch(b.compact()));
+    CompactSketch all = expr.evaluate();
+    assertEquals(all.getThetaLong(), Math.min(a.getThetaLong(), b.getThetaLong()));
+    assertTrue(all.getRetainedEntries(true) > 4096);
+
+    CompactSketch capped = expr.evaluate(1000, true, null);
+    assertEquals(capped.getRetainedEntries(true), 1000);
+    long[] allCache = all.getCache();
+    long[] cappedCache = capped.getCache();
+    for (int i = 0; i < 1000; i++) { assertEquals(cappedCache[i], allCache[i]); }
+    assertEquals(capped.getThetaLong(), allCache[1000]);
+
+    CompactSketch notCapped = expr.evaluate(all.getRetainedEntries(true), true, null);
+    assertEquals(notCapped.toByteArray(), all.toByteArray());
+  }
+
+  @Test
+  public void checkEmptyRules() {
+    CompactSketch empty = UpdateSketch.builder().build().compact();
+    CompactSketch x = updateSketch(4096, 0, 100).compact();
+    CompactSketch y = updateSketch(64, 0, 10000).compact();
+
+    assertTrue(intersection(sketch(x), sketch(y), sketch(empty)).evaluate().isEmpty());
+    assertTrue(aNotB(sketch(empty), sketch(y)).evaluate().isEmpty());
+    assertTrue(union(sketch(empty), sketch(empty)).evaluate().isEmpty());
+    assertEquals(aNotB(sketch(y), sketch(empty)).evaluate().toByteArray(), y.toByteArray());
+    assertEquals(union(sketch(empty), sketch(x)).evaluate().toByteArray(), x.toByteArray());
+
+    //an empty intersection does not lower the theta of the enclosing union
+    CompactSketch result = union(sketch(x), intersection(sketch(y), sketch(empty))).evaluate();
+    assertEquals(result.toByteArray(), x.toByteArray());
+
+    //no common entries, but not empty
+    CompactSketch disjoint = intersection(sketch(y), sketch(updateSketch(64, 20000, 30000)
+        .compact())).evaluate();
+    assertFalse(disjoint.isEmpty());
+    assertEquals(disjoint.getRetainedEntries(true), 0);
+
+    WritableMemory wmem = WritableMemory.allocate(8);
+    assertTrue(aNotB(sketch(empty), sketch(x)).evaluate(true, wmem).isEmpty());
+  }
+
+  @Test
+  public void checkSharedSubexpressions() {
+    SetExpression ab = union(sketch(updateSketch(512, 0, 5000).compact()),
+        sketch(updateSketch(512, 2500, 7500).compact()));
+    byte[] expected = ab.evaluate().toByteArray();
+    assertEquals(intersection(ab, ab).evaluate().toByteArray(), expected);
+    assertEquals(union(ab, ab, ab).evaluate().toByteArray(), expected);
+    CompactSketch none = aNotB(ab, ab).evaluate();
+    assertEquals(none.getRetainedEntries(true), 0);
+    assertEquals(ab.evaluate().toByteArray(), expected); //evaluations are independent
+  }
+
+  @Test
+  public void checkSeeds() {
+    UpdateSketch seeded = UpdateSketch.builder().setSeed(123).build();
+    seeded.update(1);
+    seeded.update(2);
+    byte[] bytes = seeded.compact().toByteArray();
+    CompactSketch result = union(sketch(Memory.wrap(bytes), 123)).evaluate();
+    assertEquals(result.toByteArray(), bytes);
+
+    try {
+      sketch(Memory.wrap(bytes)); //the default seed
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+    try {
+      union(sketch(seeded), sketch(updateSketch(64, 0, 10))).evaluate();
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void checkHasherMemoryLeaves() {
+    UpdateSketchBuilder bldr = UpdateSketch.builder().setHasher(Hasher.XXHASH64);
+    UpdateSketch a = bldr.build();
+    UpdateSketch b = bldr.build();
+    for (int i = 0; i < 1000; i++) {
+      a.update(i);
+      b.update(i + 500);
+    }
+    short seedHash = a.getSeedHash();
+    assertEquals(seedHash, Hasher.XXHASH64.computeSeedHash(Util.DEFAULT_UPDATE_SEED));
+    Memory memA = Memory.wrap(a.compact().toByteArray());
+    Memory memB = Memory.wrap(b.compact().toByteArray());
+
+    CompactSketch result = union(sketch(memA), sketch(memB)).evaluate();
+    assertEquals(result.getSeedHash(), seedHash);
+    assertEquals(result.getEstimate(), 1500.0);
+    result = intersection(sketch(memA), sketch(b)).evaluate();
+    assertEquals(result.getSeedHash(), seedHash);
+    assertEquals(result.getEstimate(), 500.0);
+
+    //an XXHASH64 result cannot be merged into a MURMUR3 union
+    Union murmur = SetOperation.builder().buildUnion();
+    try {
+      murmur.update(result);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+    try {
+      union(sketch(memA), sketch(updateSketch(64, 0, 10))).evaluate();
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void checkArguments() {
+    SetExpression x = sketch(updateSketch(64, 0, 10));
+    try {
+      union();
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+    try {
+      intersection(x, null);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+    try {
+      aNotB(null, x);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+    try {
+      sketch((Sketch) null);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+    try {
+      sketch((Memory) null);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+    try {
+      x.evaluate(0, true, null);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
+  private static SetExpression expression(final SetExpression a, final SetExpression b,
+      final SetExpression c, final SetExpression d) {
+    return aNotB(intersection(union(a, b), c), d);
+  }
+
+  /**
+   * Returns ((A union B) intersect C) and not D, using a union that is large enough to keep
+   * every entry.
+   */
+  private static CompactSketch chained(final Sketch a, final Sketch b, final Sketch c,
+      final Sketch d) {
+    Union union = SetOperation.builder().setNominalEntries(1 << 16).buildUnion();
+    union.update(a);
+    union.update(b);
+    Intersection inter = SetOperation.builder().buildIntersection();
+    CompactSketch ab = union.getResult();
+    CompactSketch abc = inter.intersect(ab, c.compact());
+    return SetOperation.builder().buildANotB().aNotB(abc, d.compact());
+  }
+
+  private static UpdateSketch updateSketch(final int k, final int start, final int end) {
+    UpdateSketch sketch = UpdateSketch.builder().setNominalEntries(k).build();
+    for (int i = start; i < end; i++) { sketch.update(i); }
+    return sketch;
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //Disable here
+  }
+}
@@ -181,8 +181,8 @@ public class SketchTest {
 
   @Test(expectedExceptions = SketchesArgumentException.class)
   public void checkWrapBadFamily() {
-    UpdateSketch sketch = UpdateSketch.builder().setFamily(Family.ALPHA).setNominalEntries(1024).build();
-    byte[] byteArr = sketch.toByteArray();
+    Union union = SetOperation.builder().setNominalEntries(1024).buildUnion();
+    byte[] byteArr = union.toByteArray();
     Memory srcMem = Memory.wrap(byteArr);
     Sketch.wrap(srcMem);
   }
@@ -35,6 +35,7 @@ import org.apache.datasketches.Family;
 import org.apache.datasketches.ResizeFactor;
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.Util;
+import org.apache.datasketches.hash.Hasher;
 import org.apache.datasketches.memory.DefaultMemoryRequestServer;
 import org.apache.datasketches.memory.MemoryRequestServer;
 import org.apache.datasketches.memory.WritableMemory;
@@ -93,6 +94,148 @@ public class UpdateSketchTest {
     assertEquals(est, 8.0, 0.0);
   }
 
+  @Test
+  public void checkUpdateAll() {
+    int k = 512;
+    int n = 4 * k;
+    long[] longArr = new long[n];
+    double[] dblArr = new double[n];
+    int[] intArr = new int[n];
+    WritableMemory wmem = WritableMemory.allocate(n * 12);
+    UpdateSketch sk1 = UpdateSketch.builder().setNominalEntries(k).build();
+    UpdateSketch sk2 = UpdateSketch.builder().setNominalEntries(k).build();
+    UpdateSketch sk3 = UpdateSketch.builder().setNominalEntries(k).build();
+    UpdateSketch sk4 = UpdateSketch.builder().setNominalEntries(k).build();
+    for (int i = 0; i < n; i++) {
+      longArr[i] = i;
+      dblArr[i] = i + 0.5;
+      intArr[i] = -i;
+      wmem.putLong(i * 12, i);
+      wmem.putInt((i * 12) + 8, -i);
+      sk1.update((long) i);
+      sk2.update(i + 0.5);
+      sk3.update(-i);
+      byte[] rec = new byte[12];
+      wmem.getByteArray(i * 12, rec, 0, 12);
+      sk4.update(rec);
+    }
+    UpdateSketch bsk1 = UpdateSketch.builder().setNominalEntries(k).build();
+    bsk1.updateAll(longArr, 0, 10);
+    bsk1.updateAll(longArr, 10, n - 10);
+    UpdateSketch bsk2 = UpdateSketch.builder().setNominalEntries(k).build();
+    bsk2.updateAll(dblArr, 0, n);
+    UpdateSketch bsk3 = UpdateSketch.builder().setNominalEntries(k).build();
+    bsk3.updateAll(intArr, 0, n);
+    UpdateSketch bsk4 = UpdateSketch.builder().setNominalEntries(k).build();
+    bsk4.updateAll(wmem, 0, 12, n);
+
+    assertEquals(bsk1.compact().toByteArray(), sk1.compact().toByteArray());
+    assertEquals(bsk2.compact().toByteArray(), sk2.compact().toByteArray());
+    assertEquals(bsk3.compact().toByteArray(), sk3.compact().toByteArray());
+    assertEquals(bsk4.compact().toByteArray(), sk4.compact().toByteArray());
+
+    long[] nullArr = null;
+    bsk1.updateAll(nullArr, 0, 0);
+    try {
+      bsk1.updateAll(longArr, 1, n);
+      fail();
+    } catch (IllegalArgumentException e) { } //expected
+    try {
+      bsk4.updateAll(wmem, 0, 0, n);
+      fail();
+    } catch (SketchesArgumentException e) { } //expected
+  }
+
+  @Test
+  public void checkHasher() {
+    int k = 512;
+    int n = 4 * k;
+    UpdateSketchBuilder bldr = UpdateSketch.builder().setNominalEntries(k);
+    assertEquals(bldr.getHasher(), Hasher.MURMUR3);
+    UpdateSketch mSk = bldr.build();
+    bldr.setHasher(Hasher.XXHASH64);
+    UpdateSketch xSk = bldr.build();
+    UpdateSketch xDirSk = bldr.build(WritableMemory.allocate(Sketch.getMaxUpdateSketchBytes(k)));
+    UpdateSketch xAlphaSk = bldr.setFamily(Family.ALPHA).build();
+    long[] arr = new long[n];
+    for (int i = 0; i < n; i++) {
+      arr[i] = i;
+      mSk.update(i);
+      xSk.update(i);
+      xDirSk.update(i);
+    }
+    xAlphaSk.updateAll(arr, 0, n);
+    assertEquals(xSk.getEstimate(), n, n * 0.1);
+    assertEquals(xAlphaSk.getEstimate(), n, n * 0.1);
+    assertEquals(xDirSk.compact().toByteArray(), xSk.compact().toByteArray());
+    assertTrue(mSk.getSeedHash() != xSk.getSeedHash());
+
+    //the Hasher is recovered from the seedHash on heapify and wrap
+    UpdateSketch xSk2 = UpdateSketch.heapify(WritableMemory.wrap(xSk.toByteArray()));
+    UpdateSketch xSk3 = UpdateSketch.wrap(WritableMemory.wrap(xSk.toByteArray()));
+    assertEquals(xSk2.getHasher(), Hasher.XXHASH64);
+    assertEquals(xSk3.getHasher(), Hasher.XXHASH64);
+    xSk2.update(n);
+    xSk3.update(n);
+    xSk.update(n);
+    assertEquals(xSk2.compact().toByteArray(), xSk.compact().toByteArray());
+    assertEquals(xSk3.compact().toByteArray(), xSk.compact().toByteArray());
+
+    //set operations refuse to mix Hashers
+    Union union = SetOperation.builder().setHasher(Hasher.XXHASH64).buildUnion();
+    union.update(xSk);
+    union.update(xAlphaSk.compact());
+    assertEquals(union.getResult().getEstimate(), xSk.getEstimate(), n * 0.1);
+    try {
+      union.update(mSk);
+      fail();
+    } catch (SketchesArgumentException e) { } //expected
+    try {
+      SetOperation.builder().buildUnion().update(xSk);
+      fail();
+    } catch (SketchesArgumentException e) { } //expected
+    Intersection inter = SetOperation.builder().setHasher(Hasher.XXHASH64).buildIntersection();
+    inter.intersect(xSk);
+    try {
+      inter.intersect(mSk);
+      fail();
+    } catch (SketchesArgumentException e) { } //expected
+    try {
+      bldr.setHasher(null);
+      fail();
+    } catch (SketchesArgumentException e) { } //expected
+  }
+
+  @Test
+  public void checkCharSequenceAndMemoryUpdates() {
+    int k = 512;
+    int n = 4 * k;
+    for (Hasher hasher : Hasher.values()) {
+      UpdateSketchBuilder bldr = UpdateSketch.builder().setNominalEntries(k).setHasher(hasher);
+      UpdateSketch sk1 = bldr.build();
+      UpdateSketch sk2 = bldr.build();
+      UpdateSketch sk3 = bldr.build();
+      WritableMemory wmem = WritableMemory.allocate(64);
+      for (int i = 0; i < n; i++) {
+        String s = "\u00e9t\u00e9 " + i + " \ud83d\ude00";
+        sk1.update(s);
+        sk2.update(new StringBuilder(s));
+        byte[] bytes = s.getBytes(UTF_8);
+        wmem.putByteArray(5, bytes, 0, bytes.length);
+        sk3.update(wmem, 5, bytes.length);
+      }
+      assertEquals(sk2.compact().toByteArray(), sk1.compact().toByteArray());
+      assertEquals(sk3.compact().toByteArray(), sk1.compact().toByteArray());
+      StringBuilder empty = new StringBuilder();
+      assertEquals(sk2.update(empty), UpdateReturnState.RejectedNullOrEmpty);
+      assertEquals(sk3.update(wmem, 0, 0), UpdateReturnState.RejectedNullOrEmpty);
+      try {
+        sk3.update(wmem, 60, 8);
+        fail();
+      } catch (IllegalArgumentException e) { } //expected
+    }
+  }
+
   @Test
   public void checkStartingSubMultiple() {
     int lgSubMul;
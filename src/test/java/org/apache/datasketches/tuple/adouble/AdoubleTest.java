@@ -19,11 +19,13 @@
 
 package org.apache.datasketches.tuple.adouble;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.testng.Assert.assertEquals;
 
 import org.apache.datasketches.ResizeFactor;
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
 import org.apache.datasketches.tuple.Sketch;
 import org.apache.datasketches.tuple.SketchIterator;
 import org.apache.datasketches.tuple.Sketches;
@@ -54,6 +56,27 @@ public class AdoubleTest {
     Assert.assertFalse(it.next());
   }
 
+  @Test
+  public void checkCharSequenceAndMemoryUpdates() {
+    int n = 10000;
+    DoubleSketch sk1 = new DoubleSketch(12, mode);
+    DoubleSketch sk2 = new DoubleSketch(12, mode);
+    DoubleSketch sk3 = new DoubleSketch(12, mode);
+    WritableMemory wmem = WritableMemory.allocate(64);
+    for (int i = 0; i < n; i++) {
+      String s = "\u00e9t\u00e9 " + i + " \ud83d\ude00";
+      sk1.update(s, 1.0);
+      sk2.update(new StringBuilder(s), 1.0);
+      byte[] bytes = s.getBytes(UTF_8);
+      wmem.putByteArray(5, bytes, 0, bytes.length);
+      sk3.update(wmem, 5, bytes.length, 1.0);
+    }
+    sk2.update(new StringBuilder(), 1.0);
+    sk3.update(wmem, 0, 0, 1.0);
+    assertEquals(sk2.compact().toByteArray(), sk1.compact().toByteArray());
+    assertEquals(sk3.compact().toByteArray(), sk1.compact().toByteArray());
+  }
+
   @Test
   public void checkLowK() {
     UpdatableSketchBuilder<Double, DoubleSummary> bldr = new UpdatableSketchBuilder<>(
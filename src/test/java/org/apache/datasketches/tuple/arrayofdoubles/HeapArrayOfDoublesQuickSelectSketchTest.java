@@ -19,6 +19,8 @@
 
 package org.apache.datasketches.tuple.arrayofdoubles;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import org.apache.datasketches.ResizeFactor;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableMemory;
@@ -44,6 +46,24 @@ public class HeapArrayOfDoublesQuickSelectSketchTest {
     Assert.assertNotNull(sketch.toString());
   }
 
+  @Test
+  public void charSequenceAndMemoryUpdates() {
+    ArrayOfDoublesUpdatableSketch sketch1 = new ArrayOfDoublesUpdatableSketchBuilder().build();
+    ArrayOfDoublesUpdatableSketch sketch2 = new ArrayOfDoublesUpdatableSketchBuilder().build();
+    ArrayOfDoublesUpdatableSketch sketch3 = new ArrayOfDoublesUpdatableSketchBuilder().build();
+    WritableMemory wmem = WritableMemory.allocate(64);
+    for (int i = 0; i < 10000; i++) {
+      String s = "\u00e9t\u00e9 " + i + " \ud83d\ude00";
+      sketch1.update(s, new double[] {1.0});
+      sketch2.update(new StringBuilder(s), new double[] {1.0});
+      byte[] bytes = s.getBytes(UTF_8);
+      wmem.putByteArray(5, bytes, 0, bytes.length);
+      sketch3.update(wmem, 5, bytes.length, new double[] {1.0});
+    }
+    Assert.assertEquals(sketch2.compact().toByteArray(), sketch1.compact().toByteArray());
+    Assert.assertEquals(sketch3.compact().toByteArray(), sketch1.compact().toByteArray());
+  }
+
   @Test
   public void isEmptyWithSampling() {
     float samplingProbability = 0.1f;